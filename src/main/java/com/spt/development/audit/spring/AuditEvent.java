@@ -3,14 +3,17 @@ package com.spt.development.audit.spring;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonPrimitive;
-import com.google.gson.JsonSerializer;
 import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
 import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
 import lombok.Value;
+import lombok.experimental.NonFinal;
 
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
 
 import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
 
@@ -18,19 +21,12 @@ import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
  * Class to encapsulate the audit events generated.
  */
 @Value
-@Builder(toBuilder = true)
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class AuditEvent {
     private static final Gson GSON = new GsonBuilder()
         .registerTypeAdapter(
-            OffsetDateTime.class,
-            (JsonSerializer<OffsetDateTime>) (src, typeOfSrc, context) ->
-                new JsonPrimitive(ISO_OFFSET_DATE_TIME.format(src))
-        )
-        .registerTypeAdapter(
-            OffsetDateTime.class,
-            (JsonDeserializer<OffsetDateTime>) (json, typeOfT, context) ->
-                ISO_OFFSET_DATE_TIME.parse(json.getAsString(), OffsetDateTime::from)
+            Instant.class,
+            (JsonDeserializer<Instant>) (json, typeOfT, context) ->
+                ISO_OFFSET_DATE_TIME.parse(json.getAsString(), Instant::from)
         )
         .create();
 
@@ -48,15 +44,91 @@ public class AuditEvent {
     String serviceId;
     String serviceVersion;
     String serverHostName;
-    OffsetDateTime created;
+
+    // Held as an Instant so that creating an audit event is cheap; exposed as an OffsetDateTime in UTC by getCreated().
+    @Getter(AccessLevel.NONE)
+    Instant created;
+
+    String eventId;
+
+    // Populated by the HashChainAuditEventWriter, if used; see HashChain.
+    String chainHash;
+
+    // Lazily populated by toJson() so that the event is only serialized once, however many writers it is passed to.
+    // Transient so that it is excluded from the JSON representation itself.
+    @NonFinal
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    transient volatile String json;
+
+    @Builder(toBuilder = true)
+    @SuppressWarnings("checkstyle:AbbreviationAsWordInName")
+    private AuditEvent(
+            final String type,
+            final String subType,
+            final String correlationId,
+            final String id,
+            final String details,
+            final String userId,
+            final String username,
+            final String originatingIP,
+            final String serviceId,
+            final String serviceVersion,
+            final String serverHostName,
+            @Builder.ObtainVia(field = "created") final Instant createdInstant,
+            final String eventId,
+            final String chainHash) {
+
+        this.type = type;
+        this.subType = subType;
+        this.correlationId = correlationId;
+        this.id = id;
+        this.details = details;
+        this.userId = userId;
+        this.username = username;
+        this.originatingIP = originatingIP;
+        this.serviceId = serviceId;
+        this.serviceVersion = serviceVersion;
+        this.serverHostName = serverHostName;
+        this.created = createdInstant;
+        this.eventId = eventId;
+        this.chainHash = chainHash;
+    }
 
     /**
-     * Converts the audit event to JSON.
+     * Gets the date and time that the audit event was created, in UTC.
+     *
+     * @return the date and time that the audit event was created.
+     */
+    public OffsetDateTime getCreated() {
+        return created != null ? created.atOffset(ZoneOffset.UTC) : null;
+    }
+
+    /**
+     * Gets the instant that the audit event was created.
+     *
+     * @return the instant that the audit event was created.
+     */
+    public Instant getCreatedInstant() {
+        return created;
+    }
+
+    /**
+     * Converts the audit event to JSON. The JSON is generated the first time this method is called and the same
+     * {@link String} is returned by subsequent calls, so that an event passed to multiple writers is only serialized once.
+     * The JSON for the fields that identify the service that generated the audit event is shared between audit events.
      *
      * @return a JSON representation of this audit event.
      */
     public String toJson() {
-        return GSON.toJson(this);
+        String result = json;
+
+        if (result == null) {
+            result = AuditEventJsonWriter.toJson(this);
+            json = result;
+        }
+        return result;
     }
 
     /**
@@ -69,4 +141,35 @@ public class AuditEvent {
     public static AuditEvent fromJson(String json) {
         return GSON.fromJson(json, AuditEvent.class);
     }
-}
\ No newline at end of file
+
+    /**
+     * Builder for {@link AuditEvent}s.
+     */
+    public static class AuditEventBuilder {
+
+        /**
+         * Sets the date and time that the audit event was created; the offset is not retained, the date and time is
+         * always returned in UTC by {@link AuditEvent#getCreated()}.
+         *
+         * @param created the date and time that the audit event was created.
+         *
+         * @return this builder.
+         */
+        public AuditEventBuilder created(OffsetDateTime created) {
+            return createdInstant(created != null ? created.toInstant() : null);
+        }
+
+        /**
+         * Sets the instant that the audit event was created. Named differently to {@link #created(OffsetDateTime)}, so
+         * that <code>created(null)</code> is not ambiguous.
+         *
+         * @param created the instant that the audit event was created.
+         *
+         * @return this builder.
+         */
+        public AuditEventBuilder createdInstant(Instant created) {
+            this.createdInstant = created;
+            return this;
+        }
+    }
+}
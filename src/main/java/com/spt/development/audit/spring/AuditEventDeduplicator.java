@@ -0,0 +1,257 @@
+package com.spt.development.audit.spring;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Detects duplicate {@link AuditEvent}s, for use by consumers of audit events that may receive the same audit event more
+ * than once; for example, because a JMS message was redelivered or a producer retried sending a message.
+ *
+ * <p>Audit events are remembered for a configurable time window using a rolling pair of
+ * <a href="https://en.wikipedia.org/wiki/Bloom_filter">Bloom filters</a>; each audit event is added to the current
+ * filter and checked against both the current and the previous filter. At the end of each window, the previous filter is
+ * cleared and becomes the current filter, so an audit event is remembered for at least one window and at most two. The
+ * filters are allocated once, up front, so millions of audit events can be tracked without creating any garbage.</p>
+ *
+ * <p>An audit event is identified by its {@link AuditEvent#getEventId()} if it has one, otherwise by its correlation ID,
+ * type, sub-type, ID and created timestamp.</p>
+ *
+ * <p>As with any Bloom filter, there is a small, configurable, probability of a new audit event being reported as a
+ * duplicate (a false positive), but a duplicate is never reported as new; except when the duplicates are checked
+ * concurrently with each other or with the end of a window.</p>
+ *
+ * <p>Consumers that may fail to process an audit event after checking it should check it with
+ * {@link AuditEventDeduplicator#isSeen(AuditEvent)} and only {@link AuditEventDeduplicator#record(AuditEvent)} it once it
+ * has been processed; otherwise the redelivered audit event would be discarded as a duplicate and lost.</p>
+ */
+public final class AuditEventDeduplicator {
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long MIX_MULTIPLIER_1 = 0xff51afd7ed558ccdL;
+    private static final long MIX_MULTIPLIER_2 = 0xc4ceb9fe1a85ec53L;
+    private static final long SECOND_HASH_SEED = 0x9e3779b97f4a7c15L;
+    private static final long NULL_MARKER = 0xa5a5a5a5a5a5a5a5L;
+    private static final int MIX_SHIFT = 33;
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int BITS_PER_WORD_MASK = Long.SIZE - 1;
+
+    private final Clock clock;
+    private final long windowMillis;
+    private final long numberOfBits;
+    private final int numberOfHashFunctions;
+
+    private volatile Filters filters;
+
+    /**
+     * Creates a new deduplicator.
+     *
+     * @param expectedEventsPerWindow the expected number of (distinct) audit events per window; used to size the filters.
+     * @param falsePositiveProbability the acceptable probability of a new audit event being reported as a duplicate, once
+     *                                 the expected number of audit events have been checked; for example 0.000001.
+     * @param window the minimum length of time that audit events are remembered for.
+     */
+    public AuditEventDeduplicator(final int expectedEventsPerWindow, final double falsePositiveProbability, final Duration window) {
+        this(expectedEventsPerWindow, falsePositiveProbability, window, Clock.systemUTC());
+    }
+
+    AuditEventDeduplicator(
+            final int expectedEventsPerWindow,
+            final double falsePositiveProbability,
+            final Duration window,
+            final Clock clock) {
+
+        if (expectedEventsPerWindow <= 0) {
+            throw new IllegalArgumentException("Expected events per window must be greater than zero: " + expectedEventsPerWindow);
+        }
+
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException("False positive probability must be between zero and one: " + falsePositiveProbability);
+        }
+
+        if (window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be greater than zero: " + window);
+        }
+
+        final double ln2 = Math.log(2);
+        final long bits = (long) Math.ceil(-expectedEventsPerWindow * Math.log(falsePositiveProbability) / (ln2 * ln2));
+
+        this.clock = clock;
+        this.windowMillis = window.toMillis();
+        this.numberOfBits = Math.max(Long.SIZE, (bits + BITS_PER_WORD_MASK) & ~BITS_PER_WORD_MASK);
+        this.numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfBits / expectedEventsPerWindow * ln2));
+
+        final int words = Math.toIntExact(numberOfBits >>> ADDRESS_BITS_PER_WORD);
+
+        this.filters = new Filters(new AtomicLongArray(words), new AtomicLongArray(words), clock.millis() + windowMillis);
+    }
+
+    /**
+     * Records the audit event and determines whether it has already been seen within the window.
+     *
+     * @param auditEvent the audit event to check.
+     *
+     * @return <code>true</code> if the audit event has (probably) already been seen, otherwise <code>false</code>.
+     */
+    public boolean isDuplicate(AuditEvent auditEvent) {
+        return check(auditEvent, true);
+    }
+
+    /**
+     * Determines whether the audit event has already been recorded within the window, without recording it.
+     *
+     * @param auditEvent the audit event to check.
+     *
+     * @return <code>true</code> if the audit event has (probably) already been recorded, otherwise <code>false</code>.
+     */
+    public boolean isSeen(AuditEvent auditEvent) {
+        return check(auditEvent, false);
+    }
+
+    /**
+     * Records the audit event as seen, so that it is reported as a duplicate if it is checked again within the window.
+     *
+     * @param auditEvent the audit event to record.
+     */
+    public void record(AuditEvent auditEvent) {
+        check(auditEvent, true);
+    }
+
+    private boolean check(AuditEvent auditEvent, boolean record) {
+        final Filters active = activeFilters();
+        final long hash = hash(auditEvent);
+        final long hash1 = mix(hash);
+        final long hash2 = mix(hash ^ SECOND_HASH_SEED) | 1;
+
+        boolean inCurrent = true;
+        boolean inPrevious = true;
+
+        for (int i = 0; i < numberOfHashFunctions; i++) {
+            final long index = Math.floorMod(hash1 + i * hash2, numberOfBits);
+
+            // Always set all of the bits, so the audit event is fully recorded even if it's found in the previous filter
+            inCurrent &= record ? !set(active.current, index) : isSet(active.current, index);
+            inPrevious = inPrevious && isSet(active.previous, index);
+        }
+        return inCurrent || inPrevious;
+    }
+
+    long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    int getNumberOfHashFunctions() {
+        return numberOfHashFunctions;
+    }
+
+    private Filters activeFilters() {
+        final Filters active = filters;
+
+        if (clock.millis() < active.rotateAt) {
+            return active;
+        }
+        return rotate();
+    }
+
+    private synchronized Filters rotate() {
+        final long now = clock.millis();
+        final Filters active = filters;
+
+        if (now < active.rotateAt) {
+            return active;
+        }
+
+        final AtomicLongArray cleared = active.previous;
+
+        clear(cleared);
+
+        // If two or more windows have passed, everything recorded so far has expired
+        if (now >= active.rotateAt + windowMillis) {
+            clear(active.current);
+        }
+        filters = new Filters(cleared, active.current, now + windowMillis);
+
+        return filters;
+    }
+
+    private static void clear(AtomicLongArray bits) {
+        for (int i = 0; i < bits.length(); i++) {
+            bits.set(i, 0L);
+        }
+    }
+
+    private static boolean set(AtomicLongArray bits, long index) {
+        final int word = (int) (index >>> ADDRESS_BITS_PER_WORD);
+        final long mask = 1L << (index & BITS_PER_WORD_MASK);
+
+        // Check first, as most bits will already be set once the filter fills up and reads are cheaper than writes
+        if ((bits.get(word) & mask) != 0) {
+            return false;
+        }
+        return (bits.getAndAccumulate(word, mask, (value, m) -> value | m) & mask) == 0;
+    }
+
+    private static boolean isSet(AtomicLongArray bits, long index) {
+        return (bits.get((int) (index >>> ADDRESS_BITS_PER_WORD)) & 1L << (index & BITS_PER_WORD_MASK)) != 0;
+    }
+
+    private static long hash(AuditEvent auditEvent) {
+        if (auditEvent.getEventId() != null) {
+            return hash(FNV_OFFSET_BASIS, auditEvent.getEventId());
+        }
+
+        long hash = FNV_OFFSET_BASIS;
+
+        hash = hash(hash, auditEvent.getCorrelationId());
+        hash = hash(hash, auditEvent.getType());
+        hash = hash(hash, auditEvent.getSubType());
+        hash = hash(hash, auditEvent.getId());
+
+        final Instant created = auditEvent.getCreatedInstant();
+
+        if (created == null) {
+            return hash(hash, NULL_MARKER);
+        }
+        return hash(hash(hash, created.getEpochSecond()), created.getNano());
+    }
+
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return hash(hash, NULL_MARKER);
+        }
+
+        long result = hash;
+
+        for (int i = 0; i < value.length(); i++) {
+            result = (result ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // Separate the fields, so that "ab" + "c" does not hash the same as "a" + "bc"
+        return hash(result, value.length());
+    }
+
+    private static long hash(long hash, long value) {
+        return (hash ^ value) * FNV_PRIME;
+    }
+
+    private static long mix(long value) {
+        long result = value;
+
+        result = (result ^ result >>> MIX_SHIFT) * MIX_MULTIPLIER_1;
+        result = (result ^ result >>> MIX_SHIFT) * MIX_MULTIPLIER_2;
+
+        return result ^ result >>> MIX_SHIFT;
+    }
+
+    private static final class Filters {
+        private final AtomicLongArray current;
+        private final AtomicLongArray previous;
+        private final long rotateAt;
+
+        Filters(AtomicLongArray current, AtomicLongArray previous, long rotateAt) {
+            this.current = current;
+            this.previous = previous;
+            this.rotateAt = rotateAt;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.annotations.SerializedName;
+import com.spt.development.audit.spring.util.DateTimeUtils;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Compact, dictionary-encoded representation of a batch of {@link AuditEvent}s. The fields that are typically the same
+ * for every audit event generated by a service - <code>type</code>, <code>subType</code>, <code>serviceId</code>,
+ * <code>serviceVersion</code> and <code>serverHostName</code> - are written once, to a dictionary in the header of the
+ * envelope, and each audit event refers to them by their index in the dictionary. All of the other fields are written as
+ * is, with short field names.
+ *
+ * <p>The envelope is self-contained; the dictionary is sent with every envelope so that envelopes can be decoded
+ * independently of each other, in any order.</p>
+ */
+public final class AuditEventEnvelope {
+    /**
+     * Identifies the encoding of an envelope; for example as the value of a JMS message property, so that consumers can
+     * distinguish envelopes from plain {@link AuditEvent} JSON.
+     */
+    public static final String ENCODING = "audit-event-envelope-v1";
+
+    private static final int VERSION = 1;
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private AuditEventEnvelope() {
+    }
+
+    /**
+     * Encodes the audit events as a single envelope.
+     *
+     * @param auditEvents the audit events to encode.
+     *
+     * @return the JSON representation of the envelope.
+     */
+    public static String encode(Collection<AuditEvent> auditEvents) {
+        final Encoder encoder = new Encoder();
+        final Envelope envelope = new Envelope();
+
+        envelope.version = VERSION;
+        envelope.events = new ArrayList<>(auditEvents.size());
+
+        for (AuditEvent auditEvent : auditEvents) {
+            envelope.events.add(encoder.encode(auditEvent));
+        }
+        envelope.dictionary = encoder.dictionary;
+
+        return GSON.toJson(envelope);
+    }
+
+    /**
+     * Decodes an envelope, rebuilding the full audit events.
+     *
+     * @param json the JSON representation of the envelope.
+     *
+     * @return the audit events, in the order they were encoded.
+     *
+     * @throws IllegalArgumentException if the envelope is of an unsupported version or refers to a dictionary entry that
+     *                                  does not exist.
+     */
+    public static List<AuditEvent> decode(String json) {
+        final Envelope envelope = GSON.fromJson(json, Envelope.class);
+
+        if (envelope.version != VERSION) {
+            throw new IllegalArgumentException("Unsupported audit event envelope version: " + envelope.version);
+        }
+
+        final List<String> dictionary = envelope.dictionary != null ? envelope.dictionary : List.of();
+        final List<AuditEvent> auditEvents = new ArrayList<>();
+
+        if (envelope.events != null) {
+            for (Event event : envelope.events) {
+                auditEvents.add(decode(dictionary, event));
+            }
+        }
+        return auditEvents;
+    }
+
+    private static AuditEvent decode(List<String> dictionary, Event event) {
+        return AuditEvent.builder()
+            .type(lookup(dictionary, event.type))
+            .subType(lookup(dictionary, event.subType))
+            .correlationId(event.correlationId)
+            .id(event.id)
+            .details(event.details)
+            .userId(event.userId)
+            .username(event.username)
+            .originatingIP(event.originatingIp)
+            .serviceId(lookup(dictionary, event.serviceId))
+            .serviceVersion(lookup(dictionary, event.serviceVersion))
+            .serverHostName(lookup(dictionary, event.serverHostName))
+            .createdInstant(event.created != null ? ISO_OFFSET_DATE_TIME.parse(event.created, Instant::from) : null)
+            .eventId(event.eventId)
+            .chainHash(event.chainHash)
+            .build();
+    }
+
+    private static String lookup(List<String> dictionary, Integer index) {
+        if (index == null) {
+            return null;
+        }
+
+        if (index < 0 || index >= dictionary.size()) {
+            throw new IllegalArgumentException("Audit event envelope refers to unknown dictionary entry: " + index);
+        }
+        return dictionary.get(index);
+    }
+
+    private static final class Encoder {
+        private final List<String> dictionary = new ArrayList<>();
+        private final Map<String, Integer> indexes = new HashMap<>();
+
+        Event encode(AuditEvent auditEvent) {
+            final Event event = new Event();
+
+            event.type = index(auditEvent.getType());
+            event.subType = index(auditEvent.getSubType());
+            event.correlationId = auditEvent.getCorrelationId();
+            event.id = auditEvent.getId();
+            event.details = auditEvent.getDetails();
+            event.userId = auditEvent.getUserId();
+            event.username = auditEvent.getUsername();
+            event.originatingIp = auditEvent.getOriginatingIP();
+            event.serviceId = index(auditEvent.getServiceId());
+            event.serviceVersion = index(auditEvent.getServiceVersion());
+            event.serverHostName = index(auditEvent.getServerHostName());
+            event.created = auditEvent.getCreatedInstant() != null
+                ? DateTimeUtils.formatIsoOffsetDateTime(auditEvent.getCreatedInstant())
+                : null;
+            event.eventId = auditEvent.getEventId();
+            event.chainHash = auditEvent.getChainHash();
+
+            return event;
+        }
+
+        private Integer index(String value) {
+            if (value == null) {
+                return null;
+            }
+
+            return indexes.computeIfAbsent(value, v -> {
+                dictionary.add(v);
+                return dictionary.size() - 1;
+            });
+        }
+    }
+
+    private static final class Envelope {
+        @SerializedName("v")
+        int version;
+
+        @SerializedName("dict")
+        List<String> dictionary;
+
+        @SerializedName("events")
+        List<Event> events;
+    }
+
+    private static final class Event {
+        @SerializedName("t")
+        Integer type;
+
+        @SerializedName("st")
+        Integer subType;
+
+        @SerializedName("cid")
+        String correlationId;
+
+        @SerializedName("id")
+        String id;
+
+        @SerializedName("d")
+        String details;
+
+        @SerializedName("uid")
+        String userId;
+
+        @SerializedName("un")
+        String username;
+
+        @SerializedName("ip")
+        String originatingIp;
+
+        @SerializedName("svc")
+        Integer serviceId;
+
+        @SerializedName("sv")
+        Integer serviceVersion;
+
+        @SerializedName("h")
+        Integer serverHostName;
+
+        @SerializedName("ts")
+        String created;
+
+        @SerializedName("eid")
+        String eventId;
+
+        @SerializedName("ch")
+        String chainHash;
+    }
+}
@@ -0,0 +1,114 @@
+package com.spt.development.audit.spring;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique IDs for {@link AuditEvent}s, so that consumers can detect duplicate audit events; for example if an
+ * audit event is redelivered or replayed. The IDs are <a href="https://github.com/ulid/spec">ULID</a> style, 26 character,
+ * Crockford base32 encoded 128-bit values made up of:
+ *
+ * <ul>
+ *     <li>a 48-bit timestamp, the number of milliseconds since the epoch;</li>
+ *     <li>a 32-bit node ID, unique to the generator;</li>
+ *     <li>a 48-bit sequence number, made up of a random offset plus a counter of the IDs generated within the same
+ *     millisecond.</li>
+ * </ul>
+ *
+ * <p>The IDs therefore sort in (approximately) the order they were generated in and the IDs generated by a single
+ * generator are monotonically increasing, even if the clock goes backwards. Generating an ID is lock-free; the timestamp
+ * and counter are packed into a single <code>long</code> and advanced together with a compare-and-set, so the IDs are
+ * monotonically increasing in the order that they were generated, even when they are generated concurrently. If more
+ * than 65,536 IDs are generated within the same millisecond, the counter carries into the timestamp. The node ID and the
+ * sequence number offset are randomly generated once, when the generator is created, so {@link SecureRandom} is not used
+ * when generating IDs.</p>
+ */
+public final class AuditEventIdGenerator {
+    private static final int ID_LENGTH = 26;
+    private static final int BITS_PER_CHAR = 5;
+    private static final int CHAR_MASK = 0x1F;
+    private static final int NODE_ID_LOW_BITS = 16;
+    private static final int COUNTER_BITS = 16;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final int SEQUENCE_BITS = 48;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long NODE_ID_LOW_MASK = (1L << NODE_ID_LOW_BITS) - 1;
+    private static final long UNSIGNED_INT_MASK = 0xFFFF_FFFFL;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final char[] ENCODING = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final Clock clock;
+    private final long nodeId;
+    private final long sequenceOffset;
+    private final AtomicLong state = new AtomicLong();
+
+    /**
+     * Creates a new generator, with a randomly generated node ID.
+     */
+    public AuditEventIdGenerator() {
+        this(Clock.systemUTC(), RANDOM);
+    }
+
+    /**
+     * Creates a new generator with the node ID given. Each generator that generates IDs concurrently, across all
+     * instances of all services writing to the same destination, must have a different node ID.
+     *
+     * @param nodeId the node ID.
+     */
+    public AuditEventIdGenerator(final int nodeId) {
+        this(Clock.systemUTC(), nodeId, RANDOM.nextLong());
+    }
+
+    AuditEventIdGenerator(final Clock clock, final SecureRandom random) {
+        this(clock, random.nextInt(), random.nextLong());
+    }
+
+    AuditEventIdGenerator(final Clock clock, final int nodeId, final long initialSequence) {
+        this.clock = clock;
+        this.nodeId = nodeId & UNSIGNED_INT_MASK;
+        // Start in the lower half of the sequence so that adding the counter to it never wraps
+        this.sequenceOffset = initialSequence & (SEQUENCE_MASK >>> 1);
+    }
+
+    /**
+     * Generates a new ID.
+     *
+     * @return the new ID.
+     */
+    public String nextId() {
+        final long now = clock.millis();
+        long current;
+        long next;
+
+        do {
+            current = state.get();
+
+            // The counter restarts each millisecond; if the clock goes backwards, the last timestamp keeps being used
+            next = now > current >>> COUNTER_BITS ? now << COUNTER_BITS : current + 1;
+        } while (!state.compareAndSet(current, next));
+
+        final long timestamp = next >>> COUNTER_BITS;
+        final long sequenceNumber = sequenceOffset + (next & COUNTER_MASK);
+
+        return encode(
+                timestamp << NODE_ID_LOW_BITS | nodeId >>> NODE_ID_LOW_BITS,
+                (nodeId & NODE_ID_LOW_MASK) << SEQUENCE_BITS | sequenceNumber
+        );
+    }
+
+    private static String encode(long high, long low) {
+        final char[] chars = new char[ID_LENGTH];
+        long hi = high;
+        long lo = low;
+
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ENCODING[(int) lo & CHAR_MASK];
+
+            // Shift the 128-bit value right by 5 bits, carrying the low bits of the high word into the low word
+            lo = lo >>> BITS_PER_CHAR | hi << (Long.SIZE - BITS_PER_CHAR);
+            hi >>>= BITS_PER_CHAR;
+        }
+        return new String(chars);
+    }
+}
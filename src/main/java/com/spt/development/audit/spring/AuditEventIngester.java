@@ -0,0 +1,343 @@
+package com.spt.development.audit.spring;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumes the audit event messages sent by a {@link JmsAuditEventWriter} from a JMS queue, in batches, and writes them
+ * to a {@link Sink}; a JDBC batch insert for example. Both plain {@link AuditEvent} JSON messages and
+ * {@link AuditEventEnvelope} messages are supported.
+ *
+ * <p>The messages are consumed with {@link Session#CLIENT_ACKNOWLEDGE}. A batch is complete when it contains the maximum
+ * number of messages or when the maximum batch wait has passed, at which point the messages are decoded - in parallel if
+ * a decode {@link Executor} has been configured - and written to the {@link Sink}. The messages are only acknowledged
+ * once the {@link Sink} has successfully written the audit events; if the {@link Sink} fails, writing the batch is
+ * retried until it succeeds or the ingester is closed, in which case the messages are recovered so that they are
+ * redelivered. No more messages are received while a batch is being written, so a slow {@link Sink} applies backpressure
+ * to the broker through the consumer's prefetch limit, which should therefore be at least as large as the batch size.
+ * Messages that cannot be decoded are logged and discarded.</p>
+ *
+ * <p>The ingester is a {@link Runnable} that consumes messages until it is closed, so it should be run on a dedicated
+ * thread. If the connection to the broker fails, the failure is logged and {@link AuditEventIngester#run()} returns.</p>
+ */
+@Slf4j
+public class AuditEventIngester implements Runnable, Closeable {
+    /**
+     * The default maximum number of messages consumed in a single batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * The default maximum length of time to wait for a batch to fill up, before writing the messages received so far.
+     */
+    public static final Duration DEFAULT_MAX_BATCH_WAIT = Duration.ofMillis(200);
+
+    /**
+     * The default length of time to wait before retrying a batch that the {@link Sink} failed to write.
+     */
+    public static final Duration DEFAULT_RETRY_INTERVAL = Duration.ofSeconds(1);
+
+    private final ConnectionFactory connectionFactory;
+    private final String destinationName;
+    private final Sink sink;
+
+    // Typically configured on one thread and then run on another, so all of the configuration is volatile
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile Duration maxBatchWait = DEFAULT_MAX_BATCH_WAIT;
+    private volatile Duration retryInterval = DEFAULT_RETRY_INTERVAL;
+    private volatile Executor decodeExecutor;
+    private volatile AuditEventDeduplicator deduplicator;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new ingester.
+     *
+     * @param connectionFactory the connection factory used to connect to the broker.
+     * @param destinationName the name of the queue to consume the audit event messages from.
+     * @param sink the sink to write the audit events to.
+     */
+    public AuditEventIngester(final ConnectionFactory connectionFactory, final String destinationName, final Sink sink) {
+        this.connectionFactory = connectionFactory;
+        this.destinationName = destinationName;
+        this.sink = sink;
+    }
+
+    /**
+     * Sets the maximum number of messages consumed in a single batch; defaults to
+     * {@link AuditEventIngester#DEFAULT_BATCH_SIZE}.
+     *
+     * @param batchSize the maximum number of messages in a batch.
+     *
+     * @return this ingester.
+     */
+    public AuditEventIngester withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the maximum length of time to wait for a batch to fill up; defaults to
+     * {@link AuditEventIngester#DEFAULT_MAX_BATCH_WAIT}.
+     *
+     * @param maxBatchWait the maximum length of time to wait for a batch to fill up.
+     *
+     * @return this ingester.
+     */
+    public AuditEventIngester withMaxBatchWait(Duration maxBatchWait) {
+        this.maxBatchWait = maxBatchWait;
+        return this;
+    }
+
+    /**
+     * Sets the length of time to wait before retrying a batch that the {@link Sink} failed to write; defaults to
+     * {@link AuditEventIngester#DEFAULT_RETRY_INTERVAL}.
+     *
+     * @param retryInterval the length of time to wait before retrying.
+     *
+     * @return this ingester.
+     */
+    public AuditEventIngester withRetryInterval(Duration retryInterval) {
+        this.retryInterval = retryInterval;
+        return this;
+    }
+
+    /**
+     * Decodes the messages in each batch in parallel, using the {@link Executor}. By default, the messages are decoded on
+     * the consuming thread.
+     *
+     * @param decodeExecutor the executor to decode the messages with.
+     *
+     * @return this ingester.
+     */
+    public AuditEventIngester withDecodeExecutor(Executor decodeExecutor) {
+        this.decodeExecutor = decodeExecutor;
+        return this;
+    }
+
+    /**
+     * Discards audit events that have already been ingested, as determined by the {@link AuditEventDeduplicator}. Audit
+     * events are only recorded as ingested once they have been written to the sink, so audit events in messages that are
+     * redelivered because they could not be written are not discarded.
+     *
+     * @param deduplicator the deduplicator used to detect duplicate audit events.
+     *
+     * @return this ingester.
+     */
+    public AuditEventIngester withDeduplicator(AuditEventDeduplicator deduplicator) {
+        this.deduplicator = deduplicator;
+        return this;
+    }
+
+    /**
+     * Consumes audit event messages until the ingester is closed.
+     */
+    @Override
+    public void run() {
+        try (Connection connection = connectionFactory.createConnection()) {
+            final Session session = connection.createSession(false, Session.CLIENT_ACKNOWLEDGE);
+            final MessageConsumer consumer = session.createConsumer(session.createQueue(destinationName));
+
+            connection.start();
+
+            while (running) {
+                ingestBatch(session, consumer);
+            }
+        } catch (JMSException ex) {
+            LOG.error("Failed to consume audit event messages from {}", destinationName, ex);
+        }
+    }
+
+    /**
+     * Stops consuming audit event messages; {@link AuditEventIngester#run()} returns once the current batch is complete.
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    int ingestBatch(Session session, MessageConsumer consumer) throws JMSException {
+        final List<Message> messages = receiveBatch(consumer);
+
+        if (messages.isEmpty()) {
+            return 0;
+        }
+
+        final List<AuditEvent> auditEvents = deduplicate(decode(messages));
+
+        if (!write(auditEvents)) {
+            LOG.warn("Ingester closed before batch of {} audit event message(s) could be written, messages will be redelivered",
+                    messages.size());
+
+            session.recover();
+            return 0;
+        }
+
+        // Only recorded once written, so that audit events in messages that are redelivered are not lost as duplicates
+        record(auditEvents);
+
+        // With client acknowledge, acknowledging a message acknowledges all the messages consumed by the session
+        messages.get(messages.size() - 1).acknowledge();
+
+        return messages.size();
+    }
+
+    private List<Message> receiveBatch(MessageConsumer consumer) throws JMSException {
+        final List<Message> messages = new ArrayList<>();
+        final long deadline = System.nanoTime() + maxBatchWait.toNanos();
+
+        while (messages.size() < batchSize) {
+            final long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            final Message message = remainingMillis > 0 ? consumer.receive(remainingMillis) : consumer.receiveNoWait();
+
+            if (message == null) {
+                break;
+            }
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    private List<AuditEvent> decode(List<Message> messages) {
+        final List<AuditEvent> auditEvents = new ArrayList<>(messages.size());
+        final Executor executor = decodeExecutor;
+
+        if (executor == null) {
+            messages.forEach(m -> auditEvents.addAll(decode(m)));
+
+            return auditEvents;
+        }
+
+        final List<CompletableFuture<List<AuditEvent>>> futures = new ArrayList<>(messages.size());
+
+        for (Message message : messages) {
+            futures.add(CompletableFuture.supplyAsync(() -> decode(message), executor));
+        }
+        futures.forEach(f -> auditEvents.addAll(f.join()));
+
+        return auditEvents;
+    }
+
+    private static List<AuditEvent> decode(Message message) {
+        if (!(message instanceof TextMessage)) {
+            LOG.error("Audit event message is not a text message, message will be discarded: {}", message);
+
+            return List.of();
+        }
+
+        try {
+            final String text = ((TextMessage) message).getText();
+
+            if (AuditEventEnvelope.ENCODING.equals(message.getStringProperty(JmsAuditEventWriter.AUDIT_EVENT_ENCODING_PROPERTY))) {
+                return AuditEventEnvelope.decode(text);
+            }
+            return List.of(AuditEvent.fromJson(text));
+        } catch (JMSException | RuntimeException ex) {
+            LOG.error("Failed to decode audit event message, message will be discarded: {}", message, ex);
+
+            return List.of();
+        }
+    }
+
+    private List<AuditEvent> deduplicate(List<AuditEvent> auditEvents) {
+        final AuditEventDeduplicator deduplicator = this.deduplicator;
+
+        if (deduplicator == null) {
+            return auditEvents;
+        }
+
+        final List<AuditEvent> result = new ArrayList<>(auditEvents.size());
+        final Set<AuditEvent> batch = new HashSet<>();
+
+        for (AuditEvent auditEvent : auditEvents) {
+            if (deduplicator.isSeen(auditEvent) || !batch.add(auditEvent)) {
+                LOG.debug("Discarding duplicate audit event: {}", auditEvent);
+                continue;
+            }
+            result.add(auditEvent);
+        }
+        return result;
+    }
+
+    private void record(List<AuditEvent> auditEvents) {
+        final AuditEventDeduplicator deduplicator = this.deduplicator;
+
+        if (deduplicator != null) {
+            auditEvents.forEach(deduplicator::record);
+        }
+    }
+
+    private boolean write(List<AuditEvent> auditEvents) {
+        if (auditEvents.isEmpty()) {
+            return true;
+        }
+
+        while (true) {
+            try {
+                sink.write(auditEvents);
+
+                return true;
+            } catch (RuntimeException ex) {
+                LOG.error("Failed to write batch of {} audit event(s), will retry in {}", auditEvents.size(), retryInterval, ex);
+            }
+
+            if (!running || !sleep(retryInterval)) {
+                return false;
+            }
+        }
+    }
+
+    private boolean sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            running = false;
+
+            return false;
+        }
+    }
+
+    /**
+     * The destination of the audit events consumed by an {@link AuditEventIngester}.
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * Writes a batch of audit events; if an exception is thrown, the whole batch will be written again.
+         *
+         * @param auditEvents the audit events to write.
+         */
+        void write(List<AuditEvent> auditEvents);
+
+        /**
+         * Creates a sink that writes each batch of audit events to the {@link AuditEventWriter} with
+         * {@link AuditEventWriter#writeAll(java.util.Collection)}.
+         *
+         * @param auditEventWriter the audit event writer to write the audit events to.
+         *
+         * @return a new sink.
+         */
+        static Sink of(AuditEventWriter auditEventWriter) {
+            return auditEventWriter::writeAll;
+        }
+    }
+}
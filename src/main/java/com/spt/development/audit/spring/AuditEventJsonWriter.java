@@ -0,0 +1,167 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.DateTimeUtils;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serializes {@link AuditEvent}s to JSON, producing exactly the same output as {@link com.google.gson.Gson} with its
+ * default settings (null fields omitted and HTML characters escaped) but without reflection.
+ *
+ * <p>The <code>serviceId</code>, <code>serviceVersion</code> and <code>serverHostName</code> are the same for every
+ * audit event generated by an {@link com.spt.development.audit.spring.aop.Auditor}, so the JSON fragment for these
+ * fields is only encoded once and then spliced into the JSON of each audit event. The fragments are cached keyed on
+ * the fields, so that audit events from several {@link com.spt.development.audit.spring.aop.Auditor}s (or ingested
+ * from several services) interleaved with each other each reuse their own fragment. The cache is small and is cleared
+ * if it fills up.</p>
+ */
+final class AuditEventJsonWriter {
+    static final int MAX_CACHED_SERVICE_FIELDS = 64;
+
+    private static final int INITIAL_CAPACITY = 512;
+    private static final char LINE_SEPARATOR = 0x2028;
+    private static final char PARAGRAPH_SEPARATOR = 0x2029;
+    private static final int FIRST_PRINTABLE_CHAR = 0x20;
+    private static final int ASCII_CHARS = 128;
+    private static final String HTML_CHARS = "<>&='";
+    private static final String[] REPLACEMENT_CHARS = new String[ASCII_CHARS];
+
+    static {
+        for (int i = 0; i < FIRST_PRINTABLE_CHAR; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+
+        for (char c : HTML_CHARS.toCharArray()) {
+            REPLACEMENT_CHARS[c] = String.format("\\u%04x", (int) c);
+        }
+    }
+
+    private static final Map<List<String>, ServiceFields> SERVICE_FIELDS = new ConcurrentHashMap<>();
+
+    private AuditEventJsonWriter() {
+    }
+
+    /**
+     * Converts the audit event to JSON.
+     *
+     * @param auditEvent the audit event to convert.
+     *
+     * @return the JSON representation of the audit event.
+     */
+    static String toJson(AuditEvent auditEvent) {
+        final StringBuilder json = new StringBuilder(INITIAL_CAPACITY).append('{');
+
+        field(json, "type", auditEvent.getType());
+        field(json, "subType", auditEvent.getSubType());
+        field(json, "correlationId", auditEvent.getCorrelationId());
+        field(json, "id", auditEvent.getId());
+        field(json, "details", auditEvent.getDetails());
+        field(json, "userId", auditEvent.getUserId());
+        field(json, "username", auditEvent.getUsername());
+        field(json, "originatingIP", auditEvent.getOriginatingIP());
+        fragment(json, serviceFields(auditEvent).json);
+        created(json, auditEvent.getCreatedInstant());
+        field(json, "eventId", auditEvent.getEventId());
+        // Always last, so that the hash chain can be verified against the rest of the JSON; see HashChain
+        field(json, "chainHash", auditEvent.getChainHash());
+
+        return json.append('}').toString();
+    }
+
+    static ServiceFields serviceFields(AuditEvent auditEvent) {
+        final List<String> key = Arrays.asList(auditEvent.getServiceId(), auditEvent.getServiceVersion(), auditEvent.getServerHostName());
+        final ServiceFields serviceFields = SERVICE_FIELDS.get(key);
+
+        if (serviceFields != null) {
+            return serviceFields;
+        }
+
+        if (SERVICE_FIELDS.size() >= MAX_CACHED_SERVICE_FIELDS) {
+            // Only reached with an unexpectedly large number of services, so there is no need to evict selectively
+            SERVICE_FIELDS.clear();
+        }
+        return SERVICE_FIELDS.computeIfAbsent(key, k -> new ServiceFields(k.get(0), k.get(1), k.get(2)));
+    }
+
+    private static void created(StringBuilder json, Instant created) {
+        if (created != null) {
+            separator(json);
+            DateTimeUtils.appendIsoOffsetDateTime(created, json.append("\"created\":\"")).append('"');
+        }
+    }
+
+    private static void field(StringBuilder json, String name, String value) {
+        if (value != null) {
+            separator(json);
+            string(json.append('"').append(name).append("\":"), value);
+        }
+    }
+
+    private static void fragment(StringBuilder json, String fragment) {
+        if (!fragment.isEmpty()) {
+            separator(json);
+            json.append(fragment);
+        }
+    }
+
+    private static void separator(StringBuilder json) {
+        if (json.length() > 1) {
+            json.append(',');
+        }
+    }
+
+    private static void string(StringBuilder json, String value) {
+        json.append('"');
+
+        int last = 0;
+        final int length = value.length();
+
+        for (int i = 0; i < length; i++) {
+            final String replacement = replacement(value.charAt(i));
+
+            if (replacement != null) {
+                json.append(value, last, i).append(replacement);
+                last = i + 1;
+            }
+        }
+        json.append(value, last, length).append('"');
+    }
+
+    private static String replacement(char c) {
+        if (c < REPLACEMENT_CHARS.length) {
+            return REPLACEMENT_CHARS[c];
+        }
+
+        if (c == LINE_SEPARATOR) {
+            return "\\u2028";
+        }
+        return c == PARAGRAPH_SEPARATOR ? "\\u2029" : null;
+    }
+
+    /**
+     * The pre-encoded JSON of the fields of an audit event that identify the service that generated it.
+     */
+    static final class ServiceFields {
+        private final String json;
+
+        ServiceFields(String serviceId, String serviceVersion, String serverHostName) {
+            final StringBuilder fragment = new StringBuilder();
+
+            field(fragment, "serviceId", serviceId);
+            field(fragment, "serviceVersion", serviceVersion);
+            field(fragment, "serverHostName", serverHostName);
+            this.json = fragment.toString();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.spt.development.audit.spring;
 
+import java.util.Collection;
+import java.util.function.Supplier;
+
 /**
  * Writes audit events.
  */
@@ -11,4 +14,38 @@ public interface AuditEventWriter {
      * @param auditEvent the audit event to write.
      */
     void write(AuditEvent auditEvent);
+
+    /**
+     * Writes a batch of audit events, in order. The default implementation writes each of the audit events in turn with
+     * {@link AuditEventWriter#write(AuditEvent)}; implementations that can write a batch of audit events more efficiently
+     * than one at a time should override this method.
+     *
+     * @param auditEvents the audit events to write.
+     */
+    default void writeAll(Collection<AuditEvent> auditEvents) {
+        auditEvents.forEach(this::write);
+    }
+
+    /**
+     * Writes a batch of audit events that are only built when they are needed, so that no time is spent building audit
+     * events that are discarded. The default implementation builds the audit events straight away and writes them with
+     * {@link AuditEventWriter#writeAll(Collection)}; implementations that delay writing the audit events, such as
+     * {@link TransactionAwareAuditEventWriter}, delay building them too.
+     *
+     * @param auditEvents builds the audit events to write.
+     */
+    default void writeDeferred(Supplier<? extends Collection<AuditEvent>> auditEvents) {
+        writeAll(auditEvents.get());
+    }
+
+    /**
+     * Checks whether audit events written now would be discarded rather than written; for example, because the current
+     * transaction has been marked as rollback-only. This allows the caller to skip building the audit events at all. The
+     * default implementation returns <code>false</code>.
+     *
+     * @return <code>true</code> if audit events written now would be discarded.
+     */
+    default boolean isDiscarding() {
+        return false;
+    }
 }
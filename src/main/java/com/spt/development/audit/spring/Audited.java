@@ -48,10 +48,36 @@ public @interface Audited {
      */
     String subType();
 
+    /**
+     * If specified, a SpEL expression that is evaluated to retrieve the ID to add to the {@link AuditEvent}, such as
+     * <code>#result.id</code>; takes precedence over any {@link Id} annotations. The expression can refer to the value
+     * returned by the method as <code>#result</code> and to the method arguments as <code>#p0</code>, <code>#a0</code>
+     * or, if the code is compiled with the <code>-parameters</code> flag, by name. As with {@link Id}, if the expression
+     * evaluates to a {@link java.util.Collection} or an array, an audit event is generated for each element.
+     *
+     * <p>The expression is parsed once per method and is compiled to bytecode once it has been evaluated a number of
+     * times.</p>
+     *
+     * @return the ID expression.
+     */
+    String id() default "";
+
+    /**
+     * If specified, a SpEL expression that is evaluated to retrieve the details to add to the {@link AuditEvent}, such as
+     * <code>#p0.items.size()</code>; takes precedence over any {@link Detail} annotations. The result of the expression
+     * is converted to JSON. See {@link Audited#id()} for the variables that the expression can refer to.
+     *
+     * @return the details expression.
+     */
+    String detail() default "";
+
     /**
      * Annotation added to method arguments or methods to specify the argument (or return value in the case of methods),
      * to retrieve the ID from to add to the {@link AuditEvent}. Only one argument (or the method itself) should be
      * annotated with this annotation.
+     *
+     * <p>If the argument (or return value) is a {@link java.util.Collection} or an array, an ID is retrieved from each
+     * of its elements; see {@link Id#bulk()}.</p>
      */
     @Target({ METHOD, PARAMETER })
     @Retention(RUNTIME)
@@ -68,12 +94,40 @@ public @interface Audited {
 
         /**
          * If specified, then the name of the field to use from the argument annotated or return value if a method
-         * itself is annotated, to retrieve the ID from.
+         * itself is annotated, to retrieve the ID from. Nested fields can be specified with a dotted path, such as
+         * <code>customer.id</code>, and a getter is used if there is no field with the name.
          *
          * @return the field name.
          */
         @AliasFor("value")
         String field() default "";
+
+        /**
+         * Determines how the audit events are generated when the argument (or return value) annotated is a
+         * {@link java.util.Collection} or an array. Ignored for any other type of argument (or return value).
+         *
+         * @return the bulk mode.
+         */
+        Bulk bulk() default Bulk.EVENT_PER_ID;
+    }
+
+    /**
+     * The ways in which audit events can be generated for a {@link java.util.Collection} or an array annotated with
+     * {@link Id}. In both cases, the fields that are common to all of the audit events are only computed once.
+     */
+    enum Bulk {
+
+        /**
+         * An audit event is generated for each element of the collection or array, with the ID retrieved from that
+         * element. A single audit event with a <code>null</code> ID is generated if the collection or array is empty.
+         */
+        EVENT_PER_ID,
+
+        /**
+         * A single audit event is generated, with the IDs retrieved from each of the elements of the collection or
+         * array joined with a comma.
+         */
+        SINGLE_EVENT
     }
 
     /**
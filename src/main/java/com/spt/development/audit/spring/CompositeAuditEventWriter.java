@@ -0,0 +1,201 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * An implementation of {@link AuditEventWriter} that writes each audit event to multiple {@link AuditEventWriter}s in
+ * parallel. The audit event is serialized once, before being handed to the writers, so the encoded payload is shared
+ * between them rather than each writer serializing the event again.
+ *
+ * <p>Each writer is isolated from the others; if a writer fails, or does not complete within its timeout, the failure is
+ * logged and the remaining writers are unaffected. The writers are called on threads belonging to the
+ * {@link ExecutorService} supplied, after the current transaction (if any) has committed, therefore the writers added
+ * to this writer should not rely on being called within the caller's transaction. The audit events written within a
+ * transaction are passed to each writer in one go, with {@link AuditEventWriter#writeAll(java.util.Collection)}. If the
+ * {@link ExecutorService} rejects a write, the failure is logged and the writers already called are still waited
+ * for.</p>
+ */
+@Slf4j
+public class CompositeAuditEventWriter extends TransactionAwareAuditEventWriter {
+    private final ExecutorService executorService;
+    private final Duration defaultTimeout;
+    private final List<Delegate> delegates = new ArrayList<>();
+    private final CorrelationIdLogger logger;
+
+    /**
+     * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
+     * include the current correlation ID; see
+     * {@link CompositeAuditEventWriter#CompositeAuditEventWriter(boolean, ExecutorService, Duration)} to disable this
+     * behaviour.
+     *
+     * @param executorService the executor service used to write to the writers in parallel.
+     * @param defaultTimeout the maximum amount of time to wait for a writer to write an audit event, unless a timeout is
+     *                       specified explicitly when the writer is added.
+     */
+    public CompositeAuditEventWriter(final ExecutorService executorService, final Duration defaultTimeout) {
+        this(true, executorService, defaultTimeout);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param executorService the executor service used to write to the writers in parallel.
+     * @param defaultTimeout the maximum amount of time to wait for a writer to write an audit event, unless a timeout is
+     *                       specified explicitly when the writer is added.
+     */
+    public CompositeAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final ExecutorService executorService,
+            final Duration defaultTimeout) {
+        this(includeCorrelationIdInLogs, executorService, defaultTimeout, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param executorService the executor service used to write to the writers in parallel.
+     * @param defaultTimeout the maximum amount of time to wait for a writer to write an audit event, unless a timeout is
+     *                       specified explicitly when the writer is added.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public CompositeAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final ExecutorService executorService,
+            final Duration defaultTimeout,
+            final CorrelationIdProvider correlationIdProvider) {
+        this(includeCorrelationIdInLogs, executorService, defaultTimeout, correlationIdProvider, new TransactionSyncManFacade());
+    }
+
+    CompositeAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final ExecutorService executorService,
+            final Duration defaultTimeout,
+            final CorrelationIdProvider correlationIdProvider,
+            final TransactionSyncManFacade transactionSyncManFacade) {
+        super(includeCorrelationIdInLogs, correlationIdProvider, transactionSyncManFacade);
+
+        this.executorService = executorService;
+        this.defaultTimeout = defaultTimeout;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Adds a writer to write the audit events to, using the default timeout.
+     *
+     * @param auditEventWriter the writer to add.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public CompositeAuditEventWriter withWriter(AuditEventWriter auditEventWriter) {
+        return withWriter(auditEventWriter, defaultTimeout);
+    }
+
+    /**
+     * Adds a writer to write the audit events to.
+     *
+     * @param auditEventWriter the writer to add.
+     * @param timeout the maximum amount of time to wait for the writer to write an audit event, before giving up on it.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public CompositeAuditEventWriter withWriter(AuditEventWriter auditEventWriter, Duration timeout) {
+        delegates.add(new Delegate(auditEventWriter, timeout.toNanos()));
+        return this;
+    }
+
+    /**
+     * Serializes the {@link AuditEvent} and then writes it to all of the configured writers in parallel, waiting for each
+     * writer to complete or for its timeout to expire.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        writeToAll(List.of(auditEvent), auditEventWriter -> auditEventWriter.write(auditEvent));
+    }
+
+    /**
+     * Serializes the {@link AuditEvent}s and then writes them to all of the configured writers in parallel, passing all
+     * of the audit events to each writer in one go, waiting for each writer to complete or for its timeout to expire.
+     *
+     * @param auditEvents the {@link AuditEvent}s to write.
+     */
+    @Override
+    protected void doWriteAll(List<AuditEvent> auditEvents) {
+        writeToAll(auditEvents, auditEventWriter -> auditEventWriter.writeAll(auditEvents));
+    }
+
+    private void writeToAll(List<AuditEvent> auditEvents, Consumer<AuditEventWriter> write) {
+        // Serialize up front, the result is cached by the audit event and shared by all of the writers
+        auditEvents.forEach(AuditEvent::toJson);
+
+        final long start = System.nanoTime();
+        final List<Future<?>> futures = new ArrayList<>(delegates.size());
+
+        try {
+            for (Delegate delegate : delegates) {
+                futures.add(executorService.submit(() -> write.accept(delegate.getAuditEventWriter())));
+            }
+        } catch (RejectedExecutionException ex) {
+            // The writers already submitted are still waited for below, so they are neither abandoned nor left running
+            delegates.subList(futures.size(), delegates.size()).forEach(
+                    delegate -> error(auditEvents, "Failed to schedule write of audit event with {}: {}", delegate, ex)
+            );
+        }
+
+        for (int i = 0; i < futures.size(); i++) {
+            if (!await(auditEvents, delegates.get(i), futures.get(i), start)) {
+                futures.subList(i, futures.size()).forEach(f -> f.cancel(true));
+                return;
+            }
+        }
+    }
+
+    private boolean await(List<AuditEvent> auditEvents, Delegate delegate, Future<?> future, long start) {
+        try {
+            future.get(start + delegate.getTimeoutNanos() - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            error(auditEvents, "Failed to write audit event with {}: {}", delegate, ex.getCause());
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            error(auditEvents, "Timed out writing audit event with {}: {}", delegate, null);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            error(auditEvents, "Interrupted whilst writing audit event with {}: {}", delegate, null);
+
+            return false;
+        }
+        return true;
+    }
+
+    private void error(List<AuditEvent> auditEvents, String format, Delegate delegate, Throwable cause) {
+        final String writerName = delegate.getAuditEventWriter().getClass().getSimpleName();
+
+        // All of the auditing data is logged, so this *could* be used to manually repair the audit log if necessary
+        auditEvents.forEach(auditEvent -> logger.log(Level.ERROR, auditEvent.getCorrelationId(), format, writerName, auditEvent, cause));
+    }
+
+    @Value
+    private static class Delegate {
+        AuditEventWriter auditEventWriter;
+        long timeoutNanos;
+    }
+}
@@ -0,0 +1,370 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Redacts personal data from the audit event details as they are serialized by {@link DetailSerializers}; see
+ * {@link DetailSerializers#withRedactor(DetailRedactor)}. Values can be masked by their path within the details, or
+ * by patterns matched against the string values, such as {@link DetailRedactor#EMAIL_ADDRESS} and
+ * {@link DetailRedactor#PAYMENT_CARD_NUMBER}.
+ *
+ * <p>The redaction is applied to each token as it is written to the JSON stream, so the details are never parsed back
+ * into a tree. The paths are compiled into a tree of names which is walked as the names are written, and the
+ * patterns are compiled up front, so no strings are built to redact the details other than the redacted values
+ * themselves and the string form of numbers that could match one of the patterns. Numbers are never matched against
+ * {@link DetailRedactor#EMAIL_ADDRESS} and only integral values of 13 digits or more, or non-integral values, are matched
+ * against {@link DetailRedactor#PAYMENT_CARD_NUMBER}; all numbers are matched against any other pattern. The redactor
+ * must be fully configured before it is first used.</p>
+ */
+public final class DetailRedactor {
+    /**
+     * Matches email addresses.
+     */
+    public static final Pattern EMAIL_ADDRESS = Pattern.compile("[A-Za-z0-9._%+-]+@[A-Za-z0-9.-]+\\.[A-Za-z]{2,}");
+
+    /**
+     * Matches payment card numbers of 13 to 19 digits, optionally separated by spaces or hyphens.
+     */
+    public static final Pattern PAYMENT_CARD_NUMBER = Pattern.compile("\\b\\d(?:[ -]?\\d){12,18}\\b");
+
+    private static final String WILDCARD = "*";
+    private static final int INITIAL_DEPTH = 8;
+    private static final long MIN_PAYMENT_CARD_NUMBER = 1_000_000_000_000L;
+
+    private final List<String[]> paths = new ArrayList<>();
+    private final List<Pattern> patterns = new ArrayList<>();
+
+    private PathNode root = new PathNode();
+
+    /**
+     * Masks the values at the paths given, whatever their type. A path is the dotted names of the fields leading to the
+     * value, from the root of the details; for example <code>customer.email</code>, or <code>arg1.customer.email</code>
+     * if multiple arguments are annotated with {@link Audited.Detail}. Array elements have the same path as the array
+     * and a <code>*</code> segment matches any name.
+     *
+     * @param paths the paths of the values to mask.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public DetailRedactor withMaskedPaths(String... paths) {
+        for (String path : paths) {
+            this.paths.add(path.split("\\."));
+        }
+        root = PathNode.compile(this.paths, 0);
+
+        return this;
+    }
+
+    /**
+     * Replaces the parts of string values that match the patterns given with {@link DetailSerializers#MASK}. The
+     * patterns are also matched against the string form of numeric values, such as a payment card number held in a
+     * <code>long</code> or a {@link java.math.BigInteger}; a numeric value that matches is written as the redacted
+     * string.
+     *
+     * @param patterns the patterns to mask.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public DetailRedactor withMaskedPatterns(Pattern... patterns) {
+        this.patterns.addAll(Arrays.asList(patterns));
+        return this;
+    }
+
+    JsonWriter newJsonWriter(Writer out) {
+        // The string form of a number never contains an '@', so email addresses are not looked for in numbers
+        final Pattern[] numberPatterns = patterns.stream().filter(pattern -> pattern != EMAIL_ADDRESS).toArray(Pattern[]::new);
+        final boolean onlyPaymentCardNumbers = Arrays.stream(numberPatterns).allMatch(pattern -> pattern == PAYMENT_CARD_NUMBER);
+
+        return new RedactingJsonWriter(out, root, patterns.toArray(Pattern[]::new), numberPatterns, onlyPaymentCardNumbers);
+    }
+
+    private static final class PathNode {
+        private final Map<String, PathNode> children = new HashMap<>();
+        private boolean masked;
+
+        static PathNode compile(List<String[]> paths, int index) {
+            // The paths starting with a wildcard are merged into the children for each name, so that a name can be
+            // matched by a single lookup as it is written, rather than by trying each of the paths
+            final PathNode node = new PathNode();
+            final Set<String> names = new LinkedHashSet<>();
+
+            for (String[] path : paths) {
+                if (path.length == index) {
+                    node.masked = true;
+                } else {
+                    names.add(path[index]);
+                }
+            }
+
+            for (String name : names) {
+                final List<String[]> matching = paths.stream()
+                        .filter(path -> path.length > index && (path[index].equals(name) || path[index].equals(WILDCARD)))
+                        .toList();
+
+                node.children.put(name, compile(matching, index + 1));
+            }
+            return node;
+        }
+
+        PathNode child(String name) {
+            final PathNode child = children.get(name);
+
+            return child != null ? child : children.get(WILDCARD);
+        }
+    }
+
+    private static final class RedactingJsonWriter extends JsonWriter {
+        private final Pattern[] patterns;
+        private final Pattern[] numberPatterns;
+        private final boolean onlyPaymentCardNumbers;
+
+        private PathNode[] containers = new PathNode[INITIAL_DEPTH];
+        private boolean[] arrays = new boolean[INITIAL_DEPTH];
+        private int depth;
+        private PathNode named;
+        private int suppressed;
+
+        RedactingJsonWriter(Writer out, PathNode root, Pattern[] patterns, Pattern[] numberPatterns, boolean onlyPaymentCardNumbers) {
+            super(out);
+
+            this.patterns = patterns;
+            this.numberPatterns = numberPatterns;
+            this.onlyPaymentCardNumbers = onlyPaymentCardNumbers;
+            this.named = root;
+        }
+
+        @Override
+        public JsonWriter beginArray() throws IOException {
+            return begin(true) ? this : super.beginArray();
+        }
+
+        @Override
+        public JsonWriter endArray() throws IOException {
+            return end() ? this : super.endArray();
+        }
+
+        @Override
+        public JsonWriter beginObject() throws IOException {
+            return begin(false) ? this : super.beginObject();
+        }
+
+        @Override
+        public JsonWriter endObject() throws IOException {
+            return end() ? this : super.endObject();
+        }
+
+        @Override
+        public JsonWriter name(String name) throws IOException {
+            if (suppressed > 0) {
+                return this;
+            }
+
+            final PathNode container = containers[depth - 1];
+
+            named = container != null ? container.child(name) : null;
+
+            return super.name(name);
+        }
+
+        @Override
+        public JsonWriter value(String value) throws IOException {
+            if (value == null) {
+                return nullValue();
+            }
+            return masked() ? this : super.value(redact(value));
+        }
+
+        @Override
+        public JsonWriter value(boolean value) throws IOException {
+            return masked() ? this : super.value(value);
+        }
+
+        @Override
+        public JsonWriter value(Boolean value) throws IOException {
+            return value == null ? nullValue() : value(value.booleanValue());
+        }
+
+        @Override
+        public JsonWriter value(float value) throws IOException {
+            if (masked()) {
+                return this;
+            }
+
+            final String redacted = redactNumber(value);
+
+            return redacted != null ? super.value(redacted) : super.value(value);
+        }
+
+        @Override
+        public JsonWriter value(double value) throws IOException {
+            if (masked()) {
+                return this;
+            }
+
+            final String redacted = redactNumber(value);
+
+            return redacted != null ? super.value(redacted) : super.value(value);
+        }
+
+        @Override
+        public JsonWriter value(long value) throws IOException {
+            if (masked()) {
+                return this;
+            }
+
+            final String redacted = redactNumber(value);
+
+            return redacted != null ? super.value(redacted) : super.value(value);
+        }
+
+        @Override
+        public JsonWriter value(Number value) throws IOException {
+            if (value == null) {
+                return nullValue();
+            }
+
+            if (masked()) {
+                return this;
+            }
+
+            final String redacted = redactNumber(value);
+
+            return redacted != null ? super.value(redacted) : super.value(value);
+        }
+
+        @Override
+        public JsonWriter jsonValue(String value) throws IOException {
+            if (value == null) {
+                return nullValue();
+            }
+            return masked() ? this : super.jsonValue(value);
+        }
+
+        @Override
+        public JsonWriter nullValue() throws IOException {
+            // Null values are left as they are, whether they are at a masked path or not
+            return suppressed > 0 ? this : super.nullValue();
+        }
+
+        private boolean begin(boolean array) throws IOException {
+            if (masked()) {
+                // The whole of the container is replaced by the mask, so everything up to the end of it is suppressed
+                suppressed++;
+                return true;
+            }
+
+            if (depth == containers.length) {
+                containers = Arrays.copyOf(containers, depth * 2);
+                arrays = Arrays.copyOf(arrays, depth * 2);
+            }
+            containers[depth] = valueNode();
+            arrays[depth++] = array;
+
+            return false;
+        }
+
+        private boolean end() {
+            if (suppressed > 0) {
+                suppressed--;
+                return true;
+            }
+            depth--;
+            return false;
+        }
+
+        /**
+         * Checks whether the next value should be skipped, writing the mask in its place if it is at a masked path.
+         */
+        private boolean masked() throws IOException {
+            if (suppressed > 0) {
+                return true;
+            }
+
+            final PathNode node = valueNode();
+
+            if (node != null && node.masked) {
+                super.value(DetailSerializers.MASK);
+                return true;
+            }
+            return false;
+        }
+
+        private PathNode valueNode() {
+            if (depth == 0) {
+                return named;
+            }
+            return arrays[depth - 1] ? containers[depth - 1] : named;
+        }
+
+        /**
+         * Redacts the string form of a numeric value, returning <code>null</code> if none of the patterns match, so that
+         * the value is written as a number.
+         */
+        private String redactNumber(long value) {
+            if (numberPatterns.length == 0) {
+                return null;
+            }
+
+            // A payment card number has at least 13 digits, so no string needs to be built for smaller integral values
+            if (onlyPaymentCardNumbers && value > -MIN_PAYMENT_CARD_NUMBER && value < MIN_PAYMENT_CARD_NUMBER) {
+                return null;
+            }
+            return redactNumber(Long.toString(value));
+        }
+
+        private String redactNumber(float value) {
+            return numberPatterns.length == 0 ? null : redactNumber(Float.toString(value));
+        }
+
+        private String redactNumber(double value) {
+            return numberPatterns.length == 0 ? null : redactNumber(Double.toString(value));
+        }
+
+        private String redactNumber(Number value) {
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                return redactNumber(value.longValue());
+            }
+
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() < Long.SIZE) {
+                return redactNumber(value.longValue());
+            }
+            return numberPatterns.length == 0 ? null : redactNumber(value.toString());
+        }
+
+        private String redactNumber(String value) {
+            final String redacted = redact(value, numberPatterns);
+
+            return redacted.equals(value) ? null : redacted;
+        }
+
+        private String redact(String value) {
+            return redact(value, patterns);
+        }
+
+        private static String redact(String value, Pattern[] patterns) {
+            String result = value;
+
+            for (Pattern pattern : patterns) {
+                final Matcher matcher = pattern.matcher(result);
+
+                if (matcher.find()) {
+                    result = matcher.replaceAll(DetailSerializers.MASK);
+                }
+            }
+            return result;
+        }
+    }
+}
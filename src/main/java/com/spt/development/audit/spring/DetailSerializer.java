@@ -0,0 +1,26 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * A hand-written serializer for the audit event details of a particular type, registered with
+ * {@link DetailSerializers#withSerializer(Class, DetailSerializer)}. The serializer writes the value straight to the
+ * JSON stream of the audit event details, so that no intermediate copy of the value is built.
+ *
+ * @param <T> the type of value serialized.
+ */
+@FunctionalInterface
+public interface DetailSerializer<T> {
+
+    /**
+     * Writes the value to the JSON stream.
+     *
+     * @param out the JSON stream to write the value to.
+     * @param value the value to write, never <code>null</code>.
+     *
+     * @throws IOException if the value cannot be written.
+     */
+    void write(JsonWriter out, T value) throws IOException;
+}
@@ -0,0 +1,349 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.apache.commons.lang3.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of serializers for the audit event details generated from {@link Audited.Detail} arguments and
+ * {@link Audited#detail()} expressions. By default the details are serialized with {@link Gson} with its default
+ * settings; a hand-written {@link DetailSerializer} can be registered for a type, or {@link Rules} to include, exclude
+ * or mask fields of a type, for example to stop personal data being written to the audit log. The serializers and rules
+ * registered for a type also apply to its subtypes, and to values of the type nested anywhere within the details.
+ *
+ * <p>The serializer to use for each class is looked up once and cached against the class. The rules are applied as the
+ * details are written to the JSON stream, so no intermediate copy of the details is built; masked fields are written
+ * as {@link DetailSerializers#MASK} without being read any further. The registry must be fully configured before it
+ * is first used.</p>
+ */
+public final class DetailSerializers {
+    /**
+     * The value written in place of a masked field.
+     */
+    public static final String MASK = "******";
+
+    private final Map<Class<?>, Object> registrations = new ConcurrentHashMap<>();
+
+    private final ClassValue<Object> registrationsByType = new ClassValue<>() {
+        @Override
+        protected Object computeValue(Class<?> type) {
+            return findRegistration(type);
+        }
+    };
+
+    private final ClassValue<TypeAdapter<Object>> adaptersByType = new ClassValue<>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        protected TypeAdapter<Object> computeValue(Class<?> type) {
+            return (TypeAdapter<Object>) gson.getAdapter(type);
+        }
+    };
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapterFactory(new Factory()).create();
+
+    private DetailRedactor redactor;
+
+    /**
+     * Registers a hand-written serializer for a type, and its subtypes.
+     *
+     * @param type the type to serialize.
+     * @param serializer the serializer.
+     * @param <T> the type to serialize.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public <T> DetailSerializers withSerializer(Class<T> type, DetailSerializer<? super T> serializer) {
+        registrations.put(type, serializer);
+        return this;
+    }
+
+    /**
+     * Registers the rules for serializing the fields of a type, and its subtypes.
+     *
+     * @param type the type to serialize.
+     * @param rules the rules for serializing the fields of the type.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     *
+     * @throws IllegalArgumentException if any of the rules refer to a field that the type does not have.
+     */
+    public DetailSerializers withRules(Class<?> type, Rules rules) {
+        final List<Field> fields = serializableFields(type);
+
+        for (String name : rules.names()) {
+            if (fields.stream().noneMatch(field -> field.getName().equals(name))) {
+                throw new IllegalArgumentException(
+                        String.format("Programming error: detail rules for %s refer to field: '%s', which does not exist", type, name)
+                );
+            }
+        }
+        registrations.put(type, rules.copy());
+        return this;
+    }
+
+    /**
+     * Redacts the details as they are serialized, after the serializers and rules for their types have been applied.
+     *
+     * @param redactor the redactor.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public DetailSerializers withRedactor(DetailRedactor redactor) {
+        this.redactor = redactor;
+        return this;
+    }
+
+    /**
+     * Serializes the details to JSON.
+     *
+     * @param details the details to serialize.
+     *
+     * @return the JSON representation of the details.
+     */
+    public String toJson(Object details) {
+        if (details == null) {
+            return gson.toJson(null);
+        }
+
+        final StringWriter json = new StringWriter();
+
+        try {
+            adaptersByType.get(details.getClass()).write(newJsonWriter(json), details);
+        } catch (IOException ex) {
+            // Writing to a StringWriter never fails, but a hand-written serializer may still throw
+            throw new UncheckedIOException(ex);
+        }
+        return json.toString();
+    }
+
+    private JsonWriter newJsonWriter(Writer out) throws IOException {
+        if (redactor == null) {
+            return gson.newJsonWriter(out);
+        }
+
+        final JsonWriter writer = redactor.newJsonWriter(out);
+        writer.setHtmlSafe(gson.htmlSafe());
+        writer.setSerializeNulls(gson.serializeNulls());
+
+        return writer;
+    }
+
+    private Object findRegistration(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            final Object registration = registrations.get(current);
+
+            if (registration != null) {
+                return registration;
+            }
+        }
+
+        for (Class<?> iface : ClassUtils.getAllInterfaces(type)) {
+            final Object registration = registrations.get(iface);
+
+            if (registration != null) {
+                return registration;
+            }
+        }
+        return Factory.class;
+    }
+
+    private static List<Field> serializableFields(Class<?> type) {
+        // The same fields, in the same order, as Gson's reflective serialization
+        final List<Field> fields = new ArrayList<>();
+
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            for (Field field : current.getDeclaredFields()) {
+                if ((field.getModifiers() & (Modifier.STATIC | Modifier.TRANSIENT)) == 0 && !field.isSynthetic()) {
+                    fields.add(field);
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Rules for serializing the fields of a type, referring to the fields by their Java names. If any fields are
+     * included, only those fields are written; excluded fields are never written and masked fields are written as
+     * {@link DetailSerializers#MASK} if they are not <code>null</code>.
+     */
+    public static final class Rules {
+        private final Set<String> included = new LinkedHashSet<>();
+        private final Set<String> excluded = new LinkedHashSet<>();
+        private final Set<String> masked = new LinkedHashSet<>();
+
+        /**
+         * Only writes the fields given, and any other included fields.
+         *
+         * @param fields the names of the fields to include.
+         *
+         * @return <code>this</code> to provide a fluent interface.
+         */
+        public Rules include(String... fields) {
+            included.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        /**
+         * Never writes the fields given.
+         *
+         * @param fields the names of the fields to exclude.
+         *
+         * @return <code>this</code> to provide a fluent interface.
+         */
+        public Rules exclude(String... fields) {
+            excluded.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        /**
+         * Writes {@link DetailSerializers#MASK} in place of the values of the fields given.
+         *
+         * @param fields the names of the fields to mask.
+         *
+         * @return <code>this</code> to provide a fluent interface.
+         */
+        public Rules mask(String... fields) {
+            masked.addAll(Arrays.asList(fields));
+            return this;
+        }
+
+        private Set<String> names() {
+            final Set<String> names = new LinkedHashSet<>(included);
+            names.addAll(excluded);
+            names.addAll(masked);
+
+            return names;
+        }
+
+        private Rules copy() {
+            return new Rules().include(included.toArray(String[]::new))
+                    .exclude(excluded.toArray(String[]::new))
+                    .mask(masked.toArray(String[]::new));
+        }
+
+        private boolean isWritten(Field field) {
+            return (included.isEmpty() || included.contains(field.getName())) && !excluded.contains(field.getName());
+        }
+    }
+
+    private final class Factory implements TypeAdapterFactory {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+            final Object registration = registrationsByType.get(type.getRawType());
+
+            if (registration instanceof Rules rules) {
+                return (TypeAdapter<T>) new RulesTypeAdapter(gson, type.getRawType(), rules);
+            }
+            if (registration instanceof DetailSerializer<?> serializer) {
+                return (TypeAdapter<T>) new SerializerTypeAdapter((DetailSerializer<Object>) serializer).nullSafe();
+            }
+            return null;
+        }
+    }
+
+    private abstract static class WriteOnlyTypeAdapter extends TypeAdapter<Object> {
+
+        @Override
+        public Object read(JsonReader in) {
+            throw new UnsupportedOperationException("Audit event details are only ever serialized");
+        }
+    }
+
+    private static final class SerializerTypeAdapter extends WriteOnlyTypeAdapter {
+        private final DetailSerializer<Object> serializer;
+
+        SerializerTypeAdapter(DetailSerializer<Object> serializer) {
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void write(JsonWriter out, Object value) throws IOException {
+            serializer.write(out, value);
+        }
+    }
+
+    private static final class RulesTypeAdapter extends WriteOnlyTypeAdapter {
+        private final Gson gson;
+        private final BoundField[] fields;
+
+        RulesTypeAdapter(Gson gson, Class<?> type, Rules rules) {
+            this.gson = gson;
+            this.fields = serializableFields(type).stream()
+                    .filter(rules::isWritten)
+                    .map(field -> new BoundField(gson, field, rules.masked.contains(field.getName())))
+                    .toArray(BoundField[]::new);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void write(JsonWriter out, Object value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+
+            out.beginObject();
+
+            for (BoundField field : fields) {
+                final Object fieldValue = ReflectionUtils.getField(field.field, value);
+
+                out.name(field.name);
+
+                if (fieldValue == null) {
+                    out.nullValue();
+                } else if (field.masked) {
+                    out.value(MASK);
+                } else {
+                    // The adapter for the declared type is resolved up front, the runtime type is only looked up for subtypes
+                    final TypeAdapter<Object> adapter = fieldValue.getClass() == field.type
+                            ? field.adapter
+                            : (TypeAdapter<Object>) gson.getAdapter(fieldValue.getClass());
+
+                    adapter.write(out, fieldValue);
+                }
+            }
+            out.endObject();
+        }
+    }
+
+    private static final class BoundField {
+        private final Field field;
+        private final String name;
+        private final boolean masked;
+        private final Class<?> type;
+        private final TypeAdapter<Object> adapter;
+
+        @SuppressWarnings("unchecked")
+        BoundField(Gson gson, Field field, boolean masked) {
+            ReflectionUtils.makeAccessible(field);
+
+            this.field = field;
+            this.name = field.getName();
+            this.masked = masked;
+            this.type = ClassUtils.primitiveToWrapper(field.getType());
+            this.adapter = (TypeAdapter<Object>) gson.getAdapter(TypeToken.get(field.getGenericType()));
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An implementation of {@link AuditEventWriter} that appends the audit events to a local file as JSON Lines; one
+ * {@link AuditEvent#toJson()} per line. The audit events are appended through a {@link FileChannel}, via a direct
+ * {@link ByteBuffer}, rather than through the logging framework, making it suitable as a high-throughput local sink.
+ *
+ * <p>The file is rolled over when it reaches a maximum size and, optionally, after a fixed interval; rolled over files
+ * are renamed with the time of the rollover appended to the file name and can optionally be compressed with gzip, in
+ * the background.</p>
+ *
+ * <p>By default each audit event is written to the file as soon as it is written to this writer, but is not forced to
+ * the storage device. If group commit is enabled with
+ * {@link FileAuditEventWriter#withGroupCommit(ScheduledExecutorService, Duration)}, the audit events are buffered and
+ * written to the file, and forced to the storage device, periodically; so that the cost of forcing the file is shared
+ * between all of the audit events written in the interval.</p>
+ */
+@Slf4j
+public class FileAuditEventWriter extends TransactionAwareAuditEventWriter implements Closeable {
+    /**
+     * The default maximum size of the file, in bytes, before it is rolled over.
+     */
+    public static final long DEFAULT_MAX_FILE_SIZE = 100L * 1024 * 1024;
+
+    /**
+     * The default size of the buffer, in bytes, used to write the audit events to the file.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte NEW_LINE = '\n';
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final DateTimeFormatter ROLLOVER_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmssSSS").withZone(ZoneOffset.UTC);
+
+    private final Path file;
+    private final Clock clock;
+    private final Object lock = new Object();
+    private final CorrelationIdLogger logger;
+
+    private long maxFileSize = DEFAULT_MAX_FILE_SIZE;
+    private Duration rolloverInterval;
+    private boolean gzipRolledFiles;
+    private Executor gzipExecutor;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private ScheduledExecutorService scheduledExecutorService;
+    private ScheduledFuture<?> groupCommit;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    private long fileSize;
+    private Instant rolloverAt;
+    private boolean unforced;
+
+    /**
+     * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
+     * include the current correlation ID; see {@link FileAuditEventWriter#FileAuditEventWriter(boolean, Path)} to disable
+     * this behaviour.
+     *
+     * @param file the file to append the audit events to.
+     */
+    public FileAuditEventWriter(final Path file) {
+        this(true, file);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param file the file to append the audit events to.
+     */
+    public FileAuditEventWriter(final boolean includeCorrelationIdInLogs, final Path file) {
+        this(includeCorrelationIdInLogs, file, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param file the file to append the audit events to.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public FileAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final Path file,
+            final CorrelationIdProvider correlationIdProvider) {
+        this(includeCorrelationIdInLogs, file, correlationIdProvider, new TransactionSyncManFacade(), Clock.systemUTC());
+    }
+
+    FileAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final Path file,
+            final CorrelationIdProvider correlationIdProvider,
+            final TransactionSyncManFacade transactionSyncManFacade,
+            final Clock clock) {
+        super(includeCorrelationIdInLogs, correlationIdProvider, transactionSyncManFacade);
+
+        this.file = file;
+        this.clock = clock;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Sets the maximum size of the file, in bytes, before it is rolled over. Defaults to
+     * {@link FileAuditEventWriter#DEFAULT_MAX_FILE_SIZE}.
+     *
+     * @param maxFileSize the maximum size of the file.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withMaxFileSize(long maxFileSize) {
+        this.maxFileSize = maxFileSize;
+        return this;
+    }
+
+    /**
+     * Sets the interval after which the file is rolled over, regardless of its size. By default, the file is only
+     * rolled over when it reaches its maximum size.
+     *
+     * @param rolloverInterval the interval after which the file is rolled over.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withRolloverInterval(Duration rolloverInterval) {
+        this.rolloverInterval = rolloverInterval;
+        return this;
+    }
+
+    /**
+     * Compresses the files with gzip once they have been rolled over, in the background. If group commit is enabled,
+     * the files are compressed on a thread belonging to the group commit {@link ScheduledExecutorService}, otherwise on
+     * the {@link ForkJoinPool#commonPool()}; see {@link FileAuditEventWriter#withGzipRolledFiles(Executor)} to compress
+     * them on a different {@link Executor}.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withGzipRolledFiles() {
+        this.gzipRolledFiles = true;
+        return this;
+    }
+
+    /**
+     * Compresses the files with gzip once they have been rolled over, on a thread belonging to the {@link Executor}
+     * provided.
+     *
+     * @param executor the executor used to compress the rolled over files.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withGzipRolledFiles(Executor executor) {
+        this.gzipRolledFiles = true;
+        this.gzipExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the size of the direct buffer used to write the audit events to the file. Defaults to
+     * {@link FileAuditEventWriter#DEFAULT_BUFFER_SIZE}. Audit events larger than the buffer are written to the file
+     * directly.
+     *
+     * @param bufferSize the size of the buffer in bytes.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    /**
+     * Enables group commit. Rather than writing each audit event to the file as it is written, the audit events are
+     * buffered and periodically written to the file and forced to the storage device, on a thread belonging to the
+     * {@link ScheduledExecutorService} provided. Audit events written since the last group commit will be lost if the
+     * process crashes. Calling this method again replaces the existing group commit, which is cancelled.
+     *
+     * @param scheduledExecutorService the executor service used to perform the group commits.
+     * @param interval the interval between group commits.
+     *
+     * @return the writer.
+     */
+    public FileAuditEventWriter withGroupCommit(ScheduledExecutorService scheduledExecutorService, Duration interval) {
+        synchronized (lock) {
+            if (groupCommit != null) {
+                groupCommit.cancel(false);
+            }
+            this.scheduledExecutorService = scheduledExecutorService;
+            this.groupCommit = scheduledExecutorService.scheduleWithFixedDelay(
+                this::groupCommit, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS
+            );
+        }
+        return this;
+    }
+
+    /**
+     * Appends a single {@link AuditEvent} to the file.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        doWriteAll(List.of(auditEvent));
+    }
+
+    /**
+     * Appends all of the {@link AuditEvent}s written within a transaction to the file, in one go.
+     *
+     * @param auditEvents the {@link AuditEvent}s to write.
+     */
+    @Override
+    protected void doWriteAll(List<AuditEvent> auditEvents) {
+        logger.debug("Writing {} audit events to {}", auditEvents.size(), file);
+
+        final byte[][] lines = new byte[auditEvents.size()][];
+
+        // Encode outside of the lock so that concurrent writers only contend for the file itself
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = auditEvents.get(i).toJson().getBytes(StandardCharsets.UTF_8);
+        }
+
+        try {
+            synchronized (lock) {
+                for (byte[] line : lines) {
+                    append(line);
+                }
+
+                if (groupCommit == null) {
+                    drain();
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write audit events to " + file, ex);
+        }
+    }
+
+    /**
+     * Writes any buffered audit events to the file and forces them to the storage device.
+     *
+     * @throws IOException if the audit events could not be written.
+     */
+    public void flush() throws IOException {
+        synchronized (lock) {
+            if (channel == null) {
+                return;
+            }
+            drain();
+
+            if (unforced) {
+                channel.force(false);
+                unforced = false;
+            }
+        }
+    }
+
+    /**
+     * Stops group commit, if enabled, then writes any buffered audit events to the file, forces them to the storage
+     * device and closes the file. The writer can still be written to after it has been closed, in which case the file
+     * is re-opened.
+     *
+     * @throws IOException if the audit events could not be written, or the file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (groupCommit != null) {
+                groupCommit.cancel(false);
+                groupCommit = null;
+            }
+            closeChannel();
+        }
+    }
+
+    private void groupCommit() {
+        try {
+            flush();
+        } catch (IOException | RuntimeException ex) {
+            LOG.error("Failed to commit audit events to {}", file, ex);
+        }
+    }
+
+    private void append(byte[] line) throws IOException {
+        final int length = line.length + 1;
+
+        openOrRollover(length);
+
+        if (buffer.remaining() < length) {
+            drain();
+        }
+
+        if (buffer.remaining() < length) {
+            writeFully(ByteBuffer.wrap(line));
+            writeFully(ByteBuffer.wrap(new byte[] { NEW_LINE }));
+        } else {
+            buffer.put(line).put(NEW_LINE);
+        }
+        fileSize += length;
+    }
+
+    private void openOrRollover(int length) throws IOException {
+        if (channel != null && fileSize > 0
+            && (fileSize + length > maxFileSize || (rolloverAt != null && !clock.instant().isBefore(rolloverAt)))) {
+            rollover();
+        }
+
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            fileSize = channel.size();
+            rolloverAt = rolloverInterval != null ? clock.instant().plus(rolloverInterval) : null;
+
+            if (buffer == null || buffer.capacity() != bufferSize) {
+                buffer = ByteBuffer.allocateDirect(bufferSize);
+            }
+        }
+    }
+
+    private void rollover() throws IOException {
+        closeChannel();
+
+        final Path rolledFile = rolledFile();
+
+        Files.move(file, rolledFile);
+
+        logger.debug("Rolled over audit event file {} to {}", file, rolledFile);
+
+        if (gzipRolledFiles) {
+            gzipInBackground(rolledFile);
+        }
+    }
+
+    private void gzipInBackground(Path rolledFile) {
+        // Never compressed on the writing thread, as it holds the lock that all of the writing threads contend for
+        Executor executor = gzipExecutor;
+
+        if (executor == null) {
+            executor = scheduledExecutorService != null ? scheduledExecutorService : ForkJoinPool.commonPool();
+        }
+
+        try {
+            executor.execute(() -> gzip(rolledFile));
+        } catch (RejectedExecutionException ex) {
+            LOG.warn("Failed to schedule compression of rolled over audit event file {}, leaving it uncompressed", rolledFile, ex);
+        }
+    }
+
+    private Path rolledFile() {
+        final String fileName = String.valueOf(file.getFileName());
+        final int extension = fileName.lastIndexOf('.');
+        final String baseName = extension > 0 ? fileName.substring(0, extension) : fileName;
+        final String suffix = extension > 0 ? fileName.substring(extension) : "";
+        final String timestamp = ROLLOVER_FORMATTER.format(clock.instant());
+
+        String rolledFileName = baseName + "-" + timestamp + suffix;
+
+        for (int i = 1; isRolledFile(rolledFileName); i++) {
+            rolledFileName = baseName + "-" + timestamp + "-" + i + suffix;
+        }
+        return file.resolveSibling(rolledFileName);
+    }
+
+    private boolean isRolledFile(String rolledFileName) {
+        return Files.exists(file.resolveSibling(rolledFileName)) || Files.exists(file.resolveSibling(rolledFileName + GZIP_EXTENSION));
+    }
+
+    private void gzip(Path rolledFile) {
+        final Path gzipFile = rolledFile.resolveSibling(rolledFile.getFileName() + GZIP_EXTENSION);
+
+        try {
+            try (InputStream in = Files.newInputStream(rolledFile);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+                in.transferTo(out);
+            }
+            Files.delete(rolledFile);
+        } catch (IOException ex) {
+            LOG.error("Failed to compress rolled over audit event file {}", rolledFile, ex);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+
+        try {
+            writeFully(buffer);
+        } finally {
+            // Left ready to be appended to, even if the write failed; any bytes not written are kept, to be written with
+            // the next drain
+            buffer.compact();
+        }
+    }
+
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+            unforced = true;
+        }
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            flush();
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+}
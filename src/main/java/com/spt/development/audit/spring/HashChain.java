@@ -0,0 +1,266 @@
+package com.spt.development.audit.spring;
+
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Computes and verifies the tamper-evident hash chain written by a {@link HashChainAuditEventWriter}.
+ *
+ * <p>Each audit event in the chain carries a {@link AuditEvent#getChainHash()}, which is the SHA-256 hash of the
+ * previous audit event's chain hash followed by the audit event's own JSON, excluding the chain hash; the first audit
+ * event in a chain uses {@link HashChain#GENESIS} as the previous chain hash. Altering, removing, inserting or
+ * re-ordering any of the audit events therefore breaks the chain from that point on. The chain hash is always the last
+ * field of the JSON, so the JSON it was computed from can be recovered from the written JSON without re-serializing the
+ * audit event.</p>
+ *
+ * <p>As every audit event carries the hash of its predecessor, each audit event can be verified independently of the
+ * rest of the chain, which allows {@link HashChain#verify(List, String)} to verify the segments of a large file in
+ * parallel. Files are read a segment at a time, so a file does not have to fit in memory to be verified.</p>
+ */
+public final class HashChain {
+    /**
+     * The previous chain hash of the first audit event in a chain.
+     */
+    public static final String GENESIS = "0".repeat(64);
+
+    static final int SEGMENT_RECORDS = 8192;
+
+    private static final String GZIP_EXTENSION = ".gz";
+    private static final String CHAIN_HASH_FIELD = "\"chainHash\":\"";
+    private static final String CHAIN_HASH_SUFFIX = "\"}";
+    private static final HexFormat HEX = HexFormat.of();
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> messageDigest("SHA-256"));
+
+    private HashChain() {
+    }
+
+    /**
+     * Computes the chain hash of an audit event.
+     *
+     * @param previousChainHash the chain hash of the previous audit event in the chain.
+     * @param json the JSON of the audit event, excluding the chain hash.
+     *
+     * @return the chain hash of the audit event.
+     */
+    public static String next(String previousChainHash, String json) {
+        final MessageDigest digest = SHA_256.get();
+
+        digest.update(previousChainHash.getBytes(StandardCharsets.US_ASCII));
+
+        return HEX.formatHex(digest.digest(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Computes the root of the Merkle tree whose leaves are the chain hashes given, in order; a node without a sibling is
+     * paired with itself.
+     *
+     * @param chainHashes the chain hashes.
+     *
+     * @return the Merkle root.
+     */
+    public static String merkleRoot(List<String> chainHashes) {
+        if (chainHashes.isEmpty()) {
+            throw new IllegalArgumentException("At least one chain hash is required to compute a Merkle root");
+        }
+
+        final MessageDigest digest = SHA_256.get();
+        List<byte[]> level = new ArrayList<>(chainHashes.size());
+
+        for (String chainHash : chainHashes) {
+            level.add(HEX.parseHex(chainHash));
+        }
+
+        while (level.size() > 1) {
+            final List<byte[]> parents = new ArrayList<>((level.size() + 1) / 2);
+
+            for (int i = 0; i < level.size(); i += 2) {
+                digest.update(level.get(i));
+                parents.add(digest.digest(level.get(Math.min(i + 1, level.size() - 1))));
+            }
+            level = parents;
+        }
+        return HEX.formatHex(level.get(0));
+    }
+
+    /**
+     * Verifies a file of audit events, one JSON audit event per line as written by a {@link FileAuditEventWriter}, that
+     * starts a new chain. Files with a <code>.gz</code> extension, such as rolled files compressed by the
+     * {@link FileAuditEventWriter}, are decompressed as they are read.
+     *
+     * @param file the file to verify.
+     *
+     * @return the result of the verification.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public static Result verify(Path file) throws IOException {
+        return verify(file, GENESIS);
+    }
+
+    /**
+     * Verifies a file of audit events, one JSON audit event per line as written by a {@link FileAuditEventWriter}, that
+     * continues an existing chain; for example, a file that was rolled over. Files with a <code>.gz</code> extension are
+     * decompressed as they are read.
+     *
+     * @param file the file to verify.
+     * @param previousChainHash the chain hash of the audit event before the first audit event in the file.
+     *
+     * @return the result of the verification.
+     *
+     * @throws IOException if the file cannot be read.
+     */
+    public static Result verify(Path file, String previousChainHash) throws IOException {
+        final Verification verification = new Verification(previousChainHash);
+
+        try (BufferedReader reader = newReader(file)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                verification.add(line);
+            }
+        }
+        return verification.result();
+    }
+
+    private static BufferedReader newReader(Path file) throws IOException {
+        if (file.toString().endsWith(GZIP_EXTENSION)) {
+            return new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8));
+        }
+        return Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Verifies a list of JSON audit events, in parallel.
+     *
+     * @param lines the JSON audit events, in chain order.
+     * @param previousChainHash the chain hash of the audit event before the first audit event in the list.
+     *
+     * @return the result of the verification.
+     */
+    public static Result verify(List<String> lines, String previousChainHash) {
+        final int invalidRecord = IntStream.range(0, lines.size())
+            .parallel()
+            .filter(i -> !isValid(i == 0 ? previousChainHash : chainHash(lines.get(i - 1)), lines.get(i)))
+            .findFirst()
+            .orElse(-1);
+
+        if (invalidRecord >= 0) {
+            return new Result(lines.size(), invalidRecord, null);
+        }
+        return new Result(lines.size(), invalidRecord, lines.isEmpty() ? previousChainHash : chainHash(lines.get(lines.size() - 1)));
+    }
+
+    private static boolean isValid(String previousChainHash, String line) {
+        final String chainHash = chainHash(line);
+
+        if (previousChainHash == null || chainHash == null) {
+            return false;
+        }
+
+        final int index = line.lastIndexOf(CHAIN_HASH_FIELD);
+        final String json = line.substring(0, line.charAt(index - 1) == ',' ? index - 1 : index) + "}";
+
+        return MessageDigest.isEqual(
+            next(previousChainHash, json).getBytes(StandardCharsets.US_ASCII), chainHash.getBytes(StandardCharsets.US_ASCII)
+        );
+    }
+
+    private static String chainHash(String line) {
+        final int index = line.lastIndexOf(CHAIN_HASH_FIELD);
+
+        if (index < 1 || !line.endsWith(CHAIN_HASH_SUFFIX)) {
+            return null;
+        }
+        return line.substring(index + CHAIN_HASH_FIELD.length(), line.length() - CHAIN_HASH_SUFFIX.length());
+    }
+
+    static MessageDigest messageDigest(String algorithm) {
+        try {
+            return MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException ex) {
+            // Every implementation of the Java platform is required to support SHA-256
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Verifies the lines of a file a segment at a time, with the segments verified in parallel. Once an invalid audit event
+     * has been found, the remaining lines are only counted.
+     */
+    private static final class Verification {
+        private final List<String> segment = new ArrayList<>(SEGMENT_RECORDS);
+        private String chainHash;
+        private int records;
+        private int invalidRecord = -1;
+
+        Verification(String previousChainHash) {
+            this.chainHash = previousChainHash;
+        }
+
+        void add(String line) {
+            records++;
+
+            if (invalidRecord >= 0) {
+                return;
+            }
+            segment.add(line);
+
+            if (segment.size() == SEGMENT_RECORDS) {
+                verifySegment();
+            }
+        }
+
+        Result result() {
+            verifySegment();
+
+            return new Result(records, invalidRecord, invalidRecord < 0 ? chainHash : null);
+        }
+
+        private void verifySegment() {
+            if (segment.isEmpty()) {
+                return;
+            }
+
+            final Result result = verify(segment, chainHash);
+
+            if (result.isValid()) {
+                chainHash = result.getLastChainHash();
+            } else {
+                invalidRecord = records - segment.size() + result.getInvalidRecord();
+            }
+            segment.clear();
+        }
+    }
+
+    /**
+     * The result of verifying a chain of audit events.
+     */
+    @Value
+    public static class Result {
+        int records;
+        int invalidRecord;
+        String lastChainHash;
+
+        /**
+         * Checks whether all of the audit events are intact.
+         *
+         * @return <code>true</code> if the chain is intact.
+         */
+        public boolean isValid() {
+            return invalidRecord < 0;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * An implementation of {@link AuditEventWriter} that links the audit events written to a delegate
+ * {@link AuditEventWriter} into a tamper-evident hash chain, so that it can be proven that none of the audit events have
+ * been altered or dropped; see {@link HashChain}. Each audit event is passed to the delegate with its
+ * {@link AuditEvent#getChainHash()} populated. The chain is specific to each instance of the writer, so there should be
+ * one writer per destination; for example, per file written by a {@link FileAuditEventWriter}, which can then be checked
+ * with {@link HashChain#verify(java.nio.file.Path)}.
+ *
+ * <p>The audit events are chained in the order that they are written to the delegate, once the current transaction (if
+ * any) has committed, so audit events discarded by a rollback do not leave gaps in the chain. Computing the chain hash
+ * and writing to the delegate are serialized, so that the delegate receives the audit events in chain order and a failed
+ * write does not advance the chain. The JSON that is hashed is generated before the lock is taken. To compute the chain
+ * hashes and write to the delegate off the request thread, see
+ * {@link HashChainAuditEventWriter#withExecutor(ExecutorService)}.</p>
+ *
+ * <p>Optionally, a {@link Checkpoint} containing the Merkle root of the chain hashes of each batch of audit events can be
+ * published, so that the state of the chain can be anchored somewhere other than the destination of the audit events.</p>
+ */
+@Slf4j
+public class HashChainAuditEventWriter extends TransactionAwareAuditEventWriter {
+    private final AuditEventWriter delegate;
+    private final CorrelationIdLogger logger;
+    private final Object lock = new Object();
+    private final List<String> checkpointChainHashes = new ArrayList<>();
+    private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private String previousChainHash = HashChain.GENESIS;
+    private long records;
+    private int checkpointInterval;
+    private Consumer<Checkpoint> checkpointListener;
+    private ExecutorService executorService;
+
+    /**
+     * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
+     * include the current correlation ID; see
+     * {@link HashChainAuditEventWriter#HashChainAuditEventWriter(boolean, AuditEventWriter)} to disable this behaviour.
+     *
+     * @param delegate the audit event writer to write the chained audit events to.
+     */
+    public HashChainAuditEventWriter(final AuditEventWriter delegate) {
+        this(true, delegate);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the chained audit events to.
+     */
+    public HashChainAuditEventWriter(final boolean includeCorrelationIdInLogs, final AuditEventWriter delegate) {
+        this(includeCorrelationIdInLogs, delegate, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the chained audit events to.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public HashChainAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final CorrelationIdProvider correlationIdProvider) {
+        this(includeCorrelationIdInLogs, delegate, correlationIdProvider, new TransactionSyncManFacade());
+    }
+
+    HashChainAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final CorrelationIdProvider correlationIdProvider,
+            final TransactionSyncManFacade transactionSyncManFacade) {
+        super(includeCorrelationIdInLogs, correlationIdProvider, transactionSyncManFacade);
+
+        this.delegate = delegate;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Continues an existing chain, rather than starting a new one; for example, after a restart. Defaults to
+     * {@link HashChain#GENESIS}.
+     *
+     * @param previousChainHash the chain hash of the last audit event in the existing chain.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public HashChainAuditEventWriter withPreviousChainHash(String previousChainHash) {
+        synchronized (lock) {
+            this.previousChainHash = previousChainHash;
+        }
+        return this;
+    }
+
+    /**
+     * Publishes a {@link Checkpoint} to the listener each time the interval number of audit events have been written.
+     *
+     * @param checkpointInterval the number of audit events in each checkpoint.
+     * @param checkpointListener the listener to publish the checkpoints to.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public HashChainAuditEventWriter withCheckpoints(int checkpointInterval, Consumer<Checkpoint> checkpointListener) {
+        synchronized (lock) {
+            this.checkpointInterval = checkpointInterval;
+            this.checkpointListener = checkpointListener;
+        }
+        return this;
+    }
+
+    /**
+     * Computes the chain hashes and writes the audit events to the delegate on a thread belonging to the
+     * {@link ExecutorService} supplied, rather than on the thread writing the audit events, one audit event at a time in
+     * the order that they were written. As the audit events are written asynchronously, an audit event that cannot be
+     * written to the delegate is error logged, rather than the exception being thrown to the caller, and is left out of
+     * the chain. If the {@link ExecutorService} rejects the task, the audit events are written on the calling thread.
+     *
+     * @param executorService the executor service to compute the chain hashes and write to the delegate with.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public HashChainAuditEventWriter withExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Gets the chain hash of the last audit event written, or {@link HashChain#GENESIS} if no audit events have been
+     * written.
+     *
+     * @return the chain hash of the last audit event written.
+     */
+    public String getPreviousChainHash() {
+        synchronized (lock) {
+            return previousChainHash;
+        }
+    }
+
+    /**
+     * Computes the chain hash of the {@link AuditEvent} and writes it, with the chain hash populated, to the delegate;
+     * on a thread belonging to the {@link ExecutorService}, if there is one.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        // Generated outside of the lock, the JSON is cached by the audit event
+        auditEvent.toJson();
+
+        if (executorService == null) {
+            chain(auditEvent);
+            return;
+        }
+        queue.add(auditEvent);
+        schedule();
+    }
+
+    private void schedule() {
+        // Only one task at a time, which is what guarantees that the audit events are chained in the order written
+        if (queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executorService.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+            LOG.warn("Failed to schedule hash chain, writing audit events on calling thread", ex);
+            drain();
+        }
+    }
+
+    private void drain() {
+        AuditEvent auditEvent;
+
+        while ((auditEvent = queue.poll()) != null) {
+            try {
+                chain(auditEvent);
+            } catch (RuntimeException ex) {
+                logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event: {}", auditEvent, ex);
+            }
+        }
+        scheduled.set(false);
+
+        // An audit event may have been added after the queue was found to be empty, but before the flag was cleared
+        schedule();
+    }
+
+    private void chain(AuditEvent auditEvent) {
+        synchronized (lock) {
+            final String chainHash = HashChain.next(previousChainHash, auditEvent.toJson());
+
+            delegate.write(auditEvent.toBuilder().chainHash(chainHash).build());
+
+            // Only advanced once the audit event has been written, so a failed write does not leave a gap in the chain
+            previousChainHash = chainHash;
+            records++;
+
+            if (checkpointListener != null) {
+                checkpoint(chainHash);
+            }
+        }
+    }
+
+    private void checkpoint(String chainHash) {
+        checkpointChainHashes.add(chainHash);
+
+        if (checkpointChainHashes.size() < checkpointInterval) {
+            return;
+        }
+
+        final Checkpoint checkpoint = new Checkpoint(
+                records - checkpointChainHashes.size(), checkpointChainHashes.size(), HashChain.merkleRoot(checkpointChainHashes), chainHash
+        );
+        checkpointChainHashes.clear();
+
+        checkpointListener.accept(checkpoint);
+    }
+
+    /**
+     * The Merkle root of the chain hashes of a consecutive batch of audit events written by a
+     * {@link HashChainAuditEventWriter}.
+     */
+    @Value
+    public static class Checkpoint {
+        long firstRecord;
+        int records;
+        String merkleRoot;
+        String lastChainHash;
+    }
+}
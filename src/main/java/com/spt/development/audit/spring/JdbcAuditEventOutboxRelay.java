@@ -0,0 +1,137 @@
+package com.spt.development.audit.spring;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Relays the audit events inserted into an outbox table by a {@link JdbcAuditEventWriter} in
+ * {@link JdbcAuditEventWriter.Mode#OUTBOX} mode, to another {@link AuditEventWriter} - typically a
+ * {@link JmsAuditEventWriter}. The audit events are read from the outbox table in batches, written to the
+ * {@link AuditEventWriter} one at a time with {@link AuditEventWriter#write(AuditEvent)} and then deleted from the outbox
+ * table. Only the audit events that were successfully written are deleted. The audit events are not relayed with
+ * {@link AuditEventWriter#writeAll(java.util.Collection)}, as writers such as a {@link TransactionAwareAuditEventWriter}
+ * that does not override {@link TransactionAwareAuditEventWriter#doWriteAll(List)} log, rather than throw, the failure
+ * to write an individual audit event. In addition to the columns written by the
+ * {@link JdbcAuditEventWriter}, the outbox table must have a numeric, ascending, primary key column which is used to
+ * relay the audit events in the order they were inserted.
+ *
+ * <p>The relay is a {@link Runnable} so that it can be scheduled to run periodically in the background, with a
+ * {@link java.util.concurrent.ScheduledExecutorService} for example. It should not be run within a transaction, so that
+ * the audit events are written to the {@link AuditEventWriter} immediately. Audit events are delivered at least once; if
+ * the relay fails after writing an audit event but before deleting it from the outbox table, or if multiple instances of
+ * the relay are run concurrently against the same table, the audit event will be written again.</p>
+ */
+@Slf4j
+public class JdbcAuditEventOutboxRelay implements Runnable {
+    /**
+     * The default name of the outbox table.
+     */
+    public static final String DEFAULT_TABLE_NAME = "audit_event_outbox";
+
+    /**
+     * The default name of the primary key column of the outbox table.
+     */
+    public static final String DEFAULT_ID_COLUMN_NAME = "outbox_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditEventWriter auditEventWriter;
+    private final String idColumnName;
+    private final String selectSql;
+    private final String deleteSql;
+    private final int batchSize;
+
+    /**
+     * Creates a new relay that relays audit events from the {@link JdbcAuditEventOutboxRelay#DEFAULT_TABLE_NAME} table.
+     *
+     * @param jdbcTemplate the JDBC template to use to read and delete the audit events from the outbox table.
+     * @param auditEventWriter the audit event writer to relay the audit events to.
+     */
+    public JdbcAuditEventOutboxRelay(final JdbcTemplate jdbcTemplate, final AuditEventWriter auditEventWriter) {
+        this(jdbcTemplate, auditEventWriter, DEFAULT_TABLE_NAME, DEFAULT_ID_COLUMN_NAME, JdbcAuditEventWriter.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a new relay.
+     *
+     * @param jdbcTemplate the JDBC template to use to read and delete the audit events from the outbox table.
+     * @param auditEventWriter the audit event writer to relay the audit events to.
+     * @param tableName the name of the outbox table.
+     * @param idColumnName the name of the primary key column of the outbox table.
+     * @param batchSize the maximum number of audit events to read from the outbox table at a time.
+     */
+    public JdbcAuditEventOutboxRelay(
+            final JdbcTemplate jdbcTemplate,
+            final AuditEventWriter auditEventWriter,
+            final String tableName,
+            final String idColumnName,
+            final int batchSize) {
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.auditEventWriter = auditEventWriter;
+        this.idColumnName = idColumnName;
+        this.selectSql = "SELECT " + idColumnName + ", " + JdbcAuditEventWriter.COLUMNS + " FROM " + tableName
+            + " ORDER BY " + idColumnName;
+        this.deleteSql = "DELETE FROM " + tableName + " WHERE " + idColumnName + " = ?";
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Relays batches of audit events until the outbox table is empty. Any exception thrown is logged rather than
+     * propagated, so that a failure does not stop subsequent scheduled runs of the relay.
+     */
+    @Override
+    public void run() {
+        try {
+            int relayed;
+
+            do {
+                relayed = relayBatch();
+            } while (relayed == batchSize);
+        } catch (RuntimeException ex) {
+            LOG.error("Failed to relay audit events from outbox", ex);
+        }
+    }
+
+    /**
+     * Relays a single batch of audit events from the outbox table, in the order that they were inserted.
+     *
+     * @return the number of audit events relayed.
+     */
+    public int relayBatch() {
+        final List<OutboxEntry> entries = jdbcTemplate.query(
+                selectSql,
+                ps -> ps.setMaxRows(batchSize),
+                (rs, rowNum) -> new OutboxEntry(rs.getLong(idColumnName), JdbcAuditEventWriter.mapAuditEvent(rs))
+        );
+
+        int written = 0;
+
+        try {
+            for (OutboxEntry entry : entries) {
+                auditEventWriter.write(entry.getAuditEvent());
+                written++;
+            }
+        } finally {
+            // Only delete the entries that were successfully written, the rest will be retried on the next run
+            delete(entries.subList(0, written));
+        }
+        LOG.debug("Relayed {} audit events from outbox", written);
+
+        return written;
+    }
+
+    private void delete(List<OutboxEntry> entries) {
+        if (!entries.isEmpty()) {
+            jdbcTemplate.batchUpdate(deleteSql, entries, batchSize, (ps, entry) -> ps.setLong(1, entry.getOutboxId()));
+        }
+    }
+
+    @Value
+    private static class OutboxEntry {
+        long outboxId;
+        AuditEvent auditEvent;
+    }
+}
@@ -0,0 +1,202 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+/**
+ * An implementation of {@link AuditEventWriter} that inserts the audit events into a database table using a
+ * {@link JdbcTemplate}. All of the audit events written within a transaction are inserted with a single JDBC batch (or
+ * multiple batches if there are more audit events than the configured batch size). The table must have the following
+ * columns, see the <a href="https://github.com/spt-development/spt-development-audit-spring/blob/main/README.md">README</a>
+ * for an example schema: <code>type, sub_type, correlation_id, id, details, user_id, username, originating_ip,
+ * service_id, service_version, server_host_name, created, event_id</code>.
+ *
+ * <p>The writer supports two modes:</p>
+ * <ul>
+ *     <li>{@link Mode#DIRECT} - the audit events are inserted after the transaction commits, in the same way as the other
+ *     {@link TransactionAwareAuditEventWriter}s.</li>
+ *     <li>{@link Mode#OUTBOX} - the audit events are inserted just before the transaction commits, as part of the
+ *     caller's transaction, into an outbox table. The audit events are then relayed to their final destination, such as a
+ *     JMS queue, by {@link JdbcAuditEventOutboxRelay}. This guarantees that the audit events are only written if the
+ *     transaction commits and are not lost if the final destination is unavailable.</li>
+ * </ul>
+ */
+@Slf4j
+public class JdbcAuditEventWriter extends TransactionAwareAuditEventWriter {
+    /**
+     * The default name of the table that the audit events are inserted into.
+     */
+    public static final String DEFAULT_TABLE_NAME = "audit_event";
+
+    /**
+     * The default maximum number of audit events inserted in a single JDBC batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    static final String COLUMNS =
+        "type, sub_type, correlation_id, id, details, user_id, username, originating_ip, service_id, service_version, "
+            + "server_host_name, created, event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String tableName;
+    private final String insertSql;
+    private final int batchSize;
+    private final Mode mode;
+    private final CorrelationIdLogger logger;
+
+    /**
+     * The modes that the {@link JdbcAuditEventWriter} can operate in.
+     */
+    public enum Mode {
+        /**
+         * Audit events are inserted after the transaction commits.
+         */
+        DIRECT,
+
+        /**
+         * Audit events are inserted just before the transaction commits, as part of the transaction.
+         */
+        OUTBOX
+    }
+
+    /**
+     * Creates a new instance of the audit event writer, that inserts the audit events into the
+     * {@link JdbcAuditEventWriter#DEFAULT_TABLE_NAME} table after the transaction commits. The log statements written by
+     * the audit event writer will include the current correlation ID; see
+     * {@link JdbcAuditEventWriter#JdbcAuditEventWriter(boolean, JdbcTemplate, String, int, Mode)} to disable this
+     * behaviour.
+     *
+     * @param jdbcTemplate the JDBC template to use to insert the audit events.
+     */
+    public JdbcAuditEventWriter(final JdbcTemplate jdbcTemplate) {
+        this(true, jdbcTemplate, DEFAULT_TABLE_NAME, DEFAULT_BATCH_SIZE, Mode.DIRECT);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param jdbcTemplate the JDBC template to use to insert the audit events.
+     * @param tableName the name of the table to insert the audit events into.
+     * @param batchSize the maximum number of audit events to insert in a single JDBC batch.
+     * @param mode determines whether the audit events are inserted after the transaction commits, or as part of the
+     *             transaction into an outbox table.
+     */
+    public JdbcAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final JdbcTemplate jdbcTemplate,
+            final String tableName,
+            final int batchSize,
+            final Mode mode) {
+        this(includeCorrelationIdInLogs, jdbcTemplate, tableName, batchSize, mode, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param jdbcTemplate the JDBC template to use to insert the audit events.
+     * @param tableName the name of the table to insert the audit events into.
+     * @param batchSize the maximum number of audit events to insert in a single JDBC batch.
+     * @param mode determines whether the audit events are inserted after the transaction commits, or as part of the
+     *             transaction into an outbox table.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public JdbcAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final JdbcTemplate jdbcTemplate,
+            final String tableName,
+            final int batchSize,
+            final Mode mode,
+            final CorrelationIdProvider correlationIdProvider) {
+        super(includeCorrelationIdInLogs, correlationIdProvider);
+
+        this.jdbcTemplate = jdbcTemplate;
+        this.tableName = tableName;
+        this.insertSql = "INSERT INTO " + tableName + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        this.batchSize = batchSize;
+        this.mode = mode;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Inserts a single {@link AuditEvent} into the configured table.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        logger.debug("Inserting audit event into {}: {}", tableName, auditEvent);
+
+        jdbcTemplate.update(insertSql, ps -> setValues(ps, auditEvent));
+    }
+
+    /**
+     * Inserts all of the {@link AuditEvent}s written within a transaction into the configured table, using JDBC batches
+     * of at most the configured batch size.
+     *
+     * @param auditEvents the {@link AuditEvent}s to write.
+     */
+    @Override
+    protected void doWriteAll(List<AuditEvent> auditEvents) {
+        logger.debug("Inserting {} audit events into {}", auditEvents.size(), tableName);
+
+        jdbcTemplate.batchUpdate(insertSql, auditEvents, batchSize, JdbcAuditEventWriter::setValues);
+    }
+
+    /**
+     * In {@link Mode#OUTBOX} mode, the audit events are written as part of the transaction.
+     *
+     * @return <code>true</code> if the writer is in {@link Mode#OUTBOX} mode.
+     */
+    @Override
+    protected boolean isWrittenBeforeCommit() {
+        return mode == Mode.OUTBOX;
+    }
+
+    static void setValues(PreparedStatement ps, AuditEvent auditEvent) throws SQLException {
+        int index = 1;
+
+        ps.setString(index++, auditEvent.getType());
+        ps.setString(index++, auditEvent.getSubType());
+        ps.setString(index++, auditEvent.getCorrelationId());
+        ps.setString(index++, auditEvent.getId());
+        ps.setString(index++, auditEvent.getDetails());
+        ps.setString(index++, auditEvent.getUserId());
+        ps.setString(index++, auditEvent.getUsername());
+        ps.setString(index++, auditEvent.getOriginatingIP());
+        ps.setString(index++, auditEvent.getServiceId());
+        ps.setString(index++, auditEvent.getServiceVersion());
+        ps.setString(index++, auditEvent.getServerHostName());
+        ps.setObject(index++, auditEvent.getCreated(), Types.TIMESTAMP_WITH_TIMEZONE);
+        ps.setString(index, auditEvent.getEventId());
+    }
+
+    static AuditEvent mapAuditEvent(ResultSet rs) throws SQLException {
+        return AuditEvent.builder()
+                .type(rs.getString("type"))
+                .subType(rs.getString("sub_type"))
+                .correlationId(rs.getString("correlation_id"))
+                .id(rs.getString("id"))
+                .details(rs.getString("details"))
+                .userId(rs.getString("user_id"))
+                .username(rs.getString("username"))
+                .originatingIP(rs.getString("originating_ip"))
+                .serviceId(rs.getString("service_id"))
+                .serviceVersion(rs.getString("service_version"))
+                .serverHostName(rs.getString("server_host_name"))
+                .created(rs.getObject("created", OffsetDateTime.class))
+                .eventId(rs.getString("event_id"))
+                .build();
+    }
+}
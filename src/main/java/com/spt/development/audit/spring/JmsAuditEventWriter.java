@@ -1,10 +1,28 @@
 package com.spt.development.audit.spring;
 
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import jakarta.jms.CompletionListener;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
 import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+import org.springframework.jms.connection.CachingConnectionFactory;
+import org.springframework.jms.connection.ConnectionFactoryUtils;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
 
-import static com.spt.development.audit.spring.util.CorrelationIdUtils.addCorrelationIdToArguments;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
 
 /**
  * An implementation of {@link AuditEventWriter} that adds the audit event to a JMS queue. The processing or storing of
@@ -13,8 +31,39 @@ import static com.spt.development.audit.spring.util.CorrelationIdUtils.addCorrel
  */
 @Slf4j
 public class JmsAuditEventWriter extends TransactionAwareAuditEventWriter {
+    /**
+     * The name of the JMS message property set on messages that contain an {@link AuditEventEnvelope} rather than a single
+     * {@link AuditEvent}; the value of the property is {@link AuditEventEnvelope#ENCODING}.
+     */
+    public static final String AUDIT_EVENT_ENCODING_PROPERTY = "auditEventEncoding";
+
+    /**
+     * The name of the JMS message property set to the {@link AuditEvent#getEventId()} of the audit event in the message,
+     * so that consumers can detect duplicate messages without parsing the message body.
+     */
+    public static final String AUDIT_EVENT_ID_PROPERTY = "auditEventId";
+
     private final String destinationName;
     private final JmsTemplate jmsTemplate;
+    private final CorrelationIdLogger logger;
+    private final Map<String, Destination> destinations = new ConcurrentHashMap<>();
+    private boolean envelopeEncoding;
+    private Function<AuditEvent, String> destinationSelector;
+    private Semaphore inFlight;
+    private AuditEventWriter asyncFallback;
+
+    /**
+     * Creates a new instance of the audit event writer, which sends the audit events with a {@link JmsTemplate} whose
+     * connection factory is wrapped in a {@link CachingConnectionFactory} (unless it is one already), so that the
+     * connection is shared and the sessions and message producers are cached and reused between sends. The log
+     * statements written by the audit event writer will include the current correlation ID.
+     *
+     * @param destinationName the name of the queue to write the audit events to.
+     * @param connectionFactory the connection factory to use to send the audit event JMS messages.
+     */
+    public JmsAuditEventWriter(final String destinationName, final ConnectionFactory connectionFactory) {
+        this(destinationName, new JmsTemplate(cachingConnectionFactory(connectionFactory)));
+    }
 
     /**
      * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
@@ -59,31 +108,302 @@ public class JmsAuditEventWriter extends TransactionAwareAuditEventWriter {
 
         this.destinationName = destinationName;
         this.jmsTemplate = jmsTemplate;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Sends audit events as {@link AuditEventEnvelope}s rather than plain {@link AuditEvent} JSON; so that the fields that
+     * are the same for every audit event are only sent once per message. All of the audit events written in a transaction
+     * are sent as a single message. Consumers must use {@link AuditEventEnvelope#decode(String)} to decode messages that
+     * have the {@link JmsAuditEventWriter#AUDIT_EVENT_ENCODING_PROPERTY} property set.
+     *
+     * @return this audit event writer.
+     */
+    public JmsAuditEventWriter withEnvelopeEncoding() {
+        this.envelopeEncoding = true;
+        return this;
+    }
+
+    /**
+     * Selects the destination of each audit event, rather than sending all of the audit events to the same destination;
+     * for example, by the type of the audit event. The destinations are resolved once per destination name, with the
+     * destination resolver of the {@link JmsTemplate}, and then cached, so the number of distinct destination names
+     * should be bounded. All of the audit events written together are sent with a single session and one message
+     * producer per destination; if envelope encoding is enabled, one envelope is sent per destination.
+     *
+     * @param destinationSelector selects the name of the destination to send an audit event to; if it returns
+     *                            <code>null</code>, the audit event is sent to the destination given on construction.
+     *
+     * @return this audit event writer.
+     */
+    public JmsAuditEventWriter withDestinationSelector(Function<AuditEvent, String> destinationSelector) {
+        this.destinationSelector = destinationSelector;
+        return this;
+    }
+
+    /**
+     * Sends the audit event messages asynchronously, with the JMS 2.0
+     * {@link MessageProducer#send(Message, CompletionListener)} API, rather than waiting for the broker to acknowledge
+     * each message in turn; which, for persistent messages, can greatly increase the rate at which audit events are
+     * sent. Up to <code>maxInFlight</code> messages can be awaiting acknowledgement at once; once the limit is reached,
+     * writing an audit event blocks until the broker has acknowledged an earlier message. If the broker fails to
+     * accept a message, its audit events are written to the fallback writer, on a thread of the JMS provider; a
+     * {@link FileAuditEventWriter} for example. Closing the connection waits for all of the outstanding messages to be
+     * acknowledged.
+     *
+     * <p>An audit event is only guaranteed to have been sent once it has been acknowledged, so a failure is no longer
+     * reported to the caller of {@link AuditEventWriter#write(AuditEvent)}. Asynchronous sends are of no benefit with
+     * transacted sessions, where committing the session waits for all of the messages to be acknowledged.</p>
+     *
+     * @param maxInFlight the maximum number of messages awaiting acknowledgement by the broker.
+     * @param fallback the writer to write the audit events that the broker failed to accept to; if <code>null</code>
+     *                 they are logged and discarded.
+     *
+     * @return this audit event writer.
+     */
+    public JmsAuditEventWriter withAsyncSends(int maxInFlight, AuditEventWriter fallback) {
+        this.inFlight = new Semaphore(maxInFlight);
+        this.asyncFallback = fallback;
+        return this;
+    }
+
+    static ConnectionFactory cachingConnectionFactory(ConnectionFactory connectionFactory) {
+        if (connectionFactory instanceof CachingConnectionFactory) {
+            return connectionFactory;
+        }
+
+        final CachingConnectionFactory cachingConnectionFactory = new CachingConnectionFactory(connectionFactory);
+        cachingConnectionFactory.setCacheProducers(true);
+
+        return cachingConnectionFactory;
     }
 
     /**
      * Converts the {@link AuditEvent} to JSON and adds it as a {@link jakarta.jms.TextMessage} to the configured JMS queue.
+     * The JMS correlation ID is taken from the audit event, falling back to the current correlation ID if the audit event
+     * does not have one; so that the correct correlation ID is used even if the event is written on another thread. The
+     * {@link JmsAuditEventWriter#AUDIT_EVENT_ID_PROPERTY} property is set to the audit event's event ID, if it has one.
      *
      * @param auditEvent the {@link AuditEvent} to write.
      */
     @Override
     protected void doWrite(AuditEvent auditEvent) {
-        debug("Adding audit event message to JMS queue: {}", auditEvent);
+        if (destinationSelector != null) {
+            sendToSelectedDestinations(List.of(auditEvent));
+            return;
+        }
 
-        jmsTemplate.send(destinationName, s -> {
-            final Message message = s.createTextMessage(auditEvent.toJson());
+        if (envelopeEncoding) {
+            sendEnvelope(List.of(auditEvent));
+            return;
+        }
 
-            message.setJMSCorrelationID(getCorrelationId());
+        if (inFlight != null) {
+            sendAll(List.of(auditEvent));
+            return;
+        }
+        logger.debug("Adding audit event message to JMS queue: {}", auditEvent);
 
-            return message;
+        jmsTemplate.send(destinationName, s -> createMessage(s, auditEvent));
+    }
+
+    /**
+     * Writes a batch of audit events; for example, all of the audit events written in a transaction. If envelope encoding
+     * is enabled, the audit events are sent as a single message; otherwise each audit event is sent as a separate
+     * message, all using the same JMS session and message producer.
+     *
+     * @param auditEvents the audit events to write.
+     */
+    @Override
+    protected void doWriteAll(List<AuditEvent> auditEvents) {
+        if (destinationSelector != null) {
+            sendToSelectedDestinations(auditEvents);
+            return;
+        }
+
+        if (envelopeEncoding) {
+            sendEnvelope(auditEvents);
+            return;
+        }
+        sendAll(auditEvents);
+    }
+
+    private Message createMessage(Session session, AuditEvent auditEvent) throws JMSException {
+        final Message message = session.createTextMessage(auditEvent.toJson());
+
+        message.setJMSCorrelationID(Optional.ofNullable(auditEvent.getCorrelationId()).orElseGet(this::getCorrelationId));
+
+        if (auditEvent.getEventId() != null) {
+            message.setStringProperty(AUDIT_EVENT_ID_PROPERTY, auditEvent.getEventId());
+        }
+        return message;
+    }
+
+    private void sendAll(List<AuditEvent> auditEvents) {
+        logger.debug("Adding {} audit event message(s) to JMS queue", auditEvents.size());
+
+        jmsTemplate.execute(destinationName, (session, producer) -> {
+            for (AuditEvent auditEvent : auditEvents) {
+                send(producer, createMessage(session, auditEvent), List.of(auditEvent));
+            }
+            commitIfLocallyTransacted(session);
+
+            return null;
         });
     }
 
-    private void debug(String format, Object... arguments) {
-        if (isIncludeCorrelationIdInLogs()) {
-            LOG.debug("[{}] " + format, addCorrelationIdToArguments(getCorrelationId(), arguments));
+    private void sendEnvelope(List<AuditEvent> auditEvents) {
+        logger.debug("Adding envelope of {} audit event(s) to JMS queue", auditEvents.size());
+
+        final String json = AuditEventEnvelope.encode(auditEvents);
+
+        if (inFlight == null) {
+            jmsTemplate.send(destinationName, s -> createEnvelopeMessage(s, json, auditEvents.get(0)));
             return;
         }
-        LOG.debug(format, arguments);
+
+        jmsTemplate.execute(destinationName, (session, producer) -> {
+            send(producer, createEnvelopeMessage(session, json, auditEvents.get(0)), auditEvents);
+            commitIfLocallyTransacted(session);
+
+            return null;
+        });
+    }
+
+    private void sendToSelectedDestinations(List<AuditEvent> auditEvents) {
+        // Grouped by destination, preserving the order of the audit events sent to each destination
+        final Map<String, List<AuditEvent>> auditEventsByDestination = new LinkedHashMap<>();
+
+        for (AuditEvent auditEvent : auditEvents) {
+            final String selected = destinationSelector.apply(auditEvent);
+
+            auditEventsByDestination.computeIfAbsent(selected != null ? selected : destinationName, d -> new ArrayList<>()).add(auditEvent);
+        }
+        logger.debug("Adding {} audit event(s) to JMS destinations: {}", auditEvents.size(), auditEventsByDestination.keySet());
+
+        jmsTemplate.execute(session -> {
+            for (Map.Entry<String, List<AuditEvent>> entry : auditEventsByDestination.entrySet()) {
+                sendToDestination(session, entry.getKey(), entry.getValue());
+            }
+            commitIfLocallyTransacted(session);
+
+            return null;
+        }, true);
+    }
+
+    private void sendToDestination(Session session, String name, List<AuditEvent> auditEvents) throws JMSException {
+        // With a CachingConnectionFactory, the producer is cached by the session and closing it returns it to the cache
+        final MessageProducer producer = session.createProducer(resolveDestination(session, name));
+
+        try {
+            if (envelopeEncoding) {
+                send(producer, createEnvelopeMessage(session, AuditEventEnvelope.encode(auditEvents), auditEvents.get(0)), auditEvents);
+                return;
+            }
+
+            for (AuditEvent auditEvent : auditEvents) {
+                send(producer, createMessage(session, auditEvent), List.of(auditEvent));
+            }
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+    }
+
+    private Destination resolveDestination(Session session, String name) throws JMSException {
+        final Destination cached = destinations.get(name);
+
+        if (cached != null) {
+            return cached;
+        }
+
+        final Destination resolved = jmsTemplate.getDestinationResolver().resolveDestinationName(session, name, jmsTemplate.isPubSubDomain());
+        destinations.put(name, resolved);
+
+        return resolved;
+    }
+
+    private Message createEnvelopeMessage(Session session, String json, AuditEvent first) throws JMSException {
+        final Message message = session.createTextMessage(json);
+
+        message.setJMSCorrelationID(Optional.ofNullable(first.getCorrelationId()).orElseGet(this::getCorrelationId));
+        message.setStringProperty(AUDIT_EVENT_ENCODING_PROPERTY, AuditEventEnvelope.ENCODING);
+
+        return message;
+    }
+
+    private void send(MessageProducer producer, Message message, List<AuditEvent> auditEvents) throws JMSException {
+        if (inFlight != null) {
+            sendAsync(producer, message, auditEvents);
+            return;
+        }
+
+        // Honour the quality of service settings of the template, as JmsTemplate#send would
+        if (jmsTemplate.isExplicitQosEnabled()) {
+            producer.send(message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive());
+        } else {
+            producer.send(message);
+        }
+    }
+
+    private void sendAsync(MessageProducer producer, Message message, List<AuditEvent> auditEvents) throws JMSException {
+        final CompletionListener listener = new AsyncSendListener(auditEvents);
+
+        // Blocks the writing thread once the window is full, rather than queuing an unbounded number of messages
+        inFlight.acquireUninterruptibly();
+
+        try {
+            if (jmsTemplate.isExplicitQosEnabled()) {
+                producer.send(message, jmsTemplate.getDeliveryMode(), jmsTemplate.getPriority(), jmsTemplate.getTimeToLive(), listener);
+            } else {
+                producer.send(message, listener);
+            }
+        } catch (JMSException | RuntimeException ex) {
+            // The listener is not called if the send fails outright, the failure is reported to the caller instead
+            inFlight.release();
+            throw ex;
+        }
+    }
+
+    private void divert(List<AuditEvent> auditEvents, Exception cause) {
+        if (asyncFallback != null) {
+            try {
+                asyncFallback.writeAll(auditEvents);
+                return;
+            } catch (RuntimeException ex) {
+                logger.log(
+                        Level.ERROR, auditEvents.get(0).getCorrelationId(), "Failed to write {} audit event(s) to fallback", auditEvents.size(), ex
+                );
+            }
+        }
+
+        for (AuditEvent auditEvent : auditEvents) {
+            // All of the auditing data is logged, so this *could* be used to manually repair the audit log if necessary
+            logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to send audit event: {}", auditEvent, cause);
+        }
+    }
+
+    private void commitIfLocallyTransacted(Session session) throws JMSException {
+        if (session.getTransacted() && !ConnectionFactoryUtils.isSessionTransactional(session, jmsTemplate.getConnectionFactory())) {
+            JmsUtils.commitIfNecessary(session);
+        }
+    }
+
+    private final class AsyncSendListener implements CompletionListener {
+        private final List<AuditEvent> auditEvents;
+
+        AsyncSendListener(List<AuditEvent> auditEvents) {
+            this.auditEvents = auditEvents;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            inFlight.release();
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            inFlight.release();
+            divert(auditEvents, exception);
+        }
     }
 }
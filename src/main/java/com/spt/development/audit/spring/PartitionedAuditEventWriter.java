@@ -0,0 +1,167 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An implementation of {@link AuditEventWriter} that writes the audit events to a delegate {@link AuditEventWriter}
+ * asynchronously, whilst preserving the order of the audit events generated for the same correlation ID; so that, for
+ * example, the audit event for creating a resource is always written before the audit event for updating it.
+ *
+ * <p>Each audit event is assigned to one of a fixed number of lanes by hashing its correlation ID, or its ID if it does
+ * not have a correlation ID. The audit events in a lane are written one at a time, in the order they were written to
+ * this writer, on a thread belonging to the {@link ExecutorService} supplied; different lanes are written in parallel.
+ * A lane only occupies a thread while it has audit events waiting to be written, so the lanes can share an executor
+ * service with fewer threads than there are lanes. The writer is called after the current transaction (if any) has
+ * committed, therefore the delegate should not rely on being called within the caller's transaction.</p>
+ */
+@Slf4j
+public final class PartitionedAuditEventWriter extends TransactionAwareAuditEventWriter {
+    private static final int HASH_SPREAD_SHIFT = 16;
+
+    private final AuditEventWriter delegate;
+    private final ExecutorService executorService;
+    private final Lane[] lanes;
+    private final CorrelationIdLogger logger;
+
+    /**
+     * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
+     * include the current correlation ID; see
+     * {@link PartitionedAuditEventWriter#PartitionedAuditEventWriter(boolean, AuditEventWriter, ExecutorService, int)}
+     * to disable this behaviour.
+     *
+     * @param delegate the audit event writer to write the audit events to.
+     * @param executorService the executor service used to write the lanes in parallel.
+     * @param lanes the number of lanes.
+     */
+    public PartitionedAuditEventWriter(final AuditEventWriter delegate, final ExecutorService executorService, final int lanes) {
+        this(true, delegate, executorService, lanes);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the audit events to.
+     * @param executorService the executor service used to write the lanes in parallel.
+     * @param lanes the number of lanes.
+     */
+    public PartitionedAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ExecutorService executorService,
+            final int lanes) {
+        this(includeCorrelationIdInLogs, delegate, executorService, lanes, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the audit events to.
+     * @param executorService the executor service used to write the lanes in parallel.
+     * @param lanes the number of lanes.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public PartitionedAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ExecutorService executorService,
+            final int lanes,
+            final CorrelationIdProvider correlationIdProvider) {
+        this(includeCorrelationIdInLogs, delegate, executorService, lanes, correlationIdProvider, new TransactionSyncManFacade());
+    }
+
+    PartitionedAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ExecutorService executorService,
+            final int lanes,
+            final CorrelationIdProvider correlationIdProvider,
+            final TransactionSyncManFacade transactionSyncManFacade) {
+        super(includeCorrelationIdInLogs, correlationIdProvider, transactionSyncManFacade);
+
+        if (lanes <= 0) {
+            throw new IllegalArgumentException("Number of lanes must be greater than zero: " + lanes);
+        }
+
+        this.delegate = delegate;
+        this.executorService = executorService;
+        this.lanes = new Lane[lanes];
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    /**
+     * Adds the {@link AuditEvent} to the end of its lane, to be written once all of the audit events ahead of it in the
+     * lane have been written.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        final Lane lane = lanes[laneIndex(auditEvent)];
+
+        lane.queue.add(auditEvent);
+        schedule(lane);
+    }
+
+    int laneIndex(AuditEvent auditEvent) {
+        final String key = auditEvent.getCorrelationId() != null ? auditEvent.getCorrelationId() : auditEvent.getId();
+
+        if (key == null) {
+            return 0;
+        }
+
+        final int hash = key.hashCode();
+
+        return Math.floorMod(hash ^ hash >>> HASH_SPREAD_SHIFT, lanes.length);
+    }
+
+    private void schedule(Lane lane) {
+        // Only one task per lane at a time, which is what guarantees the ordering within the lane
+        if (lane.queue.isEmpty() || !lane.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            executorService.execute(() -> drain(lane));
+        } catch (RejectedExecutionException ex) {
+            LOG.warn("Failed to schedule audit event lane, writing audit events on calling thread", ex);
+            drain(lane);
+        }
+    }
+
+    private void drain(Lane lane) {
+        AuditEvent auditEvent;
+
+        while ((auditEvent = lane.queue.poll()) != null) {
+            try {
+                delegate.write(auditEvent);
+            } catch (RuntimeException ex) {
+                logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event: {}", auditEvent, ex);
+            }
+        }
+        lane.scheduled.set(false);
+
+        // An audit event may have been added after the queue was found to be empty, but before the flag was cleared
+        schedule(lane);
+    }
+
+    private static final class Lane {
+        private final Queue<AuditEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+    }
+}
@@ -0,0 +1,331 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+/**
+ * An implementation of {@link AuditEventWriter} that protects the callers of a delegate {@link AuditEventWriter} from
+ * the delegate being slow or unavailable; for example, a {@link JmsAuditEventWriter} when the broker is down.
+ *
+ * <p>The audit events are written to the delegate on threads belonging to the {@link ScheduledExecutorService}
+ * supplied, after the current transaction (if any) has committed, so the caller never waits for the delegate and the
+ * delegate should not rely on being called within the caller's transaction. If the delegate fails to write an audit
+ * event, writing it is retried with an exponential backoff and full jitter, up to a maximum number of attempts.</p>
+ *
+ * <p>The delegate is also guarded by a circuit breaker; once the delegate has failed a number of times in a row, the
+ * circuit is opened and, for a configurable length of time, the audit events are not written to the delegate at all.
+ * Instead, they are immediately diverted to the fallback {@link AuditEventWriter}, if there is one, or logged. Once that
+ * time has passed, a single audit event is written to the delegate as a trial; if it succeeds, the circuit is closed
+ * again, otherwise it is re-opened. Audit events that cannot be written to the delegate after all of their attempts are
+ * diverted in the same way.</p>
+ */
+@Slf4j
+public class ResilientAuditEventWriter extends TransactionAwareAuditEventWriter {
+    /**
+     * The default maximum number of attempts made to write an audit event to the delegate.
+     */
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+
+    /**
+     * The default backoff before the first retry; doubled for each subsequent retry.
+     */
+    public static final Duration DEFAULT_INITIAL_BACKOFF = Duration.ofMillis(100);
+
+    /**
+     * The default maximum backoff between retries.
+     */
+    public static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(10);
+
+    /**
+     * The default number of consecutive failures after which the circuit is opened.
+     */
+    public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+    /**
+     * The default length of time the circuit stays open for, before a trial audit event is written to the delegate.
+     */
+    public static final Duration DEFAULT_OPEN_DURATION = Duration.ofSeconds(30);
+
+    private static final int MAX_BACKOFF_SHIFT = 30;
+
+    private final AuditEventWriter delegate;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Clock clock;
+    private final DoubleSupplier jitter;
+    private final CorrelationIdLogger logger;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean trialInProgress = new AtomicBoolean();
+
+    private volatile long openUntil;
+
+    // Configured on one thread and read on the scheduled executor service's threads
+    private volatile int maxAttempts = DEFAULT_MAX_ATTEMPTS;
+    private volatile long initialBackoffMillis = DEFAULT_INITIAL_BACKOFF.toMillis();
+    private volatile long maxBackoffMillis = DEFAULT_MAX_BACKOFF.toMillis();
+    private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+    private volatile long openDurationMillis = DEFAULT_OPEN_DURATION.toMillis();
+    private volatile AuditEventWriter fallback;
+
+    /**
+     * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
+     * include the current correlation ID; see
+     * {@link ResilientAuditEventWriter#ResilientAuditEventWriter(boolean, AuditEventWriter, ScheduledExecutorService)} to
+     * disable this behaviour.
+     *
+     * @param delegate the audit event writer to write the audit events to.
+     * @param scheduledExecutorService the executor service used to write the audit events and to schedule retries.
+     */
+    public ResilientAuditEventWriter(final AuditEventWriter delegate, final ScheduledExecutorService scheduledExecutorService) {
+        this(true, delegate, scheduledExecutorService);
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the audit events to.
+     * @param scheduledExecutorService the executor service used to write the audit events and to schedule retries.
+     */
+    public ResilientAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ScheduledExecutorService scheduledExecutorService) {
+        this(includeCorrelationIdInLogs, delegate, scheduledExecutorService, new DefaultCorrelationIdProvider());
+    }
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param delegate the audit event writer to write the audit events to.
+     * @param scheduledExecutorService the executor service used to write the audit events and to schedule retries.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public ResilientAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ScheduledExecutorService scheduledExecutorService,
+            final CorrelationIdProvider correlationIdProvider) {
+        this(
+                includeCorrelationIdInLogs, delegate, scheduledExecutorService, correlationIdProvider,
+                new TransactionSyncManFacade(), Clock.systemUTC(), () -> ThreadLocalRandom.current().nextDouble()
+        );
+    }
+
+    ResilientAuditEventWriter(
+            final boolean includeCorrelationIdInLogs,
+            final AuditEventWriter delegate,
+            final ScheduledExecutorService scheduledExecutorService,
+            final CorrelationIdProvider correlationIdProvider,
+            final TransactionSyncManFacade transactionSyncManFacade,
+            final Clock clock,
+            final DoubleSupplier jitter) {
+        super(includeCorrelationIdInLogs, correlationIdProvider, transactionSyncManFacade);
+
+        this.delegate = delegate;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.clock = clock;
+        this.jitter = jitter;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Sets the maximum number of attempts made to write an audit event to the delegate, including the first attempt;
+     * defaults to {@link ResilientAuditEventWriter#DEFAULT_MAX_ATTEMPTS}.
+     *
+     * @param maxAttempts the maximum number of attempts.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public ResilientAuditEventWriter withMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+        return this;
+    }
+
+    /**
+     * Sets the backoff between retries. The backoff before the first retry is the initial backoff, which is then doubled
+     * for each subsequent retry up to the maximum backoff; the actual delay before each retry is a random duration between
+     * zero and the backoff, so that retries from many threads or instances are spread out. Defaults to
+     * {@link ResilientAuditEventWriter#DEFAULT_INITIAL_BACKOFF} and {@link ResilientAuditEventWriter#DEFAULT_MAX_BACKOFF}.
+     *
+     * @param initialBackoff the backoff before the first retry.
+     * @param maxBackoff the maximum backoff between retries.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public ResilientAuditEventWriter withBackoff(Duration initialBackoff, Duration maxBackoff) {
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        return this;
+    }
+
+    /**
+     * Configures the circuit breaker; defaults to {@link ResilientAuditEventWriter#DEFAULT_FAILURE_THRESHOLD} and
+     * {@link ResilientAuditEventWriter#DEFAULT_OPEN_DURATION}.
+     *
+     * @param failureThreshold the number of consecutive failures after which the circuit is opened.
+     * @param openDuration the length of time the circuit stays open for, before a trial audit event is written to the
+     *                     delegate.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public ResilientAuditEventWriter withCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openDurationMillis = openDuration.toMillis();
+        return this;
+    }
+
+    /**
+     * Sets the writer that the audit events are diverted to while the circuit is open, or once all of the attempts to
+     * write an audit event to the delegate have failed; a {@link FileAuditEventWriter} for example. By default, the
+     * audit events are logged and discarded.
+     *
+     * @param fallback the writer to divert the audit events to.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public ResilientAuditEventWriter withFallback(AuditEventWriter fallback) {
+        this.fallback = fallback;
+        return this;
+    }
+
+    /**
+     * Checks whether the circuit is open, in which case audit events are being diverted away from the delegate.
+     *
+     * @return <code>true</code> if the circuit is open.
+     */
+    public boolean isCircuitOpen() {
+        return consecutiveFailures.get() >= failureThreshold;
+    }
+
+    /**
+     * Hands the {@link AuditEvent} to the {@link ScheduledExecutorService} to be written to the delegate or, if the
+     * circuit is open, immediately diverts it.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    protected void doWrite(AuditEvent auditEvent) {
+        if (isCircuitOpen() && clock.millis() < openUntil) {
+            divert(auditEvent);
+            return;
+        }
+
+        try {
+            scheduledExecutorService.execute(() -> attempt(auditEvent, 1));
+        } catch (RejectedExecutionException ex) {
+            logger.log(Level.WARN, auditEvent.getCorrelationId(), "Failed to schedule write of audit event: {}", auditEvent, ex);
+            divert(auditEvent);
+        }
+    }
+
+    private void attempt(AuditEvent auditEvent, int attempt) {
+        final boolean trial = isCircuitOpen();
+
+        if (trial && !isTrialPermitted()) {
+            divert(auditEvent);
+            return;
+        }
+
+        try {
+            delegate.write(auditEvent);
+        } catch (RuntimeException ex) {
+            onFailure(auditEvent, trial);
+            retry(auditEvent, attempt, ex);
+            return;
+        }
+        onSuccess(auditEvent, trial);
+    }
+
+    private void retry(AuditEvent auditEvent, int attempt, RuntimeException cause) {
+        if (attempt >= maxAttempts) {
+            logger.log(
+                    Level.WARN, auditEvent.getCorrelationId(), "Failed to write audit event after {} attempt(s): {}",
+                    attempt, auditEvent, cause
+            );
+            divert(auditEvent);
+            return;
+        }
+
+        final long delay = backoff(attempt);
+
+        logger.log(
+                Level.WARN, auditEvent.getCorrelationId(), "Failed to write audit event, will retry in {}ms: {}",
+                delay, auditEvent, cause
+        );
+
+        try {
+            scheduledExecutorService.schedule(() -> attempt(auditEvent, attempt + 1), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ex) {
+            divert(auditEvent);
+        }
+    }
+
+    private long backoff(int attempt) {
+        final long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, MAX_BACKOFF_SHIFT));
+
+        return (long) (backoff * jitter.getAsDouble());
+    }
+
+    private boolean isTrialPermitted() {
+        // Once the circuit has been open for long enough, only one trial audit event is written to the delegate at a time
+        return clock.millis() >= openUntil && trialInProgress.compareAndSet(false, true);
+    }
+
+    private void onSuccess(AuditEvent auditEvent, boolean trial) {
+        if (consecutiveFailures.getAndSet(0) >= failureThreshold) {
+            logger.log(Level.INFO, auditEvent.getCorrelationId(), "Audit event written, closing circuit");
+        }
+        endTrial(trial);
+    }
+
+    private void onFailure(AuditEvent auditEvent, boolean trial) {
+        final int failures = consecutiveFailures.incrementAndGet();
+
+        if (failures >= failureThreshold) {
+            openUntil = clock.millis() + openDurationMillis;
+
+            if (failures == failureThreshold || trial) {
+                logger.log(
+                        Level.ERROR, auditEvent.getCorrelationId(), "Failed to write {} audit event(s) in a row, opening circuit for {}ms",
+                        failures, openDurationMillis
+                );
+            }
+        }
+        endTrial(trial);
+    }
+
+    private void endTrial(boolean trial) {
+        // Only the trial clears the flag, so a write let through before the circuit opened cannot allow a second trial
+        if (trial) {
+            trialInProgress.set(false);
+        }
+    }
+
+    private void divert(AuditEvent auditEvent) {
+        if (fallback == null) {
+            // All of the auditing data is logged, so this *could* be used to manually repair the audit log if necessary
+            logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event: {}", auditEvent);
+            return;
+        }
+
+        try {
+            fallback.write(auditEvent);
+        } catch (RuntimeException ex) {
+            logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event to fallback: {}", auditEvent, ex);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.spt.development.audit.spring;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An implementation of {@link AuditEventWriter} that routes each audit event to one of a number of
+ * {@link AuditEventWriter}s, based on its type and sub-type; for example, to send security audit events to a JMS
+ * destination of their own and high-volume read audit events to a file, or to discard some types of audit event
+ * altogether in certain environments. Audit events that do not match any of the routes are written to the default
+ * writer.
+ *
+ * <p>The routes are held in a lookup table keyed on the type, then the sub-type, so routing an audit event takes two
+ * hash lookups, however many routes there are. A route for a type and sub-type takes precedence over a route for the
+ * type alone. Each route has its own writer, so the batching and asynchronous behaviour of each route is that of its
+ * writer; for example, a {@link PartitionedAuditEventWriter} or a {@link FileAuditEventWriter} with group commit. This
+ * writer hands the audit events straight to the writers of the routes, so the writers are responsible for deferring
+ * the writes until the current transaction (if any) has committed. The routes must all be added before the writer is
+ * first used.</p>
+ *
+ * <p>Audit events written with {@link #writeDeferred(Supplier)} cannot be routed until they have been built, so they
+ * are handed to the writer of each route deferred; the audit events are built once, by whichever writer builds them
+ * first, and each writer is given the audit events routed to it.</p>
+ */
+public class RoutingAuditEventWriter implements AuditEventWriter {
+    private static final AuditEventWriter DISCARD = new AuditEventWriter() {
+        @Override
+        public void write(AuditEvent auditEvent) {
+            // Discarded
+        }
+
+        @Override
+        public boolean isDiscarding() {
+            return true;
+        }
+    };
+
+    private final AuditEventWriter defaultWriter;
+    private final Map<String, TypeRoutes> routes = new HashMap<>();
+    private volatile List<AuditEventWriter> writers;
+
+    /**
+     * Creates a new instance of the audit event writer.
+     *
+     * @param defaultWriter the writer to write audit events that do not match any of the routes to.
+     */
+    public RoutingAuditEventWriter(final AuditEventWriter defaultWriter) {
+        this.defaultWriter = defaultWriter;
+    }
+
+    /**
+     * Routes the audit events of a type, whatever their sub-type, to a writer.
+     *
+     * @param type the type of audit event.
+     * @param auditEventWriter the writer to write the audit events to.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public RoutingAuditEventWriter withRoute(String type, AuditEventWriter auditEventWriter) {
+        typeRoutes(type).writer = auditEventWriter;
+        return this;
+    }
+
+    /**
+     * Routes the audit events of a type and sub-type to a writer.
+     *
+     * @param type the type of audit event.
+     * @param subType the sub-type of audit event.
+     * @param auditEventWriter the writer to write the audit events to.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public RoutingAuditEventWriter withRoute(String type, String subType, AuditEventWriter auditEventWriter) {
+        typeRoutes(type).writersBySubType.put(subType, auditEventWriter);
+        return this;
+    }
+
+    /**
+     * Discards the audit events of a type, whatever their sub-type.
+     *
+     * @param type the type of audit event.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public RoutingAuditEventWriter withDiscarded(String type) {
+        return withRoute(type, DISCARD);
+    }
+
+    /**
+     * Discards the audit events of a type and sub-type.
+     *
+     * @param type the type of audit event.
+     * @param subType the sub-type of audit event.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public RoutingAuditEventWriter withDiscarded(String type, String subType) {
+        return withRoute(type, subType, DISCARD);
+    }
+
+    private TypeRoutes typeRoutes(String type) {
+        writers = null;
+
+        return routes.computeIfAbsent(type, t -> new TypeRoutes());
+    }
+
+    /**
+     * Writes the {@link AuditEvent} to the writer of its route.
+     *
+     * @param auditEvent the {@link AuditEvent} to write.
+     */
+    @Override
+    public void write(AuditEvent auditEvent) {
+        route(auditEvent).write(auditEvent);
+    }
+
+    /**
+     * Writes each batch of {@link AuditEvent}s with the same route to the writer of the route, in one call. The
+     * {@link AuditEvent}s in each batch are in the same order as they are in the collection given.
+     *
+     * @param auditEvents the {@link AuditEvent}s to write.
+     */
+    @Override
+    public void writeAll(Collection<AuditEvent> auditEvents) {
+        route(auditEvents).forEach(AuditEventWriter::writeAll);
+    }
+
+    /**
+     * Hands the {@link AuditEvent}s to the writer of every route (other than the routes that discard audit events)
+     * deferred, so that each writer can defer building them, as well as writing them. The {@link AuditEvent}s are built
+     * once, by the first writer to build them, then each writer is given the batch of {@link AuditEvent}s routed to it,
+     * which is empty if none of the {@link AuditEvent}s have its route.
+     *
+     * @param auditEvents builds the {@link AuditEvent}s to write.
+     */
+    @Override
+    public void writeDeferred(Supplier<? extends Collection<AuditEvent>> auditEvents) {
+        final RoutedAuditEvents routed = new RoutedAuditEvents(auditEvents);
+
+        for (AuditEventWriter writer : writers()) {
+            if (writer != DISCARD) {
+                writer.writeDeferred(() -> routed.get(writer));
+            }
+        }
+    }
+
+    /**
+     * Checks whether the audit events written now would be discarded by the writers of all of the routes, including the
+     * default writer; routes that discard audit events always discard them.
+     *
+     * @return <code>true</code> if the audit events would be discarded whatever their route.
+     */
+    @Override
+    public boolean isDiscarding() {
+        for (AuditEventWriter writer : writers()) {
+            if (!writer.isDiscarding()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<AuditEventWriter> writers() {
+        List<AuditEventWriter> result = writers;
+
+        if (result == null) {
+            // Writers are compared by identity, they are not expected to implement equals
+            final Set<AuditEventWriter> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+            distinct.add(defaultWriter);
+
+            for (TypeRoutes typeRoutes : routes.values()) {
+                if (typeRoutes.writer != null) {
+                    distinct.add(typeRoutes.writer);
+                }
+                distinct.addAll(typeRoutes.writersBySubType.values());
+            }
+            result = List.copyOf(distinct);
+            writers = result;
+        }
+        return result;
+    }
+
+    private Map<AuditEventWriter, List<AuditEvent>> route(Collection<AuditEvent> auditEvents) {
+        // Writers are grouped by identity, they are not expected to implement equals
+        final Map<AuditEventWriter, List<AuditEvent>> batches = new IdentityHashMap<>();
+
+        for (AuditEvent auditEvent : auditEvents) {
+            batches.computeIfAbsent(route(auditEvent), writer -> new ArrayList<>()).add(auditEvent);
+        }
+        return batches;
+    }
+
+    AuditEventWriter route(AuditEvent auditEvent) {
+        final TypeRoutes typeRoutes = routes.get(auditEvent.getType());
+
+        if (typeRoutes == null) {
+            return defaultWriter;
+        }
+
+        final AuditEventWriter writer = typeRoutes.writersBySubType.get(auditEvent.getSubType());
+
+        if (writer != null) {
+            return writer;
+        }
+        return typeRoutes.writer != null ? typeRoutes.writer : defaultWriter;
+    }
+
+    private final class RoutedAuditEvents {
+        private final Supplier<? extends Collection<AuditEvent>> auditEvents;
+        private Map<AuditEventWriter, List<AuditEvent>> batches;
+
+        RoutedAuditEvents(Supplier<? extends Collection<AuditEvent>> auditEvents) {
+            this.auditEvents = auditEvents;
+        }
+
+        synchronized List<AuditEvent> get(AuditEventWriter writer) {
+            // If building the audit events fails, each writer that builds them fails in the same way
+            if (batches == null) {
+                batches = route(auditEvents.get());
+            }
+            return batches.getOrDefault(writer, List.of());
+        }
+    }
+
+    private static final class TypeRoutes {
+        private final Map<String, AuditEventWriter> writersBySubType = new HashMap<>();
+        private AuditEventWriter writer;
+    }
+}
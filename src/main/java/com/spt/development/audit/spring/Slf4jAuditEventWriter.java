@@ -2,14 +2,34 @@ package com.spt.development.audit.spring;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+
+import static com.spt.development.audit.spring.util.CorrelationIdLogger.runWithCorrelationIdInMdc;
+
 /**
  * An implementation of {@link AuditEventWriter} that simply logs the audit event.
+ *
+ * <p>By default the audit event is logged using its {@link AuditEvent#toString()} representation. Alternatively, with
+ * {@link Slf4jAuditEventWriter#withStructuredOutput()}, the fields of the audit event are logged as key-value pairs using
+ * the SLF4J fluent API, for logging configurations that output structured logs (JSON for example).</p>
  */
 @Slf4j
 public class Slf4jAuditEventWriter implements AuditEventWriter {
+    /**
+     * The default MDC key used to add the correlation ID to the MDC when logging structured output.
+     */
+    public static final String DEFAULT_MDC_KEY = "cid";
+
+    private static final String MESSAGE = "Audit event";
+
     private final boolean includeCorrelationIdInLogs;
     private final CorrelationIdProvider correlationIdProvider;
 
+    private boolean structuredOutput;
+    private String mdcKey = DEFAULT_MDC_KEY;
+
     /**
      * Creates a new instance of the audit event writer. The log statements written by the audit event writer will
      * include the current correlation ID; see {@link Slf4jAuditEventWriter#Slf4jAuditEventWriter(boolean)} to disable
@@ -45,16 +65,96 @@ public class Slf4jAuditEventWriter implements AuditEventWriter {
     }
 
     /**
-     * Logs out the audit event using SLF4J.
+     * Logs the fields of the audit event as key-value pairs, rather than logging the whole audit event as a formatted
+     * string. If the correlation ID is to be included in the logs, it is added to the MDC with the
+     * {@link Slf4jAuditEventWriter#DEFAULT_MDC_KEY} key, for the duration of the log statement.
+     *
+     * @return the writer.
+     */
+    public Slf4jAuditEventWriter withStructuredOutput() {
+        return withStructuredOutput(DEFAULT_MDC_KEY);
+    }
+
+    /**
+     * Logs the fields of the audit event as key-value pairs, rather than logging the whole audit event as a formatted
+     * string. If the correlation ID is to be included in the logs, it is added to the MDC with the key provided, for the
+     * duration of the log statement.
+     *
+     * @param mdcKey the MDC key to add the correlation ID to the MDC with.
+     *
+     * @return the writer.
+     */
+    public Slf4jAuditEventWriter withStructuredOutput(String mdcKey) {
+        this.structuredOutput = true;
+        this.mdcKey = mdcKey;
+        return this;
+    }
+
+    /**
+     * Logs out the audit event using SLF4J. Nothing is formatted if info logging is disabled.
      *
      * @param auditEvent the audit event to write.
      */
     @Override
     public void write(AuditEvent auditEvent) {
+        writeAll(Collections.singletonList(auditEvent));
+    }
+
+    /**
+     * Logs out each of the audit events using SLF4J. Whether info logging is enabled, and the current correlation ID, are
+     * only looked up once for the whole batch; nothing is formatted if info logging is disabled.
+     *
+     * @param auditEvents the audit events to write.
+     */
+    @Override
+    public void writeAll(Collection<AuditEvent> auditEvents) {
+        if (!LOG.isInfoEnabled()) {
+            return;
+        }
+
+        if (structuredOutput) {
+            auditEvents.forEach(this::writeStructured);
+            return;
+        }
+
         if (includeCorrelationIdInLogs) {
-            LOG.info("[{}] Audit event: {}", correlationIdProvider.getCorrelationId(), auditEvent);
+            final String correlationId = correlationIdProvider.getCorrelationId();
+
+            auditEvents.forEach(auditEvent -> LOG.info("[{}] Audit event: {}", correlationId, auditEvent));
             return;
         }
-        LOG.info("Audit event: {}", auditEvent);
+        auditEvents.forEach(auditEvent -> LOG.info("Audit event: {}", auditEvent));
+    }
+
+    private void writeStructured(AuditEvent auditEvent) {
+        if (!includeCorrelationIdInLogs) {
+            logStructured(auditEvent);
+            return;
+        }
+
+        runWithCorrelationIdInMdc(
+            mdcKey,
+            Optional.ofNullable(auditEvent.getCorrelationId()).orElseGet(correlationIdProvider::getCorrelationId),
+            () -> logStructured(auditEvent)
+        );
+    }
+
+    private static void logStructured(AuditEvent auditEvent) {
+        LOG.atInfo()
+            .setMessage(MESSAGE)
+            .addKeyValue("type", auditEvent.getType())
+            .addKeyValue("subType", auditEvent.getSubType())
+            .addKeyValue("correlationId", auditEvent.getCorrelationId())
+            .addKeyValue("id", auditEvent.getId())
+            .addKeyValue("details", auditEvent.getDetails())
+            .addKeyValue("userId", auditEvent.getUserId())
+            .addKeyValue("username", auditEvent.getUsername())
+            .addKeyValue("originatingIP", auditEvent.getOriginatingIP())
+            .addKeyValue("serviceId", auditEvent.getServiceId())
+            .addKeyValue("serviceVersion", auditEvent.getServiceVersion())
+            .addKeyValue("serverHostName", auditEvent.getServerHostName())
+            .addKeyValue("created", auditEvent.getCreated())
+            .addKeyValue("eventId", auditEvent.getEventId())
+            .log();
     }
 }
@@ -1,27 +1,49 @@
 package com.spt.development.audit.spring;
 
-import lombok.AccessLevel;
-import lombok.AllArgsConstructor;
+import com.spt.development.audit.spring.jfr.AuditEventWrittenEvent;
+import com.spt.development.audit.spring.jfr.AuditTransactionSyncFlushedEvent;
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
 import org.springframework.transaction.support.TransactionSynchronization;
 
-import java.util.function.BiConsumer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Consumer;
-
-import static com.spt.development.audit.spring.util.CorrelationIdUtils.addCorrelationIdToArguments;
+import java.util.function.Supplier;
 
 /**
  * Transaction aware {@link AuditEventWriter} which delays writing the audit event until the transaction is committed
  * if there is an active transaction when {@link AuditEventWriter#write(AuditEvent)} is called. This is useful if the
  * audit events are being written to a secondary store or a JMS queue for example that you only want written if your
  * primary (transactional) data store is successfully written to.
+ *
+ * <p>All of the audit events written by a writer within the same transaction are collected together and passed to
+ * {@link TransactionAwareAuditEventWriter#doWriteAll(List)} in one go, allowing implementations to write them as a
+ * batch. Audit events written with {@link AuditEventWriter#writeAll(Collection)} outside of a transaction are also
+ * passed to {@link TransactionAwareAuditEventWriter#doWriteAll(List)} in one go.</p>
+ *
+ * <p>Audit events written with {@link AuditEventWriter#writeDeferred(Supplier)} within a transaction are not built
+ * until the transaction commits, so no time is spent building the audit events of transactions that are rolled back.
+ * Audit events are never written within a transaction that has been marked as rollback-only with
+ * {@link org.springframework.transaction.interceptor.TransactionAspectSupport} (for example, by a
+ * {@link org.springframework.transaction.annotation.Transactional} method), so
+ * {@link TransactionAwareAuditEventWriter#isDiscarding()} reports them as discarded.</p>
+ *
+ * <p>Audit events written while the audit events of a committed transaction are being written (for example, by a
+ * {@link TransactionAwareAuditEventWriter} writing to another {@link TransactionAwareAuditEventWriter}) are written
+ * immediately, as a synchronization registered once the transaction has committed would never be invoked.</p>
  */
 @Slf4j
-@AllArgsConstructor(access = AccessLevel.PROTECTED)
 public abstract class TransactionAwareAuditEventWriter implements AuditEventWriter {
+    private static final ThreadLocal<Boolean> WRITING_AFTER_COMMIT = new ThreadLocal<>();
+
     private final boolean includeCorrelationIdInLogs;
     private final CorrelationIdProvider correlationIdProvider;
     private final TransactionSyncManFacade transactionSyncManFacade;
+    private final CorrelationIdLogger logger;
 
     /**
      * Creates a {@link TransactionAwareAuditEventWriter}.
@@ -36,6 +58,24 @@ public abstract class TransactionAwareAuditEventWriter implements AuditEventWrit
         this(includeCorrelationIdInLogs, correlationIdProvider, new TransactionSyncManFacade());
     }
 
+    /**
+     * Creates a {@link TransactionAwareAuditEventWriter}.
+     *
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements written by this writer.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     * @param transactionSyncManFacade facade for registering transaction synchronizations.
+     */
+    protected TransactionAwareAuditEventWriter(
+        final boolean includeCorrelationIdInLogs,
+        final CorrelationIdProvider correlationIdProvider,
+        final TransactionSyncManFacade transactionSyncManFacade) {
+        this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+        this.correlationIdProvider = correlationIdProvider;
+        this.transactionSyncManFacade = transactionSyncManFacade;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
     /**
      * Checks whether the correlation ID should be explicitly included in log statements or not.
      *
@@ -62,21 +102,116 @@ public abstract class TransactionAwareAuditEventWriter implements AuditEventWrit
      */
     @Override
     public void write(AuditEvent auditEvent) {
-        if (transactionSyncManFacade.isTransactionActive()) {
-            debug("Transaction active, audit event will be written when transaction commits: {}", auditEvent);
-            transactionSyncManFacade.register(new AuditEventTransactionSync(includeCorrelationIdInLogs, auditEvent, this::doWrite));
+        if (isWrittenOnCommit()) {
+            logger.debug("Transaction active, audit event will be written when transaction commits: {}", auditEvent);
+            addToTransactionSync(transactionSync -> transactionSync.addAll(List.of(auditEvent)));
 
             return;
         }
-        doWrite(auditEvent);
+        recordWrite(auditEvent);
     }
 
-    private void debug(String format, Object... arguments) {
-        if (includeCorrelationIdInLogs) {
-            LOG.debug("[{}] " + format, addCorrelationIdToArguments(getCorrelationId(), arguments));
+    /**
+     * Writes the audit events, delaying the writing until after the current transaction is committed if there is an
+     * active transaction in flight. Either way, the audit events are written together with
+     * {@link TransactionAwareAuditEventWriter#doWriteAll(List)}, along with any other audit events written by this writer
+     * within the same transaction.
+     *
+     * @param auditEvents the audit events to write.
+     */
+    @Override
+    public void writeAll(Collection<AuditEvent> auditEvents) {
+        if (auditEvents.isEmpty()) {
             return;
         }
-        LOG.debug(format, arguments);
+
+        if (isWrittenOnCommit()) {
+            logger.debug("Transaction active, {} audit event(s) will be written when transaction commits", auditEvents.size());
+            addToTransactionSync(transactionSync -> transactionSync.addAll(auditEvents));
+
+            return;
+        }
+        recordWriteAll(new ArrayList<>(auditEvents));
+    }
+
+    /**
+     * Writes the audit events, delaying building them, as well as writing them, until the current transaction is
+     * committed if there is an active transaction in flight. The audit events are then written together with the other
+     * audit events written by this writer within the same transaction, in the order that they were written. If the
+     * transaction is rolled back, the audit events are never built.
+     *
+     * @param auditEvents builds the audit events to write.
+     */
+    @Override
+    public void writeDeferred(Supplier<? extends Collection<AuditEvent>> auditEvents) {
+        if (isWrittenOnCommit()) {
+            logger.debug("Transaction active, audit event(s) will be built and written when transaction commits");
+            addToTransactionSync(transactionSync -> transactionSync.addDeferred(auditEvents));
+
+            return;
+        }
+        writeAll(auditEvents.get());
+    }
+
+    /**
+     * Checks whether the audit events written now would be discarded, because the active transaction has been marked as
+     * rollback-only.
+     *
+     * @return <code>true</code> if the active transaction has been marked as rollback-only.
+     */
+    @Override
+    public boolean isDiscarding() {
+        return isWrittenOnCommit() && transactionSyncManFacade.isRollbackOnly();
+    }
+
+    private boolean isWrittenOnCommit() {
+        return transactionSyncManFacade.isTransactionActive() && WRITING_AFTER_COMMIT.get() == null;
+    }
+
+    private void recordWrite(AuditEvent auditEvent) {
+        record(1, () -> doWrite(auditEvent));
+    }
+
+    private void recordWriteAll(List<AuditEvent> auditEvents) {
+        record(auditEvents.size(), () -> doWriteAll(auditEvents));
+    }
+
+    private void record(int eventCount, Runnable write) {
+        final AuditEventWrittenEvent writtenEvent = new AuditEventWrittenEvent();
+        writtenEvent.begin();
+
+        boolean success = false;
+
+        try {
+            write.run();
+            success = true;
+        } finally {
+            writtenEvent.end();
+
+            if (writtenEvent.shouldCommit()) {
+                writtenEvent.setWriterClass(getClass());
+                writtenEvent.setEventCount(eventCount);
+                writtenEvent.setSuccess(success);
+                writtenEvent.commit();
+            }
+        }
+    }
+
+    private void addToTransactionSync(Consumer<AuditEventTransactionSync> add) {
+        final AuditEventTransactionSync existing = (AuditEventTransactionSync) transactionSyncManFacade.getResource(this);
+
+        if (existing != null) {
+            add.accept(existing);
+            return;
+        }
+
+        final AuditEventTransactionSync transactionSync = new AuditEventTransactionSync(
+                logger, isWrittenBeforeCommit(), this, transactionSyncManFacade, this::recordWriteAll
+        );
+        add.accept(transactionSync);
+
+        transactionSyncManFacade.bindResource(this, transactionSync);
+        transactionSyncManFacade.register(transactionSync);
     }
 
     /**
@@ -87,18 +222,146 @@ public abstract class TransactionAwareAuditEventWriter implements AuditEventWrit
      */
     protected abstract void doWrite(AuditEvent auditEvent);
 
-    @Slf4j
-    @AllArgsConstructor
+    /**
+     * Writes all of the {@link AuditEvent}s written within a transaction, once the transaction commits (or just before it
+     * commits, see {@link TransactionAwareAuditEventWriter#isWrittenBeforeCommit()}). The default implementation writes
+     * each of the audit events in turn with {@link TransactionAwareAuditEventWriter#doWrite(AuditEvent)}, a failure to
+     * write one audit event does not prevent the remaining audit events from being written. Override to write the audit
+     * events as a batch. A single {@link AuditEventWrittenEvent} is recorded for each call, which is only unsuccessful if
+     * this method throws an exception; failures logged by the default implementation are not reflected in it.
+     *
+     * @param auditEvents the {@link AuditEvent}s to write.
+     */
+    protected void doWriteAll(List<AuditEvent> auditEvents) {
+        for (AuditEvent auditEvent : auditEvents) {
+            try {
+                doWrite(auditEvent);
+            } catch (RuntimeException ex) {
+                logger.log(Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event: {}", auditEvent, ex);
+            }
+        }
+    }
+
+    /**
+     * Determines whether the audit events written within a transaction are written just before the transaction commits,
+     * as part of the transaction, rather than after the transaction has committed. If the audit events are written before
+     * the transaction commits, a failure to write them will cause the transaction to be rolled back. Defaults to
+     * <code>false</code>.
+     *
+     * @return <code>true</code> if the audit events are written as part of the transaction.
+     */
+    protected boolean isWrittenBeforeCommit() {
+        return false;
+    }
+
+    @RequiredArgsConstructor
     static class AuditEventTransactionSync implements TransactionSynchronization {
-        private final boolean includeCorrelationIdInLogs;
-        private final AuditEvent auditEvent;
-        private final Consumer<AuditEvent> onAuditEvent;
+        private final CorrelationIdLogger logger;
+        private final boolean writtenBeforeCommit;
+        private final Object resourceKey;
+        private final TransactionSyncManFacade transactionSyncManFacade;
+        private final Consumer<List<AuditEvent>> onAuditEvents;
+        private final List<AuditEvent> auditEvents = new ArrayList<>();
+        private final List<DeferredAuditEvents> deferred = new ArrayList<>();
+
+        void addAll(Collection<AuditEvent> auditEvents) {
+            this.auditEvents.addAll(auditEvents);
+        }
+
+        void addDeferred(Supplier<? extends Collection<AuditEvent>> auditEvents) {
+            deferred.add(new DeferredAuditEvents(this.auditEvents.size(), auditEvents));
+        }
+
+        private void buildDeferredAuditEvents() {
+            if (deferred.isEmpty()) {
+                return;
+            }
+
+            // The deferred audit events are slotted in between the audit events written before and after them, so
+            // that they are all written in the order they were written in the transaction
+            final List<AuditEvent> built = new ArrayList<>();
+            int next = 0;
+
+            for (DeferredAuditEvents batch : deferred) {
+                built.addAll(auditEvents.subList(next, batch.position));
+                built.addAll(build(batch));
+                next = batch.position;
+            }
+            built.addAll(auditEvents.subList(next, auditEvents.size()));
+
+            auditEvents.clear();
+            auditEvents.addAll(built);
+            deferred.clear();
+        }
+
+        private Collection<AuditEvent> build(DeferredAuditEvents batch) {
+            try {
+                return batch.auditEvents.get();
+            } catch (RuntimeException ex) {
+                // Only this batch is lost, so a programming error building one audit event neither prevents the other
+                // audit events from being written, nor rolls back the transaction if they are written before commit
+                logger.error("Failed to build deferred audit events, discarding them", ex);
+                return List.of();
+            }
+        }
+
+        private void flushAuditEvents() {
+            final AuditTransactionSyncFlushedEvent flushedEvent = new AuditTransactionSyncFlushedEvent();
+            flushedEvent.begin();
+
+            boolean success = false;
+
+            try {
+                buildDeferredAuditEvents();
+
+                // Empty if the only audit events were deferred and built none, or failed to build
+                if (!auditEvents.isEmpty()) {
+                    onAuditEvents.accept(auditEvents);
+                }
+                success = true;
+            } finally {
+                flushedEvent.end();
+
+                if (flushedEvent.shouldCommit()) {
+                    flushedEvent.setWriterClass(resourceKey.getClass());
+                    flushedEvent.setEventCount(auditEvents.size());
+                    flushedEvent.setSuccess(success);
+                    flushedEvent.commit();
+                }
+            }
+        }
+
+        @Override
+        public void suspend() {
+            transactionSyncManFacade.unbindResource(resourceKey);
+        }
+
+        @Override
+        public void resume() {
+            transactionSyncManFacade.bindResource(resourceKey, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (writtenBeforeCommit) {
+                // Deliberately not caught, the audit events are written as part of the transaction, so if they can't be
+                // written, the transaction should be rolled back.
+                flushAuditEvents();
+            }
+        }
 
         @Override
         public void afterCommit() {
+            if (writtenBeforeCommit) {
+                return;
+            }
+
+            // The transaction is still reported as active, so writers written to while flushing must not defer their
+            // audit events to a synchronization that Spring will never invoke
+            WRITING_AFTER_COMMIT.set(Boolean.TRUE);
 
             try {
-                onAuditEvent.accept(auditEvent);
+                flushAuditEvents();
             } catch (Exception ex) {
                 // If an exception occurs log it and swallow. The whole idea of this class is that the audit events are
                 // sent after the main work has been done, therefore we don't want an error reported to the user if
@@ -106,31 +369,37 @@ public abstract class TransactionAwareAuditEventWriter implements AuditEventWrit
                 //
                 // All of the auditing data is logged in the log message below, so that *could* be used to manually repair
                 // the audit log if necessary.
-                error("Failed to write audit event: {}", auditEvent, ex);
+                auditEvents.forEach(auditEvent -> logger.log(
+                    Level.ERROR, auditEvent.getCorrelationId(), "Failed to write audit event: {}", auditEvent, ex
+                ));
+            } finally {
+                WRITING_AFTER_COMMIT.remove();
             }
         }
 
         @Override
         public void afterCompletion(int status) {
+            transactionSyncManFacade.unbindResource(resourceKey);
+
             if (status == STATUS_ROLLED_BACK) {
-                info("Transaction was rolled back, discarding audit event: {}", auditEvent);
+                auditEvents.forEach(auditEvent -> logger.log(
+                    Level.INFO, auditEvent.getCorrelationId(), "Transaction was rolled back, discarding audit event: {}", auditEvent
+                ));
+
+                if (!deferred.isEmpty()) {
+                    logger.debug("Transaction was rolled back, discarding {} unbuilt batch(es) of deferred audit events", deferred.size());
+                }
             }
         }
+    }
 
-        void info(String format, Object... arguments) {
-            log(LOG::info, format, arguments);
-        }
+    private static final class DeferredAuditEvents {
+        private final int position;
+        private final Supplier<? extends Collection<AuditEvent>> auditEvents;
 
-        void error(String format, Object... arguments) {
-            log(LOG::error, format, arguments);
-        }
-
-        private void log(BiConsumer<String, Object[]> log, String format, Object[] arguments) {
-            if (includeCorrelationIdInLogs) {
-                log.accept("[{}] " + format, addCorrelationIdToArguments(auditEvent.getCorrelationId(), arguments));
-                return;
-            }
-            log.accept(format, arguments);
+        DeferredAuditEvents(int position, Supplier<? extends Collection<AuditEvent>> auditEvents) {
+            this.position = position;
+            this.auditEvents = auditEvents;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package com.spt.development.audit.spring;
 
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
@@ -9,7 +11,28 @@ class TransactionSyncManFacade {
         return TransactionSynchronizationManager.isActualTransactionActive();
     }
 
+    boolean isRollbackOnly() {
+        try {
+            return TransactionAspectSupport.currentTransactionStatus().isRollbackOnly();
+        } catch (NoTransactionException ex) {
+            // The status of programmatic transactions is not exposed, so they are never reported as rollback-only
+            return false;
+        }
+    }
+
     void register(TransactionSynchronization synchronization) {
         TransactionSynchronizationManager.registerSynchronization(synchronization);
     }
+
+    Object getResource(Object key) {
+        return TransactionSynchronizationManager.getResource(key);
+    }
+
+    void bindResource(Object key, Object value) {
+        TransactionSynchronizationManager.bindResource(key, value);
+    }
+
+    void unbindResource(Object key) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(key);
+    }
 }
@@ -0,0 +1,162 @@
+package com.spt.development.audit.spring.aop;
+
+import com.spt.development.audit.spring.Audited;
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.EvaluationException;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import java.lang.reflect.Method;
+
+/**
+ * The SpEL expressions of an {@link Audited} method, see {@link Audited#id()} and {@link Audited#detail()}, parsed once
+ * per method. The expressions are parsed in {@link SpelCompilerMode#MIXED} mode, so they are compiled to bytecode once
+ * they have been evaluated a number of times, falling back to being interpreted if the compiled expression fails; for
+ * example, because the runtime type of the result has changed. An expression that cannot be evaluated, is logged and
+ * evaluates to <code>null</code>, in the same way as an {@link Audited.Id} field that cannot be read.
+ */
+final class AuditedExpressions {
+    private static final String RESULT_VARIABLE = "result";
+
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, AuditedExpressions.class.getClassLoader())
+    );
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER = new DefaultParameterNameDiscoverer();
+
+    private final Method method;
+    private final Expression id;
+    private final Expression detail;
+    private final String[][] variableNames;
+
+    private AuditedExpressions(Method method, Expression id, Expression detail, ParameterNameDiscoverer parameterNameDiscoverer) {
+        this.method = method;
+        this.id = id;
+        this.detail = detail;
+        this.variableNames = id != null || detail != null ? variableNames(method, parameterNameDiscoverer) : new String[0][];
+    }
+
+    /**
+     * Parses the expressions of the {@link Audited} method.
+     *
+     * @param method the audited method.
+     * @param audited the {@link Audited} annotation of the method.
+     *
+     * @return the parsed expressions.
+     */
+    static AuditedExpressions parse(Method method, Audited audited) {
+        return parse(method, audited, PARAMETER_NAME_DISCOVERER);
+    }
+
+    static AuditedExpressions parse(Method method, Audited audited, ParameterNameDiscoverer parameterNameDiscoverer) {
+        return new AuditedExpressions(
+                method, parse(method, "id", audited.id()), parse(method, "detail", audited.detail()), parameterNameDiscoverer
+        );
+    }
+
+    private static Expression parse(Method method, String attribute, String expression) {
+        if (StringUtils.isEmpty(expression)) {
+            return null;
+        }
+
+        try {
+            return PARSER.parseExpression(expression);
+        } catch (ParseException ex) {
+            throw new IllegalStateException(
+                    String.format(
+                        "Programming error: %s was annotated with @Audited(%s = \"%s\"), but the expression could not be parsed",
+                        method, attribute, expression
+                    ),
+                    ex
+            );
+        }
+    }
+
+    private static String[][] variableNames(Method method, ParameterNameDiscoverer parameterNameDiscoverer) {
+        // The names are built up front, so that no strings are built each time the expressions are evaluated
+        final String[] parameterNames = parameterNameDiscoverer.getParameterNames(method);
+        final String[][] variableNames = new String[method.getParameterCount()][];
+
+        for (int i = 0; i < variableNames.length; i++) {
+            variableNames[i] = parameterNames != null
+                    ? new String[] { "p" + i, "a" + i, parameterNames[i] }
+                    : new String[] { "p" + i, "a" + i };
+        }
+        return variableNames;
+    }
+
+    boolean hasId() {
+        return id != null;
+    }
+
+    boolean hasDetail() {
+        return detail != null;
+    }
+
+    /**
+     * Creates the context to evaluate the expressions with, if the method has any expressions.
+     *
+     * @param args the arguments the method was called with.
+     * @param result the value returned by the method.
+     *
+     * @return the evaluation context, or <code>null</code> if the method does not have any expressions.
+     */
+    EvaluationContext createContext(Object[] args, Object result) {
+        if (id == null && detail == null) {
+            return null;
+        }
+
+        final StandardEvaluationContext context = new StandardEvaluationContext();
+        context.setVariable(RESULT_VARIABLE, result);
+
+        for (int i = 0; i < variableNames.length; i++) {
+            for (String variableName : variableNames[i]) {
+                context.setVariable(variableName, args[i]);
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Evaluates the id expression.
+     *
+     * @param context the evaluation context, see {@link #createContext(Object[], Object)}.
+     * @param logger the logger to log a warning to, if the expression cannot be evaluated.
+     *
+     * @return the id(s), or <code>null</code> if the expression could not be evaluated.
+     */
+    Object evaluateId(EvaluationContext context, CorrelationIdLogger logger) {
+        return evaluate("id", id, context, logger);
+    }
+
+    /**
+     * Evaluates the detail expression.
+     *
+     * @param context the evaluation context, see {@link #createContext(Object[], Object)}.
+     * @param logger the logger to log a warning to, if the expression cannot be evaluated.
+     *
+     * @return the details, or <code>null</code> if the expression could not be evaluated.
+     */
+    Object evaluateDetail(EvaluationContext context, CorrelationIdLogger logger) {
+        return evaluate("detail", detail, context, logger);
+    }
+
+    private Object evaluate(String attribute, Expression expression, EvaluationContext context, CorrelationIdLogger logger) {
+        try {
+            return expression.getValue(context);
+        } catch (EvaluationException ex) {
+            // Typically a null in the middle of the expression, so the audited call is not failed for it
+            logger.warn("{} was annotated with @Audited({} = \"{}\"), but the expression could not be evaluated: {}",
+                    method, attribute, expression.getExpressionString(), ex.getMessage());
+
+            return null;
+        }
+    }
+}
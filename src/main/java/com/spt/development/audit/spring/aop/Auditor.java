@@ -1,14 +1,16 @@
 package com.spt.development.audit.spring.aop;
 
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.spt.development.audit.spring.AuditEvent;
+import com.spt.development.audit.spring.AuditEventIdGenerator;
 import com.spt.development.audit.spring.AuditEventWriter;
 import com.spt.development.audit.spring.Audited;
 import com.spt.development.audit.spring.CorrelationIdProvider;
 import com.spt.development.audit.spring.DefaultCorrelationIdProvider;
+import com.spt.development.audit.spring.DetailSerializers;
+import com.spt.development.audit.spring.jfr.AuditEventBuiltEvent;
 import com.spt.development.audit.spring.security.AuthenticationAdapter;
 import com.spt.development.audit.spring.security.AuthenticationAdapterFactory;
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -16,19 +18,25 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.core.annotation.AnnotatedElementUtils;
-import org.springframework.util.ReflectionUtils;
+import org.springframework.expression.EvaluationContext;
 
-import java.lang.reflect.Field;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
 import java.net.UnknownHostException;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.function.BiConsumer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
-import static com.spt.development.audit.spring.util.CorrelationIdUtils.addCorrelationIdToArguments;
 import static com.spt.development.audit.spring.util.HttpRequestUtils.getClientIpAddress;
 
 /**
@@ -37,17 +45,21 @@ import static com.spt.development.audit.spring.util.HttpRequestUtils.getClientIp
 @Slf4j
 @Aspect
 public class Auditor {
-    private static final Gson GSON = new GsonBuilder().create();
-
     private static final String DEFAULT_DETAILS_KEY = "DETAILS";
 
     private final String appName;
     private final String appVersion;
     private final LocalhostFacade localhostFacade;
     private final AuditEventWriter auditEventWriter;
-    private final boolean includeCorrelationIdInLogs;
     private final CorrelationIdProvider correlationIdProvider;
     private final AuthenticationAdapterFactory authenticationAdapterFactory;
+    private final Clock clock;
+    private final AuditEventIdGenerator auditEventIdGenerator;
+    private final CorrelationIdLogger logger;
+    private final Map<Method, AuditedExpressions> expressionsByMethod = new ConcurrentHashMap<>();
+
+    private DetailSerializers detailSerializers = new DetailSerializers();
+    private boolean deferredEventConstruction;
 
     /**
      * Creates a new instance of the aspect.
@@ -105,8 +117,33 @@ public class Auditor {
             final boolean includeCorrelationIdInLogs,
             final CorrelationIdProvider correlationIdProvider,
             final AuthenticationAdapterFactory authenticationAdapterFactory) {
+        this(appName, appVersion, auditEventWriter, includeCorrelationIdInLogs, correlationIdProvider,
+                authenticationAdapterFactory, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a new instance of the aspect.
+     *
+     * @param appName the name of the application that the auditing is for.
+     * @param appVersion the version of the application that the auditing is for.
+     * @param auditEventWriter the audit event writer that writes the audit logs.
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements output by the aspect.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     * @param authenticationAdapterFactory a factory for creating an adapter that is used to retrieve details about the
+     *                                     currently authenticated user.
+     * @param clock the clock used to timestamp the audit events.
+     */
+    public Auditor(
+            final String appName,
+            final String appVersion,
+            final AuditEventWriter auditEventWriter,
+            final boolean includeCorrelationIdInLogs,
+            final CorrelationIdProvider correlationIdProvider,
+            final AuthenticationAdapterFactory authenticationAdapterFactory,
+            final Clock clock) {
         this(appName, appVersion, new LocalhostFacade(), auditEventWriter, includeCorrelationIdInLogs,
-                correlationIdProvider, authenticationAdapterFactory);
+                correlationIdProvider, authenticationAdapterFactory, clock, new AuditEventIdGenerator());
     }
 
     /**
@@ -121,6 +158,8 @@ public class Auditor {
      * @param correlationIdProvider provider for getting the current correlationId.
      * @param authenticationAdapterFactory a factory for creating an adapter that is used to retrieve details about the
      *                                     currently authenticated user.
+     * @param clock the clock used to timestamp the audit events.
+     * @param auditEventIdGenerator the generator used to generate a unique ID for each audit event.
      */
     Auditor(
             final String appName,
@@ -129,14 +168,46 @@ public class Auditor {
             final AuditEventWriter auditEventWriter,
             final boolean includeCorrelationIdInLogs,
             final CorrelationIdProvider correlationIdProvider,
-            final AuthenticationAdapterFactory authenticationAdapterFactory) {
+            final AuthenticationAdapterFactory authenticationAdapterFactory,
+            final Clock clock,
+            final AuditEventIdGenerator auditEventIdGenerator) {
         this.appName = appName;
         this.appVersion = appVersion;
         this.localhostFacade = localhostFacade;
         this.auditEventWriter = auditEventWriter;
-        this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
         this.correlationIdProvider = correlationIdProvider;
         this.authenticationAdapterFactory = authenticationAdapterFactory;
+        this.clock = clock;
+        this.auditEventIdGenerator = auditEventIdGenerator;
+        this.logger = new CorrelationIdLogger(LOG, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+
+    /**
+     * Sets the serializers used to serialize the audit event details, for example to mask personal data. Defaults to
+     * serializing the details with {@link com.google.gson.Gson} with its default settings.
+     *
+     * @param detailSerializers the serializers for the audit event details.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public Auditor withDetailSerializers(DetailSerializers detailSerializers) {
+        this.detailSerializers = detailSerializers;
+        return this;
+    }
+
+    /**
+     * Defers building the audit events until they are written; with a
+     * {@link com.spt.development.audit.spring.TransactionAwareAuditEventWriter}, until the current transaction commits,
+     * so that no time is spent serializing details or looking up the user of transactions that are rolled back. The
+     * audit events are still timestamped when the audited method returns, but the details and IDs reflect the state of
+     * the arguments and return value when the transaction commits. Any error building the audit events, including an
+     * invalid {@link Audited} annotation, is logged rather than thrown.
+     *
+     * @return <code>this</code> to provide a fluent interface.
+     */
+    public Auditor withDeferredEventConstruction() {
+        this.deferredEventConstruction = true;
+        return this;
     }
 
     /**
@@ -164,72 +235,192 @@ public class Auditor {
         if (Audited.NONE.equals(Optional.of(audited).map(Audited::type).orElse(Audited.NONE))) {
             throw new IllegalStateException("Programming error: @Audited annotation must have type set");
         }
-        audit(audited, result, signature, point.getArgs());
+
+        if (auditEventWriter.isDiscarding()) {
+            // Typically because the transaction is rollback-only, so there is no point building the audit events
+            logger.debug("Audit events would be discarded, no audit events generated for: {}", signature.toShortString());
+            return result;
+        }
+
+        if (deferredEventConstruction) {
+            auditDeferred(audited, result, signature, point.getArgs());
+            return result;
+        }
+        onAuditEvents(buildAuditEvents(audited, result, signature, point.getArgs(), clock.instant()));
 
         return result;
     }
 
-    private void audit(Audited audited, Object result, MethodSignature signature, Object[] args) {
+    private void auditDeferred(Audited audited, Object result, MethodSignature signature, Object[] args) {
+        final Instant created = clock.instant();
+
+        try {
+            auditEventWriter.writeDeferred(() -> {
+                final List<AuditEvent> auditEvents = buildAuditEvents(audited, result, signature, args, created);
+
+                auditEvents.forEach(auditEvent -> logger.debug("Generated audit event: {}", auditEvent));
+
+                return auditEvents;
+            });
+        } catch (Throwable t) {
+            logger.error("Failed to send audit events for: {}", signature.toShortString());
+        }
+    }
+
+    private List<AuditEvent> buildAuditEvents(Audited audited, Object result, MethodSignature signature, Object[] args, Instant created) {
+        final AuditEventBuiltEvent builtEvent = new AuditEventBuiltEvent();
+        builtEvent.begin();
+
         final AuthenticationAdapter authentication = authenticationAdapterFactory.createAdapter();
 
         final Parameter[] parameters = signature.getMethod().getParameters();
-        final Audited.Id auditedId = AnnotatedElementUtils.getMergedAnnotation(signature.getMethod(), Audited.Id.class);
+        final AuditedExpressions expressions = getExpressions(signature.getMethod(), audited);
+        final EvaluationContext context = expressions.createContext(args, result);
+
+        final List<String> ids = expressions.hasId()
+                ? getIdsFromAnnotatedValue(
+                        "Expression \"" + audited.id() + "\"", expressions.evaluateId(context, logger), "", Audited.Bulk.EVENT_PER_ID
+                )
+                : getIdsFromAnnotations(signature, parameters, args, result);
 
-        final AuditEvent auditEvent = AuditEvent.builder()
+        // The fields common to all of the audit events are only computed once, however many IDs there are
+        final AuditEvent template = AuditEvent.builder()
                 .type(audited.type())
                 .subType(audited.subType())
                 .correlationId(correlationIdProvider.getCorrelationId())
-                .id(
-                        auditedId == null
-                                ? getIdFromFirstAnnotatedMethodParameter(parameters, args)
-                                : getIdFromAnnotatedValue("Return value", result, auditedId)
+                .details(
+                        expressions.hasDetail()
+                                ? detailsToJson(expressions.evaluateDetail(context, logger))
+                                : getDetailsFromAnnotatedParametersAsJson(parameters, args)
                 )
-                .details(getDetailsFromAnnotatedParametersAsJson(parameters, args))
                 .userId(authentication.getUserId())
                 .username(authentication.getUsername())
                 .originatingIP(getClientIpAddress())
                 .serviceId(appName)
                 .serviceVersion(appVersion)
                 .serverHostName(getServerHostName())
-                .created(OffsetDateTime.now(ZoneOffset.UTC))
+                .createdInstant(created)
                 .build();
 
-        onAuditEvent(auditEvent);
+        final List<AuditEvent> auditEvents = new ArrayList<>(ids.size());
+
+        for (String id : ids) {
+            auditEvents.add(template.toBuilder().id(id).eventId(auditEventIdGenerator.nextId()).build());
+        }
+
+        builtEvent.end();
+
+        if (builtEvent.shouldCommit()) {
+            builtEvent.setType(template.getType());
+            builtEvent.setSubType(template.getSubType());
+            builtEvent.setDetailsLength(template.getDetails() != null ? template.getDetails().length() : 0);
+            builtEvent.setEventCount(auditEvents.size());
+            builtEvent.commit();
+        }
+        return auditEvents;
+    }
+
+    private AuditedExpressions getExpressions(Method method, Audited audited) {
+        final AuditedExpressions existing = expressionsByMethod.get(method);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        // Parsed once per method, a race just means that the expressions are parsed more than once
+        final AuditedExpressions parsed = AuditedExpressions.parse(method, audited);
+        expressionsByMethod.putIfAbsent(method, parsed);
+
+        return parsed;
     }
 
-    private String getIdFromFirstAnnotatedMethodParameter(Parameter[] parameters, Object[] args) {
+    private List<String> getIdsFromAnnotations(MethodSignature signature, Parameter[] parameters, Object[] args, Object result) {
+        final Audited.Id auditedId = AnnotatedElementUtils.getMergedAnnotation(signature.getMethod(), Audited.Id.class);
+
+        return auditedId == null
+                ? getIdsFromFirstAnnotatedMethodParameter(parameters, args)
+                : getIdsFromAnnotatedValue("Return value", result, auditedId.field(), auditedId.bulk());
+    }
+
+    private List<String> getIdsFromFirstAnnotatedMethodParameter(Parameter[] parameters, Object[] args) {
         for (int i = 0; i < args.length; i++) {
             final Audited.Id auditedId = AnnotatedElementUtils.getMergedAnnotation(parameters[i], Audited.Id.class);
 
             if (auditedId != null) {
-                return getIdFromAnnotatedValue("Parameter " + (i + 1), args[i], auditedId);
+                return getIdsFromAnnotatedValue("Parameter " + (i + 1), args[i], auditedId.field(), auditedId.bulk());
             }
         }
-        debug("No parameters annotated with @Audited.Id annotation");
+        logger.debug("No parameters annotated with @Audited.Id annotation");
 
-        return null;
+        return Collections.singletonList(null);
     }
 
-    private String getIdFromAnnotatedValue(String annotationPosition, Object value, Audited.Id auditedId) {
+    private List<String> getIdsFromAnnotatedValue(String annotationPosition, Object value, String fieldName, Audited.Bulk bulk) {
+        final List<?> elements = toElements(value);
+
+        if (elements == null) {
+            return Collections.singletonList(getIdFromAnnotatedValue(annotationPosition, value, fieldName));
+        }
+
+        final List<String> ids = new ArrayList<>(elements.size());
+
+        for (int i = 0; i < elements.size(); i++) {
+            ids.add(getIdFromAnnotatedValue(annotationPosition + " element " + (i + 1), elements.get(i), fieldName));
+        }
+
+        if (bulk == Audited.Bulk.SINGLE_EVENT) {
+            final String id = ids.stream().filter(Objects::nonNull).collect(Collectors.joining(","));
+
+            return Collections.singletonList(StringUtils.isEmpty(id) ? null : id);
+        }
+
+        if (ids.isEmpty()) {
+            // The audited call still happened, so it is audited, just without an ID to audit it against
+            logger.warn("{} was annotated with @Audited.Id annotation but is empty, audit event generated with null ID", annotationPosition);
+
+            return Collections.singletonList(null);
+        }
+        return ids;
+    }
+
+    private static List<?> toElements(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+
+        if (value == null || !value.getClass().isArray()) {
+            return null;
+        }
+
+        // Handles arrays of primitives as well as arrays of objects
+        final int length = Array.getLength(value);
+        final List<Object> elements = new ArrayList<>(length);
+
+        for (int i = 0; i < length; i++) {
+            elements.add(Array.get(value, i));
+        }
+        return elements;
+    }
+
+    private String getIdFromAnnotatedValue(String annotationPosition, Object value, String fieldName) {
         if (value == null) {
-            warn("{} was annotated with @Audit.Id annotation but is null", annotationPosition);
+            logger.warn("{} was annotated with @Audit.Id annotation but is null", annotationPosition);
 
             return null;
         }
 
-        if (StringUtils.isEmpty(auditedId.field())) {
+        if (StringUtils.isEmpty(fieldName)) {
             return value.toString();
         }
-        return readIdFromValue(annotationPosition, value, auditedId.field());
+        return readIdFromValue(annotationPosition, value, fieldName);
     }
 
     private String readIdFromValue(String annotationPosition, Object value, String fieldName) {
         try {
-            final Field field = value.getClass().getDeclaredField(fieldName);
-            final Object fieldValue = makeAccessibleAndGetField(field, value);
+            final Object fieldValue = PropertyPath.of(value.getClass(), fieldName).read(value);
 
             if (fieldValue == null) {
-                warn("{} was annotated with @Audit.Id(field = \"{}\") annotation but the '{}' field is null",
+                logger.warn("{} was annotated with @Audit.Id(field = \"{}\") annotation but the '{}' field is null",
                         annotationPosition, fieldName, fieldName);
 
                 return null;
@@ -240,18 +431,13 @@ public class Auditor {
                     String.format(
                         "Programming error: %s of type: %s was annotated with @Audited.Id(field = \"%s\"), but no field with the name: '%s' could "
                             + "be found",
-                        annotationPosition, value.getClass(), fieldName, fieldName
+                        annotationPosition, value.getClass(), fieldName, ex.getMessage()
                     ),
                     ex
             );
         }
     }
 
-    private Object makeAccessibleAndGetField(Field field, Object obj) {
-        ReflectionUtils.makeAccessible(field);
-        return ReflectionUtils.getField(field, obj);
-    }
-
     private String getDetailsFromAnnotatedParametersAsJson(Parameter[] parameters, Object[] args) {
         final Map<String, Object> details = getDetailsFromAnnotatedParameters(parameters, args);
 
@@ -285,49 +471,47 @@ public class Auditor {
         return details;
     }
 
+    private String detailsToJson(Object details) {
+        return details != null ? detailSerializers.toJson(details) : null;
+    }
+
     private String auditDetailsToJson(Map<String, Object> details) {
         if (details.containsKey(DEFAULT_DETAILS_KEY)) {
-            return GSON.toJson(details.get(DEFAULT_DETAILS_KEY));
+            return detailSerializers.toJson(details.get(DEFAULT_DETAILS_KEY));
         }
-        return GSON.toJson(details);
+        return detailSerializers.toJson(details);
     }
 
     private String getServerHostName() {
         try {
             return localhostFacade.getServerHostName();
         } catch (UnknownHostException ex) {
-            warn("Failed to determine server host name for auditing purposes", ex);
+            logger.warn("Failed to determine server host name for auditing purposes", ex);
         }
         return null;
     }
 
-    private void onAuditEvent(AuditEvent auditEvent) {
-        debug("Generated audit event: {}", auditEvent);
+    private void onAuditEvents(List<AuditEvent> auditEvents) {
+        if (auditEvents.size() == 1) {
+            onAuditEvent(auditEvents.get(0));
+            return;
+        }
+        auditEvents.forEach(auditEvent -> logger.debug("Generated audit event: {}", auditEvent));
 
         try {
-            auditEventWriter.write(auditEvent);
+            auditEventWriter.writeAll(auditEvents);
         } catch (Throwable t) {
-            error("Failed to send audit event: {}", auditEvent);
+            auditEvents.forEach(auditEvent -> logger.error("Failed to send audit event: {}", auditEvent));
         }
     }
 
-    private void debug(String format, Object... arguments) {
-        log(LOG::debug, format, arguments);
-    }
-
-    private void warn(String format, Object... arguments) {
-        log(LOG::warn, format, arguments);
-    }
-
-    private void error(String format, Object... arguments) {
-        log(LOG::error, format, arguments);
-    }
+    private void onAuditEvent(AuditEvent auditEvent) {
+        logger.debug("Generated audit event: {}", auditEvent);
 
-    private void log(BiConsumer<String, Object[]> log, String format, Object[] arguments) {
-        if (includeCorrelationIdInLogs) {
-            log.accept("[{}] " + format, addCorrelationIdToArguments(correlationIdProvider.getCorrelationId(), arguments));
-            return;
+        try {
+            auditEventWriter.write(auditEvent);
+        } catch (Throwable t) {
+            logger.error("Failed to send audit event: {}", auditEvent);
         }
-        log.accept(format, arguments);
     }
 }
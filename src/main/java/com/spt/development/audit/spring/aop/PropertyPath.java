@@ -0,0 +1,152 @@
+package com.spt.development.audit.spring.aop;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dotted property path, such as <code>customer.address.id</code>, used to read the ID of an audit event from the value
+ * annotated with {@link com.spt.development.audit.spring.Audited.Id}. Each property in the path is read from a field
+ * with the property's name, declared by the class or one of its superclasses, or failing that from a getter
+ * (<code>getId()</code> or <code>isId()</code>) or an accessor method such as a record component
+ * (<code>id()</code>).
+ *
+ * <p>The path is compiled into a chain of method handles the first time it is used with a class, and cached against the
+ * class; so reading the property does not involve any parsing of the path or reflective lookups. The properties after
+ * the first are resolved against the declared type of the property before them, rather than its runtime type.</p>
+ */
+final class PropertyPath {
+    private static final MethodType READER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, PropertyPath>> CACHE = new ClassValue<>() {
+        @Override
+        protected Map<String, PropertyPath> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final MethodHandle[] readers;
+
+    private PropertyPath(MethodHandle[] readers) {
+        this.readers = readers;
+    }
+
+    /**
+     * Gets the compiled property path for the class, compiling it if it has not been used with the class before.
+     *
+     * @param type the class of the values that the property path will be read from.
+     * @param path the dotted property path.
+     *
+     * @return the compiled property path.
+     *
+     * @throws NoSuchFieldException if one of the properties in the path does not exist; the message is the name of the
+     *                              property that could not be found.
+     */
+    static PropertyPath of(Class<?> type, String path) throws NoSuchFieldException {
+        final Map<String, PropertyPath> paths = CACHE.get(type);
+        final PropertyPath existing = paths.get(path);
+
+        if (existing != null) {
+            return existing;
+        }
+
+        final PropertyPath compiled = compile(type, path);
+        final PropertyPath previous = paths.putIfAbsent(path, compiled);
+
+        return previous != null ? previous : compiled;
+    }
+
+    private static PropertyPath compile(Class<?> type, String path) throws NoSuchFieldException {
+        final String[] names = path.split("\\.");
+        final MethodHandle[] readers = new MethodHandle[names.length];
+
+        Class<?> current = type;
+
+        for (int i = 0; i < names.length; i++) {
+            final MethodHandle reader = findReader(current, names[i]);
+
+            if (reader == null) {
+                throw new NoSuchFieldException(names[i]);
+            }
+            current = reader.type().returnType();
+            readers[i] = reader.asType(READER_TYPE);
+        }
+        return new PropertyPath(readers);
+    }
+
+    private static MethodHandle findReader(Class<?> type, String name) {
+        final Field field = ReflectionUtils.findField(type, name);
+
+        if (field != null && !Modifier.isStatic(field.getModifiers())) {
+            ReflectionUtils.makeAccessible(field);
+
+            return unreflect(MethodHandles.lookup(), lookup -> lookup.unreflectGetter(field));
+        }
+
+        final String capitalized = StringUtils.capitalize(name);
+
+        for (String methodName : new String[] { "get" + capitalized, "is" + capitalized, name }) {
+            final Method method = ReflectionUtils.findMethod(type, methodName);
+
+            if (method != null && method.getReturnType() != void.class && !Modifier.isStatic(method.getModifiers())) {
+                ReflectionUtils.makeAccessible(method);
+
+                return unreflect(MethodHandles.lookup(), lookup -> lookup.unreflect(method));
+            }
+        }
+        return null;
+    }
+
+    static MethodHandle unreflect(MethodHandles.Lookup lookup, Unreflector unreflector) {
+        try {
+            return unreflector.unreflect(lookup);
+        } catch (IllegalAccessException ex) {
+            // The member has already been made accessible, so this should never happen
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /**
+     * Reads the property from the value.
+     *
+     * @param value the value to read the property from, which must be an instance of the class the path was compiled for.
+     *
+     * @return the value of the property, or <code>null</code> if the property, or any of the properties before it in the
+     *         path, is <code>null</code>.
+     */
+    Object read(Object value) {
+        Object current = value;
+
+        for (MethodHandle reader : readers) {
+            if (current == null) {
+                return null;
+            }
+            current = invoke(reader, current);
+        }
+        return current;
+    }
+
+    private static Object invoke(MethodHandle reader, Object target) {
+        try {
+            return reader.invokeExact(target);
+        } catch (RuntimeException | Error ex) {
+            throw ex;
+        } catch (Throwable t) {
+            // A getter in the path threw a checked exception
+            throw new IllegalStateException(t);
+        }
+    }
+
+    @FunctionalInterface
+    interface Unreflector {
+        MethodHandle unreflect(MethodHandles.Lookup lookup) throws IllegalAccessException;
+    }
+}
@@ -0,0 +1,77 @@
+package com.spt.development.audit.spring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted by the {@link com.spt.development.audit.spring.aop.Auditor} each time it builds the
+ * audit event(s) for an audited method call; the duration of the event is the time taken to build the audit event(s),
+ * including serializing the details.
+ *
+ * <p>As with all JFR events, the cost of creating the event is negligible when it is not enabled in a recording.</p>
+ */
+@Name(AuditEventBuiltEvent.NAME)
+@Label("Audit Event Built")
+@Description("An audit event was built by the Auditor aspect")
+@Category({ "SPT Development", "Audit" })
+@StackTrace(false)
+public final class AuditEventBuiltEvent extends Event {
+    /**
+     * The name of the event.
+     */
+    public static final String NAME = "com.spt.development.audit.AuditEventBuilt";
+
+    @Label("Type")
+    private String type;
+
+    @Label("Sub-Type")
+    private String subType;
+
+    @Label("Details Length")
+    @Description("The length of the audit event's details, in characters")
+    private int detailsLength;
+
+    @Label("Event Count")
+    @Description("The number of audit events built, which is greater than one for an @Audited.Id collection or array")
+    private int eventCount;
+
+    /**
+     * Sets the type of the audit event.
+     *
+     * @param type the type of the audit event.
+     */
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Sets the sub-type of the audit event.
+     *
+     * @param subType the sub-type of the audit event.
+     */
+    public void setSubType(String subType) {
+        this.subType = subType;
+    }
+
+    /**
+     * Sets the length of the audit event's details.
+     *
+     * @param detailsLength the length of the audit event's details, in characters.
+     */
+    public void setDetailsLength(int detailsLength) {
+        this.detailsLength = detailsLength;
+    }
+
+    /**
+     * Sets the number of audit events built.
+     *
+     * @param eventCount the number of audit events built.
+     */
+    public void setEventCount(int eventCount) {
+        this.eventCount = eventCount;
+    }
+}
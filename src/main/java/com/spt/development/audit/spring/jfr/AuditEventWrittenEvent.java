@@ -0,0 +1,66 @@
+package com.spt.development.audit.spring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted each time a {@link com.spt.development.audit.spring.TransactionAwareAuditEventWriter}
+ * writes an audit event, or a batch of audit events with
+ * {@link com.spt.development.audit.spring.TransactionAwareAuditEventWriter#writeAll(java.util.Collection)} or when a
+ * transaction commits; the duration of the event is the time taken to write the audit event(s).
+ *
+ * <p>As with all JFR events, the cost of creating the event is negligible when it is not enabled in a recording.</p>
+ */
+@Name(AuditEventWrittenEvent.NAME)
+@Label("Audit Event Written")
+@Description("An audit event was written by an audit event writer")
+@Category({ "SPT Development", "Audit" })
+@StackTrace(false)
+public final class AuditEventWrittenEvent extends Event {
+    /**
+     * The name of the event.
+     */
+    public static final String NAME = "com.spt.development.audit.AuditEventWritten";
+
+    @Label("Writer Class")
+    private Class<?> writerClass;
+
+    @Label("Event Count")
+    @Description("The number of audit events written")
+    private int eventCount;
+
+    @Label("Success")
+    @Description("Whether the audit event(s) were written successfully")
+    private boolean success;
+
+    /**
+     * Sets the class of the writer that wrote the audit event.
+     *
+     * @param writerClass the class of the writer.
+     */
+    public void setWriterClass(Class<?> writerClass) {
+        this.writerClass = writerClass;
+    }
+
+    /**
+     * Sets the number of audit events written.
+     *
+     * @param eventCount the number of audit events.
+     */
+    public void setEventCount(int eventCount) {
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Sets whether the audit event(s) were written successfully.
+     *
+     * @param success <code>true</code> if the audit event(s) were written successfully.
+     */
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
@@ -0,0 +1,65 @@
+package com.spt.development.audit.spring.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event emitted each time a {@link com.spt.development.audit.spring.TransactionAwareAuditEventWriter}
+ * writes the audit events collected during a transaction; the duration of the event is the time taken to write all of
+ * the audit events.
+ *
+ * <p>As with all JFR events, the cost of creating the event is negligible when it is not enabled in a recording.</p>
+ */
+@Name(AuditTransactionSyncFlushedEvent.NAME)
+@Label("Audit Transaction Sync Flushed")
+@Description("The audit events collected during a transaction were written by an audit event writer")
+@Category({ "SPT Development", "Audit" })
+@StackTrace(false)
+public final class AuditTransactionSyncFlushedEvent extends Event {
+    /**
+     * The name of the event.
+     */
+    public static final String NAME = "com.spt.development.audit.AuditTransactionSyncFlushed";
+
+    @Label("Writer Class")
+    private Class<?> writerClass;
+
+    @Label("Event Count")
+    @Description("The number of audit events written")
+    private int eventCount;
+
+    @Label("Success")
+    @Description("Whether the audit events were written successfully")
+    private boolean success;
+
+    /**
+     * Sets the class of the writer that wrote the audit events.
+     *
+     * @param writerClass the class of the writer.
+     */
+    public void setWriterClass(Class<?> writerClass) {
+        this.writerClass = writerClass;
+    }
+
+    /**
+     * Sets the number of audit events written.
+     *
+     * @param eventCount the number of audit events.
+     */
+    public void setEventCount(int eventCount) {
+        this.eventCount = eventCount;
+    }
+
+    /**
+     * Sets whether the audit events were written successfully.
+     *
+     * @param success <code>true</code> if the audit events were written successfully.
+     */
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+}
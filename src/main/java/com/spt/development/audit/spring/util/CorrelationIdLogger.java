@@ -0,0 +1,189 @@
+package com.spt.development.audit.spring.util;
+
+import com.spt.development.audit.spring.CorrelationIdProvider;
+import org.slf4j.Logger;
+import org.slf4j.MDC;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Wraps an SLF4J {@link Logger}, optionally prefixing each log statement with a correlation ID; for use when the
+ * correlation ID is not otherwise included in the logs through the MDC.
+ *
+ * <p>The log level is checked before anything else is done, so a log statement for a disabled level does not allocate.
+ * Fixed arity methods are provided for up to two arguments so that no varargs array is allocated by the caller either.
+ * The prefixed format strings are cached, so they are only built once per format string; the format strings are
+ * therefore expected to be constants.</p>
+ */
+public final class CorrelationIdLogger {
+    private static final String CORRELATION_ID_PREFIX = "[{}] ";
+    private static final ConcurrentMap<String, String> PREFIXED_FORMATS = new ConcurrentHashMap<>();
+
+    private final Logger logger;
+    private final boolean includeCorrelationIdInLogs;
+    private final CorrelationIdProvider correlationIdProvider;
+
+    /**
+     * Creates a new logger.
+     *
+     * @param logger the underlying logger to log to.
+     * @param includeCorrelationIdInLogs a flag to determine whether the correlation ID should be explicitly included
+     *                                   in the log statements.
+     * @param correlationIdProvider provider for getting the current correlationId.
+     */
+    public CorrelationIdLogger(
+            final Logger logger,
+            final boolean includeCorrelationIdInLogs,
+            final CorrelationIdProvider correlationIdProvider) {
+        this.logger = logger;
+        this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+        this.correlationIdProvider = correlationIdProvider;
+    }
+
+    /**
+     * Logs a message at debug level, with the current correlation ID.
+     *
+     * @param format the format string.
+     */
+    public void debug(String format) {
+        if (logger.isDebugEnabled()) {
+            log(Level.DEBUG, currentCorrelationId(), format);
+        }
+    }
+
+    /**
+     * Logs a message at debug level, with the current correlation ID.
+     *
+     * @param format the format string.
+     * @param argument the argument.
+     */
+    public void debug(String format, Object argument) {
+        if (logger.isDebugEnabled()) {
+            log(Level.DEBUG, currentCorrelationId(), format, argument);
+        }
+    }
+
+    /**
+     * Logs a message at debug level, with the current correlation ID.
+     *
+     * @param format the format string.
+     * @param argument1 the first argument.
+     * @param argument2 the second argument.
+     */
+    public void debug(String format, Object argument1, Object argument2) {
+        if (logger.isDebugEnabled()) {
+            log(Level.DEBUG, currentCorrelationId(), format, argument1, argument2);
+        }
+    }
+
+    /**
+     * Logs a message at warn level, with the current correlation ID.
+     *
+     * @param format the format string.
+     * @param argument the argument.
+     */
+    public void warn(String format, Object argument) {
+        if (logger.isWarnEnabled()) {
+            log(Level.WARN, currentCorrelationId(), format, argument);
+        }
+    }
+
+    /**
+     * Logs a message at warn level, with the current correlation ID.
+     *
+     * @param format the format string.
+     * @param arguments the arguments.
+     */
+    public void warn(String format, Object... arguments) {
+        if (logger.isWarnEnabled()) {
+            log(Level.WARN, currentCorrelationId(), format, arguments);
+        }
+    }
+
+    /**
+     * Logs a message at error level, with the current correlation ID.
+     *
+     * @param format the format string.
+     * @param argument the argument.
+     */
+    public void error(String format, Object argument) {
+        if (logger.isErrorEnabled()) {
+            log(Level.ERROR, currentCorrelationId(), format, argument);
+        }
+    }
+
+    /**
+     * Logs a message at the level given, with the correlation ID given rather than the current correlation ID; for
+     * logging on behalf of an audit event that may have been created on another thread.
+     *
+     * @param level the level to log at.
+     * @param correlationId the correlation ID to include in the log statement.
+     * @param format the format string.
+     * @param arguments the arguments.
+     */
+    public void log(Level level, String correlationId, String format, Object... arguments) {
+        if (!logger.isEnabledForLevel(level)) {
+            return;
+        }
+
+        if (includeCorrelationIdInLogs) {
+            log(logger, level, prefixed(format), CorrelationIdUtils.addCorrelationIdToArguments(correlationId, arguments));
+            return;
+        }
+        log(logger, level, format, arguments);
+    }
+
+    /**
+     * Runs the {@link Runnable} with the correlation ID added to the MDC, restoring the previous value (if any) once
+     * the {@link Runnable} completes.
+     *
+     * @param key the MDC key.
+     * @param correlationId the correlation ID to add to the MDC.
+     * @param runnable the {@link Runnable} to run.
+     */
+    public static void runWithCorrelationIdInMdc(String key, String correlationId, Runnable runnable) {
+        final String previousCorrelationId = MDC.get(key);
+
+        MDC.put(key, correlationId);
+
+        try {
+            runnable.run();
+        } finally {
+            if (previousCorrelationId != null) {
+                MDC.put(key, previousCorrelationId);
+            } else {
+                MDC.remove(key);
+            }
+        }
+    }
+
+    private String currentCorrelationId() {
+        return includeCorrelationIdInLogs ? correlationIdProvider.getCorrelationId() : null;
+    }
+
+    private static String prefixed(String format) {
+        return PREFIXED_FORMATS.computeIfAbsent(format, f -> CORRELATION_ID_PREFIX + f);
+    }
+
+    private static void log(Logger logger, Level level, String format, Object[] arguments) {
+        switch (level) {
+            case ERROR:
+                logger.error(format, arguments);
+                break;
+            case WARN:
+                logger.warn(format, arguments);
+                break;
+            case INFO:
+                logger.info(format, arguments);
+                break;
+            case DEBUG:
+                logger.debug(format, arguments);
+                break;
+            default:
+                logger.trace(format, arguments);
+                break;
+        }
+    }
+}
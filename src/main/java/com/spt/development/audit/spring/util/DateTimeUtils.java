@@ -0,0 +1,92 @@
+package com.spt.development.audit.spring.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Utility methods related to dates and times.
+ */
+public final class DateTimeUtils {
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int SECONDS_PER_HOUR = 3_600;
+    private static final int SECONDS_PER_DAY = 86_400;
+    private static final int MAX_FOUR_DIGIT_YEAR = 9_999;
+    private static final int TEN = 10;
+    private static final int YEAR_DIGITS = 4;
+    private static final int NANO_DIGITS = 9;
+    private static final int[] POWERS_OF_TEN = {
+        1, 10, 100, 1_000, 10_000, 100_000, 1_000_000, 10_000_000, 100_000_000
+    };
+
+    private DateTimeUtils() {
+    }
+
+    /**
+     * Formats the instant in UTC, producing exactly the same output as
+     * {@link java.time.format.DateTimeFormatter#ISO_OFFSET_DATE_TIME} would for the instant at {@link ZoneOffset#UTC};
+     * for example <code>2020-07-19T15:29:17.123Z</code>. The fields are written directly rather than through a
+     * {@link java.time.format.DateTimeFormatter}, which is comparatively slow.
+     *
+     * @param instant the instant to format.
+     * @param sb the {@link StringBuilder} to append the formatted instant to.
+     *
+     * @return the {@link StringBuilder}.
+     */
+    public static StringBuilder appendIsoOffsetDateTime(Instant instant, StringBuilder sb) {
+        final long epochSecond = instant.getEpochSecond();
+        final LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(epochSecond, SECONDS_PER_DAY));
+
+        if (date.getYear() < 0 || date.getYear() > MAX_FOUR_DIGIT_YEAR) {
+            ISO_OFFSET_DATE_TIME.formatTo(instant.atOffset(ZoneOffset.UTC), sb);
+            return sb;
+        }
+
+        final int secondOfDay = Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        appendPadded(sb, date.getYear(), YEAR_DIGITS);
+        appendPadded(sb.append('-'), date.getMonthValue(), 2);
+        appendPadded(sb.append('-'), date.getDayOfMonth(), 2);
+        appendPadded(sb.append('T'), secondOfDay / SECONDS_PER_HOUR, 2);
+        appendPadded(sb.append(':'), secondOfDay % SECONDS_PER_HOUR / SECONDS_PER_MINUTE, 2);
+        appendPadded(sb.append(':'), secondOfDay % SECONDS_PER_MINUTE, 2);
+        appendFraction(sb, instant.getNano());
+
+        return sb.append('Z');
+    }
+
+    /**
+     * Formats the instant in UTC; see {@link DateTimeUtils#appendIsoOffsetDateTime(Instant, StringBuilder)}.
+     *
+     * @param instant the instant to format.
+     *
+     * @return the formatted instant.
+     */
+    public static String formatIsoOffsetDateTime(Instant instant) {
+        return appendIsoOffsetDateTime(instant, new StringBuilder()).toString();
+    }
+
+    private static void appendFraction(StringBuilder sb, int nano) {
+        if (nano == 0) {
+            return;
+        }
+
+        // As with ISO_OFFSET_DATE_TIME, only as many digits as are needed are output
+        int fraction = nano;
+        int digits = NANO_DIGITS;
+
+        while (fraction % TEN == 0) {
+            fraction /= TEN;
+            digits--;
+        }
+        appendPadded(sb.append('.'), fraction, digits);
+    }
+
+    private static void appendPadded(StringBuilder sb, int value, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            sb.append((char) ('0' + value / POWERS_OF_TEN[i] % TEN));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class AuditEventDeduplicatorTest {
+    private static final class TestData {
+        static final int EXPECTED_EVENTS = 1_000;
+        static final double FALSE_POSITIVE_PROBABILITY = 0.01;
+        static final Duration WINDOW = Duration.ofMinutes(10);
+        static final long NOW = 1_595_172_557_123L;
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final String OTHER_EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR20";
+        static final String CORRELATION_ID = "30f6f97d-6956-485b-b7e7-a6c689a3d6dd";
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String ID = "100";
+        static final Instant CREATED = Instant.parse("2020-07-19T15:29:17.123Z");
+        static final long EXPECTED_BITS = 9_600;
+        static final int EXPECTED_HASH_FUNCTIONS = 7;
+        static final int CHECKED_EVENTS = 100;
+        static final int MAX_FALSE_POSITIVES = 5;
+        static final int ITERATIONS = 100_000;
+        static final long MAX_ALLOCATED_BYTES = 1024;
+    }
+
+    private final Clock clock = Mockito.mock(Clock.class);
+
+    @BeforeEach
+    void setUp() {
+        when(clock.millis()).thenReturn(TestData.NOW);
+    }
+
+    @Test
+    void isDuplicate_newAuditEvent_shouldReturnFalse() {
+        assertThat(createDeduplicator().isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(false));
+    }
+
+    @Test
+    void isSeen_auditEventCheckedButNotRecorded_shouldReturnFalse() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isSeen(createAuditEvent(TestData.EVENT_ID));
+
+        assertThat(target.isSeen(createAuditEvent(TestData.EVENT_ID)), is(false));
+    }
+
+    @Test
+    void isSeen_auditEventRecorded_shouldReturnTrue() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.record(createAuditEvent(TestData.EVENT_ID));
+
+        assertThat(target.isSeen(createAuditEvent(TestData.EVENT_ID)), is(true));
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(true));
+    }
+
+    @Test
+    void isDuplicate_auditEventSeenBefore_shouldReturnTrue() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(true));
+    }
+
+    @Test
+    void isDuplicate_sameEventIdDifferentFields_shouldReturnTrue() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        assertThat(target.isDuplicate(AuditEvent.builder().eventId(TestData.EVENT_ID).build()), is(true));
+    }
+
+    @Test
+    void isDuplicate_differentEventIdSameFields_shouldReturnFalse() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.OTHER_EVENT_ID)), is(false));
+    }
+
+    @Test
+    void isDuplicate_noEventIdSameKeyFields_shouldReturnTrue() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(null));
+
+        assertThat(target.isDuplicate(createAuditEvent(null).toBuilder().details("{}").userId("1").build()), is(true));
+    }
+
+    @Test
+    void isDuplicate_noEventIdDifferentKeyFields_shouldReturnFalse() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(null));
+
+        assertThat(target.isDuplicate(createAuditEvent(null).toBuilder().createdInstant(TestData.CREATED.plusNanos(1)).build()), is(false));
+        assertThat(target.isDuplicate(createAuditEvent(null).toBuilder().id("1000").build()), is(false));
+        assertThat(target.isDuplicate(createAuditEvent(null).toBuilder().type(TestData.TYPE + TestData.SUB_TYPE).subType("").build()), is(false));
+    }
+
+    @Test
+    void isDuplicate_noEventIdAndNullKeyFields_shouldReturnTrueWhenSeenBefore() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        assertThat(target.isDuplicate(AuditEvent.builder().build()), is(false));
+        assertThat(target.isDuplicate(AuditEvent.builder().build()), is(true));
+    }
+
+    @Test
+    void isDuplicate_seenInPreviousWindow_shouldReturnTrue() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        when(clock.millis()).thenReturn(TestData.NOW + TestData.WINDOW.toMillis());
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(true));
+
+        // Seen again in the previous window, so it should now be remembered for another window
+        when(clock.millis()).thenReturn(TestData.NOW + 2 * TestData.WINDOW.toMillis());
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(true));
+    }
+
+    @Test
+    void isDuplicate_seenTwoWindowsAgo_shouldReturnFalse() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        when(clock.millis()).thenReturn(TestData.NOW + TestData.WINDOW.toMillis());
+
+        target.isDuplicate(createAuditEvent(TestData.OTHER_EVENT_ID));
+
+        when(clock.millis()).thenReturn(TestData.NOW + 2 * TestData.WINDOW.toMillis());
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(false));
+        assertThat(target.isDuplicate(createAuditEvent(TestData.OTHER_EVENT_ID)), is(true));
+    }
+
+    @Test
+    void isDuplicate_noAuditEventsForTwoWindows_shouldReturnFalse() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        when(clock.millis()).thenReturn(TestData.NOW + 2 * TestData.WINDOW.toMillis());
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(false));
+    }
+
+    @Test
+    void isDuplicate_filtersRotatedConcurrently_shouldNotRotateAgain() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        target.isDuplicate(createAuditEvent(TestData.EVENT_ID));
+
+        // The second call to the clock is made after acquiring the lock, by which time another thread could have rotated
+        // the filters (simulated here by time appearing to go backwards)
+        when(clock.millis()).thenReturn(TestData.NOW + 2 * TestData.WINDOW.toMillis(), TestData.NOW);
+
+        assertThat(target.isDuplicate(createAuditEvent(TestData.EVENT_ID)), is(true));
+    }
+
+    @Test
+    void isDuplicate_expectedNumberOfAuditEvents_shouldHaveFalsePositiveRateWithinBounds() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        for (int i = 0; i < TestData.EXPECTED_EVENTS; i++) {
+            target.isDuplicate(createAuditEvent("A" + i));
+        }
+
+        // Checking an audit event also records it, so only check a small sample to avoid overfilling the filter
+        int falsePositives = 0;
+
+        for (int i = 0; i < TestData.CHECKED_EVENTS; i++) {
+            if (target.isDuplicate(createAuditEvent("B" + i))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives, is(lessThan(TestData.MAX_FALSE_POSITIVES)));
+    }
+
+    @Test
+    void isDuplicate_manyAuditEvents_shouldNotAllocate() {
+        final AuditEventDeduplicator target = new AuditEventDeduplicator(
+                TestData.ITERATIONS, TestData.FALSE_POSITIVE_PROBABILITY, TestData.WINDOW
+        );
+        final AuditEvent withEventId = createAuditEvent(TestData.EVENT_ID);
+        final AuditEvent withoutEventId = createAuditEvent(null);
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // Warm up, so that any one off allocations (class loading for example) are not counted
+        checkDuplicates(target, withEventId, withoutEventId);
+
+        final long before = threadMXBean.getCurrentThreadAllocatedBytes();
+
+        checkDuplicates(target, withEventId, withoutEventId);
+
+        assertThat(threadMXBean.getCurrentThreadAllocatedBytes() - before, is(lessThan(TestData.MAX_ALLOCATED_BYTES)));
+    }
+
+    @Test
+    void constructor_validArguments_shouldSizeFilters() {
+        final AuditEventDeduplicator target = createDeduplicator();
+
+        assertThat(target.getNumberOfBits(), is(TestData.EXPECTED_BITS));
+        assertThat(target.getNumberOfHashFunctions(), is(TestData.EXPECTED_HASH_FUNCTIONS));
+    }
+
+    @Test
+    void constructor_invalidExpectedEvents_shouldThrowException() {
+        final IllegalArgumentException result = assertThrows(
+                IllegalArgumentException.class,
+                () -> new AuditEventDeduplicator(0, TestData.FALSE_POSITIVE_PROBABILITY, TestData.WINDOW)
+        );
+
+        assertThat(result.getMessage(), is("Expected events per window must be greater than zero: 0"));
+    }
+
+    @Test
+    void constructor_invalidFalsePositiveProbability_shouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, 0, TestData.WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, 1, TestData.WINDOW));
+        assertThrows(IllegalArgumentException.class, () -> new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, Double.NaN, TestData.WINDOW));
+    }
+
+    @Test
+    void constructor_invalidWindow_shouldThrowException() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, TestData.FALSE_POSITIVE_PROBABILITY, Duration.ZERO)
+        );
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, TestData.FALSE_POSITIVE_PROBABILITY, Duration.ofSeconds(-1))
+        );
+    }
+
+    private static void checkDuplicates(AuditEventDeduplicator target, AuditEvent withEventId, AuditEvent withoutEventId) {
+        for (int i = 0; i < TestData.ITERATIONS; i++) {
+            target.isDuplicate(withEventId);
+            target.isDuplicate(withoutEventId);
+        }
+    }
+
+    private AuditEventDeduplicator createDeduplicator() {
+        return new AuditEventDeduplicator(TestData.EXPECTED_EVENTS, TestData.FALSE_POSITIVE_PROBABILITY, TestData.WINDOW, clock);
+    }
+
+    private static AuditEvent createAuditEvent(String eventId) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(TestData.ID)
+                .createdInstant(TestData.CREATED)
+                .eventId(eventId)
+                .build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AuditEventEnvelopeTest {
+    private static final class TestData {
+        static final String TYPE = "DOMAIN_TYPE";
+        static final String SUB_TYPE = "CREATE";
+        static final String CORRELATION_ID = "bfae9d36-fdac-48b4-85a0-e5381d872c16";
+        static final String DETAILS = "{\"name\":\"Test\"}";
+        static final String USER_ID = "user-1";
+        static final String USERNAME = "testuser";
+        static final String ORIGINATING_IP = "127.0.0.1";
+        static final String SERVICE_ID = "audit-service";
+        static final String SERVICE_VERSION = "1.0.0";
+        static final String SERVER_HOST_NAME = "audit-server.example.com";
+        static final OffsetDateTime CREATED = OffsetDateTime.of(2024, 1, 2, 3, 4, 5, 6_000_000, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final String CHAIN_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+        static final int EVENT_COUNT = 10;
+    }
+
+    @Test
+    void encode_auditEvents_shouldRoundTrip() {
+        final List<AuditEvent> auditEvents = List.of(createAuditEvent("1"), createAuditEvent("2"));
+
+        final List<AuditEvent> result = AuditEventEnvelope.decode(AuditEventEnvelope.encode(auditEvents));
+
+        assertThat(result, is(auditEvents));
+    }
+
+    @Test
+    void encode_auditEvents_shouldOnlyIncludeConstantFieldsOnce() {
+        final String json = AuditEventEnvelope.encode(
+                IntStream.range(0, TestData.EVENT_COUNT)
+                        .mapToObj(i -> createAuditEvent(Integer.toString(i)))
+                        .toList()
+        );
+
+        assertThat(json.split(TestData.SERVICE_ID, -1).length, is(2));
+        assertThat(json.split(TestData.SERVER_HOST_NAME, -1).length, is(2));
+        assertThat(json.split(TestData.SUB_TYPE, -1).length, is(2));
+    }
+
+    @Test
+    void encode_auditEvents_shouldBeSmallerThanPlainJson() {
+        final List<AuditEvent> auditEvents = IntStream.range(0, TestData.EVENT_COUNT)
+                .mapToObj(i -> createAuditEvent(Integer.toString(i)))
+                .toList();
+
+        final int plainJsonLength = auditEvents.stream().mapToInt(e -> e.toJson().length()).sum();
+
+        assertThat(AuditEventEnvelope.encode(auditEvents).length(), is(lessThan(plainJsonLength)));
+    }
+
+    @Test
+    void encode_auditEventWithNullFields_shouldRoundTrip() {
+        final List<AuditEvent> auditEvents = List.of(AuditEvent.builder().type(TestData.TYPE).build());
+
+        final List<AuditEvent> result = AuditEventEnvelope.decode(AuditEventEnvelope.encode(auditEvents));
+
+        assertThat(result, is(auditEvents));
+    }
+
+    @Test
+    void encode_noAuditEvents_shouldDecodeToEmptyList() {
+        assertThat(AuditEventEnvelope.decode(AuditEventEnvelope.encode(List.of())), is(empty()));
+    }
+
+    @Test
+    void decode_noDictionaryOrEvents_shouldReturnEmptyList() {
+        assertThat(AuditEventEnvelope.decode("{\"v\":1}"), is(empty()));
+    }
+
+    @Test
+    void decode_unsupportedVersion_shouldThrowException() {
+        final IllegalArgumentException result = assertThrows(
+                IllegalArgumentException.class, () -> AuditEventEnvelope.decode("{\"v\":2,\"dict\":[],\"events\":[]}")
+        );
+
+        assertThat(result.getMessage(), is("Unsupported audit event envelope version: 2"));
+    }
+
+    @Test
+    void decode_unknownDictionaryEntry_shouldThrowException() {
+        final IllegalArgumentException result = assertThrows(
+                IllegalArgumentException.class, () -> AuditEventEnvelope.decode("{\"v\":1,\"dict\":[\"a\"],\"events\":[{\"t\":1}]}")
+        );
+
+        assertThat(result.getMessage(), is("Audit event envelope refers to unknown dictionary entry: 1"));
+    }
+
+    @Test
+    void decode_negativeDictionaryEntry_shouldThrowException() {
+        final IllegalArgumentException result = assertThrows(
+                IllegalArgumentException.class, () -> AuditEventEnvelope.decode("{\"v\":1,\"dict\":[\"a\"],\"events\":[{\"t\":-1}]}")
+        );
+
+        assertThat(result.getMessage(), is("Audit event envelope refers to unknown dictionary entry: -1"));
+    }
+
+    private static AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(id)
+                .details(TestData.DETAILS)
+                .userId(TestData.USER_ID)
+                .username(TestData.USERNAME)
+                .originatingIP(TestData.ORIGINATING_IP)
+                .serviceId(TestData.SERVICE_ID)
+                .serviceVersion(TestData.SERVICE_VERSION)
+                .serverHostName(TestData.SERVER_HOST_NAME)
+                .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
+                .chainHash(TestData.CHAIN_HASH)
+                .build();
+    }
+}
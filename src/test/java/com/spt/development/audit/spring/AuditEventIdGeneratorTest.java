@@ -0,0 +1,181 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.mockito.Mockito.when;
+
+class AuditEventIdGeneratorTest {
+    private static final class TestData {
+        static final Instant NOW = Instant.parse("2020-07-19T15:29:17.123Z");
+        static final String NOW_ENCODED = "01EDKV34A3";
+        static final int NODE_ID = 0x12345678;
+        static final int OTHER_NODE_ID = 0x12345679;
+        static final int ID_LENGTH = 26;
+        static final int TIMESTAMP_LENGTH = 10;
+        static final String ID_PATTERN = "[0-9A-HJKMNP-TV-Z]{26}";
+        static final long MAX_SEQUENCE = (1L << 47) - 1;
+        static final int THREADS = 4;
+        static final int IDS_PER_THREAD = 10_000;
+        static final int IDS_PER_MILLISECOND = 1 << 16;
+    }
+
+    @Test
+    void nextId_validGenerator_shouldReturnCrockfordBase32EncodedId() {
+        final String result = createGenerator(TestData.NODE_ID, 0).nextId();
+
+        assertThat(result.length(), is(TestData.ID_LENGTH));
+        assertThat(result.matches(TestData.ID_PATTERN), is(true));
+    }
+
+    @Test
+    void nextId_validGenerator_shouldStartWithUlidEncodedTimestamp() {
+        final String result = createGenerator(TestData.NODE_ID, 0).nextId();
+
+        assertThat(result.substring(0, TestData.TIMESTAMP_LENGTH), is(TestData.NOW_ENCODED));
+    }
+
+    @Test
+    void nextId_sameTimestamp_shouldReturnMonotonicallyIncreasingIds() {
+        final AuditEventIdGenerator target = createGenerator(TestData.NODE_ID, TestData.MAX_SEQUENCE - 1);
+
+        final String first = target.nextId();
+        final String second = target.nextId();
+        final String third = target.nextId();
+
+        assertThat(second.compareTo(first), is(greaterThan(0)));
+        assertThat(third.compareTo(second), is(greaterThan(0)));
+    }
+
+    @Test
+    void nextId_clockGoesBackwards_shouldReturnMonotonicallyIncreasingIds() {
+        final Clock clock = Mockito.mock(Clock.class);
+
+        when(clock.millis()).thenReturn(TestData.NOW.toEpochMilli(), TestData.NOW.toEpochMilli() - 1);
+
+        final AuditEventIdGenerator target = new AuditEventIdGenerator(clock, TestData.NODE_ID, 0);
+
+        final String first = target.nextId();
+        final String second = target.nextId();
+
+        assertThat(second.substring(0, TestData.TIMESTAMP_LENGTH), is(TestData.NOW_ENCODED));
+        assertThat(second.compareTo(first), is(greaterThan(0)));
+    }
+
+    @Test
+    void nextId_counterOverflowsWithinMillisecond_shouldCarryIntoTimestamp() {
+        final AuditEventIdGenerator target = createGenerator(TestData.NODE_ID, 0);
+        String previous = target.nextId();
+
+        for (int i = 0; i < TestData.IDS_PER_MILLISECOND; i++) {
+            final String next = target.nextId();
+
+            assertThat(next.compareTo(previous), is(greaterThan(0)));
+
+            previous = next;
+        }
+        assertThat(previous.substring(0, TestData.TIMESTAMP_LENGTH), is(not(TestData.NOW_ENCODED)));
+    }
+
+    @Test
+    void nextId_differentNodeIds_shouldReturnDifferentIds() {
+        final String result = createGenerator(TestData.NODE_ID, 0).nextId();
+
+        assertThat(result, is(not(createGenerator(TestData.OTHER_NODE_ID, 0).nextId())));
+    }
+
+    @Test
+    void nextId_concurrentCalls_shouldReturnUniqueIds() throws Exception {
+        final AuditEventIdGenerator target = new AuditEventIdGenerator();
+        final Set<String> ids = ConcurrentHashMap.newKeySet();
+        final ExecutorService executor = Executors.newFixedThreadPool(TestData.THREADS);
+
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < TestData.THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < TestData.IDS_PER_THREAD; j++) {
+                        ids.add(target.nextId());
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(ids.size(), is(TestData.THREADS * TestData.IDS_PER_THREAD));
+    }
+
+    @Test
+    void nextId_concurrentCalls_shouldReturnMonotonicallyIncreasingIdsOnEachThread() throws Exception {
+        final AuditEventIdGenerator target = new AuditEventIdGenerator();
+        final ExecutorService executor = Executors.newFixedThreadPool(TestData.THREADS);
+
+        try {
+            final List<Future<List<String>>> futures = new ArrayList<>();
+
+            for (int i = 0; i < TestData.THREADS; i++) {
+                futures.add(executor.submit(() -> {
+                    final List<String> ids = new ArrayList<>();
+
+                    for (int j = 0; j < TestData.IDS_PER_THREAD; j++) {
+                        ids.add(target.nextId());
+                    }
+                    return ids;
+                }));
+            }
+
+            for (Future<List<String>> future : futures) {
+                final List<String> ids = future.get();
+
+                assertThat(ids, is(ids.stream().sorted().distinct().collect(Collectors.toList())));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void constructor_nodeId_shouldUseNodeId() {
+        final String result = new AuditEventIdGenerator(TestData.NODE_ID).nextId();
+
+        assertThat(result.matches(TestData.ID_PATTERN), is(true));
+    }
+
+    @Test
+    void constructor_secureRandom_shouldGenerateNodeIdAndInitialSequenceFromSecureRandom() {
+        final SecureRandom random = Mockito.mock(SecureRandom.class);
+
+        when(random.nextInt()).thenReturn(TestData.NODE_ID);
+        when(random.nextLong()).thenReturn(0L);
+
+        final String result = new AuditEventIdGenerator(Clock.fixed(TestData.NOW, ZoneOffset.UTC), random).nextId();
+
+        assertThat(result, is(createGenerator(TestData.NODE_ID, 0).nextId()));
+    }
+
+    private static AuditEventIdGenerator createGenerator(int nodeId, long initialSequence) {
+        return new AuditEventIdGenerator(Clock.fixed(TestData.NOW, ZoneOffset.UTC), nodeId, initialSequence);
+    }
+}
@@ -0,0 +1,441 @@
+package com.spt.development.audit.spring;
+
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyWarnLogging;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditEventIngesterTest {
+    private static final class TestData {
+        static final String DESTINATION_NAME = "audit-queue";
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final Instant CREATED = Instant.parse("2020-07-19T15:29:17.123Z");
+        static final int BATCH_SIZE = 2;
+        static final int THROUGHPUT_MESSAGES = 10_000;
+        static final int THROUGHPUT_BATCH_SIZE = 500;
+        static final int DECODE_THREADS = 4;
+    }
+
+    @Test
+    void ingestBatch_messagesAvailable_shouldWriteBatchToSinkAndAcknowledge() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "2", "3");
+
+        final int result = createIngester(args).ingestBatch(args.session, args.consumer);
+
+        assertThat(result, is(TestData.BATCH_SIZE));
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1"), createAuditEvent("2")))));
+
+        verify(args.messages.get(1), times(1)).acknowledge();
+        verify(args.messages.get(0), never()).acknowledge();
+    }
+
+    @Test
+    void ingestBatch_noMessages_shouldNotWriteToSink() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+
+        final int result = createIngester(args).ingestBatch(args.session, args.consumer);
+
+        assertThat(result, is(0));
+        assertThat(args.batches.isEmpty(), is(true));
+    }
+
+    @Test
+    void ingestBatch_maxBatchWaitPassed_shouldOnlyReceiveMessagesAlreadyAvailable() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "2", "3");
+
+        final int result = createIngester(args).withMaxBatchWait(Duration.ZERO).withBatchSize(TestData.BATCH_SIZE + 1)
+                .ingestBatch(args.session, args.consumer);
+
+        assertThat(result, is(TestData.BATCH_SIZE + 1));
+
+        verify(args.consumer, never()).receive(anyLong());
+        verify(args.consumer, times(TestData.BATCH_SIZE + 1)).receiveNoWait();
+    }
+
+    @Test
+    void ingestBatch_envelopeMessage_shouldWriteAllAuditEventsInEnvelope() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+        final TextMessage message = createMessage(AuditEventEnvelope.encode(List.of(createAuditEvent("1"), createAuditEvent("2"))));
+
+        when(message.getStringProperty(JmsAuditEventWriter.AUDIT_EVENT_ENCODING_PROPERTY)).thenReturn(AuditEventEnvelope.ENCODING);
+        args.add(message);
+
+        createIngester(args).ingestBatch(args.session, args.consumer);
+
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1"), createAuditEvent("2")))));
+    }
+
+    @Test
+    void ingestBatch_invalidMessage_shouldLogErrorAndDiscardMessage() {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+
+        args.add(createMessage("{invalid"));
+        args.add(createMessage(createAuditEvent("1").toJson()));
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> ingestBatch(createIngester(args), args),
+                "Failed to decode audit event message, message will be discarded"
+        );
+
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1")))));
+    }
+
+    @Test
+    void ingestBatch_nonTextMessage_shouldLogErrorAndAcknowledge() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+        final BytesMessage message = Mockito.mock(BytesMessage.class);
+
+        args.add(message);
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> ingestBatch(createIngester(args), args),
+                "Audit event message is not a text message, message will be discarded"
+        );
+
+        assertThat(args.batches.isEmpty(), is(true));
+
+        verify(message, times(1)).acknowledge();
+    }
+
+    @Test
+    void ingestBatch_failedToGetText_shouldLogErrorAndDiscardMessage() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+        final TextMessage message = Mockito.mock(TextMessage.class);
+
+        when(message.getText()).thenThrow(new JMSException("Test"));
+        args.add(message);
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> ingestBatch(createIngester(args), args),
+                "Failed to decode audit event message, message will be discarded"
+        );
+
+        verify(message, times(1)).acknowledge();
+    }
+
+    @Test
+    void ingestBatch_decodeExecutor_shouldDecodeInParallelPreservingOrder() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "2", "3");
+        final ExecutorService executor = Executors.newFixedThreadPool(TestData.DECODE_THREADS);
+
+        try {
+            createIngester(args).withBatchSize(TestData.BATCH_SIZE + 1).withDecodeExecutor(executor)
+                    .ingestBatch(args.session, args.consumer);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1"), createAuditEvent("2"), createAuditEvent("3")))));
+    }
+
+    @Test
+    void ingestBatch_duplicateAuditEvents_shouldDiscardDuplicates() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "1", "2");
+
+        createIngester(args).withBatchSize(TestData.BATCH_SIZE + 1)
+                .withDeduplicator(new AuditEventDeduplicator(TestData.THROUGHPUT_MESSAGES, 0.000001, Duration.ofMinutes(1)))
+                .ingestBatch(args.session, args.consumer);
+
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1"), createAuditEvent("2")))));
+    }
+
+    @Test
+    void ingestBatch_allAuditEventsDuplicates_shouldAcknowledgeWithoutWritingToSink() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "1");
+        final AuditEventIngester target = createIngester(args).withBatchSize(1)
+                .withDeduplicator(new AuditEventDeduplicator(TestData.THROUGHPUT_MESSAGES, 0.000001, Duration.ofMinutes(1)));
+
+        target.ingestBatch(args.session, args.consumer);
+        target.ingestBatch(args.session, args.consumer);
+
+        assertThat(args.batches.size(), is(1));
+
+        verify(args.messages.get(1), times(1)).acknowledge();
+    }
+
+    @Test
+    void ingestBatch_sinkFailsOnce_shouldRetryBatchAndAcknowledge() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1");
+
+        args.failures = 1;
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> ingestBatch(createIngester(args), args),
+                "Failed to write batch of 1 audit event(s), will retry in PT0S"
+        );
+
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1")))));
+
+        verify(args.messages.get(0), times(1)).acknowledge();
+        verify(args.session, never()).recover();
+    }
+
+    @Test
+    void ingestBatch_sinkFailsAndIngesterClosed_shouldRecoverSession() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1");
+        final AuditEventIngester target = createIngester(args);
+
+        args.failures = Integer.MAX_VALUE;
+        args.onFailure = target::close;
+
+        verifyWarnLogging(
+                AuditEventIngester.class,
+                () -> ingestBatch(target, args),
+                "Ingester closed before batch of 1 audit event message(s) could be written, messages will be redelivered"
+        );
+
+        verify(args.messages.get(0), never()).acknowledge();
+        verify(args.session, times(1)).recover();
+    }
+
+    @Test
+    void ingestBatch_deduplicatorAndMessagesRedeliveredAfterRecover_shouldWriteRedeliveredAuditEvents() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1");
+        final AuditEventDeduplicator deduplicator = new AuditEventDeduplicator(TestData.THROUGHPUT_MESSAGES, 0.000001, Duration.ofMinutes(1));
+        final AuditEventIngester target = createIngester(args).withDeduplicator(deduplicator);
+
+        args.failures = Integer.MAX_VALUE;
+        args.onFailure = target::close;
+
+        target.ingestBatch(args.session, args.consumer);
+
+        verify(args.session, times(1)).recover();
+
+        // Redelivered to another ingester sharing the deduplicator
+        args.failures = 0;
+        args.add(createMessage(createAuditEvent("1").toJson()));
+
+        createIngester(args).withDeduplicator(deduplicator).ingestBatch(args.session, args.consumer);
+
+        assertThat(args.batches, is(List.of(List.of(createAuditEvent("1")))));
+        assertThat(deduplicator.isSeen(createAuditEvent("1")), is(true));
+
+        verify(args.messages.get(1), times(1)).acknowledge();
+    }
+
+    @Test
+    void ingestBatch_interruptedWhileWaitingToRetry_shouldRecoverSession() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1");
+
+        args.failures = Integer.MAX_VALUE;
+        args.onFailure = () -> Thread.currentThread().interrupt();
+
+        try {
+            createIngester(args).withRetryInterval(Duration.ofMinutes(1)).ingestBatch(args.session, args.consumer);
+
+            assertThat(Thread.currentThread().isInterrupted(), is(true));
+        } finally {
+            Thread.interrupted();
+        }
+        verify(args.session, times(1)).recover();
+    }
+
+    @Test
+    void run_messagesAvailable_shouldConsumeWithClientAcknowledgeUntilClosed() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs("1", "2", "3");
+        final AuditEventIngester target = createIngester(args);
+
+        args.onEmpty = target::close;
+
+        target.run();
+
+        assertThat(
+                args.batches,
+                is(List.of(List.of(createAuditEvent("1"), createAuditEvent("2")), List.of(createAuditEvent("3"))))
+        );
+
+        final InOrder inOrder = inOrder(args.connection, args.session);
+
+        inOrder.verify(args.connection).createSession(false, Session.CLIENT_ACKNOWLEDGE);
+        inOrder.verify(args.session).createConsumer(args.queue);
+        inOrder.verify(args.connection).start();
+        inOrder.verify(args.connection).close();
+    }
+
+    @Test
+    void run_failedToConnect_shouldLogError() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+
+        when(args.connectionFactory.createConnection()).thenThrow(new JMSException("Test"));
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> {
+                    createIngester(args).run();
+                    return null;
+                },
+                "Failed to consume audit event messages from " + TestData.DESTINATION_NAME
+        );
+    }
+
+    @Test
+    void run_consumerFails_shouldLogErrorAndCloseConnection() throws Exception {
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs();
+
+        doThrow(new JMSException("Test")).when(args.consumer).receive(anyLong());
+
+        verifyErrorLogging(
+                AuditEventIngester.class,
+                () -> {
+                    createIngester(args).run();
+                    return null;
+                },
+                "Failed to consume audit event messages from " + TestData.DESTINATION_NAME
+        );
+
+        verify(args.connection, times(1)).close();
+    }
+
+    @Test
+    void run_manyMessages_shouldIngestAllMessagesInFullBatches() throws Exception {
+        final String[] ids = IntStream.range(0, TestData.THROUGHPUT_MESSAGES).mapToObj(Integer::toString).toArray(String[]::new);
+        final AuditEventIngesterArgs args = new AuditEventIngesterArgs(ids);
+        final ExecutorService executor = Executors.newFixedThreadPool(TestData.DECODE_THREADS);
+        final AuditEventIngester target = new AuditEventIngester(args.connectionFactory, TestData.DESTINATION_NAME, args.sink)
+                .withBatchSize(TestData.THROUGHPUT_BATCH_SIZE)
+                .withDecodeExecutor(executor);
+
+        args.onEmpty = target::close;
+
+        try {
+            target.run();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(args.batches.size(), is(TestData.THROUGHPUT_MESSAGES / TestData.THROUGHPUT_BATCH_SIZE));
+        assertThat(
+                args.batches.stream().flatMap(List::stream).map(AuditEvent::getId).collect(Collectors.toList()),
+                is(List.of(ids))
+        );
+    }
+
+    @Test
+    void sinkOf_auditEventWriter_shouldWriteEachAuditEvent() {
+        final AuditEventWriter auditEventWriter = Mockito.mock(AuditEventWriter.class);
+
+        AuditEventIngester.Sink.of(auditEventWriter).write(List.of(createAuditEvent("1"), createAuditEvent("2")));
+
+        verify(auditEventWriter, times(1)).writeAll(List.of(createAuditEvent("1"), createAuditEvent("2")));
+    }
+
+    private static AuditEventIngester createIngester(AuditEventIngesterArgs args) {
+        return new AuditEventIngester(args.connectionFactory, TestData.DESTINATION_NAME, args.sink)
+                .withBatchSize(TestData.BATCH_SIZE)
+                .withRetryInterval(Duration.ZERO);
+    }
+
+    private static int ingestBatch(AuditEventIngester target, AuditEventIngesterArgs args) {
+        try {
+            return target.ingestBatch(args.session, args.consumer);
+        } catch (JMSException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .id(id)
+                .createdInstant(TestData.CREATED)
+                .build();
+    }
+
+    private static TextMessage createMessage(String text) {
+        final TextMessage message = Mockito.mock(TextMessage.class);
+
+        try {
+            when(message.getText()).thenReturn(text);
+        } catch (JMSException ex) {
+            throw new IllegalStateException(ex);
+        }
+        return message;
+    }
+
+    private static class AuditEventIngesterArgs {
+        ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        Connection connection = Mockito.mock(Connection.class);
+        Session session = Mockito.mock(Session.class);
+        Queue queue = Mockito.mock(Queue.class);
+        MessageConsumer consumer = Mockito.mock(MessageConsumer.class);
+        Deque<Message> available = new ArrayDeque<>();
+        List<Message> messages = new ArrayList<>();
+        List<List<AuditEvent>> batches = Collections.synchronizedList(new ArrayList<>());
+        int failures;
+        Runnable onFailure = () -> { };
+        Runnable onEmpty = () -> { };
+        AuditEventIngester.Sink sink = auditEvents -> {
+            if (failures-- > 0) {
+                onFailure.run();
+                throw new IllegalStateException("Test");
+            }
+            batches.add(auditEvents);
+        };
+
+        AuditEventIngesterArgs(String... ids) {
+            try {
+                when(connectionFactory.createConnection()).thenReturn(connection);
+                when(connection.createSession(false, Session.CLIENT_ACKNOWLEDGE)).thenReturn(session);
+                when(session.createQueue(TestData.DESTINATION_NAME)).thenReturn(queue);
+                when(session.createConsumer(queue)).thenReturn(consumer);
+                when(consumer.receive(anyLong())).thenAnswer(iom -> next());
+                when(consumer.receiveNoWait()).thenAnswer(iom -> next());
+            } catch (JMSException ex) {
+                throw new IllegalStateException(ex);
+            }
+
+            for (String id : ids) {
+                add(createMessage(createAuditEvent(id).toJson()));
+            }
+        }
+
+        void add(Message message) {
+            available.add(message);
+            messages.add(message);
+        }
+
+        private Message next() {
+            if (available.isEmpty()) {
+                onEmpty.run();
+            }
+            return available.poll();
+        }
+    }
+}
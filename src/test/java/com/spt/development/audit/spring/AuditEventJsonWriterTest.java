@@ -0,0 +1,154 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonSerializer;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class AuditEventJsonWriterTest {
+    private static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(
+                    Instant.class,
+                    (JsonSerializer<Instant>) (src, typeOfSrc, context) ->
+                            new JsonPrimitive(ISO_OFFSET_DATE_TIME.format(src.atOffset(ZoneOffset.UTC)))
+            )
+            .create();
+
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "30f6f97d-6956-485b-b7e7-a6c689a3d6dd";
+        static final String ID = "100";
+        static final String DETAILS = "{\"name\":\"<Tom & Jerry's>\",\"path\":\"C:\\\\temp\",\"a=b\":\"\\n\\t\"}";
+        static final String USER_ID = "987";
+        static final String USERNAME = "tester@testing-times.com";
+        static final String ORIGINATING_IP = "127.0.0.1";
+        static final String SERVICE_ID = "testService";
+        static final String SERVICE_VERSION = "1.0.1";
+        static final String SERVER_HOST_NAME = "localhost";
+        static final String OTHER_SERVER_HOST_NAME = "otherhost";
+        static final String CONTROL_CHARS = "\u0000\u0001\b\f\n\r\t\u001f\u007f\u2028\u2029\u00e9\"\\";
+        static final OffsetDateTime CREATED = OffsetDateTime.of(2020, 7, 19, 15, 29, 17, 123_000_000, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final String CHAIN_HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    }
+
+    @Test
+    void toJson_allFields_shouldReturnSameJsonAsGson() {
+        final AuditEvent auditEvent = createAuditEvent(TestData.SERVER_HOST_NAME);
+
+        assertThat(AuditEventJsonWriter.toJson(auditEvent), is(GSON.toJson(auditEvent)));
+    }
+
+    @Test
+    void toJson_nullFields_shouldOmitNullFieldsLikeGson() {
+        final AuditEvent auditEvent = AuditEvent.builder().subType(TestData.SUB_TYPE).serverHostName(TestData.SERVER_HOST_NAME).build();
+
+        assertThat(AuditEventJsonWriter.toJson(auditEvent), is(GSON.toJson(auditEvent)));
+    }
+
+    @Test
+    void toJson_noFields_shouldReturnEmptyObject() {
+        assertThat(AuditEventJsonWriter.toJson(AuditEvent.builder().build()), is("{}"));
+    }
+
+    @Test
+    void toJson_onlyCreated_shouldReturnSameJsonAsGson() {
+        final AuditEvent auditEvent = AuditEvent.builder().created(TestData.CREATED).build();
+
+        assertThat(AuditEventJsonWriter.toJson(auditEvent), is(GSON.toJson(auditEvent)));
+    }
+
+    @Test
+    void toJson_charactersRequiringEscaping_shouldReturnSameJsonAsGson() {
+        final AuditEvent auditEvent = AuditEvent.builder()
+                .type(TestData.CONTROL_CHARS)
+                .serviceId(TestData.CONTROL_CHARS)
+                .build();
+
+        assertThat(AuditEventJsonWriter.toJson(auditEvent), is(GSON.toJson(auditEvent)));
+    }
+
+    @Test
+    void toJson_auditEvent_shouldRoundTripThroughFromJson() {
+        final AuditEvent auditEvent = createAuditEvent(TestData.SERVER_HOST_NAME);
+
+        assertThat(AuditEvent.fromJson(AuditEventJsonWriter.toJson(auditEvent)), is(auditEvent));
+    }
+
+    @Test
+    void serviceFields_sameServiceFields_shouldReuseEncodedServiceFields() {
+        final AuditEventJsonWriter.ServiceFields result = AuditEventJsonWriter.serviceFields(
+                createAuditEvent(TestData.SERVER_HOST_NAME)
+        );
+
+        assertThat(AuditEventJsonWriter.serviceFields(createAuditEvent(new String(TestData.SERVER_HOST_NAME))), is(sameInstance(result)));
+    }
+
+    @Test
+    void serviceFields_differentServiceFields_shouldEncodeNewServiceFields() {
+        final AuditEventJsonWriter.ServiceFields result = AuditEventJsonWriter.serviceFields(
+                createAuditEvent(TestData.SERVER_HOST_NAME)
+        );
+
+        assertThat(AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.OTHER_SERVER_HOST_NAME)), is(not(sameInstance(result))));
+        assertThat(
+                AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.SERVER_HOST_NAME).toBuilder().serviceVersion(null).build()),
+                is(not(sameInstance(result)))
+        );
+        assertThat(
+                AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.SERVER_HOST_NAME).toBuilder().serviceId(null).build()),
+                is(not(sameInstance(result)))
+        );
+    }
+
+    @Test
+    void serviceFields_interleavedServiceFields_shouldReuseEncodedServiceFieldsOfEach() {
+        final AuditEventJsonWriter.ServiceFields result = AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.SERVER_HOST_NAME));
+        final AuditEventJsonWriter.ServiceFields other = AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.OTHER_SERVER_HOST_NAME));
+
+        assertThat(AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.SERVER_HOST_NAME)), is(sameInstance(result)));
+        assertThat(AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.OTHER_SERVER_HOST_NAME)), is(sameInstance(other)));
+    }
+
+    @Test
+    void serviceFields_cacheFull_shouldStillEncodeServiceFields() {
+        for (int i = 0; i <= AuditEventJsonWriter.MAX_CACHED_SERVICE_FIELDS; i++) {
+            AuditEventJsonWriter.serviceFields(createAuditEvent(TestData.SERVER_HOST_NAME + i));
+        }
+
+        final AuditEvent auditEvent = createAuditEvent(TestData.OTHER_SERVER_HOST_NAME);
+
+        assertThat(AuditEvent.fromJson(AuditEventJsonWriter.toJson(auditEvent)), is(auditEvent));
+    }
+
+    private static AuditEvent createAuditEvent(String serverHostName) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(TestData.ID)
+                .details(TestData.DETAILS)
+                .userId(TestData.USER_ID)
+                .username(TestData.USERNAME)
+                .originatingIP(TestData.ORIGINATING_IP)
+                .serviceId(TestData.SERVICE_ID)
+                .serviceVersion(TestData.SERVICE_VERSION)
+                .serverHostName(serverHostName)
+                .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
+                .chainHash(TestData.CHAIN_HASH)
+                .build();
+    }
+}
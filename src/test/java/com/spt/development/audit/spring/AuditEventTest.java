@@ -10,6 +10,8 @@ import java.util.Collections;
 import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 class AuditEventTest {
@@ -28,6 +30,7 @@ class AuditEventTest {
         static final String SERVICE_VERSION = "1.0.1";
         static final String SERVER_HOST_NAME = "localhost";
         static final OffsetDateTime CREATED = OffsetDateTime.of(2020, 7, 19, 15, 29, 17, 0, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
     }
 
     @Test
@@ -37,6 +40,45 @@ class AuditEventTest {
         assertThat(result, is(createAuditEvent()));
     }
 
+    @Test
+    void toJson_calledMultipleTimes_shouldReturnSameJson() {
+        final AuditEvent target = createAuditEvent();
+
+        final String result = target.toJson();
+
+        assertThat(result, is(sameInstance(target.toJson())));
+        assertThat(target, is(createAuditEvent()));
+    }
+
+    @Test
+    void getCreated_createdWithOffset_shouldReturnCreatedInUtc() {
+        final AuditEvent target = AuditEvent.builder()
+                .created(TestData.CREATED.withOffsetSameInstant(ZoneOffset.ofHours(2)))
+                .build();
+
+        assertThat(target.getCreated(), is(TestData.CREATED));
+        assertThat(target.getCreated().getOffset(), is(ZoneOffset.UTC));
+        assertThat(target.getCreatedInstant(), is(TestData.CREATED.toInstant()));
+        assertThat(target, is(AuditEvent.builder().created(TestData.CREATED).build()));
+    }
+
+    @Test
+    void getCreated_createdWithInstant_shouldReturnCreatedInUtc() {
+        final AuditEvent target = AuditEvent.builder().createdInstant(TestData.CREATED.toInstant()).build();
+
+        assertThat(target.getCreated(), is(TestData.CREATED));
+        assertThat(target, is(createAuditEvent().toBuilder().type(null).subType(null).correlationId(null).id(null).details(null)
+                .userId(null).username(null).originatingIP(null).serviceId(null).serviceVersion(null).serverHostName(null).eventId(null).build()));
+    }
+
+    @Test
+    void getCreated_noCreated_shouldReturnNull() {
+        final AuditEvent target = AuditEvent.builder().created(null).build();
+
+        assertThat(target.getCreated(), is(nullValue()));
+        assertThat(target.getCreatedInstant(), is(nullValue()));
+    }
+
     private AuditEvent createAuditEvent() {
         return AuditEvent.builder()
                 .type(TestData.TYPE)
@@ -51,6 +93,7 @@ class AuditEventTest {
                 .serviceVersion(TestData.SERVICE_VERSION)
                 .serverHostName(TestData.SERVER_HOST_NAME)
                 .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
                 .build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,45 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class AuditEventWriterTest {
+
+    @Test
+    void writeAll_multipleAuditEvents_shouldWriteEachAuditEventInOrder() {
+        final List<AuditEvent> written = new ArrayList<>();
+        final AuditEventWriter target = written::add;
+        final List<AuditEvent> auditEvents = List.of(
+                AuditEvent.builder().id("1").build(), AuditEvent.builder().id("2").build()
+        );
+
+        target.writeAll(auditEvents);
+
+        assertThat(written, is(auditEvents));
+    }
+
+    @Test
+    void writeDeferred_multipleAuditEvents_shouldBuildAndWriteAuditEventsImmediately() {
+        final List<AuditEvent> written = new ArrayList<>();
+        final AuditEventWriter target = written::add;
+        final List<AuditEvent> auditEvents = List.of(
+                AuditEvent.builder().id("1").build(), AuditEvent.builder().id("2").build()
+        );
+
+        target.writeDeferred(() -> auditEvents);
+
+        assertThat(written, is(auditEvents));
+    }
+
+    @Test
+    void isDiscarding_default_shouldReturnFalse() {
+        final AuditEventWriter target = auditEvent -> {};
+
+        assertThat(target.isDiscarding(), is(false));
+    }
+}
@@ -0,0 +1,294 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.cid.CorrelationId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CompositeAuditEventWriterTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "d6a4c2c8-3c53-4bd4-9e6e-8c3f0b6b2a11";
+        static final String ID = "100";
+        static final Duration TIMEOUT = Duration.ofSeconds(5);
+        static final Duration SHORT_TIMEOUT = Duration.ofMillis(50);
+    }
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setUp() {
+        CorrelationId.set(TestData.CORRELATION_ID);
+
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+
+        CorrelationId.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEvent_shouldWriteAuditEventToAllWriters(boolean includeCorrelationIdInLogs) {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(includeCorrelationIdInLogs);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.writer1).write(auditEvent);
+        verify(args.writer2).write(auditEvent);
+    }
+
+    @Test
+    void write_validAuditEvent_shouldShareSerializedAuditEventWithAllWriters() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent();
+        final String[] json = new String[2];
+
+        doAnswer(iom -> json[0] = iom.getArgument(0, AuditEvent.class).toJson()).when(args.writer1).write(any());
+        doAnswer(iom -> json[1] = iom.getArgument(0, AuditEvent.class).toJson()).when(args.writer2).write(any());
+
+        createWriter(args).write(auditEvent);
+
+        assertThat(json[0], is(notNullValue()));
+        assertThat(json[0], is(sameInstance(json[1])));
+    }
+
+    @Test
+    void write_validAuditEventInActiveTransaction_shouldNotWriteAuditEventUntilTransactionCommits() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(true);
+
+        createWriter(args).write(createAuditEvent());
+
+        verify(args.transactionSyncManFacade).register(any(TransactionSynchronization.class));
+        verify(args.writer1, never()).write(any());
+        verify(args.writer2, never()).write(any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_writerFails_shouldStillWriteToOtherWriters(boolean includeCorrelationIdInLogs) {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(includeCorrelationIdInLogs);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doThrow(new IllegalStateException("Test")).when(args.writer1).write(any());
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.writer2).write(auditEvent);
+    }
+
+    @Test
+    void write_writerFails_shouldLogError() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+
+        doThrow(new IllegalStateException("Test")).when(args.writer1).write(any());
+
+        verifyErrorLogging(
+                CompositeAuditEventWriter.class,
+                () -> {
+                    createWriter(args).write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event with",
+                "type=" + TestData.TYPE,
+                "subType=" + TestData.SUB_TYPE
+        );
+    }
+
+    @Test
+    void write_writerTimesOut_shouldStillWriteToOtherWritersAndLogError() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(false);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doAnswer(iom -> latch.await(TestData.TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).when(args.writer1).write(any());
+
+        verifyErrorLogging(
+                CompositeAuditEventWriter.class,
+                () -> {
+                    createWriter(args, TestData.SHORT_TIMEOUT).write(auditEvent);
+                    return null;
+                },
+                "Timed out writing audit event with",
+                "type=" + TestData.TYPE,
+                "subType=" + TestData.SUB_TYPE
+        );
+
+        verify(args.writer2).write(auditEvent);
+
+        latch.countDown();
+    }
+
+    @Test
+    void write_interrupted_shouldRestoreInterruptedFlagAndLogError() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        doAnswer(iom -> latch.await(TestData.TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).when(args.writer1).write(any());
+
+        final CompositeAuditEventWriter target = createWriter(args);
+
+        verifyErrorLogging(
+                CompositeAuditEventWriter.class,
+                () -> {
+                    Thread.currentThread().interrupt();
+                    target.write(createAuditEvent());
+
+                    assertThat(Thread.interrupted(), is(true));
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Interrupted whilst writing audit event with"
+        );
+
+        latch.countDown();
+    }
+
+    @Test
+    void writeAll_validAuditEvents_shouldWriteAllAuditEventsToEachWriterInOneGo() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+        final List<AuditEvent> auditEvents = List.of(createAuditEvent(), createAuditEvent());
+
+        createWriter(args).writeAll(auditEvents);
+
+        verify(args.writer1).writeAll(auditEvents);
+        verify(args.writer2).writeAll(auditEvents);
+        verify(args.writer1, never()).write(any());
+        verify(args.writer2, never()).write(any());
+    }
+
+    @Test
+    void writeAll_writerFails_shouldLogErrorForEachAuditEvent() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+        final List<AuditEvent> auditEvents = List.of(createAuditEvent(), createAuditEvent());
+
+        doThrow(new IllegalStateException("Test")).when(args.writer1).writeAll(any());
+
+        verifyErrorLogging(
+                CompositeAuditEventWriter.class,
+                () -> {
+                    createWriter(args).writeAll(auditEvents);
+                    return null;
+                },
+                "Failed to write audit event with"
+        );
+
+        verify(args.writer2).writeAll(auditEvents);
+    }
+
+    @Test
+    void write_executionRejected_shouldLogErrorAndWaitForWritersAlreadySubmitted() {
+        final CompositeAuditEventWriterArgs args = new CompositeAuditEventWriterArgs(true);
+        final ExecutorService rejectingExecutorService = Mockito.mock(ExecutorService.class);
+        final AtomicBoolean written = new AtomicBoolean();
+        final CompositeAuditEventWriter target = new CompositeAuditEventWriter(
+                args.includeCorrelationIdInLogs, rejectingExecutorService, TestData.TIMEOUT, new DefaultCorrelationIdProvider(),
+                args.transactionSyncManFacade
+        )
+                .withWriter(args.writer1)
+                .withWriter(args.writer2);
+
+        when(rejectingExecutorService.submit(any(Runnable.class)))
+                .thenAnswer(iom -> executorService.submit(iom.getArgument(0, Runnable.class)))
+                .thenThrow(new RejectedExecutionException("Test"));
+
+        doAnswer(iom -> {
+            Thread.sleep(TestData.SHORT_TIMEOUT.toMillis());
+            written.set(true);
+            return null;
+        }).when(args.writer1).write(any());
+
+        verifyErrorLogging(
+                CompositeAuditEventWriter.class,
+                () -> {
+                    target.write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to schedule write of audit event with",
+                "type=" + TestData.TYPE
+        );
+
+        assertThat(written.get(), is(true));
+
+        verify(args.writer2, never()).write(any());
+    }
+
+    @Test
+    void constructor_defaultConstructor_shouldCreateNewInstanceWithTransactionSyncManFacade() {
+        final CompositeAuditEventWriter result = new CompositeAuditEventWriter(executorService, TestData.TIMEOUT);
+
+        final Object transactionSyncManFacade = ReflectionTestUtils.getField(result, "transactionSyncManFacade");
+
+        assertThat(transactionSyncManFacade, is(notNullValue()));
+        assertThat(transactionSyncManFacade, instanceOf(TransactionSyncManFacade.class));
+    }
+
+    private AuditEvent createAuditEvent() {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(TestData.ID)
+                .build();
+    }
+
+    private CompositeAuditEventWriter createWriter(CompositeAuditEventWriterArgs args) {
+        return createWriter(args, TestData.TIMEOUT);
+    }
+
+    private CompositeAuditEventWriter createWriter(CompositeAuditEventWriterArgs args, Duration writer1Timeout) {
+        return new CompositeAuditEventWriter(
+                args.includeCorrelationIdInLogs, executorService, TestData.TIMEOUT, new DefaultCorrelationIdProvider(),
+                args.transactionSyncManFacade
+        )
+                .withWriter(args.writer1, writer1Timeout)
+                .withWriter(args.writer2);
+    }
+
+    private static class CompositeAuditEventWriterArgs {
+        boolean includeCorrelationIdInLogs;
+        AuditEventWriter writer1 = Mockito.mock(AuditEventWriter.class);
+        AuditEventWriter writer2 = Mockito.mock(AuditEventWriter.class);
+        TransactionSyncManFacade transactionSyncManFacade = Mockito.mock(TransactionSyncManFacade.class);
+
+        CompositeAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
+            this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+        }
+    }
+}
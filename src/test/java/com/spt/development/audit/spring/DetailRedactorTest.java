@@ -0,0 +1,249 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.stream.JsonWriter;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class DetailRedactorTest {
+    private static final class TestData {
+        static final String EMAIL = "tom.jerry@testing-times.co.uk";
+        static final String CARD_NUMBER = "4111 1111 1111 1111";
+        static final String NAME = "Tom & Jerry";
+        static final float FLOAT = 1.5f;
+        static final double DOUBLE = 2.5d;
+        static final long LONG = 3L;
+        static final long CARD_NUMBER_LONG = 4111111111111111L;
+        static final int INT = 123;
+        static final short SHORT = 456;
+        static final byte BYTE = 100;
+        static final String BIG_INTEGER = "41111111111111111111";
+        static final BigDecimal NUMBER = new BigDecimal("4.5");
+        static final int DEPTH = 10;
+    }
+
+    @Test
+    void toJson_maskedPatterns_shouldMaskMatchingPartsOfStrings() {
+        final DetailSerializers target = new DetailSerializers().withRedactor(
+                new DetailRedactor().withMaskedPatterns(DetailRedactor.EMAIL_ADDRESS, DetailRedactor.PAYMENT_CARD_NUMBER)
+        );
+
+        final String result = target.toJson(
+                Map.of("contact", "Email " + TestData.EMAIL + " or pay with " + TestData.CARD_NUMBER, "name", TestData.NAME)
+        );
+
+        assertThat(result.contains("\"contact\":\"Email ****** or pay with ******\""), is(true));
+        assertThat(result.contains("\"name\":\"Tom \\u0026 Jerry\""), is(true));
+    }
+
+    @Test
+    void toJson_maskedPatterns_shouldMaskMatchingNumbers() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(AllTokens.class, DetailRedactorTest::writeAllTokens)
+                .withRedactor(new DetailRedactor().withMaskedPatterns(DetailRedactor.PAYMENT_CARD_NUMBER));
+
+        final String result = target.toJson(
+                Map.of("long", TestData.CARD_NUMBER_LONG, "bigInteger", new BigInteger(Long.toString(TestData.CARD_NUMBER_LONG)))
+        );
+
+        assertThat(result.contains("\"long\":\"******\""), is(true));
+        assertThat(result.contains("\"bigInteger\":\"******\""), is(true));
+        assertThat(
+                target.toJson(new AllTokens()),
+                is("{\"string\":\"Tom \\u0026 Jerry\",\"boolean\":true,\"boxedBoolean\":false,\"float\":1.5,\"double\":2.5,\"long\":3,"
+                        + "\"number\":4.5,\"json\":{\"a\":1},\"array\":[\"x\"],\"object\":{\"inner\":[\"y\"]}}")
+        );
+    }
+
+    @Test
+    void toJson_paymentCardNumberPattern_shouldWriteNumbersThatCannotMatchUnchanged() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRedactor(new DetailRedactor().withMaskedPatterns(DetailRedactor.PAYMENT_CARD_NUMBER));
+
+        final String result = target.toJson(
+                Map.of("int", TestData.INT, "bigInteger", new BigInteger(TestData.BIG_INTEGER), "double", TestData.DOUBLE)
+        );
+
+        assertThat(result.contains("\"int\":" + TestData.INT), is(true));
+        assertThat(result.contains("\"bigInteger\":" + TestData.BIG_INTEGER), is(true));
+        assertThat(result.contains("\"double\":" + TestData.DOUBLE), is(true));
+    }
+
+    @Test
+    void toJson_paymentCardNumberPatternAndBoxedIntegralNumbers_shouldOnlyMaskMatchingNumbers() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(BoxedNumbers.class, (out, value) -> out.beginObject()
+                        .name("long").value((Number) TestData.CARD_NUMBER_LONG)
+                        .name("negative").value((Number) (-TestData.CARD_NUMBER_LONG))
+                        .name("int").value((Number) TestData.INT)
+                        .endObject())
+                .withRedactor(new DetailRedactor().withMaskedPatterns(DetailRedactor.PAYMENT_CARD_NUMBER));
+
+        assertThat(
+                target.toJson(new BoxedNumbers()),
+                is("{\"long\":\"******\",\"negative\":\"-******\",\"int\":" + TestData.INT + "}")
+        );
+    }
+
+    @Test
+    void toJson_emailAddressPatternOnly_shouldWriteNumbersUnchanged() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(AllTokens.class, DetailRedactorTest::writeAllTokens)
+                .withRedactor(new DetailRedactor().withMaskedPatterns(DetailRedactor.EMAIL_ADDRESS));
+
+        assertThat(target.toJson(Map.of("long", TestData.CARD_NUMBER_LONG)), is("{\"long\":" + TestData.CARD_NUMBER_LONG + "}"));
+        assertThat(
+                target.toJson(new AllTokens()),
+                is("{\"string\":\"Tom \\u0026 Jerry\",\"boolean\":true,\"boxedBoolean\":false,\"float\":1.5,\"double\":2.5,\"long\":3,"
+                        + "\"number\":4.5,\"json\":{\"a\":1},\"array\":[\"x\"],\"object\":{\"inner\":[\"y\"]}}")
+        );
+    }
+
+    @Test
+    void toJson_otherMaskedPatterns_shouldMaskMatchingSmallIntegralNumbers() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRedactor(new DetailRedactor().withMaskedPatterns(Pattern.compile("\\d{3}")));
+
+        final String result = target.toJson(Map.of("int", TestData.INT, "short", TestData.SHORT, "byte", TestData.BYTE));
+
+        assertThat(result.contains("\"int\":\"******\""), is(true));
+        assertThat(result.contains("\"short\":\"******\""), is(true));
+        assertThat(result.contains("\"byte\":\"******\""), is(true));
+    }
+
+    @Test
+    void toJson_maskedPatternsMatchingFloatingPointNumbers_shouldMaskNumbers() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(AllTokens.class, DetailRedactorTest::writeAllTokens)
+                .withRedactor(new DetailRedactor().withMaskedPatterns(Pattern.compile("\\d\\.5")));
+
+        assertThat(
+                target.toJson(new AllTokens()),
+                is("{\"string\":\"Tom \\u0026 Jerry\",\"boolean\":true,\"boxedBoolean\":false,\"float\":\"******\",\"double\":\"******\","
+                        + "\"long\":3,\"number\":\"******\",\"json\":{\"a\":1},\"array\":[\"x\"],\"object\":{\"inner\":[\"y\"]}}")
+        );
+    }
+
+    @Test
+    void toJson_noMasks_shouldWriteAllTokensUnchanged() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(AllTokens.class, DetailRedactorTest::writeAllTokens)
+                .withRedactor(new DetailRedactor());
+
+        assertThat(
+                target.toJson(new AllTokens()),
+                is("{\"string\":\"Tom \\u0026 Jerry\",\"boolean\":true,\"boxedBoolean\":false,\"float\":1.5,\"double\":2.5,\"long\":3,"
+                        + "\"number\":4.5,\"json\":{\"a\":1},\"array\":[\"x\"],\"object\":{\"inner\":[\"y\"]}}")
+        );
+    }
+
+    @Test
+    void toJson_allTopLevelPathsMasked_shouldMaskAllNonNullValues() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(AllTokens.class, DetailRedactorTest::writeAllTokens)
+                .withRedactor(new DetailRedactor().withMaskedPaths("*"));
+
+        assertThat(
+                target.toJson(new AllTokens()),
+                is("{\"string\":\"******\",\"boolean\":\"******\",\"boxedBoolean\":\"******\",\"float\":\"******\",\"double\":\"******\","
+                        + "\"long\":\"******\",\"number\":\"******\",\"json\":\"******\",\"array\":\"******\",\"object\":\"******\"}")
+        );
+    }
+
+    @Test
+    void toJson_nestedMaskedPaths_shouldOnlyMaskValuesAtPaths() {
+        final DetailSerializers target = new DetailSerializers().withRedactor(
+                new DetailRedactor().withMaskedPaths("customer.email", "customer.cards.number", "*.name")
+        );
+
+        final Order order = new Order(
+                new Customer(TestData.NAME, TestData.EMAIL, List.of(new Card(TestData.CARD_NUMBER, "12/30"))),
+                new Customer(TestData.NAME, TestData.EMAIL, List.of(new Card(TestData.CARD_NUMBER, "12/30")))
+        );
+
+        assertThat(
+                target.toJson(order),
+                is("{\"customer\":{\"name\":\"******\",\"email\":\"******\",\"cards\":[{\"number\":\"******\",\"expiry\":\"12/30\"}]},"
+                        + "\"previousCustomer\":{\"name\":\"******\",\"email\":\"tom.jerry@testing-times.co.uk\","
+                        + "\"cards\":[{\"number\":\"4111 1111 1111 1111\",\"expiry\":\"12/30\"}]}}")
+        );
+    }
+
+    @Test
+    void toJson_deeplyNestedDetails_shouldWriteAllLevels() {
+        Object details = TestData.NAME;
+
+        for (int i = 0; i < TestData.DEPTH; i++) {
+            details = List.of(details);
+        }
+
+        final DetailSerializers target = new DetailSerializers().withRedactor(new DetailRedactor().withMaskedPatterns(DetailRedactor.EMAIL_ADDRESS));
+
+        assertThat(target.toJson(details), is("[".repeat(TestData.DEPTH) + "\"Tom \\u0026 Jerry\"" + "]".repeat(TestData.DEPTH)));
+    }
+
+    private static void writeAllTokens(JsonWriter out, AllTokens value) throws IOException {
+        out.beginObject()
+                .name("string").value(TestData.NAME)
+                .name("nullString").value((String) null)
+                .name("boolean").value(true)
+                .name("boxedBoolean").value(Boolean.FALSE)
+                .name("nullBoolean").value((Boolean) null)
+                .name("float").value(TestData.FLOAT)
+                .name("double").value(TestData.DOUBLE)
+                .name("long").value(TestData.LONG)
+                .name("number").value(TestData.NUMBER)
+                .name("nullNumber").value((Number) null)
+                .name("json").jsonValue("{\"a\":1}")
+                .name("nullJson").jsonValue(null)
+                .name("array").beginArray().value("x").endArray()
+                .name("object").beginObject().name("inner").beginArray().value("y").endArray().name("nullInner").nullValue().endObject()
+                .endObject();
+    }
+
+    private static final class AllTokens {
+    }
+
+    private static final class BoxedNumbers {
+    }
+
+    private static final class Card {
+        private final String number;
+        private final String expiry;
+
+        Card(String number, String expiry) {
+            this.number = number;
+            this.expiry = expiry;
+        }
+    }
+
+    private static final class Customer {
+        private final String name;
+        private final String email;
+        private final List<Card> cards;
+
+        Customer(String name, String email, List<Card> cards) {
+            this.name = name;
+            this.email = email;
+            this.cards = cards;
+        }
+    }
+
+    private static final class Order {
+        private final Customer customer;
+        private final Customer previousCustomer;
+
+        Order(Customer customer, Customer previousCustomer) {
+            this.customer = customer;
+            this.previousCustomer = previousCustomer;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.spt.development.audit.spring;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DetailSerializersTest {
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final class TestData {
+        static final String ID = "C-1";
+        static final String NAME = "Tom & Jerry";
+        static final String EMAIL = "tom@testing-times.com";
+        static final String PASSWORD = "secret";
+        static final int AGE = 42;
+        static final String ORDER_ID = "O-1";
+        static final String AMOUNT = "9.99 GBP";
+    }
+
+    @Test
+    void toJson_noRegistrations_shouldReturnSameJsonAsGson() {
+        final Order order = createOrder();
+        final Map<String, Object> details = Map.of("order", order);
+        final DetailSerializers target = new DetailSerializers();
+
+        assertThat(target.toJson(order), is(GSON.toJson(order)));
+        assertThat(target.toJson(details), is(GSON.toJson(details)));
+        assertThat(target.toJson(TestData.NAME), is(GSON.toJson(TestData.NAME)));
+        assertThat(target.toJson(null), is(GSON.toJson(null)));
+    }
+
+    @Test
+    void toJson_rulesWithoutAnyFieldsChanged_shouldReturnSameJsonAsGson() {
+        final Customer customer = createCustomer();
+
+        assertThat(new DetailSerializers().withRules(Customer.class, new DetailSerializers.Rules()).toJson(customer), is(GSON.toJson(customer)));
+    }
+
+    @Test
+    void toJson_excludedAndMaskedFields_shouldWriteMaskedFieldsAndOmitExcludedFields() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRules(Customer.class, new DetailSerializers.Rules().exclude("password").mask("email", "name"));
+
+        final String result = target.toJson(new Customer(TestData.ID, null, TestData.EMAIL, TestData.PASSWORD, TestData.AGE));
+
+        assertThat(result, is("{\"id\":\"C-1\",\"email\":\"******\",\"age\":42}"));
+    }
+
+    @Test
+    void toJson_includedFields_shouldOnlyWriteIncludedFields() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRules(Customer.class, new DetailSerializers.Rules().include("id", "name", "password").exclude("password"));
+
+        assertThat(target.toJson(createCustomer()), is("{\"id\":\"C-1\",\"name\":\"Tom \\u0026 Jerry\"}"));
+    }
+
+    @Test
+    void toJson_rulesForNestedAndSubtypeValues_shouldApplyRulesToAllValuesOfType() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRules(Customer.class, new DetailSerializers.Rules().include("id"));
+
+        final Order order = new Order(
+                TestData.ORDER_ID, createCustomer(), Arrays.asList(new PremiumCustomer(TestData.ID), null), new PremiumCustomer(TestData.ID), null
+        );
+
+        assertThat(
+                target.toJson(order),
+                is("{\"id\":\"O-1\",\"customer\":{\"id\":\"C-1\"},\"previousCustomers\":[{\"id\":\"C-1\"},null],\"other\":{\"id\":\"C-1\"}}")
+        );
+    }
+
+    @Test
+    void toJson_rulesForTypeWithSubtypeFieldValues_shouldWriteFieldsWithRuntimeTypes() {
+        final DetailSerializers target = new DetailSerializers()
+                .withRules(Customer.class, new DetailSerializers.Rules().include("id"))
+                .withRules(Order.class, new DetailSerializers.Rules().mask("price"));
+
+        final Order order = new Order(
+                TestData.ORDER_ID, createCustomer(), Arrays.asList(new PremiumCustomer(TestData.ID), null), new PremiumCustomer(TestData.ID), new Price()
+        );
+
+        assertThat(
+                target.toJson(order),
+                is("{\"id\":\"O-1\",\"customer\":{\"id\":\"C-1\"},\"previousCustomers\":[{\"id\":\"C-1\"},null],\"other\":{\"id\":\"C-1\"},"
+                        + "\"price\":\"******\"}")
+        );
+    }
+
+    @Test
+    void toJson_serializerRegisteredForInterface_shouldWriteValuesWithSerializer() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(Priced.class, (out, value) -> out.value(value.getPrice()));
+
+        assertThat(
+                target.toJson(new Order(TestData.ORDER_ID, null, List.of(), null, new Price())),
+                is("{\"id\":\"O-1\",\"previousCustomers\":[],\"price\":\"9.99 GBP\"}")
+        );
+        assertThat(target.toJson(new Price()), is("\"9.99 GBP\""));
+    }
+
+    @Test
+    void toJson_serializerThrowsIoException_shouldThrowUncheckedIoException() {
+        final DetailSerializers target = new DetailSerializers()
+                .withSerializer(Price.class, (out, value) -> {
+                    throw new IOException("Failed");
+                });
+        final Price price = new Price();
+
+        final UncheckedIOException result = assertThrows(UncheckedIOException.class, () -> target.toJson(price));
+
+        assertThat(result.getCause().getMessage(), is("Failed"));
+    }
+
+    @Test
+    void withRules_unknownField_shouldThrowException() {
+        final DetailSerializers target = new DetailSerializers();
+        final DetailSerializers.Rules rules = new DetailSerializers.Rules().mask("unknown");
+
+        final IllegalArgumentException result = assertThrows(IllegalArgumentException.class, () -> target.withRules(Customer.class, rules));
+
+        assertThat(
+                result.getMessage(),
+                is("Programming error: detail rules for " + Customer.class + " refer to field: 'unknown', which does not exist")
+        );
+    }
+
+    @Test
+    void withRules_rulesChangedAfterRegistration_shouldNotAffectRegisteredRules() {
+        final DetailSerializers.Rules rules = new DetailSerializers.Rules().include("id");
+        final DetailSerializers target = new DetailSerializers().withRules(Customer.class, rules);
+
+        rules.include("name");
+
+        assertThat(target.toJson(createCustomer()), is("{\"id\":\"C-1\"}"));
+    }
+
+    @Test
+    void read_registeredType_shouldThrowException() {
+        final Gson gson = (Gson) ReflectionTestUtils.getField(
+                new DetailSerializers().withRules(Customer.class, new DetailSerializers.Rules()), "gson"
+        );
+
+        assertThrows(UnsupportedOperationException.class, () -> gson.fromJson("{}", Customer.class));
+    }
+
+    private static Customer createCustomer() {
+        return new Customer(TestData.ID, TestData.NAME, TestData.EMAIL, TestData.PASSWORD, TestData.AGE);
+    }
+
+    private static Order createOrder() {
+        return new Order(TestData.ORDER_ID, createCustomer(), List.of(), null, new Price());
+    }
+
+    private interface Priced {
+        String getPrice();
+    }
+
+    private static final class Price implements Priced {
+
+        @Override
+        public String getPrice() {
+            return TestData.AMOUNT;
+        }
+    }
+
+    private static class Customer {
+        private static final String TYPE = "CUSTOMER";
+
+        private final String id;
+        private final String name;
+        private final String email;
+        private final String password;
+        private final int age;
+        private transient boolean loaded;
+
+        Customer(String id, String name, String email, String password, int age) {
+            this.id = id;
+            this.name = name;
+            this.email = email;
+            this.password = password;
+            this.age = age;
+        }
+    }
+
+    private static final class PremiumCustomer extends Customer {
+
+        PremiumCustomer(String id) {
+            super(id, TestData.NAME, TestData.EMAIL, TestData.PASSWORD, TestData.AGE);
+        }
+    }
+
+    private static final class Order {
+        private final String id;
+        private final Customer customer;
+        private final List<Customer> previousCustomers;
+        private final Object other;
+        private final Priced price;
+
+        Order(String id, Customer customer, List<Customer> previousCustomers, Object other, Priced price) {
+            this.id = id;
+            this.customer = customer;
+            this.previousCustomers = previousCustomers;
+            this.other = other;
+            this.price = price;
+        }
+    }
+}
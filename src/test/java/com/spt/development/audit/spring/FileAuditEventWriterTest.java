@@ -0,0 +1,484 @@
+package com.spt.development.audit.spring;
+
+import ch.qos.logback.classic.Level;
+import com.spt.development.cid.CorrelationId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyLogging;
+import static com.spt.development.test.LogbackUtil.verifyWarnLogging;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileAuditEventWriterTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "5c3d8a1e-0b7f-4e4a-9f2d-6a1b2c3d4e5f";
+        static final String FILE_NAME = "audit.log";
+        static final Instant NOW = Instant.parse("2020-07-19T15:29:17.123Z");
+        static final String ROLLED_FILE_NAME = "audit-20200719T152917123.log";
+        static final Duration INTERVAL = Duration.ofMinutes(1);
+        static final long TIMEOUT_SECONDS = 10;
+    }
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        CorrelationId.set(TestData.CORRELATION_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CorrelationId.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEvent_shouldAppendAuditEventAsJsonLine(boolean includeCorrelationIdInLogs) throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(includeCorrelationIdInLogs);
+
+        try (FileAuditEventWriter target = createWriter(args)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson(), createAuditEvent("2").toJson())));
+        }
+    }
+
+    @Test
+    void write_existingFile_shouldAppendToFile() throws IOException {
+        Files.writeString(file(), createAuditEvent("1").toJson() + "\n");
+
+        try (FileAuditEventWriter target = new FileAuditEventWriter(file())) {
+            target.write(createAuditEvent("2"));
+        }
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson(), createAuditEvent("2").toJson())));
+    }
+
+    @Test
+    void write_validAuditEventInActiveTransaction_shouldNotWriteAuditEventUntilTransactionCommits() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(true);
+
+        try (FileAuditEventWriter target = createWriter(args)) {
+            target.write(createAuditEvent("1"));
+
+            final ArgumentCaptor<TransactionSynchronization> syncCaptor = ArgumentCaptor.forClass(TransactionSynchronization.class);
+
+            verify(args.transactionSyncManFacade).register(syncCaptor.capture());
+
+            assertThat(Files.exists(file()), is(false));
+
+            syncCaptor.getValue().afterCommit();
+        }
+
+        assertThat(readLines(file()).size(), is(1));
+    }
+
+    @Test
+    void write_auditEventLargerThanBuffer_shouldWriteAuditEventDirectly() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args).withBufferSize(16)) {
+            target.write(createAuditEvent("1"));
+        }
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson())));
+    }
+
+    @Test
+    void write_maxFileSizeExceeded_shouldRolloverFile() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args).withMaxFileSize(1)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+            target.write(createAuditEvent("3"));
+        }
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("3").toJson())));
+        assertThat(readLines(directory.resolve(TestData.ROLLED_FILE_NAME)), is(List.of(createAuditEvent("1").toJson())));
+        assertThat(readLines(directory.resolve("audit-20200719T152917123-1.log")), is(List.of(createAuditEvent("2").toJson())));
+    }
+
+    @Test
+    void write_rolloverIntervalElapsed_shouldRolloverFile() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args).withRolloverInterval(TestData.INTERVAL)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            assertThat(listFiles(), is(List.of(TestData.FILE_NAME)));
+
+            when(args.clock.instant()).thenReturn(TestData.NOW.plus(TestData.INTERVAL));
+
+            target.write(createAuditEvent("3"));
+        }
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("3").toJson())));
+        assertThat(readLines(directory.resolve("audit-20200719T153017123.log")).size(), is(2));
+    }
+
+    @Test
+    void write_fileWithoutExtensionRolledOver_shouldAppendTimestampToFileName() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = new FileAuditEventWriter(
+                true, directory.resolve("audit"), new DefaultCorrelationIdProvider(), args.transactionSyncManFacade, args.clock
+        ).withMaxFileSize(1)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+        }
+
+        assertThat(listFiles(), is(List.of("audit", "audit-20200719T152917123")));
+    }
+
+    @Test
+    void write_gzipRolledFiles_shouldCompressRolledFileInBackground() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args).withMaxFileSize(1).withGzipRolledFiles()) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+        }
+
+        assertThat(ForkJoinPool.commonPool().awaitQuiescence(TestData.TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+        assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME + ".gz", TestData.FILE_NAME)));
+    }
+
+    @Test
+    void write_gzipRolledFilesWithExecutor_shouldCompressRolledFileOnExecutor() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+        final Executor executor = Mockito.mock(Executor.class);
+
+        try (FileAuditEventWriter target = createWriter(args).withMaxFileSize(1).withGzipRolledFiles(executor)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME, TestData.FILE_NAME)));
+
+            final ArgumentCaptor<Runnable> gzipCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            verify(executor).execute(gzipCaptor.capture());
+
+            gzipCaptor.getValue().run();
+        }
+
+        assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME + ".gz", TestData.FILE_NAME)));
+        assertThat(readGzipLines(directory.resolve(TestData.ROLLED_FILE_NAME + ".gz")), is(List.of(createAuditEvent("1").toJson())));
+    }
+
+    @Test
+    void write_gzipRolledFilesWithGroupCommit_shouldCompressRolledFileOnScheduledExecutorService() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args)
+                .withMaxFileSize(1)
+                .withGzipRolledFiles()
+                .withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL)) {
+
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME, TestData.FILE_NAME)));
+
+            final ArgumentCaptor<Runnable> gzipCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            verify(args.scheduledExecutorService).execute(gzipCaptor.capture());
+
+            gzipCaptor.getValue().run();
+        }
+
+        assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME + ".gz", TestData.FILE_NAME)));
+    }
+
+    @Test
+    void write_gzipFails_shouldLogError() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args)
+                .withMaxFileSize(1)
+                .withGzipRolledFiles()
+                .withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL)) {
+
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            final ArgumentCaptor<Runnable> gzipCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            verify(args.scheduledExecutorService).execute(gzipCaptor.capture());
+
+            Files.delete(directory.resolve(TestData.ROLLED_FILE_NAME));
+
+            verifyErrorLogging(
+                    FileAuditEventWriter.class,
+                    () -> {
+                        gzipCaptor.getValue().run();
+                        return null;
+                    },
+                    "Failed to compress rolled over audit event file",
+                    TestData.ROLLED_FILE_NAME
+            );
+        }
+    }
+
+    @Test
+    void write_gzipRejected_shouldLogWarningAndLeaveRolledFileUncompressed() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+        final Executor executor = Mockito.mock(Executor.class);
+
+        doThrow(new RejectedExecutionException("Test")).when(executor).execute(any());
+
+        try (FileAuditEventWriter target = createWriter(args).withMaxFileSize(1).withGzipRolledFiles(executor)) {
+            target.write(createAuditEvent("1"));
+
+            verifyWarnLogging(
+                    FileAuditEventWriter.class,
+                    () -> {
+                        target.write(createAuditEvent("2"));
+                        return null;
+                    },
+                    "Failed to schedule compression of rolled over audit event file",
+                    TestData.ROLLED_FILE_NAME
+            );
+        }
+
+        assertThat(listFiles(), is(List.of(TestData.ROLLED_FILE_NAME, TestData.FILE_NAME)));
+    }
+
+    @Test
+    void write_groupCommitEnabled_shouldNotWriteAuditEventsUntilGroupCommit() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+
+        try (FileAuditEventWriter target = createWriter(args).withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL)) {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            assertThat(readLines(file()), is(List.of()));
+
+            args.groupCommit().run();
+
+            assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson(), createAuditEvent("2").toJson())));
+
+            verify(args.scheduledFuture, never()).cancel(false);
+        }
+
+        verify(args.scheduledFuture).cancel(false);
+    }
+
+    @Test
+    void withGroupCommit_calledTwice_shouldCancelExistingGroupCommit() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+        final ScheduledExecutorService otherScheduledExecutorService = Mockito.mock(ScheduledExecutorService.class);
+        final ScheduledFuture<?> otherScheduledFuture = Mockito.mock(ScheduledFuture.class);
+
+        doReturn(otherScheduledFuture).when(otherScheduledExecutorService).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+
+        try (FileAuditEventWriter target = createWriter(args).withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL)) {
+            target.withGroupCommit(otherScheduledExecutorService, TestData.INTERVAL);
+
+            verify(args.scheduledFuture).cancel(false);
+            verify(otherScheduledFuture, never()).cancel(false);
+        }
+
+        verify(otherScheduledFuture).cancel(false);
+    }
+
+    @Test
+    void write_groupCommitFails_shouldLogError() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+        final FileAuditEventWriter target = Mockito.spy(createWriter(args));
+
+        target.withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL);
+
+        doThrow(new IOException("Test")).when(target).flush();
+
+        verifyErrorLogging(
+                FileAuditEventWriter.class,
+                () -> {
+                    args.groupCommit().run();
+                    return null;
+                },
+                "Failed to commit audit events to",
+                TestData.FILE_NAME
+        );
+    }
+
+    @Test
+    void write_fileCannotBeOpened_shouldThrowUncheckedIOException() throws IOException {
+        Files.createDirectory(file());
+
+        try (FileAuditEventWriter target = createWriter(new FileAuditEventWriterArgs(true))) {
+            assertThrows(UncheckedIOException.class, () -> target.write(createAuditEvent("1")));
+        }
+    }
+
+    @Test
+    void write_writerClosed_shouldReopenFile() throws IOException {
+        final FileAuditEventWriter target = createWriter(new FileAuditEventWriterArgs(true));
+
+        target.write(createAuditEvent("1"));
+        target.close();
+        target.write(createAuditEvent("2"));
+        target.close();
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson(), createAuditEvent("2").toJson())));
+    }
+
+    @Test
+    void write_validAuditEvent_shouldDebugLogWithCorrelationId() throws IOException {
+        try (FileAuditEventWriter target = createWriter(new FileAuditEventWriterArgs(true))) {
+            verifyLogging(
+                    FileAuditEventWriter.class,
+                    () -> {
+                        target.write(createAuditEvent("1"));
+                        return null;
+                    },
+                    Level.DEBUG,
+                    "[" + TestData.CORRELATION_ID + "]",
+                    "Writing 1 audit events to"
+            );
+        }
+    }
+
+    @Test
+    void flush_writeFails_shouldKeepBufferedAuditEventsToWriteWithNextFlush() throws IOException {
+        final FileAuditEventWriterArgs args = new FileAuditEventWriterArgs(true);
+        final FileAuditEventWriter target = createWriter(args).withGroupCommit(args.scheduledExecutorService, TestData.INTERVAL);
+
+        target.write(createAuditEvent("1"));
+
+        final Object channel = ReflectionTestUtils.getField(target, "channel");
+        final FileChannel failingChannel = Mockito.mock(FileChannel.class);
+
+        when(failingChannel.write(any(ByteBuffer.class))).thenThrow(new IOException("Test"));
+
+        ReflectionTestUtils.setField(target, "channel", failingChannel);
+
+        assertThrows(IOException.class, target::flush);
+
+        ReflectionTestUtils.setField(target, "channel", channel);
+
+        target.write(createAuditEvent("2"));
+        target.close();
+
+        assertThat(readLines(file()), is(List.of(createAuditEvent("1").toJson(), createAuditEvent("2").toJson())));
+    }
+
+    @Test
+    void flush_nothingWritten_shouldNotCreateFile() {
+        final FileAuditEventWriter target = createWriter(new FileAuditEventWriterArgs(true));
+
+        assertDoesNotThrow(target::flush);
+        assertDoesNotThrow(target::close);
+        assertThat(Files.exists(file()), is(false));
+    }
+
+    private FileAuditEventWriter createWriter(FileAuditEventWriterArgs args) {
+        return new FileAuditEventWriter(
+                args.includeCorrelationIdInLogs, file(), new DefaultCorrelationIdProvider(), args.transactionSyncManFacade, args.clock
+        );
+    }
+
+    private Path file() {
+        return directory.resolve(TestData.FILE_NAME);
+    }
+
+    private List<String> listFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static List<String> readLines(Path file) throws IOException {
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> readGzipLines(Path file) throws IOException {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+        }
+    }
+
+    private AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(id)
+                .created(TestData.NOW.atOffset(ZoneOffset.UTC))
+                .build();
+    }
+
+    private static class FileAuditEventWriterArgs {
+        boolean includeCorrelationIdInLogs;
+        TransactionSyncManFacade transactionSyncManFacade = Mockito.mock(TransactionSyncManFacade.class);
+        Clock clock = Mockito.mock(Clock.class);
+        ScheduledExecutorService scheduledExecutorService = Mockito.mock(ScheduledExecutorService.class);
+        ScheduledFuture<?> scheduledFuture = Mockito.mock(ScheduledFuture.class);
+
+        FileAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
+            when(clock.instant()).thenReturn(TestData.NOW);
+            doReturn(scheduledFuture).when(scheduledExecutorService).scheduleWithFixedDelay(any(), anyLong(), anyLong(), any());
+
+            this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+        }
+
+        Runnable groupCommit() {
+            final ArgumentCaptor<Runnable> groupCommitCaptor = ArgumentCaptor.forClass(Runnable.class);
+
+            verify(scheduledExecutorService).scheduleWithFixedDelay(
+                    groupCommitCaptor.capture(), eq(TestData.INTERVAL.toNanos()), eq(TestData.INTERVAL.toNanos()), eq(TimeUnit.NANOSECONDS)
+            );
+            return groupCommitCaptor.getValue();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyWarnLogging;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HashChainAuditEventWriterTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String PREVIOUS_CHAIN_HASH = "a".repeat(64);
+        static final int CHECKPOINT_INTERVAL = 2;
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEvents_shouldWriteChainedAuditEventsToDelegate(boolean includeCorrelationIdInLogs) {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(includeCorrelationIdInLogs);
+        final HashChainAuditEventWriter target = createWriter(args);
+
+        target.write(createAuditEvent("1"));
+        target.write(createAuditEvent("2"));
+
+        final List<AuditEvent> written = captureAuditEvents(args, 2);
+        final String chainHash1 = HashChain.next(HashChain.GENESIS, createAuditEvent("1").toJson());
+        final String chainHash2 = HashChain.next(chainHash1, createAuditEvent("2").toJson());
+
+        assertThat(written.get(0), is(createAuditEvent("1").toBuilder().chainHash(chainHash1).build()));
+        assertThat(written.get(1), is(createAuditEvent("2").toBuilder().chainHash(chainHash2).build()));
+        assertThat(target.getPreviousChainHash(), is(chainHash2));
+    }
+
+    @Test
+    void write_validAuditEventInActiveTransaction_shouldNotChainAuditEventUntilTransactionCommits() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(true);
+
+        target.write(createAuditEvent("1"));
+
+        verify(args.transactionSyncManFacade).register(any(TransactionSynchronization.class));
+        verify(args.delegate, never()).write(any());
+
+        assertThat(target.getPreviousChainHash(), is(HashChain.GENESIS));
+    }
+
+    @Test
+    void write_delegateFails_shouldNotAdvanceChain() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        assertThrows(IllegalStateException.class, () -> target.write(createAuditEvent("1")));
+
+        assertThat(target.getPreviousChainHash(), is(HashChain.GENESIS));
+    }
+
+    @Test
+    void write_executor_shouldChainAndWriteAuditEventsOnExecutorInOrder() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args).withExecutor(args.executorService);
+
+        target.write(createAuditEvent("1"));
+        target.write(createAuditEvent("2"));
+
+        assertThat(args.tasks.size(), is(1));
+
+        verify(args.delegate, never()).write(any());
+
+        args.runTasks();
+
+        final List<AuditEvent> written = captureAuditEvents(args, 2);
+        final String chainHash1 = HashChain.next(HashChain.GENESIS, createAuditEvent("1").toJson());
+
+        assertThat(written.get(0).getChainHash(), is(chainHash1));
+        assertThat(written.get(1).getChainHash(), is(HashChain.next(chainHash1, createAuditEvent("2").toJson())));
+        assertThat(target.getPreviousChainHash(), is(written.get(1).getChainHash()));
+    }
+
+    @Test
+    void write_executorAndAuditEventWrittenWhileDraining_shouldRescheduleDrain() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args).withExecutor(args.executorService);
+
+        doAnswer(iom -> {
+            target.write(createAuditEvent("2"));
+            return null;
+        }).when(args.delegate).write(Mockito.argThat(auditEvent -> "1".equals(auditEvent.getId())));
+
+        target.write(createAuditEvent("1"));
+        args.runTasks();
+
+        assertThat(captureAuditEvents(args, 2).get(1).getId(), is("2"));
+    }
+
+    @Test
+    void write_executorAndDelegateFails_shouldLogErrorAndNotAdvanceChain() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args).withExecutor(args.executorService);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        target.write(createAuditEvent("1"));
+
+        verifyErrorLogging(
+                HashChainAuditEventWriter.class,
+                () -> {
+                    args.runTasks();
+                    return null;
+                },
+                "Failed to write audit event",
+                "type=" + TestData.TYPE
+        );
+
+        assertThat(target.getPreviousChainHash(), is(HashChain.GENESIS));
+    }
+
+    @Test
+    void write_executionRejected_shouldChainAndWriteAuditEventOnCallingThread() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = createWriter(args).withExecutor(args.executorService);
+
+        doThrow(new RejectedExecutionException("Test")).when(args.executorService).execute(any());
+
+        verifyWarnLogging(
+                HashChainAuditEventWriter.class,
+                () -> {
+                    target.write(createAuditEvent("1"));
+                    return null;
+                },
+                "Failed to schedule hash chain, writing audit events on calling thread"
+        );
+
+        assertThat(captureAuditEvents(args, 1).get(0).getChainHash(), is(HashChain.next(HashChain.GENESIS, createAuditEvent("1").toJson())));
+    }
+
+    @Test
+    void write_transactionAwareDelegateInCommittedTransaction_shouldWriteVerifiableChainToFile(@TempDir Path tempDir) throws IOException {
+        final Path file = tempDir.resolve("audit.log");
+        final FileAuditEventWriter delegate = new FileAuditEventWriter(file);
+        final HashChainAuditEventWriter target = new HashChainAuditEventWriter(delegate);
+
+        runInTransaction(() -> {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+        });
+        delegate.close();
+
+        final HashChain.Result result = HashChain.verify(file);
+
+        assertThat(Files.readAllLines(file).size(), is(2));
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getRecords(), is(2));
+        assertThat(result.getLastChainHash(), is(target.getPreviousChainHash()));
+    }
+
+    @Test
+    void write_transactionAwareDelegateInCommittedTransactionExecutionRejected_shouldWriteVerifiableChainToFile(
+            @TempDir Path tempDir) throws IOException {
+
+        final Path file = tempDir.resolve("audit.log");
+        final FileAuditEventWriter delegate = new FileAuditEventWriter(file);
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final HashChainAuditEventWriter target = new HashChainAuditEventWriter(delegate).withExecutor(args.executorService);
+
+        doThrow(new RejectedExecutionException("Test")).when(args.executorService).execute(any());
+
+        runInTransaction(() -> target.write(createAuditEvent("1")));
+        delegate.close();
+
+        final HashChain.Result result = HashChain.verify(file);
+
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getRecords(), is(1));
+        assertThat(result.getLastChainHash(), is(target.getPreviousChainHash()));
+    }
+
+    @Test
+    void write_previousChainHash_shouldContinueChain() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+
+        createWriter(args).withPreviousChainHash(TestData.PREVIOUS_CHAIN_HASH).write(createAuditEvent("1"));
+
+        assertThat(
+                captureAuditEvents(args, 1).get(0).getChainHash(),
+                is(HashChain.next(TestData.PREVIOUS_CHAIN_HASH, createAuditEvent("1").toJson()))
+        );
+    }
+
+    @Test
+    void write_checkpointsEnabled_shouldPublishMerkleRootOfEachBatch() {
+        final HashChainAuditEventWriterArgs args = new HashChainAuditEventWriterArgs(true);
+        final List<HashChainAuditEventWriter.Checkpoint> checkpoints = new ArrayList<>();
+        final HashChainAuditEventWriter target = createWriter(args).withCheckpoints(TestData.CHECKPOINT_INTERVAL, checkpoints::add);
+
+        for (int i = 0; i < 5; i++) {
+            target.write(createAuditEvent(Integer.toString(i)));
+        }
+
+        final List<String> chainHashes = new ArrayList<>();
+
+        captureAuditEvents(args, 5).forEach(e -> chainHashes.add(e.getChainHash()));
+
+        assertThat(checkpoints, is(List.of(
+                new HashChainAuditEventWriter.Checkpoint(0, 2, HashChain.merkleRoot(chainHashes.subList(0, 2)), chainHashes.get(1)),
+                new HashChainAuditEventWriter.Checkpoint(2, 2, HashChain.merkleRoot(chainHashes.subList(2, 4)), chainHashes.get(3))
+        )));
+    }
+
+    @Test
+    void constructor_defaultConstructor_shouldCreateNewInstanceWithTransactionSyncManFacade() {
+        final HashChainAuditEventWriter result = new HashChainAuditEventWriter(Mockito.mock(AuditEventWriter.class));
+
+        final Object transactionSyncManFacade = ReflectionTestUtils.getField(result, "transactionSyncManFacade");
+
+        assertThat(transactionSyncManFacade, is(notNullValue()));
+        assertThat(transactionSyncManFacade, instanceOf(TransactionSyncManFacade.class));
+    }
+
+    private static void runInTransaction(Runnable runnable) {
+        final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .build();
+
+        try {
+            new TransactionTemplate(new DataSourceTransactionManager(database)).executeWithoutResult(status -> runnable.run());
+        } finally {
+            database.shutdown();
+        }
+    }
+
+    private static List<AuditEvent> captureAuditEvents(HashChainAuditEventWriterArgs args, int count) {
+        final ArgumentCaptor<AuditEvent> captor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.delegate, times(count)).write(captor.capture());
+
+        return captor.getAllValues();
+    }
+
+    private static AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .id(id)
+                .build();
+    }
+
+    private static HashChainAuditEventWriter createWriter(HashChainAuditEventWriterArgs args) {
+        return new HashChainAuditEventWriter(
+                args.includeCorrelationIdInLogs, args.delegate, new DefaultCorrelationIdProvider(), args.transactionSyncManFacade
+        );
+    }
+
+    private static class HashChainAuditEventWriterArgs {
+        boolean includeCorrelationIdInLogs;
+        AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        TransactionSyncManFacade transactionSyncManFacade = Mockito.mock(TransactionSyncManFacade.class);
+        ExecutorService executorService = Mockito.mock(ExecutorService.class);
+        List<Runnable> tasks = new ArrayList<>();
+
+        HashChainAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
+            this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+
+            // Queue the tasks rather than running them, so that the tests control when the audit events are chained
+            doAnswer(iom -> tasks.add(iom.getArgument(0, Runnable.class))).when(executorService).execute(any());
+        }
+
+        void runTasks() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
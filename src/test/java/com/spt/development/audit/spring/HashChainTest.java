@@ -0,0 +1,268 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HashChainTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String FILE_NAME = "audit.log";
+        static final String CHAIN_HASH_1 = "a".repeat(64);
+        static final String CHAIN_HASH_2 = "b".repeat(64);
+        static final String CHAIN_HASH_3 = "c".repeat(64);
+        static final int RECORDS = 10_000;
+    }
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void next_validArgs_shouldHashPreviousChainHashFollowedByJson() throws Exception {
+        final String json = createAuditEvent("1").toJson();
+
+        final String result = HashChain.next(HashChain.GENESIS, json);
+
+        assertThat(result, is(sha256((HashChain.GENESIS + json).getBytes(StandardCharsets.UTF_8))));
+    }
+
+    @Test
+    void merkleRoot_singleChainHash_shouldReturnChainHash() {
+        assertThat(HashChain.merkleRoot(List.of(TestData.CHAIN_HASH_1)), is(TestData.CHAIN_HASH_1));
+    }
+
+    @Test
+    void merkleRoot_oddNumberOfChainHashes_shouldPairLastNodeWithItself() throws Exception {
+        final String result = HashChain.merkleRoot(List.of(TestData.CHAIN_HASH_1, TestData.CHAIN_HASH_2, TestData.CHAIN_HASH_3));
+
+        final String left = sha256(bytes(TestData.CHAIN_HASH_1, TestData.CHAIN_HASH_2));
+        final String right = sha256(bytes(TestData.CHAIN_HASH_3, TestData.CHAIN_HASH_3));
+
+        assertThat(result, is(sha256(bytes(left, right))));
+    }
+
+    @Test
+    void merkleRoot_noChainHashes_shouldThrowException() {
+        final IllegalArgumentException result = assertThrows(IllegalArgumentException.class, () -> HashChain.merkleRoot(List.of()));
+
+        assertThat(result.getMessage(), is("At least one chain hash is required to compute a Merkle root"));
+    }
+
+    @Test
+    void verify_fileWrittenThroughHashChainWriter_shouldBeValid() throws IOException {
+        final HashChainAuditEventWriter writer = writeFile(3);
+
+        final HashChain.Result result = HashChain.verify(file());
+
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getRecords(), is(3));
+        assertThat(result.getInvalidRecord(), is(-1));
+        assertThat(result.getLastChainHash(), is(writer.getPreviousChainHash()));
+    }
+
+    @Test
+    void verify_alteredAuditEvent_shouldReturnFirstInvalidRecord() throws IOException {
+        writeFile(3);
+
+        final List<String> lines = Files.readAllLines(file());
+
+        lines.set(1, lines.get(1).replace("\"id\":\"1\"", "\"id\":\"9\""));
+
+        final HashChain.Result result = HashChain.verify(lines, HashChain.GENESIS);
+
+        assertThat(result.isValid(), is(false));
+        assertThat(result.getInvalidRecord(), is(1));
+        assertThat(result.getLastChainHash(), is(nullValue()));
+    }
+
+    @Test
+    void verify_droppedAuditEvent_shouldReturnFirstInvalidRecord() throws IOException {
+        writeFile(3);
+
+        final List<String> lines = new ArrayList<>(Files.readAllLines(file()));
+
+        lines.remove(1);
+
+        assertThat(HashChain.verify(lines, HashChain.GENESIS).getInvalidRecord(), is(1));
+    }
+
+    @Test
+    void verify_auditEventWithoutChainHash_shouldReturnFirstInvalidRecord() throws IOException {
+        writeFile(3);
+
+        final List<String> lines = Files.readAllLines(file());
+
+        lines.set(2, createAuditEvent("2").toJson());
+
+        assertThat(HashChain.verify(lines, HashChain.GENESIS).getInvalidRecord(), is(2));
+    }
+
+    @Test
+    void verify_recordAfterRecordWithoutChainHash_shouldBeInvalid() throws IOException {
+        writeFile(3);
+
+        final List<String> lines = Files.readAllLines(file());
+
+        lines.set(0, createAuditEvent("0").toJson());
+
+        assertThat(HashChain.verify(lines.subList(1, 3), HashChain.GENESIS).getInvalidRecord(), is(0));
+        assertThat(HashChain.verify(lines, HashChain.GENESIS).getInvalidRecord(), is(0));
+    }
+
+    @Test
+    void verify_continuedChain_shouldBeValidGivenPreviousChainHash() throws IOException {
+        writeFile(3);
+
+        final List<String> lines = Files.readAllLines(file());
+        final String previousChainHash = HashChain.verify(lines.subList(0, 1), HashChain.GENESIS).getLastChainHash();
+
+        assertThat(HashChain.verify(lines.subList(1, 3), previousChainHash).isValid(), is(true));
+        assertThat(HashChain.verify(lines.subList(1, 3), HashChain.GENESIS).isValid(), is(false));
+    }
+
+    @Test
+    void verify_continuedFile_shouldBeValidGivenPreviousChainHash() throws IOException {
+        final List<String> lines = List.of("{\"chainHash\":\"" + HashChain.next(TestData.CHAIN_HASH_1, "{}") + "\"}");
+
+        Files.write(file(), lines);
+
+        assertThat(HashChain.verify(file(), TestData.CHAIN_HASH_1).isValid(), is(true));
+    }
+
+    @Test
+    void verify_noRecords_shouldBeValidWithPreviousChainHash() {
+        final HashChain.Result result = HashChain.verify(List.of(), TestData.CHAIN_HASH_1);
+
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getLastChainHash(), is(TestData.CHAIN_HASH_1));
+    }
+
+    @Test
+    void verify_manyRecords_shouldVerifySegmentsInParallel() {
+        final List<String> lines = new ArrayList<>(TestData.RECORDS);
+        final HashChainAuditEventWriter writer = new HashChainAuditEventWriter(false, auditEvent -> lines.add(auditEvent.toJson()));
+
+        IntStream.range(0, TestData.RECORDS).forEach(i -> writer.write(createAuditEvent(Integer.toString(i))));
+
+        assertThat(HashChain.verify(lines, HashChain.GENESIS).isValid(), is(true));
+
+        final List<String> tampered = lines.stream().collect(Collectors.toList());
+
+        tampered.set(TestData.RECORDS - 2, tampered.get(TestData.RECORDS - 1));
+
+        assertThat(HashChain.verify(tampered, HashChain.GENESIS).getInvalidRecord(), is(TestData.RECORDS - 2));
+    }
+
+    @Test
+    void verify_gzippedFile_shouldDecompressAndVerify() throws IOException {
+        final HashChainAuditEventWriter writer = writeFile(3);
+        final Path gzipFile = directory.resolve(TestData.FILE_NAME + ".gz");
+
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+            Files.copy(file(), out);
+        }
+
+        final HashChain.Result result = HashChain.verify(gzipFile);
+
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getRecords(), is(3));
+        assertThat(result.getLastChainHash(), is(writer.getPreviousChainHash()));
+    }
+
+    @Test
+    void verify_fileWithMoreRecordsThanSegment_shouldVerifyAcrossSegments() throws IOException {
+        final List<String> lines = chainedLines(HashChain.SEGMENT_RECORDS + 2);
+
+        Files.write(file(), lines);
+
+        final HashChain.Result result = HashChain.verify(file());
+
+        assertThat(result.isValid(), is(true));
+        assertThat(result.getRecords(), is(lines.size()));
+        assertThat(result.getLastChainHash(), is(HashChain.verify(lines, HashChain.GENESIS).getLastChainHash()));
+    }
+
+    @Test
+    void verify_fileAlteredInLaterSegment_shouldReturnFirstInvalidRecordAndCountAllRecords() throws IOException {
+        final List<String> lines = chainedLines(HashChain.SEGMENT_RECORDS * 2 + 2);
+        final int altered = HashChain.SEGMENT_RECORDS + 1;
+
+        lines.set(altered, lines.get(altered).replace("\"id\":\"", "\"id\":\"x"));
+        Files.write(file(), lines);
+
+        final HashChain.Result result = HashChain.verify(file());
+
+        assertThat(result.isValid(), is(false));
+        assertThat(result.getInvalidRecord(), is(altered));
+        assertThat(result.getRecords(), is(lines.size()));
+        assertThat(result.getLastChainHash(), is(nullValue()));
+    }
+
+    @Test
+    void messageDigest_unsupportedAlgorithm_shouldThrowException() {
+        assertThrows(IllegalStateException.class, () -> HashChain.messageDigest("unsupported"));
+    }
+
+    private HashChainAuditEventWriter writeFile(int records) throws IOException {
+        try (FileAuditEventWriter fileWriter = new FileAuditEventWriter(false, file())) {
+            final HashChainAuditEventWriter writer = new HashChainAuditEventWriter(false, fileWriter);
+
+            IntStream.range(0, records).forEach(i -> writer.write(createAuditEvent(Integer.toString(i))));
+
+            return writer;
+        }
+    }
+
+    private static List<String> chainedLines(int records) {
+        final List<String> lines = new ArrayList<>(records);
+        final HashChainAuditEventWriter writer = new HashChainAuditEventWriter(false, auditEvent -> lines.add(auditEvent.toJson()));
+
+        IntStream.range(0, records).forEach(i -> writer.write(createAuditEvent(Integer.toString(i))));
+
+        return lines;
+    }
+
+    private Path file() {
+        return directory.resolve(TestData.FILE_NAME);
+    }
+
+    private static AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .id(id)
+                .details("{\"name\":\"<value>\"}")
+                .build();
+    }
+
+    private static byte[] bytes(String... hexes) {
+        final StringBuilder sb = new StringBuilder();
+
+        for (String hex : hexes) {
+            sb.append(hex);
+        }
+        return HexFormat.of().parseHex(sb);
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,172 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JdbcAuditEventOutboxRelayTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "0f1e7e43-6d4c-4f43-8a55-a1f4d0c6b5e2";
+        static final OffsetDateTime CREATED = OffsetDateTime.of(2020, 7, 19, 15, 29, 17, 0, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final int BATCH_SIZE = 2;
+    }
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private AuditEventWriter auditEventWriter;
+
+    @BeforeEach
+    void setUp() {
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("audit-event-schema.sql")
+                .build();
+        jdbcTemplate = new JdbcTemplate(database);
+        auditEventWriter = Mockito.mock(AuditEventWriter.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+    }
+
+    @Test
+    void relayBatch_auditEventsInOutbox_shouldWriteBatchOfAuditEventsInOrderAndDeleteThem() {
+        insertOutboxAuditEvents("1", "2", "3");
+
+        final int result = createRelay().relayBatch();
+
+        assertThat(result, is(TestData.BATCH_SIZE));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(auditEventWriter, times(2)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getAllValues(), is(List.of(createAuditEvent("1"), createAuditEvent("2"))));
+        assertThat(readOutboxIds(), is(List.of("3")));
+    }
+
+    @Test
+    void relayBatch_emptyOutbox_shouldReturnZero() {
+        final int result = createRelay().relayBatch();
+
+        assertThat(result, is(0));
+
+        verify(auditEventWriter, never()).write(any());
+    }
+
+    @Test
+    void run_transactionAwareWriterFails_shouldLogErrorAndOnlyDeleteAuditEventsWritten() {
+        insertOutboxAuditEvents("1", "2", "3");
+
+        final TransactionAwareAuditEventWriter target = new TransactionAwareAuditEventWriter(true, new DefaultCorrelationIdProvider()) {
+            @Override
+            protected void doWrite(AuditEvent auditEvent) {
+                if ("2".equals(auditEvent.getId())) {
+                    throw new IllegalStateException("Test");
+                }
+            }
+        };
+
+        verifyErrorLogging(
+                JdbcAuditEventOutboxRelay.class,
+                () -> {
+                    new JdbcAuditEventOutboxRelay(jdbcTemplate, target).run();
+                    return null;
+                },
+                "Failed to relay audit events from outbox"
+        );
+
+        assertThat(readOutboxIds(), is(List.of("2", "3")));
+    }
+
+    @Test
+    void run_auditEventsInOutbox_shouldRelayAllAuditEvents() {
+        insertOutboxAuditEvents("1", "2", "3", "4");
+
+        new JdbcAuditEventOutboxRelay(jdbcTemplate, auditEventWriter).run();
+
+        verify(auditEventWriter, times(4)).write(any());
+
+        assertThat(readOutboxIds(), is(List.of()));
+    }
+
+    @Test
+    void run_writeFails_shouldLogErrorAndOnlyDeleteAuditEventsWritten() {
+        insertOutboxAuditEvents("1", "2", "3");
+
+        doThrow(new IllegalStateException("Test")).when(auditEventWriter).write(argThat(e -> "2".equals(e.getId())));
+
+        verifyErrorLogging(
+                JdbcAuditEventOutboxRelay.class,
+                () -> {
+                    createRelay().run();
+                    return null;
+                },
+                "Failed to relay audit events from outbox"
+        );
+
+        assertThat(readOutboxIds(), is(List.of("2", "3")));
+    }
+
+    private JdbcAuditEventOutboxRelay createRelay() {
+        return new JdbcAuditEventOutboxRelay(
+                jdbcTemplate,
+                auditEventWriter,
+                JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME,
+                JdbcAuditEventOutboxRelay.DEFAULT_ID_COLUMN_NAME,
+                TestData.BATCH_SIZE
+        );
+    }
+
+    private void insertOutboxAuditEvents(String... ids) {
+        final JdbcAuditEventWriter writer = new JdbcAuditEventWriter(
+                true, jdbcTemplate, JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME, TestData.BATCH_SIZE, JdbcAuditEventWriter.Mode.OUTBOX
+        );
+
+        for (String id : ids) {
+            writer.write(createAuditEvent(id));
+        }
+    }
+
+    private List<String> readOutboxIds() {
+        return jdbcTemplate.queryForList(
+                "SELECT id FROM " + JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME + " ORDER BY outbox_id", String.class
+        );
+    }
+
+    private AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(id)
+                .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
+                .build();
+    }
+}
@@ -0,0 +1,276 @@
+package com.spt.development.audit.spring;
+
+import ch.qos.logback.classic.Level;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.spt.development.cid.CorrelationId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyLogging;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class JdbcAuditEventWriterTest {
+    private static final Gson GSON = new GsonBuilder().create();
+
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "8ad4c8b1-4f0e-4a8e-9b8e-2f5b3c1d7e90";
+        static final String ID = "100";
+        static final Map<String, String> DETAILS = Collections.singletonMap("json", "value");
+        static final String USER_ID = "987";
+        static final String USER_EMAIL = "tester@testing-times.com";
+        static final String ORIGINATING_IP = "127.0.0.1";
+        static final String SERVICE_ID = "testService";
+        static final String SERVICE_VERSION = "1.0.1";
+        static final String SERVER_HOST_NAME = "localhost";
+        static final OffsetDateTime CREATED = OffsetDateTime.of(2020, 7, 19, 15, 29, 17, 0, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final int BATCH_SIZE = 2;
+        static final String UNKNOWN_TABLE_NAME = "unknown_table";
+    }
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        CorrelationId.set(TestData.CORRELATION_ID);
+
+        database = new EmbeddedDatabaseBuilder()
+                .generateUniqueName(true)
+                .setType(EmbeddedDatabaseType.H2)
+                .addScript("audit-event-schema.sql")
+                .build();
+        jdbcTemplate = Mockito.spy(new JdbcTemplate(database));
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(database));
+    }
+
+    @AfterEach
+    void tearDown() {
+        database.shutdown();
+
+        CorrelationId.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEventOutsideTransaction_shouldInsertAuditEventImmediately(boolean includeCorrelationIdInLogs) {
+        createWriter(includeCorrelationIdInLogs, JdbcAuditEventWriter.Mode.DIRECT).write(createAuditEvent(TestData.ID));
+
+        assertThat(readAuditEvents(JdbcAuditEventWriter.DEFAULT_TABLE_NAME), is(List.of(createAuditEvent(TestData.ID))));
+    }
+
+    @Test
+    void write_auditEventWithNullFields_shouldInsertAuditEventWithNullFields() {
+        final AuditEvent auditEvent = AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .build();
+
+        new JdbcAuditEventWriter(jdbcTemplate).write(auditEvent);
+
+        assertThat(readAuditEvents(JdbcAuditEventWriter.DEFAULT_TABLE_NAME), is(List.of(auditEvent)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEventsInTransaction_shouldBatchInsertAuditEventsWhenTransactionCommits(boolean includeCorrelationIdInLogs) {
+        final JdbcAuditEventWriter target = createWriter(includeCorrelationIdInLogs, JdbcAuditEventWriter.Mode.DIRECT);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+            target.write(createAuditEvent("3"));
+
+            assertThat(countAuditEvents(JdbcAuditEventWriter.DEFAULT_TABLE_NAME), is(0));
+        });
+
+        assertThat(
+                readAuditEvents(JdbcAuditEventWriter.DEFAULT_TABLE_NAME),
+                is(List.of(createAuditEvent("1"), createAuditEvent("2"), createAuditEvent("3")))
+        );
+        verifyBatchUpdate();
+    }
+
+    @Test
+    void write_validAuditEventsInTransactionRolledBack_shouldNotInsertAuditEvents() {
+        final JdbcAuditEventWriter target = createWriter(true, JdbcAuditEventWriter.Mode.DIRECT);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+
+            status.setRollbackOnly();
+        });
+
+        assertThat(countAuditEvents(JdbcAuditEventWriter.DEFAULT_TABLE_NAME), is(0));
+    }
+
+    @Test
+    void write_insertFailsAfterTransactionCommits_shouldLogErrorAndCommitTransaction() {
+        final JdbcAuditEventWriter target = new JdbcAuditEventWriter(
+                true, jdbcTemplate, TestData.UNKNOWN_TABLE_NAME, TestData.BATCH_SIZE, JdbcAuditEventWriter.Mode.DIRECT
+        );
+
+        verifyErrorLogging(
+                TransactionAwareAuditEventWriter.class,
+                () -> {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        insertDomainEntity();
+                        target.write(createAuditEvent(TestData.ID));
+                    });
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event:",
+                "id=" + TestData.ID
+        );
+
+        assertThat(countDomainEntities(), is(1));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_outboxModeInTransaction_shouldBatchInsertAuditEventsAsPartOfTransaction(boolean includeCorrelationIdInLogs) {
+        final JdbcAuditEventWriter target = createWriter(includeCorrelationIdInLogs, JdbcAuditEventWriter.Mode.OUTBOX);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            target.write(createAuditEvent("1"));
+            target.write(createAuditEvent("2"));
+            target.write(createAuditEvent("3"));
+        });
+
+        assertThat(
+                readAuditEvents(JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME),
+                is(List.of(createAuditEvent("1"), createAuditEvent("2"), createAuditEvent("3")))
+        );
+        verifyBatchUpdate();
+    }
+
+    @Test
+    void write_outboxModeInTransactionRolledBack_shouldNotInsertAuditEvents() {
+        final JdbcAuditEventWriter target = createWriter(true, JdbcAuditEventWriter.Mode.OUTBOX);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            target.write(createAuditEvent(TestData.ID));
+
+            status.setRollbackOnly();
+        });
+
+        assertThat(countAuditEvents(JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME), is(0));
+    }
+
+    @Test
+    void write_outboxModeInsertFails_shouldRollbackTransaction() {
+        final JdbcAuditEventWriter target = new JdbcAuditEventWriter(
+                true, jdbcTemplate, TestData.UNKNOWN_TABLE_NAME, TestData.BATCH_SIZE, JdbcAuditEventWriter.Mode.OUTBOX
+        );
+
+        assertThrows(
+                RuntimeException.class,
+                () -> transactionTemplate.executeWithoutResult(status -> {
+                    insertDomainEntity();
+                    target.write(createAuditEvent(TestData.ID));
+                })
+        );
+
+        assertThat(countDomainEntities(), is(0));
+    }
+
+    @Test
+    void write_validAuditEvent_shouldDebugLogWithCorrelationId() {
+        verifyLogging(
+                JdbcAuditEventWriter.class,
+                () -> {
+                    createWriter(true, JdbcAuditEventWriter.Mode.DIRECT).write(createAuditEvent(TestData.ID));
+                    return null;
+                },
+                Level.DEBUG,
+                "[" + TestData.CORRELATION_ID + "]",
+                "Inserting audit event into " + JdbcAuditEventWriter.DEFAULT_TABLE_NAME
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private void verifyBatchUpdate() {
+        verify(jdbcTemplate, times(1)).batchUpdate(
+                anyString(), anyList(), eq(TestData.BATCH_SIZE), any(ParameterizedPreparedStatementSetter.class)
+        );
+    }
+
+    private JdbcAuditEventWriter createWriter(boolean includeCorrelationIdInLogs, JdbcAuditEventWriter.Mode mode) {
+        return new JdbcAuditEventWriter(
+                includeCorrelationIdInLogs,
+                jdbcTemplate,
+                mode == JdbcAuditEventWriter.Mode.OUTBOX ? JdbcAuditEventOutboxRelay.DEFAULT_TABLE_NAME : JdbcAuditEventWriter.DEFAULT_TABLE_NAME,
+                TestData.BATCH_SIZE,
+                mode
+        );
+    }
+
+    private List<AuditEvent> readAuditEvents(String tableName) {
+        return jdbcTemplate.query(
+                "SELECT * FROM " + tableName + " ORDER BY 1",
+                (rs, rowNum) -> JdbcAuditEventWriter.mapAuditEvent(rs)
+        );
+    }
+
+    private int countAuditEvents(String tableName) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName, Integer.class);
+    }
+
+    private void insertDomainEntity() {
+        jdbcTemplate.update("INSERT INTO domain_entity (id) VALUES (1)");
+    }
+
+    private int countDomainEntities() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM domain_entity", Integer.class);
+    }
+
+    private AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(id)
+                .details(GSON.toJson(TestData.DETAILS))
+                .userId(TestData.USER_ID)
+                .username(TestData.USER_EMAIL)
+                .originatingIP(TestData.ORIGINATING_IP)
+                .serviceId(TestData.SERVICE_ID)
+                .serviceVersion(TestData.SERVICE_VERSION)
+                .serverHostName(TestData.SERVER_HOST_NAME)
+                .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
+                .build();
+    }
+}
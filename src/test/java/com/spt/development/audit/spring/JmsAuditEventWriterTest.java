@@ -3,7 +3,13 @@ package com.spt.development.audit.spring;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.spt.development.cid.CorrelationId;
+import jakarta.jms.CompletionListener;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.DeliveryMode;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
 import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
 import jakarta.jms.Session;
 import jakarta.jms.TextMessage;
 import org.junit.jupiter.api.AfterEach;
@@ -13,20 +19,39 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.mockito.InOrder;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.jms.connection.CachingConnectionFactory;
 import org.springframework.jms.core.JmsTemplate;
 import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.core.ProducerCallback;
+import org.springframework.jms.core.SessionCallback;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.spt.development.test.LogbackUtil.verifyLogging;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class JmsAuditEventWriterTest {
@@ -35,6 +60,16 @@ class JmsAuditEventWriterTest {
         static final String CORRELATION_ID = "bfae9d36-fdac-48b4-85a0-e5381d872c16";
         static final String AUDIT_EVENT_TYPE = "DOMAIN_TYPE";
         static final String AUDIT_EVENT_SUB_TYPE = "CREATE";
+        static final String AUDIT_EVENT_ID_1 = "1";
+        static final String AUDIT_EVENT_ID_2 = "2";
+        static final String AUDIT_EVENT_ID_3 = "3";
+        static final String SECURITY_TYPE = "SECURITY";
+        static final String SECURITY_DESTINATION_NAME = "test-security-destination-queue";
+        static final String EVENT_ID = "01EDKV34A3J8MHBN5MPQ8WQR1Z";
+        static final int PRIORITY = 7;
+        static final long TIME_TO_LIVE = 60_000L;
+        static final long WAIT_MILLIS = 100L;
+        static final String ERROR_MESSAGE = "Broker unavailable";
     }
 
     @BeforeEach
@@ -85,7 +120,35 @@ class JmsAuditEventWriterTest {
     }
 
     @Test
-    void write_validAuditEvent_shouldDebugLogAuditEventWithoutCorrelationId() {
+    void write_auditEventWithCorrelationId_shouldSetJmsCorrelationIdFromAuditEvent() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        CorrelationId.reset();
+
+        createWriter(args).write(
+                AuditEvent.builder()
+                        .type(TestData.AUDIT_EVENT_TYPE)
+                        .subType(TestData.AUDIT_EVENT_SUB_TYPE)
+                        .correlationId(TestData.CORRELATION_ID)
+                        .build()
+        );
+
+        final ArgumentCaptor<MessageCreator> messageCreatorCaptor = ArgumentCaptor.forClass(MessageCreator.class);
+
+        verify(args.jmsTemplate, times(1)).send(eq(TestData.DESTINATION_NAME), messageCreatorCaptor.capture());
+
+        final Session session = Mockito.mock(Session.class);
+        final TextMessage message = Mockito.mock(TextMessage.class);
+
+        when(session.createTextMessage(anyString())).thenReturn(message);
+
+        messageCreatorCaptor.getValue().createMessage(session);
+
+        verify(message, times(1)).setJMSCorrelationID(TestData.CORRELATION_ID);
+    }
+
+    @Test
+    void write_validAuditEvent_shouldDebugLogAuditEventWithoutCorrelationId() throws Exception {
         final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(false);
 
         verifyLogging(
@@ -118,7 +181,7 @@ class JmsAuditEventWriterTest {
     }
 
     @Test
-    void write_validAuditEvent_shouldDebugLogAuditEventWithCorrelationId() {
+    void write_validAuditEvent_shouldDebugLogAuditEventWithCorrelationId() throws Exception {
         final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
 
         verifyLogging(
@@ -142,6 +205,506 @@ class JmsAuditEventWriterTest {
         );
     }
 
+    @Test
+    void write_auditEventWithEventId_shouldSetEventIdProperty() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        createWriter(args).write(createAuditEvent(TestData.AUDIT_EVENT_ID_1).toBuilder().eventId(TestData.EVENT_ID).build());
+
+        final TextMessage message = captureMessage(args, 1).get(0);
+
+        verify(message, times(1)).setStringProperty(JmsAuditEventWriter.AUDIT_EVENT_ID_PROPERTY, TestData.EVENT_ID);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_envelopeEncoding_shouldSendEnvelopeWithEncodingProperty(boolean includeCorrelationIdInLogs) throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(includeCorrelationIdInLogs);
+
+        createWriter(args).withEnvelopeEncoding().write(createAuditEvent(TestData.AUDIT_EVENT_ID_1));
+
+        final TextMessage message = captureMessage(args, 1).get(0);
+        final List<AuditEvent> auditEvents = AuditEventEnvelope.decode(message.getText());
+
+        assertThat(auditEvents, is(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1))));
+
+        verify(message, times(1)).setJMSCorrelationID(TestData.CORRELATION_ID);
+        verify(message, times(1)).setStringProperty(
+                JmsAuditEventWriter.AUDIT_EVENT_ENCODING_PROPERTY, AuditEventEnvelope.ENCODING
+        );
+    }
+
+    @Test
+    void doWriteAll_envelopeEncoding_shouldSendAllAuditEventsInSingleMessage() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+        final List<AuditEvent> auditEvents = List.of(
+                createAuditEvent(TestData.AUDIT_EVENT_ID_1), createAuditEvent(TestData.AUDIT_EVENT_ID_2)
+        );
+
+        createWriter(args).withEnvelopeEncoding().doWriteAll(auditEvents);
+
+        final TextMessage message = captureMessage(args, 1).get(0);
+
+        assertThat(AuditEventEnvelope.decode(message.getText()), is(auditEvents));
+    }
+
+    @Test
+    void doWriteAll_defaultEncoding_shouldSendMessagePerAuditEventWithSameProducer() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        createWriter(args).doWriteAll(
+                List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1), createAuditEvent(TestData.AUDIT_EVENT_ID_2))
+        );
+
+        final List<TextMessage> messages = sendWithProducer(args);
+
+        verify(args.producer, times(1)).send(messages.get(0));
+        verify(args.producer, times(1)).send(messages.get(1));
+        verify(args.jmsTemplate, never()).send(anyString(), any());
+        verify(args.session, never()).commit();
+
+        assertThat(AuditEvent.fromJson(messages.get(0).getText()).getId(), is(TestData.AUDIT_EVENT_ID_1));
+        assertThat(AuditEvent.fromJson(messages.get(1).getText()).getId(), is(TestData.AUDIT_EVENT_ID_2));
+
+        verify(messages.get(0), times(1)).setJMSCorrelationID(TestData.CORRELATION_ID);
+        verify(messages.get(0), never()).setStringProperty(anyString(), anyString());
+    }
+
+    @Test
+    void doWriteAll_explicitQosEnabled_shouldSendMessagesWithQosSettingsOfTemplate() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        when(args.jmsTemplate.isExplicitQosEnabled()).thenReturn(true);
+        when(args.jmsTemplate.getDeliveryMode()).thenReturn(DeliveryMode.NON_PERSISTENT);
+        when(args.jmsTemplate.getPriority()).thenReturn(TestData.PRIORITY);
+        when(args.jmsTemplate.getTimeToLive()).thenReturn(TestData.TIME_TO_LIVE);
+
+        createWriter(args).doWriteAll(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1)));
+
+        final List<TextMessage> messages = sendWithProducer(args);
+
+        verify(args.producer, times(1)).send(messages.get(0), DeliveryMode.NON_PERSISTENT, TestData.PRIORITY, TestData.TIME_TO_LIVE);
+    }
+
+    @Test
+    void doWriteAll_locallyTransactedSession_shouldCommitSessionOnceAllMessagesSent() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        when(args.session.getTransacted()).thenReturn(true);
+        when(args.jmsTemplate.getConnectionFactory()).thenReturn(Mockito.mock(ConnectionFactory.class));
+
+        createWriter(args).doWriteAll(
+                List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1), createAuditEvent(TestData.AUDIT_EVENT_ID_2))
+        );
+
+        sendWithProducer(args);
+
+        verify(args.session, times(1)).commit();
+    }
+
+    @Test
+    void writeAll_noActiveTransaction_shouldSendAllAuditEventsWithSameProducer() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        createWriter(args).writeAll(
+                List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1), createAuditEvent(TestData.AUDIT_EVENT_ID_2))
+        );
+
+        final List<TextMessage> messages = sendWithProducer(args);
+
+        assertThat(messages.size(), is(2));
+    }
+
+    @Test
+    void writeAll_destinationSelector_shouldSendWithOneProducerPerDestinationAndCacheResolvedDestinations() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+        final JmsAuditEventWriter target = createWriter(args).withDestinationSelector(JmsAuditEventWriterTest::selectDestination);
+        final List<AuditEvent> auditEvents = List.of(
+                createAuditEvent(TestData.AUDIT_EVENT_ID_1, TestData.SECURITY_TYPE),
+                createAuditEvent(TestData.AUDIT_EVENT_ID_2),
+                createAuditEvent(TestData.AUDIT_EVENT_ID_3, TestData.SECURITY_TYPE)
+        );
+
+        target.writeAll(auditEvents);
+        target.write(createAuditEvent(TestData.AUDIT_EVENT_ID_1, TestData.SECURITY_TYPE));
+
+        final List<TextMessage> messages = sendWithSession(args, 2);
+
+        verify(args.destinationResolver, times(1)).resolveDestinationName(args.session, TestData.SECURITY_DESTINATION_NAME, false);
+        verify(args.destinationResolver, times(1)).resolveDestinationName(args.session, TestData.DESTINATION_NAME, false);
+        verify(args.session, times(2)).createProducer(args.securityDestination);
+        verify(args.session, times(1)).createProducer(args.destination);
+        verify(args.securityProducer, times(1)).send(messages.get(0));
+        verify(args.securityProducer, times(1)).send(messages.get(1));
+        verify(args.producer, times(1)).send(messages.get(2));
+        verify(args.securityProducer, times(1)).send(messages.get(3));
+        verify(args.securityProducer, times(2)).close();
+        verify(args.producer, times(1)).close();
+        verify(args.jmsTemplate, never()).send(anyString(), any());
+
+        assertThat(AuditEvent.fromJson(messages.get(0).getText()).getId(), is(TestData.AUDIT_EVENT_ID_1));
+        assertThat(AuditEvent.fromJson(messages.get(1).getText()).getId(), is(TestData.AUDIT_EVENT_ID_3));
+        assertThat(AuditEvent.fromJson(messages.get(2).getText()).getId(), is(TestData.AUDIT_EVENT_ID_2));
+    }
+
+    @Test
+    void doWriteAll_destinationSelectorAndEnvelopeEncoding_shouldSendEnvelopePerDestination() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        createWriter(args).withEnvelopeEncoding().withDestinationSelector(JmsAuditEventWriterTest::selectDestination).doWriteAll(
+                List.of(
+                        createAuditEvent(TestData.AUDIT_EVENT_ID_1, TestData.SECURITY_TYPE),
+                        createAuditEvent(TestData.AUDIT_EVENT_ID_2),
+                        createAuditEvent(TestData.AUDIT_EVENT_ID_3, TestData.SECURITY_TYPE)
+                )
+        );
+
+        final List<TextMessage> messages = sendWithSession(args, 1);
+
+        assertThat(messages.size(), is(2));
+        assertThat(
+                AuditEventEnvelope.decode(messages.get(0).getText()).stream().map(AuditEvent::getId).toList(),
+                is(List.of(TestData.AUDIT_EVENT_ID_1, TestData.AUDIT_EVENT_ID_3))
+        );
+        assertThat(AuditEventEnvelope.decode(messages.get(1).getText()).get(0).getId(), is(TestData.AUDIT_EVENT_ID_2));
+
+        verify(args.securityProducer, times(1)).send(messages.get(0));
+        verify(args.producer, times(1)).send(messages.get(1));
+        verify(messages.get(0), times(1)).setStringProperty(JmsAuditEventWriter.AUDIT_EVENT_ENCODING_PROPERTY, AuditEventEnvelope.ENCODING);
+    }
+
+    @Test
+    void doWriteAll_destinationSelectorWithLocallyTransactedSession_shouldCommitSessionOnceAllMessagesSent() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        when(args.session.getTransacted()).thenReturn(true);
+        when(args.jmsTemplate.getConnectionFactory()).thenReturn(Mockito.mock(ConnectionFactory.class));
+
+        createWriter(args).withDestinationSelector(JmsAuditEventWriterTest::selectDestination).doWriteAll(
+                List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1, TestData.SECURITY_TYPE), createAuditEvent(TestData.AUDIT_EVENT_ID_2))
+        );
+
+        sendWithSession(args, 1);
+
+        verify(args.session, times(1)).commit();
+    }
+
+    @Test
+    void constructor_connectionFactory_shouldWrapConnectionFactoryInCachingConnectionFactory() {
+        final ConnectionFactory connectionFactory = Mockito.mock(ConnectionFactory.class);
+        final JmsAuditEventWriter result = new JmsAuditEventWriter(TestData.DESTINATION_NAME, connectionFactory);
+
+        final JmsTemplate jmsTemplate = (JmsTemplate) ReflectionTestUtils.getField(result, "jmsTemplate");
+        final CachingConnectionFactory cachingConnectionFactory = (CachingConnectionFactory) jmsTemplate.getConnectionFactory();
+
+        assertThat(cachingConnectionFactory.getTargetConnectionFactory(), is(connectionFactory));
+        assertThat(cachingConnectionFactory.isCacheProducers(), is(true));
+    }
+
+    @Test
+    void cachingConnectionFactory_cachingConnectionFactory_shouldReturnConnectionFactory() {
+        final CachingConnectionFactory connectionFactory = new CachingConnectionFactory();
+
+        assertThat(JmsAuditEventWriter.cachingConnectionFactory(connectionFactory), is(sameInstance(connectionFactory)));
+    }
+
+    @Test
+    void doWriteAll_asyncSends_shouldSendMessagesWithCompletionListenersAndReleaseWindowOnCompletion() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        doAnswer(JmsAuditEventWriterTest::complete).when(args.producer).send(any(Message.class), any(CompletionListener.class));
+
+        createWriter(args).withAsyncSends(1, args.fallback).doWriteAll(
+                List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1), createAuditEvent(TestData.AUDIT_EVENT_ID_2))
+        );
+
+        // With a window of one, the second message can only be sent once the first has been acknowledged
+        final List<TextMessage> messages = sendWithProducer(args);
+
+        verify(args.producer, times(1)).send(eq(messages.get(0)), any(CompletionListener.class));
+        verify(args.producer, times(1)).send(eq(messages.get(1)), any(CompletionListener.class));
+        verify(args.producer, never()).send(any(Message.class));
+        verifyNoInteractions(args.fallback);
+    }
+
+    @Test
+    void write_asyncSendsWindowFull_shouldBlockUntilEarlierMessageAcknowledged() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+        final JmsAuditEventWriter target = createWriter(args).withAsyncSends(1, args.fallback);
+
+        target.write(createAuditEvent(TestData.AUDIT_EVENT_ID_1));
+        target.write(createAuditEvent(TestData.AUDIT_EVENT_ID_2));
+
+        final List<ProducerCallback<Object>> producerCallbacks = captureProducerCallbacks(args, 2);
+
+        producerCallbacks.get(0).doInJms(args.session, args.producer);
+
+        final Thread blocked = new Thread(() -> doInJms(producerCallbacks.get(1), args));
+        blocked.start();
+
+        verify(args.producer, after(TestData.WAIT_MILLIS).times(1)).send(any(Message.class), any(CompletionListener.class));
+
+        captureCompletionListeners(args.producer, 1).get(0).onCompletion(Mockito.mock(Message.class));
+        blocked.join();
+
+        verify(args.producer, times(2)).send(any(Message.class), any(CompletionListener.class));
+    }
+
+    @Test
+    void write_asyncSendsExplicitQosEnabledAndEnvelopeEncoding_shouldSendEnvelopeWithQosSettingsOfTemplate() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        when(args.jmsTemplate.isExplicitQosEnabled()).thenReturn(true);
+        when(args.jmsTemplate.getDeliveryMode()).thenReturn(DeliveryMode.PERSISTENT);
+        when(args.jmsTemplate.getPriority()).thenReturn(TestData.PRIORITY);
+        when(args.jmsTemplate.getTimeToLive()).thenReturn(TestData.TIME_TO_LIVE);
+
+        createWriter(args).withEnvelopeEncoding().withAsyncSends(1, args.fallback).write(createAuditEvent(TestData.AUDIT_EVENT_ID_1));
+
+        final List<TextMessage> messages = sendWithProducer(args);
+
+        verify(args.producer, times(1)).send(
+                eq(messages.get(0)), eq(DeliveryMode.PERSISTENT), eq(TestData.PRIORITY), eq(TestData.TIME_TO_LIVE), any(CompletionListener.class)
+        );
+        verify(messages.get(0), times(1)).setStringProperty(JmsAuditEventWriter.AUDIT_EVENT_ENCODING_PROPERTY, AuditEventEnvelope.ENCODING);
+        verify(args.jmsTemplate, never()).send(anyString(), any());
+    }
+
+    @Test
+    void write_asyncSendsEnvelopeEncodingAndLocallyTransactedSession_shouldCommitSessionOnceEnvelopeSent() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        when(args.session.getTransacted()).thenReturn(true);
+        when(args.jmsTemplate.getConnectionFactory()).thenReturn(Mockito.mock(ConnectionFactory.class));
+
+        createWriter(args).withEnvelopeEncoding().withAsyncSends(1, args.fallback).write(createAuditEvent(TestData.AUDIT_EVENT_ID_1));
+
+        sendWithProducer(args);
+
+        final InOrder inOrder = inOrder(args.producer, args.session);
+
+        inOrder.verify(args.producer, times(1)).send(any(Message.class), any(CompletionListener.class));
+        inOrder.verify(args.session, times(1)).commit();
+    }
+
+    @Test
+    void doWriteAll_asyncSendFailsOutright_shouldReleaseWindowAndThrowException() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+        final JmsAuditEventWriter target = createWriter(args).withAsyncSends(1, args.fallback);
+
+        doThrow(new JMSException(TestData.ERROR_MESSAGE))
+                .doAnswer(JmsAuditEventWriterTest::complete)
+                .when(args.producer).send(any(Message.class), any(CompletionListener.class));
+
+        target.doWriteAll(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1)));
+        target.doWriteAll(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_2)));
+
+        final List<ProducerCallback<Object>> producerCallbacks = captureProducerCallbacks(args, 2);
+
+        final JMSException result = assertThrows(JMSException.class, () -> producerCallbacks.get(0).doInJms(args.session, args.producer));
+
+        assertThat(result.getMessage(), is(TestData.ERROR_MESSAGE));
+
+        producerCallbacks.get(1).doInJms(args.session, args.producer);
+
+        verify(args.producer, times(2)).send(any(Message.class), any(CompletionListener.class));
+        verifyNoInteractions(args.fallback);
+    }
+
+    @Test
+    void doWriteAll_asyncSendRejectedByBroker_shouldWriteAuditEventsToFallback() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent(TestData.AUDIT_EVENT_ID_1);
+
+        doAnswer(JmsAuditEventWriterTest::fail).when(args.producer).send(any(Message.class), any(CompletionListener.class));
+
+        createWriter(args).withAsyncSends(1, args.fallback).doWriteAll(List.of(auditEvent, createAuditEvent(TestData.AUDIT_EVENT_ID_2)));
+
+        sendWithProducer(args);
+
+        verify(args.fallback, times(1)).writeAll(List.of(auditEvent));
+        verify(args.producer, times(2)).send(any(Message.class), any(CompletionListener.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void doWriteAll_asyncSendRejectedByBrokerWithoutFallback_shouldErrorLogAuditEvent(boolean includeCorrelationIdInLogs) throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(includeCorrelationIdInLogs);
+
+        doAnswer(JmsAuditEventWriterTest::fail).when(args.producer).send(any(Message.class), any(CompletionListener.class));
+
+        createWriter(args).withAsyncSends(1, null).doWriteAll(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1)));
+
+        final ProducerCallback<Object> producerCallback = captureProducerCallbacks(args, 1).get(0);
+
+        verifyLogging(
+                JmsAuditEventWriter.class,
+                () -> {
+                    doInJms(producerCallback, args);
+                    return null;
+                },
+                (logs) -> {
+                    final List<String> errors = errorLogs(logs);
+
+                    assertThat(errors.size(), is(1));
+                    assertThat(errors.get(0), containsString("Failed to send audit event:"));
+                    assertThat(errors.get(0), containsString("id=" + TestData.AUDIT_EVENT_ID_1));
+                    assertThat(errors.get(0).startsWith("[" + TestData.CORRELATION_ID + "]"), is(includeCorrelationIdInLogs));
+                }
+        );
+    }
+
+    @Test
+    void doWriteAll_asyncSendRejectedByBrokerAndFallbackFails_shouldErrorLogAuditEvents() throws Exception {
+        final JmsAuditEventWriterArgs args = new JmsAuditEventWriterArgs(true);
+
+        doAnswer(JmsAuditEventWriterTest::fail).when(args.producer).send(any(Message.class), any(CompletionListener.class));
+        doThrow(new IllegalStateException(TestData.ERROR_MESSAGE)).when(args.fallback).writeAll(any());
+
+        createWriter(args).withAsyncSends(1, args.fallback).doWriteAll(List.of(createAuditEvent(TestData.AUDIT_EVENT_ID_1)));
+
+        final ProducerCallback<Object> producerCallback = captureProducerCallbacks(args, 1).get(0);
+
+        verifyLogging(
+                JmsAuditEventWriter.class,
+                () -> {
+                    doInJms(producerCallback, args);
+                    return null;
+                },
+                (logs) -> {
+                    final List<String> errors = errorLogs(logs);
+
+                    assertThat(errors.size(), is(2));
+                    assertThat(errors.get(0), containsString("Failed to write 1 audit event(s) to fallback"));
+                    assertThat(errors.get(1), containsString("Failed to send audit event:"));
+                }
+        );
+    }
+
+    private static List<String> errorLogs(List<ILoggingEvent> logs) {
+        return logs.stream().filter(e -> e.getLevel() == Level.ERROR).map(ILoggingEvent::getFormattedMessage).toList();
+    }
+
+    private static Object complete(InvocationOnMock iom) {
+        iom.<CompletionListener>getArgument(1).onCompletion(iom.getArgument(0));
+        return null;
+    }
+
+    private static Object fail(InvocationOnMock iom) {
+        iom.<CompletionListener>getArgument(1).onException(iom.getArgument(0), new JMSException(TestData.ERROR_MESSAGE));
+        return null;
+    }
+
+    private static void doInJms(ProducerCallback<Object> producerCallback, JmsAuditEventWriterArgs args) {
+        try {
+            producerCallback.doInJms(args.session, args.producer);
+        } catch (JMSException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static List<CompletionListener> captureCompletionListeners(MessageProducer producer, int expectedSends) throws JMSException {
+        final ArgumentCaptor<CompletionListener> completionListenerCaptor = ArgumentCaptor.forClass(CompletionListener.class);
+
+        verify(producer, times(expectedSends)).send(any(Message.class), completionListenerCaptor.capture());
+
+        return completionListenerCaptor.getAllValues();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ProducerCallback<Object>> captureProducerCallbacks(JmsAuditEventWriterArgs args, int expectedExecutions) throws JMSException {
+        final ArgumentCaptor<ProducerCallback<Object>> producerCallbackCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+
+        verify(args.jmsTemplate, times(expectedExecutions)).execute(eq(TestData.DESTINATION_NAME), producerCallbackCaptor.capture());
+
+        when(args.session.createTextMessage(anyString())).thenAnswer(iom -> Mockito.mock(TextMessage.class));
+
+        return producerCallbackCaptor.getAllValues();
+    }
+
+    private static String selectDestination(AuditEvent auditEvent) {
+        return TestData.SECURITY_TYPE.equals(auditEvent.getType()) ? TestData.SECURITY_DESTINATION_NAME : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TextMessage> sendWithSession(JmsAuditEventWriterArgs args, int expectedExecutions) throws Exception {
+        final ArgumentCaptor<SessionCallback<Object>> sessionCallbackCaptor = ArgumentCaptor.forClass(SessionCallback.class);
+
+        verify(args.jmsTemplate, times(expectedExecutions)).execute(sessionCallbackCaptor.capture(), eq(true));
+
+        final List<TextMessage> messages = new ArrayList<>();
+
+        when(args.session.createTextMessage(anyString())).thenAnswer(iom -> {
+            final TextMessage message = Mockito.mock(TextMessage.class);
+
+            when(message.getText()).thenReturn(iom.getArgument(0));
+            messages.add(message);
+
+            return message;
+        });
+
+        for (SessionCallback<Object> sessionCallback : sessionCallbackCaptor.getAllValues()) {
+            sessionCallback.doInJms(args.session);
+        }
+        return messages;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<TextMessage> sendWithProducer(JmsAuditEventWriterArgs args) throws JMSException {
+        final ArgumentCaptor<ProducerCallback<Object>> producerCallbackCaptor = ArgumentCaptor.forClass(ProducerCallback.class);
+
+        verify(args.jmsTemplate, times(1)).execute(eq(TestData.DESTINATION_NAME), producerCallbackCaptor.capture());
+
+        final List<TextMessage> messages = new ArrayList<>();
+
+        when(args.session.createTextMessage(anyString())).thenAnswer(iom -> {
+            final TextMessage message = Mockito.mock(TextMessage.class);
+
+            when(message.getText()).thenReturn(iom.getArgument(0));
+            messages.add(message);
+
+            return message;
+        });
+        producerCallbackCaptor.getValue().doInJms(args.session, args.producer);
+
+        return messages;
+    }
+
+    private static AuditEvent createAuditEvent(String id) {
+        return createAuditEvent(id, TestData.AUDIT_EVENT_TYPE);
+    }
+
+    private static AuditEvent createAuditEvent(String id, String type) {
+        return AuditEvent.builder()
+                .type(type)
+                .subType(TestData.AUDIT_EVENT_SUB_TYPE)
+                .id(id)
+                .correlationId(TestData.CORRELATION_ID)
+                .build();
+    }
+
+    private static List<TextMessage> captureMessage(JmsAuditEventWriterArgs args, int expectedMessages) throws Exception {
+        final ArgumentCaptor<MessageCreator> messageCreatorCaptor = ArgumentCaptor.forClass(MessageCreator.class);
+
+        verify(args.jmsTemplate, times(expectedMessages)).send(eq(TestData.DESTINATION_NAME), messageCreatorCaptor.capture());
+
+        final List<TextMessage> messages = new ArrayList<>();
+
+        for (MessageCreator messageCreator : messageCreatorCaptor.getAllValues()) {
+            final Session session = Mockito.mock(Session.class);
+            final TextMessage message = Mockito.mock(TextMessage.class);
+
+            when(session.createTextMessage(anyString())).thenAnswer(iom -> {
+                when(message.getText()).thenReturn(iom.getArgument(0));
+
+                return message;
+            });
+            messageCreator.createMessage(session);
+            messages.add(message);
+        }
+        return messages;
+    }
+
     private JmsAuditEventWriter createWriter(JmsAuditEventWriterArgs args) {
         return args.includeCorrelationIdInLogs
                 ? new JmsAuditEventWriter(TestData.DESTINATION_NAME, args.jmsTemplate)
@@ -151,8 +714,21 @@ class JmsAuditEventWriterTest {
     private static class JmsAuditEventWriterArgs {
         boolean includeCorrelationIdInLogs;
         JmsTemplate jmsTemplate = Mockito.mock(JmsTemplate.class);
+        Session session = Mockito.mock(Session.class);
+        MessageProducer producer = Mockito.mock(MessageProducer.class);
+        MessageProducer securityProducer = Mockito.mock(MessageProducer.class);
+        DestinationResolver destinationResolver = Mockito.mock(DestinationResolver.class);
+        Destination destination = Mockito.mock(Destination.class);
+        Destination securityDestination = Mockito.mock(Destination.class);
+        AuditEventWriter fallback = Mockito.mock(AuditEventWriter.class);
+
+        JmsAuditEventWriterArgs(boolean includeCorrelationIdInLogs) throws JMSException {
+            when(jmsTemplate.getDestinationResolver()).thenReturn(destinationResolver);
+            when(destinationResolver.resolveDestinationName(session, TestData.DESTINATION_NAME, false)).thenReturn(destination);
+            when(destinationResolver.resolveDestinationName(session, TestData.SECURITY_DESTINATION_NAME, false)).thenReturn(securityDestination);
+            when(session.createProducer(destination)).thenReturn(producer);
+            when(session.createProducer(securityDestination)).thenReturn(securityProducer);
 
-        JmsAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
             this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
         }
     }
@@ -0,0 +1,303 @@
+package com.spt.development.audit.spring;
+
+import com.spt.development.cid.CorrelationId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyWarnLogging;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PartitionedAuditEventWriterTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "7e1c2b3a-4d5e-4f60-8a9b-0c1d2e3f4a5b";
+        static final String OTHER_CORRELATION_ID = "1a2b3c4d-5e6f-4a7b-8c9d-0e1f2a3b4c5d";
+        static final int LANES = 8;
+        static final int THREADS = 4;
+        static final int PRODUCERS = 16;
+        static final int EVENTS_PER_PRODUCER = 1_000;
+        static final long TIMEOUT_SECONDS = 30;
+    }
+
+    @BeforeEach
+    void setUp() {
+        CorrelationId.set(TestData.CORRELATION_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CorrelationId.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEvent_shouldWriteAuditEventToDelegateOnExecutorService(boolean includeCorrelationIdInLogs) {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(includeCorrelationIdInLogs);
+        final AuditEvent auditEvent = createAuditEvent(TestData.CORRELATION_ID, "1");
+
+        createWriter(args).write(auditEvent);
+
+        assertThat(args.tasks.size(), is(1));
+
+        verify(args.delegate, never()).write(any());
+
+        args.runTasks();
+
+        verify(args.delegate, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_validAuditEventInActiveTransaction_shouldNotWriteAuditEventUntilTransactionCommits() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(true);
+
+        createWriter(args).write(createAuditEvent(TestData.CORRELATION_ID, "1"));
+
+        verify(args.transactionSyncManFacade).register(any(TransactionSynchronization.class));
+        assertThat(args.tasks.isEmpty(), is(true));
+    }
+
+    @Test
+    void write_sameCorrelationIdWhileLaneScheduled_shouldWriteInOrderWithSingleTask() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final PartitionedAuditEventWriter target = createWriter(args);
+        final AuditEvent create = createAuditEvent(TestData.CORRELATION_ID, "1");
+        final AuditEvent update = createAuditEvent(TestData.CORRELATION_ID, "2");
+
+        target.write(create);
+        target.write(update);
+
+        assertThat(args.tasks.size(), is(1));
+
+        args.runTasks();
+
+        final var inOrder = inOrder(args.delegate);
+
+        inOrder.verify(args.delegate).write(create);
+        inOrder.verify(args.delegate).write(update);
+    }
+
+    @Test
+    void write_differentLanes_shouldScheduleTaskPerLane() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final PartitionedAuditEventWriter target = createWriter(args);
+        final AuditEvent auditEvent1 = createAuditEvent(TestData.CORRELATION_ID, "1");
+        final AuditEvent auditEvent2 = createAuditEvent(TestData.OTHER_CORRELATION_ID, "2");
+
+        assertThat(target.laneIndex(auditEvent1), is(not(target.laneIndex(auditEvent2))));
+
+        target.write(auditEvent1);
+        target.write(auditEvent2);
+
+        assertThat(args.tasks.size(), is(2));
+    }
+
+    @Test
+    void write_auditEventAddedWhileLaneDraining_shouldRescheduleLane() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final PartitionedAuditEventWriter target = createWriter(args);
+        final AuditEvent auditEvent1 = createAuditEvent(TestData.CORRELATION_ID, "1");
+        final AuditEvent auditEvent2 = createAuditEvent(TestData.CORRELATION_ID, "2");
+
+        doAnswer(iom -> {
+            target.write(auditEvent2);
+            return null;
+        }).when(args.delegate).write(auditEvent1);
+
+        target.write(auditEvent1);
+        args.runTasks();
+
+        verify(args.delegate, times(1)).write(auditEvent2);
+    }
+
+    @Test
+    void laneIndex_noCorrelationId_shouldUseId() {
+        final PartitionedAuditEventWriter target = createWriter(new PartitionedAuditEventWriterArgs(true));
+
+        assertThat(target.laneIndex(createAuditEvent(null, "1")), is(target.laneIndex(createAuditEvent(null, "1"))));
+        assertThat(target.laneIndex(createAuditEvent(null, "1")), is(target.laneIndex(createAuditEvent("1", "2"))));
+    }
+
+    @Test
+    void laneIndex_noCorrelationIdOrId_shouldUseFirstLane() {
+        final PartitionedAuditEventWriter target = createWriter(new PartitionedAuditEventWriterArgs(true));
+
+        assertThat(target.laneIndex(createAuditEvent(null, null)), is(0));
+    }
+
+    @Test
+    void write_delegateFails_shouldLogErrorAndWriteRemainingAuditEvents() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final PartitionedAuditEventWriter target = createWriter(args);
+        final AuditEvent auditEvent1 = createAuditEvent(TestData.CORRELATION_ID, "1");
+        final AuditEvent auditEvent2 = createAuditEvent(TestData.CORRELATION_ID, "2");
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(auditEvent1);
+
+        target.write(auditEvent1);
+        target.write(auditEvent2);
+
+        verifyErrorLogging(
+                PartitionedAuditEventWriter.class,
+                () -> {
+                    args.runTasks();
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event",
+                "type=" + TestData.TYPE
+        );
+
+        verify(args.delegate, times(1)).write(auditEvent2);
+    }
+
+    @Test
+    void write_executionRejected_shouldWriteAuditEventOnCallingThread() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent(TestData.CORRELATION_ID, "1");
+
+        doThrow(new RejectedExecutionException("Test")).when(args.executorService).execute(any());
+
+        verifyWarnLogging(
+                PartitionedAuditEventWriter.class,
+                () -> {
+                    createWriter(args).write(auditEvent);
+                    return null;
+                },
+                "Failed to schedule audit event lane, writing audit events on calling thread"
+        );
+
+        verify(args.delegate, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_concurrentProducers_shouldPreserveOrderPerCorrelationId() throws Exception {
+        final ExecutorService executorService = Executors.newFixedThreadPool(TestData.THREADS);
+        final ExecutorService producers = Executors.newFixedThreadPool(TestData.PRODUCERS);
+        final Map<String, List<Integer>> written = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(TestData.PRODUCERS * TestData.EVENTS_PER_PRODUCER);
+
+        final AuditEventWriter delegate = auditEvent -> {
+            written.computeIfAbsent(auditEvent.getCorrelationId(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(Integer.valueOf(auditEvent.getId()));
+            latch.countDown();
+        };
+        final PartitionedAuditEventWriter target = new PartitionedAuditEventWriter(
+                false, delegate, executorService, TestData.LANES
+        );
+
+        try {
+            for (int p = 0; p < TestData.PRODUCERS; p++) {
+                final String correlationId = "producer-" + p;
+
+                producers.execute(() -> IntStream.range(0, TestData.EVENTS_PER_PRODUCER)
+                        .forEach(i -> target.write(createAuditEvent(correlationId, Integer.toString(i)))));
+            }
+
+            assertThat(latch.await(TestData.TIMEOUT_SECONDS, TimeUnit.SECONDS), is(true));
+        } finally {
+            producers.shutdownNow();
+            executorService.shutdownNow();
+        }
+
+        final List<Integer> expected = IntStream.range(0, TestData.EVENTS_PER_PRODUCER).boxed().collect(Collectors.toList());
+
+        assertThat(written.size(), is(TestData.PRODUCERS));
+        written.values().forEach(ids -> assertThat(ids, is(expected)));
+    }
+
+    @Test
+    void constructor_noLanes_shouldThrowException() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+
+        final IllegalArgumentException result = assertThrows(
+                IllegalArgumentException.class,
+                () -> new PartitionedAuditEventWriter(args.delegate, args.executorService, 0)
+        );
+
+        assertThat(result.getMessage(), is("Number of lanes must be greater than zero: 0"));
+    }
+
+    @Test
+    void constructor_defaultConstructor_shouldCreateNewInstanceWithTransactionSyncManFacade() {
+        final PartitionedAuditEventWriterArgs args = new PartitionedAuditEventWriterArgs(true);
+        final PartitionedAuditEventWriter result = new PartitionedAuditEventWriter(args.delegate, args.executorService, TestData.LANES);
+
+        final Object transactionSyncManFacade = ReflectionTestUtils.getField(result, "transactionSyncManFacade");
+
+        assertThat(transactionSyncManFacade, is(notNullValue()));
+        assertThat(transactionSyncManFacade, instanceOf(TransactionSyncManFacade.class));
+    }
+
+    private static AuditEvent createAuditEvent(String correlationId, String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(correlationId)
+                .id(id)
+                .build();
+    }
+
+    private static PartitionedAuditEventWriter createWriter(PartitionedAuditEventWriterArgs args) {
+        return new PartitionedAuditEventWriter(
+                args.includeCorrelationIdInLogs, args.delegate, args.executorService, TestData.LANES,
+                new DefaultCorrelationIdProvider(), args.transactionSyncManFacade
+        );
+    }
+
+    private static class PartitionedAuditEventWriterArgs {
+        boolean includeCorrelationIdInLogs;
+        AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        ExecutorService executorService = Mockito.mock(ExecutorService.class);
+        TransactionSyncManFacade transactionSyncManFacade = Mockito.mock(TransactionSyncManFacade.class);
+        List<Runnable> tasks = new ArrayList<>();
+
+        PartitionedAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
+            this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+
+            // Queue the tasks rather than running them, so that the tests control when the lanes are drained
+            doAnswer(iom -> tasks.add(iom.getArgument(0, Runnable.class))).when(executorService).execute(any());
+        }
+
+        void runTasks() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.spt.development.audit.spring;
+
+import ch.qos.logback.classic.Level;
+import com.spt.development.cid.CorrelationId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+
+import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
+import static com.spt.development.test.LogbackUtil.verifyLogging;
+import static com.spt.development.test.LogbackUtil.verifyWarnLogging;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientAuditEventWriterTest {
+    private static final class TestData {
+        static final String TYPE = "APPLICATION";
+        static final String SUB_TYPE = "UPDATE";
+        static final String CORRELATION_ID = "0f6b5a3e-8d2c-4c1b-9a7e-3b2d1c0e9f8a";
+        static final String ID = "100";
+        static final double JITTER = 0.5;
+        static final Duration INITIAL_BACKOFF = Duration.ofMillis(100);
+        static final Duration MAX_BACKOFF = Duration.ofMillis(250);
+        static final Duration OPEN_DURATION = Duration.ofSeconds(30);
+        static final int FAILURE_THRESHOLD = 2;
+    }
+
+    @BeforeEach
+    void setUp() {
+        CorrelationId.set(TestData.CORRELATION_ID);
+    }
+
+    @AfterEach
+    void tearDown() {
+        CorrelationId.reset();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_validAuditEvent_shouldWriteAuditEventToDelegateOnScheduledExecutorService(boolean includeCorrelationIdInLogs) {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(includeCorrelationIdInLogs);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.scheduledExecutorService, times(1)).execute(any());
+        verify(args.delegate, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_validAuditEventInActiveTransaction_shouldNotWriteAuditEventUntilTransactionCommits() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(true);
+
+        createWriter(args).write(createAuditEvent());
+
+        verify(args.transactionSyncManFacade).register(any(TransactionSynchronization.class));
+        verify(args.delegate, never()).write(any());
+    }
+
+    @Test
+    void write_delegateFailsOnce_shouldRetryAfterJitteredBackoff() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doThrow(new IllegalStateException("Test")).doNothing().when(args.delegate).write(any());
+
+        verifyWarnLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    createWriter(args).write(auditEvent);
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event, will retry in 50ms",
+                "type=" + TestData.TYPE
+        );
+
+        assertThat(args.delays, is(List.of(50L)));
+
+        verify(args.delegate, times(2)).write(auditEvent);
+        verify(args.fallback, never()).write(any());
+    }
+
+    @Test
+    void write_delegateKeepsFailing_shouldBackOffExponentiallyAndDivertToFallback() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(false);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        createWriter(args).withMaxAttempts(4).withCircuitBreaker(5, TestData.OPEN_DURATION).write(auditEvent);
+
+        assertThat(args.delays, is(List.of(50L, 100L, 125L)));
+
+        verify(args.delegate, times(4)).write(auditEvent);
+        verify(args.fallback, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_allAttemptsFail_shouldLogWarning() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        verifyWarnLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    createWriter(args).withMaxAttempts(1).write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event after 1 attempt(s)",
+                "type=" + TestData.TYPE
+        );
+    }
+
+    @Test
+    void write_delegateFailsNoFallback_shouldLogAuditEvent() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        verifyErrorLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    createWriter(args).withMaxAttempts(1).withFallback(null).write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event: ",
+                "type=" + TestData.TYPE,
+                "subType=" + TestData.SUB_TYPE
+        );
+    }
+
+    @Test
+    void write_fallbackFails_shouldLogError() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+        doThrow(new IllegalStateException("Test")).when(args.fallback).write(any());
+
+        verifyErrorLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    createWriter(args).withMaxAttempts(1).write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write audit event to fallback",
+                "type=" + TestData.TYPE
+        );
+    }
+
+    @Test
+    void write_failureThresholdReached_shouldOpenCircuit() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = createWriter(args).withMaxAttempts(1);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        target.write(createAuditEvent());
+
+        assertThat(target.isCircuitOpen(), is(false));
+
+        verifyErrorLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    target.write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write 2 audit event(s) in a row, opening circuit for 30000ms"
+        );
+
+        assertThat(target.isCircuitOpen(), is(true));
+    }
+
+    @Test
+    void write_circuitOpen_shouldDivertAuditEventWithoutCallingDelegate() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = openCircuit(args);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        target.write(auditEvent);
+
+        verify(args.scheduledExecutorService, times(TestData.FAILURE_THRESHOLD)).execute(any());
+        verify(args.delegate, times(TestData.FAILURE_THRESHOLD)).write(any());
+        verify(args.fallback, times(TestData.FAILURE_THRESHOLD + 1)).write(any());
+    }
+
+    @Test
+    void write_circuitOpenDurationPassedAndTrialSucceeds_shouldCloseCircuit() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = openCircuit(args);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        Mockito.reset(args.delegate);
+        args.now.addAndGet(TestData.OPEN_DURATION.toMillis());
+
+        verifyLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    target.write(auditEvent);
+                    return null;
+                },
+                Level.INFO,
+                "[" + TestData.CORRELATION_ID + "]",
+                "Audit event written, closing circuit"
+        );
+
+        assertThat(target.isCircuitOpen(), is(false));
+
+        verify(args.delegate, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_circuitOpenDurationPassedAndTrialFails_shouldReopenCircuit() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = openCircuit(args);
+
+        args.now.addAndGet(TestData.OPEN_DURATION.toMillis());
+
+        verifyErrorLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    target.write(createAuditEvent());
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to write 3 audit event(s) in a row, opening circuit for 30000ms"
+        );
+
+        target.write(createAuditEvent());
+
+        assertThat(target.isCircuitOpen(), is(true));
+
+        verify(args.delegate, times(TestData.FAILURE_THRESHOLD + 1)).write(any());
+    }
+
+    @Test
+    void write_circuitTrialInProgress_shouldDivertOtherAuditEvents() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = openCircuit(args);
+        final AuditEvent trialAuditEvent = createAuditEvent();
+        final AuditEvent otherAuditEvent = AuditEvent.builder().type(TestData.TYPE).subType(TestData.SUB_TYPE).id("other").build();
+
+        Mockito.reset(args.delegate, args.fallback);
+        args.now.addAndGet(TestData.OPEN_DURATION.toMillis());
+
+        doAnswer(iom -> {
+            target.write(otherAuditEvent);
+            return null;
+        }).when(args.delegate).write(trialAuditEvent);
+
+        target.write(trialAuditEvent);
+
+        verify(args.delegate, never()).write(otherAuditEvent);
+        verify(args.fallback, times(1)).write(otherAuditEvent);
+    }
+
+    @Test
+    void write_writeStartedBeforeCircuitOpenedFailsDuringTrial_shouldNotPermitSecondTrial() throws Exception {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final ResilientAuditEventWriter target = createWriter(args).withMaxAttempts(1);
+        final AuditEvent stragglerAuditEvent = createAuditEvent("straggler");
+        final AuditEvent trialAuditEvent = createAuditEvent("trial");
+        final AuditEvent otherAuditEvent = createAuditEvent("other");
+        final CountDownLatch stragglerStarted = new CountDownLatch(1);
+        final CountDownLatch stragglerReleased = new CountDownLatch(1);
+        final Thread straggler = new Thread(() -> target.write(stragglerAuditEvent));
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+        doAnswer(iom -> {
+            stragglerStarted.countDown();
+            stragglerReleased.await();
+            throw new IllegalStateException("Test");
+        }).when(args.delegate).write(stragglerAuditEvent);
+
+        straggler.start();
+        stragglerStarted.await();
+
+        for (int i = 0; i < TestData.FAILURE_THRESHOLD; i++) {
+            target.write(createAuditEvent());
+        }
+        args.now.addAndGet(TestData.OPEN_DURATION.toMillis());
+
+        doAnswer(iom -> {
+            stragglerReleased.countDown();
+            straggler.join();
+
+            args.now.addAndGet(TestData.OPEN_DURATION.toMillis());
+            target.write(otherAuditEvent);
+            return null;
+        }).when(args.delegate).write(trialAuditEvent);
+
+        target.write(trialAuditEvent);
+
+        verify(args.delegate, never()).write(otherAuditEvent);
+        verify(args.fallback, times(1)).write(otherAuditEvent);
+    }
+
+    @Test
+    void write_executionRejected_shouldLogWarningAndDivertAuditEvent() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doThrow(new RejectedExecutionException("Test")).when(args.scheduledExecutorService).execute(any());
+
+        verifyWarnLogging(
+                ResilientAuditEventWriter.class,
+                () -> {
+                    createWriter(args).write(auditEvent);
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to schedule write of audit event"
+        );
+
+        verify(args.delegate, never()).write(any());
+        verify(args.fallback, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void write_retryRejected_shouldDivertAuditEvent() {
+        final ResilientAuditEventWriterArgs args = new ResilientAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+        when(args.scheduledExecutorService.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS)))
+                .thenThrow(new RejectedExecutionException("Test"));
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.delegate, times(1)).write(auditEvent);
+        verify(args.fallback, times(1)).write(auditEvent);
+    }
+
+    @Test
+    void constructor_defaultConstructor_shouldCreateNewInstanceWithTransactionSyncManFacade() {
+        final ResilientAuditEventWriter result = new ResilientAuditEventWriter(
+                Mockito.mock(AuditEventWriter.class), Mockito.mock(ScheduledExecutorService.class)
+        );
+
+        final Object transactionSyncManFacade = ReflectionTestUtils.getField(result, "transactionSyncManFacade");
+
+        assertThat(transactionSyncManFacade, is(notNullValue()));
+        assertThat(transactionSyncManFacade, instanceOf(TransactionSyncManFacade.class));
+    }
+
+    @Test
+    void constructor_defaultConstructor_shouldJitterBackoffWithinRange() {
+        final ResilientAuditEventWriter result = new ResilientAuditEventWriter(
+                Mockito.mock(AuditEventWriter.class), Mockito.mock(ScheduledExecutorService.class)
+        );
+
+        final double jitter = ((DoubleSupplier) ReflectionTestUtils.getField(result, "jitter")).getAsDouble();
+
+        assertThat(jitter >= 0 && jitter < 1, is(true));
+    }
+
+    private ResilientAuditEventWriter openCircuit(ResilientAuditEventWriterArgs args) {
+        final ResilientAuditEventWriter target = createWriter(args).withMaxAttempts(1);
+
+        doThrow(new IllegalStateException("Test")).when(args.delegate).write(any());
+
+        for (int i = 0; i < TestData.FAILURE_THRESHOLD; i++) {
+            target.write(createAuditEvent());
+        }
+        return target;
+    }
+
+    private AuditEvent createAuditEvent() {
+        return createAuditEvent(TestData.ID);
+    }
+
+    private AuditEvent createAuditEvent(String id) {
+        return AuditEvent.builder()
+                .type(TestData.TYPE)
+                .subType(TestData.SUB_TYPE)
+                .correlationId(TestData.CORRELATION_ID)
+                .id(id)
+                .build();
+    }
+
+    private ResilientAuditEventWriter createWriter(ResilientAuditEventWriterArgs args) {
+        return new ResilientAuditEventWriter(
+                args.includeCorrelationIdInLogs, args.delegate, args.scheduledExecutorService, new DefaultCorrelationIdProvider(),
+                args.transactionSyncManFacade, args.clock, () -> TestData.JITTER
+        )
+                .withBackoff(TestData.INITIAL_BACKOFF, TestData.MAX_BACKOFF)
+                .withCircuitBreaker(TestData.FAILURE_THRESHOLD, TestData.OPEN_DURATION)
+                .withFallback(args.fallback);
+    }
+
+    private static class ResilientAuditEventWriterArgs {
+        boolean includeCorrelationIdInLogs;
+        AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        AuditEventWriter fallback = Mockito.mock(AuditEventWriter.class);
+        ScheduledExecutorService scheduledExecutorService = Mockito.mock(ScheduledExecutorService.class);
+        TransactionSyncManFacade transactionSyncManFacade = Mockito.mock(TransactionSyncManFacade.class);
+        Clock clock = Mockito.mock(Clock.class);
+        AtomicLong now = new AtomicLong(1_595_172_557_123L);
+        List<Long> delays = new ArrayList<>();
+
+        ResilientAuditEventWriterArgs(boolean includeCorrelationIdInLogs) {
+            this.includeCorrelationIdInLogs = includeCorrelationIdInLogs;
+
+            when(clock.millis()).thenAnswer(iom -> now.get());
+
+            // Run everything inline, recording the retry delays rather than waiting for them
+            doAnswer(iom -> {
+                iom.getArgument(0, Runnable.class).run();
+                return null;
+            }).when(scheduledExecutorService).execute(any());
+
+            when(scheduledExecutorService.schedule(any(Runnable.class), anyLong(), eq(TimeUnit.MILLISECONDS))).thenAnswer(iom -> {
+                delays.add(iom.getArgument(1, Long.class));
+                iom.getArgument(0, Runnable.class).run();
+                return null;
+            });
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.spt.development.audit.spring;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class RoutingAuditEventWriterTest {
+    private static final class TestData {
+        static final String SECURITY_TYPE = "SECURITY";
+        static final String ORDER_TYPE = "ORDER";
+        static final String DEBUG_TYPE = "DEBUG";
+        static final String OTHER_TYPE = "OTHER";
+        static final String READ_SUB_TYPE = "READ";
+        static final String CREATE_SUB_TYPE = "CREATE";
+        static final String DELETE_SUB_TYPE = "DELETE";
+    }
+
+    @Test
+    void write_typeRoute_shouldWriteAuditEventToRouteWriter() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent auditEvent = createAuditEvent(TestData.SECURITY_TYPE, TestData.CREATE_SUB_TYPE);
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.securityWriter).write(auditEvent);
+        verifyNoInteractions(args.defaultWriter, args.fileWriter);
+    }
+
+    @Test
+    void write_subTypeRoute_shouldTakePrecedenceOverTypeRoute() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent auditEvent = createAuditEvent(TestData.ORDER_TYPE, TestData.READ_SUB_TYPE);
+
+        createWriter(args).withRoute(TestData.ORDER_TYPE, args.securityWriter).write(auditEvent);
+
+        verify(args.fileWriter).write(auditEvent);
+        verifyNoInteractions(args.defaultWriter, args.securityWriter);
+    }
+
+    @Test
+    void write_noMatchingSubTypeRouteOrTypeRoute_shouldWriteAuditEventToDefaultWriter() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent auditEvent = createAuditEvent(TestData.ORDER_TYPE, TestData.CREATE_SUB_TYPE);
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.defaultWriter).write(auditEvent);
+        verifyNoInteractions(args.fileWriter, args.securityWriter);
+    }
+
+    @Test
+    void write_noMatchingType_shouldWriteAuditEventToDefaultWriter() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent auditEvent = createAuditEvent(TestData.OTHER_TYPE, TestData.READ_SUB_TYPE);
+
+        createWriter(args).write(auditEvent);
+
+        verify(args.defaultWriter).write(auditEvent);
+        verifyNoInteractions(args.fileWriter, args.securityWriter);
+    }
+
+    @Test
+    void write_discardedTypeOrSubType_shouldNotWriteAuditEvent() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final RoutingAuditEventWriter target = createWriter(args);
+
+        target.write(createAuditEvent(TestData.DEBUG_TYPE, TestData.CREATE_SUB_TYPE));
+        target.write(createAuditEvent(TestData.ORDER_TYPE, TestData.DELETE_SUB_TYPE));
+
+        verifyNoInteractions(args.defaultWriter, args.fileWriter, args.securityWriter);
+    }
+
+    @Test
+    void writeAll_auditEventsWithDifferentRoutes_shouldWriteBatchToEachRouteWriterInOrder() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent security1 = createAuditEvent(TestData.SECURITY_TYPE, TestData.CREATE_SUB_TYPE);
+        final AuditEvent read = createAuditEvent(TestData.ORDER_TYPE, TestData.READ_SUB_TYPE);
+        final AuditEvent discarded = createAuditEvent(TestData.DEBUG_TYPE, TestData.READ_SUB_TYPE);
+        final AuditEvent security2 = createAuditEvent(TestData.SECURITY_TYPE, TestData.READ_SUB_TYPE);
+
+        createWriter(args).writeAll(List.of(security1, read, discarded, security2));
+
+        verify(args.securityWriter).writeAll(List.of(security1, security2));
+        verify(args.fileWriter).writeAll(List.of(read));
+        verify(args.securityWriter, never()).write(any());
+        verifyNoInteractions(args.defaultWriter);
+    }
+
+    @Test
+    void writeDeferred_auditEventsWithDifferentRoutes_shouldBuildOnceAndGiveEachRouteWriterItsBatch() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent security = createAuditEvent(TestData.SECURITY_TYPE, TestData.CREATE_SUB_TYPE);
+        final AuditEvent read = createAuditEvent(TestData.ORDER_TYPE, TestData.READ_SUB_TYPE);
+        final AuditEvent discarded = createAuditEvent(TestData.DEBUG_TYPE, TestData.READ_SUB_TYPE);
+        final AtomicInteger builds = new AtomicInteger();
+
+        createWriter(args).writeDeferred(() -> {
+            builds.incrementAndGet();
+            return List.of(security, read, discarded);
+        });
+
+        assertThat(captureDeferred(args.fileWriter).get(), is(List.of(read)));
+        assertThat(captureDeferred(args.securityWriter).get(), is(List.of(security)));
+        assertThat(captureDeferred(args.defaultWriter).get(), is(List.of()));
+        assertThat(builds.get(), is(1));
+    }
+
+    @Test
+    void writeDeferred_routesAddedAfterFirstUse_shouldIncludeNewRouteWriters() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+        final AuditEvent security = createAuditEvent(TestData.SECURITY_TYPE, TestData.CREATE_SUB_TYPE);
+        final RoutingAuditEventWriter target = new RoutingAuditEventWriter(args.defaultWriter);
+
+        target.isDiscarding();
+        target.withRoute(TestData.SECURITY_TYPE, args.securityWriter).writeDeferred(() -> List.of(security));
+
+        assertThat(captureDeferred(args.securityWriter).get(), is(List.of(security)));
+    }
+
+    @Test
+    void isDiscarding_allRouteWritersDiscarding_shouldReturnTrue() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+
+        when(args.defaultWriter.isDiscarding()).thenReturn(true);
+        when(args.securityWriter.isDiscarding()).thenReturn(true);
+        when(args.fileWriter.isDiscarding()).thenReturn(true);
+
+        assertThat(createWriter(args).isDiscarding(), is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void isDiscarding_anyRouteWriterNotDiscarding_shouldReturnFalse(boolean defaultWriterDiscarding) {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+
+        when(args.defaultWriter.isDiscarding()).thenReturn(defaultWriterDiscarding);
+        when(args.securityWriter.isDiscarding()).thenReturn(!defaultWriterDiscarding);
+        when(args.fileWriter.isDiscarding()).thenReturn(true);
+
+        assertThat(createWriter(args).isDiscarding(), is(false));
+    }
+
+    @Test
+    void isDiscarding_onlyDiscardedRoutes_shouldReturnTrue() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+
+        when(args.defaultWriter.isDiscarding()).thenReturn(true);
+
+        assertThat(new RoutingAuditEventWriter(args.defaultWriter).withDiscarded(TestData.DEBUG_TYPE).isDiscarding(), is(true));
+    }
+
+    @Test
+    void route_nullTypeAndSubType_shouldRouteToDefaultWriter() {
+        final RoutingAuditEventWriterArgs args = new RoutingAuditEventWriterArgs();
+
+        assertThat(createWriter(args).route(AuditEvent.builder().build()), is(args.defaultWriter));
+    }
+
+    private static AuditEvent createAuditEvent(String type, String subType) {
+        return AuditEvent.builder().type(type).subType(subType).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Supplier<Collection<AuditEvent>> captureDeferred(AuditEventWriter writer) {
+        final ArgumentCaptor<Supplier<Collection<AuditEvent>>> captor = ArgumentCaptor.forClass(Supplier.class);
+
+        verify(writer).writeDeferred(captor.capture());
+
+        return captor.getValue();
+    }
+
+    private static RoutingAuditEventWriter createWriter(RoutingAuditEventWriterArgs args) {
+        return new RoutingAuditEventWriter(args.defaultWriter)
+                .withRoute(TestData.SECURITY_TYPE, args.securityWriter)
+                .withRoute(TestData.ORDER_TYPE, TestData.READ_SUB_TYPE, args.fileWriter)
+                .withDiscarded(TestData.DEBUG_TYPE)
+                .withDiscarded(TestData.ORDER_TYPE, TestData.DELETE_SUB_TYPE);
+    }
+
+    private static class RoutingAuditEventWriterArgs {
+        AuditEventWriter defaultWriter = Mockito.mock(AuditEventWriter.class);
+        AuditEventWriter securityWriter = Mockito.mock(AuditEventWriter.class);
+        AuditEventWriter fileWriter = Mockito.mock(AuditEventWriter.class);
+    }
+}
@@ -1,16 +1,25 @@
 package com.spt.development.audit.spring;
 
 import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.spt.development.cid.CorrelationId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.slf4j.event.KeyValuePair;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import static com.spt.development.test.LogbackUtil.verifyInfoLogging;
@@ -19,8 +28,13 @@ import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 class Slf4jAuditEventWriterTest {
     private static final Gson GSON = new GsonBuilder().create();
@@ -38,6 +52,9 @@ class Slf4jAuditEventWriterTest {
         static final String SERVICE_VERSION = "1.0.1";
         static final String SERVER_HOST_NAME = "localhost";
         static final OffsetDateTime CREATED = OffsetDateTime.of(2020, 7, 19, 15, 29, 17, 0, ZoneOffset.UTC);
+        static final String EVENT_ID = "01EDPK3M3V0000000000000000";
+        static final String MDC_KEY = "correlationId";
+        static final String PREVIOUS_CORRELATION_ID = "f1a0d3c2-7b6e-4d5c-8a9b-0c1d2e3f4a5b";
     }
 
     @BeforeEach
@@ -104,6 +121,168 @@ class Slf4jAuditEventWriterTest {
         );
     }
 
+    @Test
+    void write_structuredOutput_shouldLogAuditEventFieldsAsKeyValuePairsWithCorrelationIdInMdc() {
+        verifyLogging(
+                Slf4jAuditEventWriter.class,
+                () -> {
+                    new Slf4jAuditEventWriter().withStructuredOutput().write(createAuditEvent());
+                    return null;
+                },
+                (logs) -> {
+                    final ILoggingEvent logEvent = logs.stream()
+                            .filter(e -> e.getLevel() == Level.INFO)
+                            .findFirst()
+                            .orElse(null);
+
+                    assertThat(logEvent, is(notNullValue()));
+                    assertThat(logEvent.getFormattedMessage(), is("Audit event"));
+                    assertThat(logEvent.getMDCPropertyMap().get(Slf4jAuditEventWriter.DEFAULT_MDC_KEY), is(TestData.CORRELATION_ID));
+                    assertThat(toMap(logEvent.getKeyValuePairs()), is(createAuditEventKeyValuePairs()));
+                }
+        );
+
+        assertThat(MDC.get(Slf4jAuditEventWriter.DEFAULT_MDC_KEY), is(nullValue()));
+    }
+
+    @Test
+    void write_structuredOutputWithCorrelationIdAlreadyInMdc_shouldRestoreMdc() {
+        MDC.put(TestData.MDC_KEY, TestData.PREVIOUS_CORRELATION_ID);
+
+        try {
+            verifyLogging(
+                    Slf4jAuditEventWriter.class,
+                    () -> {
+                        new Slf4jAuditEventWriter().withStructuredOutput(TestData.MDC_KEY).write(createAuditEvent());
+                        return null;
+                    },
+                    (logs) -> assertThat(logs.get(0).getMDCPropertyMap().get(TestData.MDC_KEY), is(TestData.CORRELATION_ID))
+            );
+
+            assertThat(MDC.get(TestData.MDC_KEY), is(TestData.PREVIOUS_CORRELATION_ID));
+        } finally {
+            MDC.remove(TestData.MDC_KEY);
+        }
+    }
+
+    @Test
+    void write_structuredOutputWithoutCorrelationId_shouldNotAddCorrelationIdToMdc() {
+        verifyLogging(
+                Slf4jAuditEventWriter.class,
+                () -> {
+                    new Slf4jAuditEventWriter(false).withStructuredOutput().write(createAuditEvent());
+                    return null;
+                },
+                (logs) -> {
+                    assertThat(logs.get(0).getMDCPropertyMap().containsKey(Slf4jAuditEventWriter.DEFAULT_MDC_KEY), is(false));
+                    assertThat(toMap(logs.get(0).getKeyValuePairs()), is(createAuditEventKeyValuePairs()));
+                }
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_infoLoggingDisabled_shouldNotFormatAuditEvent(boolean structuredOutput) {
+        final Logger logger = (Logger) LoggerFactory.getLogger(Slf4jAuditEventWriter.class);
+        final Level level = logger.getLevel();
+        final AuditEvent auditEvent = Mockito.mock(AuditEvent.class);
+        final Slf4jAuditEventWriter target = new Slf4jAuditEventWriter();
+
+        if (structuredOutput) {
+            target.withStructuredOutput();
+        }
+
+        logger.setLevel(Level.WARN);
+
+        try {
+            target.write(auditEvent);
+        } finally {
+            logger.setLevel(level);
+        }
+
+        verifyNoInteractions(auditEvent);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void writeAll_multipleAuditEvents_shouldLogEachAuditEventInOrder(boolean includeCorrelationIdInLogs) {
+        final CorrelationIdProvider correlationIdProvider = Mockito.mock(CorrelationIdProvider.class);
+
+        when(correlationIdProvider.getCorrelationId()).thenReturn(TestData.CORRELATION_ID);
+
+        verifyLogging(
+                Slf4jAuditEventWriter.class,
+                () -> {
+                    new Slf4jAuditEventWriter(includeCorrelationIdInLogs, correlationIdProvider).writeAll(
+                            List.of(createAuditEvent().toBuilder().id("1").build(), createAuditEvent().toBuilder().id("2").build())
+                    );
+                    return null;
+                },
+                (logs) -> {
+                    final List<String> messages = logs.stream()
+                            .filter(e -> e.getLevel() == Level.INFO)
+                            .map(ILoggingEvent::getFormattedMessage)
+                            .toList();
+
+                    assertThat(messages.size(), is(2));
+                    assertThat(messages.get(0), containsString("id=1,"));
+                    assertThat(messages.get(1), containsString("id=2,"));
+                    assertThat(messages.get(1).startsWith("[" + TestData.CORRELATION_ID + "]"), is(includeCorrelationIdInLogs));
+                }
+        );
+
+        // The correlation ID is only looked up once for the whole batch
+        verify(correlationIdProvider, times(includeCorrelationIdInLogs ? 1 : 0)).getCorrelationId();
+    }
+
+    @Test
+    void writeAll_structuredOutput_shouldLogEachAuditEventFieldsAsKeyValuePairs() {
+        verifyLogging(
+                Slf4jAuditEventWriter.class,
+                () -> {
+                    new Slf4jAuditEventWriter().withStructuredOutput().writeAll(List.of(createAuditEvent(), createAuditEvent()));
+                    return null;
+                },
+                (logs) -> {
+                    final List<ILoggingEvent> logEvents = logs.stream()
+                            .filter(e -> e.getLevel() == Level.INFO)
+                            .toList();
+
+                    assertThat(logEvents.size(), is(2));
+                    assertThat(toMap(logEvents.get(1).getKeyValuePairs()), is(createAuditEventKeyValuePairs()));
+                }
+        );
+    }
+
+    private Map<String, Object> createAuditEventKeyValuePairs() {
+        final AuditEvent auditEvent = createAuditEvent();
+        final Map<String, Object> keyValuePairs = new LinkedHashMap<>();
+
+        keyValuePairs.put("type", auditEvent.getType());
+        keyValuePairs.put("subType", auditEvent.getSubType());
+        keyValuePairs.put("correlationId", auditEvent.getCorrelationId());
+        keyValuePairs.put("id", auditEvent.getId());
+        keyValuePairs.put("details", auditEvent.getDetails());
+        keyValuePairs.put("userId", auditEvent.getUserId());
+        keyValuePairs.put("username", auditEvent.getUsername());
+        keyValuePairs.put("originatingIP", auditEvent.getOriginatingIP());
+        keyValuePairs.put("serviceId", auditEvent.getServiceId());
+        keyValuePairs.put("serviceVersion", auditEvent.getServiceVersion());
+        keyValuePairs.put("serverHostName", auditEvent.getServerHostName());
+        keyValuePairs.put("created", auditEvent.getCreated());
+        keyValuePairs.put("eventId", auditEvent.getEventId());
+
+        return keyValuePairs;
+    }
+
+    private static Map<String, Object> toMap(List<KeyValuePair> keyValuePairs) {
+        final Map<String, Object> map = new LinkedHashMap<>();
+
+        keyValuePairs.forEach(kvp -> map.put(kvp.key, kvp.value));
+
+        return map;
+    }
+
     private AuditEvent createAuditEvent() {
         return AuditEvent.builder()
                 .type(TestData.TYPE)
@@ -118,6 +297,7 @@ class Slf4jAuditEventWriterTest {
                 .serviceVersion(TestData.SERVICE_VERSION)
                 .serverHostName(TestData.SERVER_HOST_NAME)
                 .created(TestData.CREATED)
+                .eventId(TestData.EVENT_ID)
                 .build();
     }
 
@@ -5,20 +5,29 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
+import com.spt.development.audit.spring.jfr.AuditEventWrittenEvent;
+import com.spt.development.audit.spring.jfr.AuditTransactionSyncFlushedEvent;
+import com.spt.development.audit.spring.jfr.JfrRecordingUtil;
 import com.spt.development.cid.CorrelationId;
+import jdk.jfr.consumer.RecordedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
 import static com.spt.development.test.LogbackUtil.verifyInfoLogging;
@@ -28,9 +37,12 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.startsWith;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
@@ -356,12 +368,471 @@ class TransactionAwareAuditEventWriterTest {
         );
     }
 
+    @Test
+    void write_multipleAuditEventsInSameTransaction_shouldRegisterSingleSyncAndWriteAllAuditEventsOnCommit() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+
+        runInTransaction(() -> {
+            target.write(createAuditEvent());
+            target.write(createAuditEvent());
+
+            assertThat(TransactionSynchronizationManager.getSynchronizations().size(), is(1));
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(delegate, times(2)).write(any());
+        assertThat(TransactionSynchronizationManager.getResource(target), is(nullValue()));
+    }
+
+    @Test
+    void write_transactionSuspended_shouldRegisterNewSyncForInnerTransaction() {
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        );
+
+        runInTransaction(() -> {
+            target.write(createAuditEvent());
+
+            final TransactionSynchronization outer = TransactionSynchronizationManager.getSynchronizations().get(0);
+            outer.suspend();
+
+            assertThat(TransactionSynchronizationManager.getResource(target), is(nullValue()));
+
+            outer.resume();
+
+            assertThat(TransactionSynchronizationManager.getResource(target), is(outer));
+        }, TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    @Test
+    void write_writtenBeforeCommit_shouldWriteAuditEventsBeforeCommitAndPropagateFailures() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade()) {
+            @Override
+            protected boolean isWrittenBeforeCommit() {
+                return true;
+            }
+
+            @Override
+            protected void doWriteAll(List<AuditEvent> auditEvents) {
+                auditEvents.forEach(delegate::write);
+            }
+        };
+
+        doThrow(new IllegalStateException("Test")).when(delegate).write(any());
+
+        runInTransaction(() -> {
+            target.write(createAuditEvent());
+
+            final TransactionSynchronization sync = TransactionSynchronizationManager.getSynchronizations().get(0);
+
+            assertThrows(IllegalStateException.class, () -> sync.beforeCommit(false));
+
+            sync.afterCommit();
+        }, TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        verify(delegate, times(1)).write(any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void write_firstOfMultipleAuditEventsFailsToWrite_shouldStillWriteRemainingAuditEvents(boolean includeCorrelationIdInLogs) {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                includeCorrelationIdInLogs, delegate, new TransactionSyncManFacade()
+        );
+        final AuditEvent failed = createAuditEvent().toBuilder().id("FAILED").build();
+
+        doThrow(new RuntimeException("Test")).when(delegate).write(failed);
+
+        verifyErrorLogging(
+                TransactionAwareAuditEventWriter.class,
+                () -> {
+                    runInTransaction(() -> {
+                        target.write(failed);
+                        target.write(createAuditEvent());
+                    }, TransactionSynchronization.STATUS_COMMITTED);
+                    return null;
+                },
+                "Failed to write audit event:",
+                "id=FAILED"
+        );
+
+        verify(delegate, times(1)).write(createAuditEvent());
+    }
+
+    @Test
+    void writeAll_noActiveTransaction_shouldWriteAllAuditEventsImmediately() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+        final AuditEvent first = createAuditEvent().toBuilder().id("1").build();
+        final AuditEvent second = createAuditEvent().toBuilder().id("2").build();
+
+        target.writeAll(List.of(first, second));
+
+        final InOrder inOrder = Mockito.inOrder(delegate);
+
+        inOrder.verify(delegate).write(first);
+        inOrder.verify(delegate).write(second);
+    }
+
+    @Test
+    void writeAll_activeTransaction_shouldWriteAllAuditEventsInTransactionTogetherOnCommit() {
+        final List<List<AuditEvent>> batches = new ArrayList<>();
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        ) {
+            @Override
+            protected void doWriteAll(List<AuditEvent> auditEvents) {
+                batches.add(new ArrayList<>(auditEvents));
+            }
+        };
+        final AuditEvent first = createAuditEvent().toBuilder().id("1").build();
+        final AuditEvent second = createAuditEvent().toBuilder().id("2").build();
+        final AuditEvent third = createAuditEvent().toBuilder().id("3").build();
+
+        runInTransaction(() -> {
+            target.write(first);
+            target.writeAll(List.of(second, third));
+
+            assertThat(TransactionSynchronizationManager.getSynchronizations().size(), is(1));
+            assertThat(batches, is(empty()));
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(batches, is(List.of(List.of(first, second, third))));
+    }
+
+    @Test
+    void writeAll_activeTransactionNoExistingSync_shouldRegisterSync() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+
+        runInTransaction(() -> {
+            target.writeAll(List.of(createAuditEvent(), createAuditEvent()));
+
+            assertThat(TransactionSynchronizationManager.getSynchronizations().size(), is(1));
+            verify(delegate, never()).write(any());
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(delegate, times(2)).write(any());
+    }
+
+    @Test
+    void writeAll_noAuditEvents_shouldNotWriteOrRegisterSync() {
+        final TransactionAwareAuditEventWriter target = Mockito.spy(new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        ));
+
+        runInTransaction(() -> {
+            target.writeAll(List.of());
+
+            assertThat(TransactionSynchronizationManager.getSynchronizations(), is(empty()));
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        verify(target, never()).doWriteAll(any());
+    }
+
+    @Test
+    void write_noActiveTransaction_shouldRecordAuditEventWrittenEvent() {
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        );
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(AuditEventWrittenEvent.NAME, () -> target.write(createAuditEvent()));
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getClass("writerClass").getName(), is(TestTransactionAwareAuditEventWriter.class.getName()));
+        assertThat(events.get(0).getInt("eventCount"), is(1));
+        assertThat(events.get(0).getBoolean("success"), is(true));
+    }
+
+    @Test
+    void writeAll_noActiveTransaction_shouldRecordSingleAuditEventWrittenEvent() {
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        );
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(
+                AuditEventWrittenEvent.NAME, () -> target.writeAll(List.of(createAuditEvent("1"), createAuditEvent("2")))
+        );
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getClass("writerClass").getName(), is(TestTransactionAwareAuditEventWriter.class.getName()));
+        assertThat(events.get(0).getInt("eventCount"), is(2));
+        assertThat(events.get(0).getBoolean("success"), is(true));
+    }
+
+    @Test
+    void writeAll_noActiveTransactionOverriddenDoWriteAllFails_shouldRecordUnsuccessfulAuditEventWrittenEvent() {
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        ) {
+            @Override
+            protected void doWriteAll(List<AuditEvent> auditEvents) {
+                throw new IllegalStateException("Test");
+            }
+        };
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(
+                AuditEventWrittenEvent.NAME,
+                () -> assertThrows(IllegalStateException.class, () -> target.writeAll(List.of(createAuditEvent("1"), createAuditEvent("2"))))
+        );
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getInt("eventCount"), is(2));
+        assertThat(events.get(0).getBoolean("success"), is(false));
+    }
+
+    @Test
+    void write_multipleAuditEventsInSameTransactionOverriddenDoWriteAll_shouldRecordSingleAuditEventWrittenEvent() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade()) {
+            @Override
+            protected void doWriteAll(List<AuditEvent> auditEvents) {
+                delegate.writeAll(auditEvents);
+            }
+        };
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(
+                AuditEventWrittenEvent.NAME,
+                () -> runInTransaction(() -> {
+                    target.write(createAuditEvent("1"));
+                    target.write(createAuditEvent("2"));
+                }, TransactionSynchronization.STATUS_COMMITTED)
+        );
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getInt("eventCount"), is(2));
+        assertThat(events.get(0).getBoolean("success"), is(true));
+    }
+
+    @Test
+    void write_noActiveTransactionWriteFails_shouldRecordUnsuccessfulAuditEventWrittenEvent() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+
+        doThrow(new IllegalStateException("Test")).when(delegate).write(any());
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(AuditEventWrittenEvent.NAME, () -> target.write(createAuditEvent()));
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getBoolean("success"), is(false));
+    }
+
+    @Test
+    void write_multipleAuditEventsInSameTransaction_shouldRecordAuditTransactionSyncFlushedEvent() {
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(
+                true, Mockito.mock(AuditEventWriter.class), new TransactionSyncManFacade()
+        );
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(
+                AuditTransactionSyncFlushedEvent.NAME,
+                () -> runInTransaction(() -> {
+                    target.write(createAuditEvent());
+                    target.write(createAuditEvent());
+                }, TransactionSynchronization.STATUS_COMMITTED)
+        );
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getClass("writerClass").getName(), is(TestTransactionAwareAuditEventWriter.class.getName()));
+        assertThat(events.get(0).getInt("eventCount"), is(2));
+        assertThat(events.get(0).getBoolean("success"), is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void isIncludeCorrelationIdInLogs_validWriter_shouldReturnFlagWriterCreatedWith(boolean includeCorrelationIdInLogs) {
+        final TransactionAwareAuditEventWriterArgs args = new TransactionAwareAuditEventWriterArgs(includeCorrelationIdInLogs);
+
+        assertThat(createAuditEventWriter(args).isIncludeCorrelationIdInLogs(), is(includeCorrelationIdInLogs));
+    }
+
+    @Test
+    void writeDeferred_activeTransaction_shouldBuildAuditEventsOnCommitInOrderWritten() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+        final AuditEvent first = createAuditEvent("1");
+        final AuditEvent deferred1 = createAuditEvent("2");
+        final AuditEvent deferred2 = createAuditEvent("3");
+        final AuditEvent last = createAuditEvent("4");
+        final AtomicInteger builds = new AtomicInteger();
+
+        runInTransaction(() -> {
+            target.write(first);
+            target.writeDeferred(() -> {
+                builds.incrementAndGet();
+                return List.of(deferred1, deferred2);
+            });
+            target.write(last);
+
+            assertThat(builds.get(), is(0));
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        assertThat(builds.get(), is(1));
+
+        final InOrder inOrder = Mockito.inOrder(delegate);
+
+        inOrder.verify(delegate).write(first);
+        inOrder.verify(delegate).write(deferred1);
+        inOrder.verify(delegate).write(deferred2);
+        inOrder.verify(delegate).write(last);
+    }
+
+    @Test
+    void writeDeferred_transactionRolledBack_shouldNotBuildAuditEvents() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade());
+        final AtomicInteger builds = new AtomicInteger();
+
+        verifyLogging(
+                TransactionAwareAuditEventWriter.class,
+                () -> {
+                    runInTransaction(() -> target.writeDeferred(() -> {
+                        builds.incrementAndGet();
+                        return List.of(createAuditEvent());
+                    }), TransactionSynchronization.STATUS_ROLLED_BACK);
+                    return null;
+                },
+                (logs) -> assertThat(
+                        logs.stream().anyMatch(e -> e.getLevel() == Level.DEBUG && e.getFormattedMessage().equals(
+                                "[" + TestData.CORRELATION_ID + "] Transaction was rolled back, discarding 1 unbuilt batch(es) of deferred audit events"
+                        )),
+                        is(true)
+                )
+        );
+
+        assertThat(builds.get(), is(0));
+        Mockito.verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void writeDeferred_noActiveTransaction_shouldBuildAndWriteAuditEventsImmediately() {
+        final TransactionAwareAuditEventWriterArgs args = new TransactionAwareAuditEventWriterArgs(true);
+        final AuditEvent auditEvent = createAuditEvent();
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(false);
+
+        createAuditEventWriter(args).writeDeferred(() -> List.of(auditEvent));
+
+        verify(args.delegate, times(1)).write(auditEvent);
+        verify(args.transactionSyncManFacade, never()).register(any());
+    }
+
+    @Test
+    void writeDeferred_buildFailsOnCommit_shouldLogErrorAndSwallowException() {
+        final TransactionAwareAuditEventWriterArgs args = new TransactionAwareAuditEventWriterArgs(true);
+
+        verifyLogging(
+                TransactionAwareAuditEventWriter.class,
+                () -> {
+                    createAuditEventWriter(args).writeDeferred(() -> {
+                        throw new IllegalStateException("Programming error");
+                    });
+                    return null;
+                },
+                Level.ERROR,
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to build deferred audit events, discarding them"
+        );
+
+        Mockito.verifyNoInteractions(args.delegate);
+    }
+
+    @Test
+    void writeDeferred_oneBatchFailsToBuildBeforeCommit_shouldWriteOtherAuditEventsWithoutFailingTransaction() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade()) {
+            @Override
+            protected boolean isWrittenBeforeCommit() {
+                return true;
+            }
+        };
+        final AuditEvent first = createAuditEvent("1");
+        final AuditEvent deferred = createAuditEvent("2");
+        final AuditEvent last = createAuditEvent("3");
+
+        runInTransaction(() -> {
+            target.write(first);
+            target.writeDeferred(() -> {
+                throw new IllegalStateException("Programming error");
+            });
+            target.writeDeferred(() -> List.of(deferred));
+            target.write(last);
+        }, TransactionSynchronization.STATUS_COMMITTED);
+
+        final InOrder inOrder = Mockito.inOrder(delegate);
+
+        inOrder.verify(delegate).write(first);
+        inOrder.verify(delegate).write(deferred);
+        inOrder.verify(delegate).write(last);
+    }
+
+    @Test
+    void writeDeferred_onlyBatchFailsToBuild_shouldNotWriteEmptyBatch() {
+        final AuditEventWriter delegate = Mockito.mock(AuditEventWriter.class);
+        final TransactionAwareAuditEventWriter target = new TestTransactionAwareAuditEventWriter(true, delegate, new TransactionSyncManFacade()) {
+            @Override
+            protected void doWriteAll(List<AuditEvent> auditEvents) {
+                delegate.writeAll(auditEvents);
+            }
+        };
+
+        runInTransaction(() -> target.writeDeferred(() -> {
+            throw new IllegalStateException("Programming error");
+        }), TransactionSynchronization.STATUS_COMMITTED);
+
+        Mockito.verifyNoInteractions(delegate);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void isDiscarding_activeTransaction_shouldReturnWhetherTransactionIsRollbackOnly(boolean rollbackOnly) {
+        final TransactionAwareAuditEventWriterArgs args = new TransactionAwareAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isRollbackOnly()).thenReturn(rollbackOnly);
+
+        assertThat(createAuditEventWriter(args).isDiscarding(), is(rollbackOnly));
+    }
+
+    @Test
+    void isDiscarding_noActiveTransaction_shouldReturnFalse() {
+        final TransactionAwareAuditEventWriterArgs args = new TransactionAwareAuditEventWriterArgs(true);
+
+        when(args.transactionSyncManFacade.isTransactionActive()).thenReturn(false);
+
+        assertThat(createAuditEventWriter(args).isDiscarding(), is(false));
+        verify(args.transactionSyncManFacade, never()).isRollbackOnly();
+    }
+
+    private void runInTransaction(Runnable runnable, int status) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        try {
+            runnable.run();
+
+            final List<TransactionSynchronization> syncs = TransactionSynchronizationManager.getSynchronizations();
+
+            if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                syncs.forEach(s -> s.beforeCommit(false));
+                syncs.forEach(TransactionSynchronization::afterCommit);
+            }
+            syncs.forEach(s -> s.afterCompletion(status));
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
     private AuditEvent createAuditEvent() {
+        return createAuditEvent(TestData.ID);
+    }
+
+    private AuditEvent createAuditEvent(String id) {
         return AuditEvent.builder()
                 .type(TestData.TYPE)
                 .subType(TestData.SUB_TYPE)
                 .correlationId(TestData.CORRELATION_ID)
-                .id(TestData.ID)
+                .id(id)
                 .details(GSON.toJson(TestData.DETAILS))
                 .userId(TestData.USER_ID)
                 .username(TestData.USER_EMAIL)
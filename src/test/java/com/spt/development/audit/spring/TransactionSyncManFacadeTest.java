@@ -4,10 +4,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.interceptor.MatchAlwaysTransactionAttributeSource;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.util.concurrent.Callable;
+
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 class TransactionSyncManFacadeTest {
@@ -39,6 +47,31 @@ class TransactionSyncManFacadeTest {
         assertThat(result, is(true));
     }
 
+    @Test
+    void isRollbackOnly_noTransactionInterceptorTransaction_shouldReturnFalse() {
+        final boolean result = createFacade().isRollbackOnly();
+
+        assertThat(result, is(false));
+    }
+
+    @Test
+    void isRollbackOnly_transactionMarkedRollbackOnly_shouldReturnTrue() throws Throwable {
+        final Object result = new TestTransactionAspect().invoke(() -> {
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+
+            return createFacade().isRollbackOnly();
+        });
+
+        assertThat(result, is(true));
+    }
+
+    @Test
+    void isRollbackOnly_transactionNotMarkedRollbackOnly_shouldReturnFalse() throws Throwable {
+        final Object result = new TestTransactionAspect().invoke(() -> createFacade().isRollbackOnly());
+
+        assertThat(result, is(false));
+    }
+
     @Test
     void register_validSync_shouldRegisterSync() {
         final TransactionSynchronization sync = Mockito.mock(TransactionSynchronization.class);
@@ -48,7 +81,72 @@ class TransactionSyncManFacadeTest {
         assertThat(TransactionSynchronizationManager.getSynchronizations().contains(sync), is(true));
     }
 
-    private TransactionSyncManFacade createFacade() {
+    @Test
+    void getResource_resourceBound_shouldReturnResource() {
+        final Object key = new Object();
+        final Object resource = new Object();
+
+        createFacade().bindResource(key, resource);
+
+        final Object result = createFacade().getResource(key);
+
+        assertThat(result, is(resource));
+    }
+
+    @Test
+    void getResource_resourceUnbound_shouldReturnNull() {
+        final Object key = new Object();
+
+        createFacade().bindResource(key, new Object());
+        createFacade().unbindResource(key);
+
+        final Object result = createFacade().getResource(key);
+
+        assertThat(result, is(nullValue()));
+    }
+
+    private static TransactionSyncManFacade createFacade() {
         return new TransactionSyncManFacade();
     }
+
+    private static final class TestTransactionAspect extends TransactionAspectSupport {
+
+        TestTransactionAspect() {
+            final TestTransactionManager transactionManager = new TestTransactionManager();
+
+            // Synchronization is already initialized by the test set up
+            transactionManager.setTransactionSynchronization(AbstractPlatformTransactionManager.SYNCHRONIZATION_NEVER);
+
+            setTransactionManager(transactionManager);
+            setTransactionAttributeSource(new MatchAlwaysTransactionAttributeSource());
+        }
+
+        Object invoke(Callable<Object> callable) throws Throwable {
+            return invokeWithinTransaction(Object.class.getMethod("toString"), Object.class, callable::call);
+        }
+    }
+
+    private static final class TestTransactionManager extends AbstractPlatformTransactionManager {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+            // NOOP
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+            // NOOP
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+            // NOOP
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.spt.development.audit.spring.aop;
+
+import com.spt.development.audit.spring.Audited;
+import com.spt.development.audit.spring.DefaultCorrelationIdProvider;
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * Compares the cost of reading an ID with {@link Audited.Id#field()}, with a compiled {@link Audited#id()} expression
+ * and with the same expression interpreted. Only run when the <code>spt.benchmark</code> system property is
+ * <code>true</code>; for example, <code>mvn test -Dtest=AuditedExpressionsBenchmarkTest -Dspt.benchmark=true</code>.
+ */
+@EnabledIfSystemProperty(named = "spt.benchmark", matches = "true")
+class AuditedExpressionsBenchmarkTest {
+    private static final class TestData {
+        static final Long ID = 9879798L;
+        static final int WARMUP_ITERATIONS = 200_000;
+        static final int MEASURED_ITERATIONS = 2_000_000;
+    }
+
+    @Test
+    void benchmark_idExtraction_shouldReportNanosPerOperation() throws Exception {
+        final Method method = TestTarget.class.getMethod("test", Order.class);
+        final Order order = new Order(new Customer(TestData.ID));
+        final Object[] args = { order };
+
+        final PropertyPath propertyPath = PropertyPath.of(Order.class, "customer.id");
+        final AuditedExpressions compiled = AuditedExpressions.parse(method, method.getAnnotation(Audited.class));
+        final CorrelationIdLogger logger = new CorrelationIdLogger(
+                LoggerFactory.getLogger(AuditedExpressionsBenchmarkTest.class), false, new DefaultCorrelationIdProvider()
+        );
+        final Expression interpreted = new SpelExpressionParser().parseExpression(method.getAnnotation(Audited.class).id());
+
+        run("Field", () -> propertyPath.read(order));
+        run("Compiled SpEL", () -> compiled.evaluateId(compiled.createContext(args, null), logger));
+        run("Interpreted SpEL", () -> {
+            final EvaluationContext context = compiled.createContext(args, null);
+
+            return interpreted.getValue(context);
+        });
+    }
+
+    private static void run(String name, Supplier<Object> extraction) {
+        for (int i = 0; i < TestData.WARMUP_ITERATIONS; i++) {
+            assertThat(extraction.get(), is(TestData.ID));
+        }
+
+        Object result = null;
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < TestData.MEASURED_ITERATIONS; i++) {
+            result = extraction.get();
+        }
+
+        final long elapsed = System.nanoTime() - start;
+
+        assertThat(result, is(TestData.ID));
+
+        System.out.printf("%-16s %8.1f ns/op%n", name, (double) elapsed / TestData.MEASURED_ITERATIONS);
+    }
+
+    public static final class Order {
+        private final Customer customer;
+
+        Order(Customer customer) {
+            this.customer = customer;
+        }
+
+        public Customer getCustomer() {
+            return customer;
+        }
+    }
+
+    public static final class Customer {
+        private final Long id;
+
+        Customer(Long id) {
+            this.id = id;
+        }
+
+        public Long getId() {
+            return id;
+        }
+    }
+
+    private static final class TestTarget {
+
+        @Audited(type = "ORDER", subType = "CREATE", id = "#p0.customer.id")
+        public void test(Order order) {
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.spt.development.audit.spring.aop;
+
+import com.spt.development.audit.spring.Audited;
+import com.spt.development.audit.spring.DefaultCorrelationIdProvider;
+import com.spt.development.audit.spring.util.CorrelationIdLogger;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.when;
+
+class AuditedExpressionsTest {
+    private static final CorrelationIdLogger LOGGER = new CorrelationIdLogger(
+            LoggerFactory.getLogger(AuditedExpressionsTest.class), false, new DefaultCorrelationIdProvider()
+    );
+
+    private static final class TestData {
+        static final String ID = "ORD-1";
+        static final String CUSTOMER_ID = "C-1";
+        static final List<String> ITEMS = List.of("item1", "item2", "item3");
+        static final int COMPILE_THRESHOLD = 101;
+    }
+
+    @Test
+    void parse_noExpressions_shouldNotHaveExpressionsOrContext() throws Exception {
+        final AuditedExpressions target = parse("noExpressions");
+
+        assertThat(target.hasId(), is(false));
+        assertThat(target.hasDetail(), is(false));
+        assertThat(target.createContext(new Object[] { createOrder() }, null), is(nullValue()));
+    }
+
+    @Test
+    void evaluateId_resultExpression_shouldEvaluateAgainstResult() throws Exception {
+        final AuditedExpressions target = parse("resultId");
+
+        assertThat(target.hasId(), is(true));
+        assertThat(target.hasDetail(), is(false));
+        assertThat(target.evaluateId(target.createContext(new Object[0], createOrder()), LOGGER), is(TestData.ID));
+    }
+
+    @Test
+    void evaluateDetail_argumentExpressions_shouldEvaluateAgainstArguments() throws Exception {
+        final AuditedExpressions target = parse("argumentDetails", Order.class, String.class);
+        final EvaluationContext context = target.createContext(new Object[] { createOrder(), TestData.CUSTOMER_ID }, null);
+
+        assertThat(target.hasId(), is(true));
+        assertThat(target.hasDetail(), is(true));
+        assertThat(target.evaluateId(context, LOGGER), is(TestData.CUSTOMER_ID));
+        assertThat(target.evaluateDetail(context, LOGGER), is(TestData.ITEMS.size()));
+    }
+
+    @Test
+    void evaluateId_parameterNamesAvailable_shouldEvaluateAgainstNamedArguments() throws Exception {
+        final Method method = TestTarget.class.getMethod("namedArgument", Order.class);
+        final ParameterNameDiscoverer parameterNameDiscoverer = Mockito.mock(ParameterNameDiscoverer.class);
+
+        when(parameterNameDiscoverer.getParameterNames(method)).thenReturn(new String[] { "order" });
+
+        final AuditedExpressions target = AuditedExpressions.parse(method, method.getAnnotation(Audited.class), parameterNameDiscoverer);
+
+        assertThat(target.evaluateId(target.createContext(new Object[] { createOrder() }, null), LOGGER), is(TestData.ID));
+    }
+
+    @Test
+    void evaluateId_evaluatedRepeatedly_shouldCompileExpression() throws Exception {
+        final AuditedExpressions target = parse("resultId");
+
+        for (int i = 0; i < TestData.COMPILE_THRESHOLD; i++) {
+            assertThat(target.evaluateId(target.createContext(new Object[0], createOrder()), LOGGER), is(TestData.ID));
+        }
+
+        final Object id = ReflectionTestUtils.getField(target, "id");
+
+        assertThat(ReflectionTestUtils.getField(id, "compiledAst"), is(notNullValue()));
+        assertThat(target.evaluateId(target.createContext(new Object[0], createOrder()), LOGGER), is(TestData.ID));
+    }
+
+    @Test
+    void parse_invalidExpression_shouldThrowException() {
+        final IllegalStateException result = assertThrows(IllegalStateException.class, () -> parse("invalid"));
+
+        assertThat(result.getMessage(), containsString("Programming error"));
+        assertThat(result.getMessage(), containsString("@Audited(id = \"#result.(\")"));
+        assertThat(result.getMessage(), containsString("could not be parsed"));
+    }
+
+    @Test
+    void evaluateDetail_expressionFails_shouldReturnNull() throws Exception {
+        final AuditedExpressions target = parse("unknownProperty");
+
+        assertThat(target.evaluateDetail(target.createContext(new Object[0], createOrder()), LOGGER), is(nullValue()));
+    }
+
+    private static AuditedExpressions parse(String methodName, Class<?>... parameterTypes) throws Exception {
+        final Method method = TestTarget.class.getMethod(methodName, parameterTypes);
+
+        return AuditedExpressions.parse(method, method.getAnnotation(Audited.class));
+    }
+
+    private static Order createOrder() {
+        return new Order(TestData.ID, TestData.ITEMS);
+    }
+
+    public record Order(String id, List<String> items) {
+    }
+
+    private static final class TestTarget {
+
+        @Audited(type = "ORDER", subType = "CREATE")
+        public void noExpressions() {
+        }
+
+        @Audited(type = "ORDER", subType = "CREATE", id = "#result.id")
+        public void resultId() {
+        }
+
+        @Audited(type = "ORDER", subType = "CREATE", id = "#a1", detail = "#p0.items.size()")
+        public void argumentDetails(Order order, String customerId) {
+        }
+
+        @Audited(type = "ORDER", subType = "CREATE", id = "#order.id")
+        public void namedArgument(Order order) {
+        }
+
+        @Audited(type = "ORDER", subType = "CREATE", id = "#result.(")
+        public void invalid() {
+        }
+
+        @Audited(type = "ORDER", subType = "CREATE", detail = "#result.unknown")
+        public void unknownProperty() {
+        }
+    }
+}
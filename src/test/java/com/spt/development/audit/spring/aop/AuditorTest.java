@@ -5,14 +5,19 @@ import ch.qos.logback.classic.spi.ILoggingEvent;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.spt.development.audit.spring.AuditEvent;
+import com.spt.development.audit.spring.AuditEventIdGenerator;
 import com.spt.development.audit.spring.AuditEventWriter;
 import com.spt.development.audit.spring.Audited;
 import com.spt.development.audit.spring.CorrelationIdProvider;
 import com.spt.development.audit.spring.DefaultCorrelationIdProvider;
+import com.spt.development.audit.spring.DetailSerializers;
+import com.spt.development.audit.spring.jfr.AuditEventBuiltEvent;
+import com.spt.development.audit.spring.jfr.JfrRecordingUtil;
 import com.spt.development.audit.spring.security.AuthenticationAdapter;
 import com.spt.development.audit.spring.security.AuthenticationAdapterFactory;
 import com.spt.development.cid.CorrelationId;
 import jakarta.servlet.http.HttpServletRequest;
+import jdk.jfr.consumer.RecordedEvent;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.collections4.keyvalue.DefaultMapEntry;
 import org.aspectj.lang.ProceedingJoinPoint;
@@ -28,9 +33,16 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.net.UnknownHostException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static com.spt.development.test.LogbackUtil.verifyErrorLogging;
 import static com.spt.development.test.LogbackUtil.verifyLogging;
@@ -46,6 +58,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -65,6 +79,11 @@ class AuditorTest {
         static final String ORIGINATING_IP = "127.9.9.9";
         static final String TYPE = "APPLICATION";
         static final String SUB_TYPE = "TEST_SUB_TYPE";
+        static final Instant NOW = Instant.parse("2020-07-19T15:29:17.123Z");
+        static final Instant LATER = Instant.parse("2020-07-19T15:29:18.456Z");
+        static final String EVENT_ID = "01EDPK3M3V0000000000000000";
+        static final String EVENT_ID_2 = "01EDPK3M3V0000000000000001";
+        static final Long ID_2 = 9879799L;
 
         static final String RESULT = "Success!";
         static final String METHOD = "test";
@@ -125,7 +144,8 @@ class AuditorTest {
         assertThat(auditEventCaptor.getValue().getServiceId(), is(TestData.APP_NAME));
         assertThat(auditEventCaptor.getValue().getServiceVersion(), is(TestData.VERSION));
         assertThat(auditEventCaptor.getValue().getServerHostName(), is(TestData.SERVER_HOST_NAME));
-        assertThat(auditEventCaptor.getValue().getCreated(), is(notNullValue()));
+        assertThat(auditEventCaptor.getValue().getCreated(), is(TestData.NOW.atOffset(ZoneOffset.UTC)));
+        assertThat(auditEventCaptor.getValue().getEventId(), is(TestData.EVENT_ID));
     }
 
     @ParameterizedTest
@@ -262,6 +282,188 @@ class AuditorTest {
         assertThat(auditEventCaptor.getValue().getId(), is(TestData.ID));
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithIdCollectionParameter_shouldSendAuditEventPerId(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        when(args.auditEventIdGenerator.nextId()).thenReturn(TestData.EVENT_ID, TestData.EVENT_ID_2);
+
+        createAuditor(args).audit(
+                mockJoinPoint("testIds", new Object[] { List.of(new TestIdParameter(), new TestIdParameter(TestData.ID_2)) }, List.class)
+        );
+
+        final List<AuditEvent> auditEvents = captureWrittenAuditEvents(args);
+
+        verify(args.authenticationAdapterFactory, times(1)).createAdapter();
+        verify(args.localhostFacade, times(1)).getServerHostName();
+
+        assertThat(auditEvents.get(0).getId(), is(TestData.ID));
+        assertThat(auditEvents.get(0).getEventId(), is(TestData.EVENT_ID));
+        assertThat(auditEvents.get(0).getUserId(), is(TestData.USER_ID));
+        assertThat(auditEvents.get(1).getId(), is(TestData.ID_2.toString()));
+        assertThat(auditEvents.get(1).getEventId(), is(TestData.EVENT_ID_2));
+        assertThat(auditEvents.get(1).getUserId(), is(TestData.USER_ID));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithIdArrayParameter_shouldSendAuditEventPerId(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testIds", new Object[] { new long[] { 1L, 2L, 3L } }, long[].class));
+
+        final List<AuditEvent> auditEvents = captureWrittenAuditEvents(args);
+
+        assertThat(auditEvents.stream().map(AuditEvent::getId).toList(), is(List.of("1", "2", "3")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithIdCollectionReturnType_shouldSendAuditEventPerId(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        final ProceedingJoinPoint joinPoint = mockJoinPoint("testIdsReturned", new Object[0]);
+        when(joinPoint.proceed()).thenReturn(List.of(TestData.ID, TestData.ID_2.toString()));
+
+        createAuditor(args).audit(joinPoint);
+
+        final List<AuditEvent> auditEvents = captureWrittenAuditEvents(args);
+
+        assertThat(auditEvents.stream().map(AuditEvent::getId).toList(), is(List.of(TestData.ID, TestData.ID_2.toString())));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithEmptyIdCollectionParameter_shouldSendSingleAuditEventWithNullId(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testIds", new Object[] { List.of() }, List.class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+        verify(args.auditEventWriter, never()).writeAll(any());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(nullValue()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithEmptyIdArrayExpression_shouldSendSingleAuditEventWithNullId(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testIdsExpression", new Object[] { new String[0] }, List.class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(nullValue()));
+    }
+
+    @Test
+    void audit_auditedMethodWithEmptyIdCollectionParameter_shouldLogWarningWithCorrelationId() {
+        verifyWarnLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        createAuditor(true).audit(mockJoinPoint("testIds", new Object[] { List.of() }, List.class));
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Parameter 1 was annotated with @Audited.Id annotation but is empty, audit event generated with null ID"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithSingleEventIdArrayParameter_shouldSendSingleAuditEventWithJoinedIds(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+        final TestIdParameter[] parameters = { new TestIdParameter(), new TestIdParameter(null), new TestIdParameter(TestData.ID_2) };
+
+        createAuditor(args).audit(mockJoinPoint("testSingleEvent", new Object[] { parameters }, TestIdParameter[].class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(TestData.ID + "," + TestData.ID_2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithSingleEventEmptyIdArrayParameter_shouldSendSingleAuditEventWithNullId(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testSingleEvent", new Object[] { new TestIdParameter[0] }, TestIdParameter[].class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(nullValue()));
+    }
+
+    @Test
+    void audit_auditedMethodWithNullIdCollectionElement_shouldLogWarningWithCorrelationId() {
+        verifyWarnLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        createAuditor(true).audit(mockJoinPoint("testIds", new Object[] { Arrays.asList(new TestIdParameter(), null) }, List.class));
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Parameter 1 element 2 was annotated with @Audit.Id annotation but is null"
+        );
+    }
+
+    @Test
+    void audit_auditedMethodWithIdCollectionWriteFailure_shouldLogErrorForEachAuditEvent() {
+        verifyLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        final AuditorArgs args = new AuditorArgs(true);
+
+                        doThrow(new IllegalStateException("Test")).when(args.auditEventWriter).writeAll(any());
+
+                        createAuditor(args).audit(mockJoinPoint("testIds", new Object[] { new long[] { 1L, 2L } }, long[].class));
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                (logs) -> {
+                    final List<String> errors = logs.stream()
+                            .filter(e -> e.getLevel() == Level.ERROR)
+                            .map(ILoggingEvent::getFormattedMessage)
+                            .toList();
+
+                    assertThat(errors.size(), is(2));
+                    assertThat(errors.get(0), containsString("Failed to send audit event:"));
+                    assertThat(errors.get(0), containsString("id=1,"));
+                    assertThat(errors.get(1), containsString("id=2,"));
+                }
+        );
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { true, false })
     void audit_auditedMethodWithNullIdParameter_shouldSendAuditEventWithNullId(boolean includeCorrelationIdInLogs) throws Throwable {
@@ -384,6 +586,42 @@ class AuditorTest {
         );
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithNestedIdFieldOfParameter_shouldSendAuditEventWithIdSet(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(
+                mockJoinPoint("testNestedIdField", new Object[] { new TestNestedIdParameter(new TestIdParameter()) }, TestNestedIdParameter.class)
+        );
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(TestData.ID));
+    }
+
+    @Test
+    void audit_auditedMethodWithNullNestedIdFieldOfParameter_shouldLogWarningWithCorrelationId() {
+        verifyWarnLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        createAuditor(true).audit(
+                                mockJoinPoint("testNestedIdField", new Object[] { new TestNestedIdParameter(null) }, TestNestedIdParameter.class)
+                        );
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Parameter 1 was annotated with @Audit.Id(field = \"idParameter.myIdParam\") annotation but the 'idParameter.myIdParam' field is null"
+        );
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { true, false })
     void audit_auditedMethodWithoutUnknownIdField_shouldThrowException(boolean includeCorrelationIdInLogs) throws Throwable {
@@ -398,6 +636,122 @@ class AuditorTest {
         assertThat(result.getMessage(), containsString("could be found"));
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithIdAndDetailExpressions_shouldSendAuditEventWithIdAndDetailsSet(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+        final TestDetailParameter parameter = new TestDetailParameter("field1", "field2");
+        final Auditor target = createAuditor(args);
+
+        target.audit(mockJoinPoint("testExpressions", new Object[] { parameter, Long.valueOf(TestData.ID) }, TestDetailParameter.class, Long.class));
+        target.audit(mockJoinPoint("testExpressions", new Object[] { parameter, Long.valueOf(TestData.ID) }, TestDetailParameter.class, Long.class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(2)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(TestData.ID));
+        assertThat(auditEventCaptor.getValue().getDetails(), is(GSON.toJson(parameter)));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithNullDetailExpressionValue_shouldSendAuditEventWithoutDetails(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testExpressions", new Object[] { null, Long.valueOf(TestData.ID) }, TestDetailParameter.class, Long.class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(TestData.ID));
+        assertThat(auditEventCaptor.getValue().getDetails(), is(nullValue()));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithCollectionIdExpression_shouldSendAuditEventPerId(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testIdsExpression", new Object[] { List.of(TestData.ID, TestData.ID_2) }, List.class));
+
+        final List<AuditEvent> result = captureWrittenAuditEvents(args);
+
+        assertThat(result.stream().map(AuditEvent::getId).toList(), is(List.of(TestData.ID, TestData.ID_2.toString())));
+    }
+
+    @Test
+    void audit_auditedMethodWithNullIdExpressionValue_shouldLogWarningWithCorrelationId() {
+        verifyWarnLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        createAuditor(true).audit(
+                                mockJoinPoint("testExpressions", new Object[] { null, null }, TestDetailParameter.class, Long.class)
+                        );
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Expression \"#p1\" was annotated with @Audit.Id annotation but is null"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithUnevaluableExpressions_shouldSendAuditEventWithNullIdAndDetails(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        createAuditor(args).audit(mockJoinPoint("testUnevaluableExpressions", new Object[] { null }, TestIdParameter.class));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getId(), is(nullValue()));
+        assertThat(auditEventCaptor.getValue().getDetails(), is(nullValue()));
+    }
+
+    @Test
+    void audit_auditedMethodWithUnevaluableIdExpression_shouldLogWarningWithCorrelationId() {
+        verifyWarnLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        createAuditor(true).audit(mockJoinPoint("testUnevaluableExpressions", new Object[] { null }, TestIdParameter.class));
+                    }
+                    catch (Throwable t) {
+                        throw new RuntimeException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "testUnevaluableExpressions", "was annotated with @Audited(id = \"#p0.id\"), but the expression could not be evaluated"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithInvalidExpression_shouldThrowException(boolean includeCorrelationIdInLogs) throws Throwable {
+        final Auditor target = createAuditor(includeCorrelationIdInLogs);
+        final ProceedingJoinPoint joinPoint = mockJoinPoint("testInvalidExpression", new Object[0]);
+
+        final IllegalStateException result = assertThrows(IllegalStateException.class, () -> target.audit(joinPoint));
+
+        assertThat(result.getMessage(), containsString("Programming error"));
+        assertThat(result.getMessage(), containsString("could not be parsed"));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { true, false })
     void audit_auditedMethodWithDetailParameter_shouldSendAuditEventWithDetailsSet(boolean includeCorrelationIdInLogs) throws Throwable {
@@ -413,6 +767,106 @@ class AuditorTest {
         assertThat(auditEventCaptor.getValue().getDetails(), is(GSON.toJson(parameter)));
     }
 
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_auditedMethodWithDetailParameterAndDetailSerializers_shouldSendAuditEventWithRulesApplied(
+            boolean includeCorrelationIdInLogs) throws Throwable {
+
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+        final TestDetailParameter parameter = new TestDetailParameter("field1", "field2");
+        final Auditor target = createAuditor(args).withDetailSerializers(
+                new DetailSerializers().withRules(TestDetailParameter.class, new DetailSerializers.Rules().mask("field2"))
+        );
+
+        target.audit(mockJoinPoint(new Object[] { parameter }));
+
+        final ArgumentCaptor<AuditEvent> auditEventCaptor = ArgumentCaptor.forClass(AuditEvent.class);
+
+        verify(args.auditEventWriter, times(1)).write(auditEventCaptor.capture());
+
+        assertThat(auditEventCaptor.getValue().getDetails(), is("{\"field1\":\"field1\",\"field2\":\"" + DetailSerializers.MASK + "\"}"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_writerDiscarding_shouldNotBuildOrSendAuditEvent(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        when(args.auditEventWriter.isDiscarding()).thenReturn(true);
+
+        final Object result = createAuditor(args).withDeferredEventConstruction().audit(mockJoinPoint(new Object[] { TestData.ID_2 }, long.class));
+
+        assertThat(result, is(TestData.RESULT));
+
+        verify(args.auditEventWriter, times(1)).isDiscarding();
+        Mockito.verifyNoMoreInteractions(args.auditEventWriter);
+        verifyNoInteractions(args.authenticationAdapterFactory, args.localhostFacade, args.auditEventIdGenerator);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void audit_deferredEventConstruction_shouldOnlyBuildAuditEventsWhenWritten(boolean includeCorrelationIdInLogs) throws Throwable {
+        final AuditorArgs args = new AuditorArgs(includeCorrelationIdInLogs);
+
+        args.clock = Mockito.mock(Clock.class);
+        when(args.clock.instant()).thenReturn(TestData.NOW, TestData.LATER);
+
+        createAuditor(args).withDeferredEventConstruction().audit(mockJoinPoint(new Object[] { TestData.ID_2 }, long.class));
+
+        final Supplier<? extends Collection<AuditEvent>> supplier = captureDeferredAuditEvents(args);
+
+        verifyNoInteractions(args.authenticationAdapterFactory, args.localhostFacade, args.auditEventIdGenerator);
+        verify(args.auditEventWriter, never()).write(any());
+
+        final List<AuditEvent> result = new ArrayList<>(supplier.get());
+
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0).getId(), is(TestData.ID_2.toString()));
+        assertThat(result.get(0).getEventId(), is(TestData.EVENT_ID));
+        assertThat(result.get(0).getUsername(), is(TestData.USERNAME));
+        assertThat(result.get(0).getServerHostName(), is(TestData.SERVER_HOST_NAME));
+        assertThat(result.get(0).getCreatedInstant(), is(TestData.NOW));
+    }
+
+    @Test
+    void audit_deferredEventConstructionWriteFails_shouldLogErrorWithCorrelationId() throws Throwable {
+        final AuditorArgs args = new AuditorArgs(true);
+        final Auditor target = createAuditor(args).withDeferredEventConstruction();
+        final ProceedingJoinPoint joinPoint = mockJoinPoint(new Object[0]);
+
+        doThrow(new IllegalStateException("Failed")).when(args.auditEventWriter).writeDeferred(any());
+
+        verifyErrorLogging(
+                Auditor.class,
+                () -> {
+                    try {
+                        target.audit(joinPoint);
+                    } catch (Throwable t) {
+                        throw new IllegalStateException(t);
+                    }
+                    return null;
+                },
+                "[" + TestData.CORRELATION_ID + "]",
+                "Failed to send audit events for:"
+        );
+    }
+
+    @Test
+    void audit_auditedMethodWithDetailParameter_shouldRecordAuditEventBuiltEvent() throws Throwable {
+        final AuditorArgs args = new AuditorArgs(true);
+        final TestDetailParameter parameter = new TestDetailParameter("field1", "field2");
+        final Auditor target = createAuditor(args);
+        final ProceedingJoinPoint joinPoint = mockJoinPoint(new Object[] { parameter });
+
+        final List<RecordedEvent> events = JfrRecordingUtil.record(AuditEventBuiltEvent.NAME, () -> target.audit(joinPoint));
+
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getString("type"), is(TestData.TYPE));
+        assertThat(events.get(0).getString("subType"), is(TestData.SUB_TYPE));
+        assertThat(events.get(0).getInt("detailsLength"), is(GSON.toJson(parameter).length()));
+        assertThat(events.get(0).getInt("eventCount"), is(1));
+    }
+
     @ParameterizedTest
     @ValueSource(booleans = { true, false })
     void audit_auditedMethodWithMultipleDetailParameters_shouldSendAuditEventWithDetailsSet(boolean includeCorrelationIdInLogs) throws Throwable {
@@ -649,6 +1103,25 @@ class AuditorTest {
         );
     }
 
+    @SuppressWarnings("unchecked")
+    private static Supplier<? extends Collection<AuditEvent>> captureDeferredAuditEvents(AuditorArgs args) {
+        final ArgumentCaptor<Supplier<? extends Collection<AuditEvent>>> supplierCaptor = ArgumentCaptor.forClass(Supplier.class);
+
+        verify(args.auditEventWriter, times(1)).writeDeferred(supplierCaptor.capture());
+
+        return supplierCaptor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<AuditEvent> captureWrittenAuditEvents(AuditorArgs args) {
+        final ArgumentCaptor<Collection<AuditEvent>> auditEventsCaptor = ArgumentCaptor.forClass(Collection.class);
+
+        verify(args.auditEventWriter, times(1)).writeAll(auditEventsCaptor.capture());
+        verify(args.auditEventWriter, never()).write(any());
+
+        return new ArrayList<>(auditEventsCaptor.getValue());
+    }
+
     private ProceedingJoinPoint mockJoinPoint(Object[] args) throws Throwable {
         final Class<?>[] argTypes = Arrays.stream(args)
                 .map(Object::getClass)
@@ -680,7 +1153,8 @@ class AuditorTest {
 
     private Auditor createAuditor(AuditorArgs args) {
         return new Auditor(args.appName, args.appVersion, args.localhostFacade, args.auditEventWriter,
-                args.includeCorrelationIdInLogs, args.correlationIdProvider, args.authenticationAdapterFactory);
+                args.includeCorrelationIdInLogs, args.correlationIdProvider, args.authenticationAdapterFactory, args.clock,
+                args.auditEventIdGenerator);
     }
 
     @Test
@@ -691,6 +1165,17 @@ class AuditorTest {
 
         assertThat(localhostFacade, is(notNullValue()));
         assertThat(localhostFacade, instanceOf(LocalhostFacade.class));
+        assertThat(ReflectionTestUtils.getField(result, "clock"), is(Clock.systemUTC()));
+        assertThat(ReflectionTestUtils.getField(result, "auditEventIdGenerator"), instanceOf(AuditEventIdGenerator.class));
+    }
+
+    @Test
+    void constructor_publicConstructorWithClock_shouldCreateNewInstanceWithClock() {
+        final Clock clock = Clock.fixed(TestData.NOW, ZoneOffset.UTC);
+        final Auditor result = new Auditor(null, null, null, true, new DefaultCorrelationIdProvider(), null, clock);
+
+        assertThat(ReflectionTestUtils.getField(result, "clock"), is(clock));
+        assertThat(ReflectionTestUtils.getField(result, "localhostFacade"), instanceOf(LocalhostFacade.class));
     }
 
     private static class AuditorArgs {
@@ -701,11 +1186,14 @@ class AuditorTest {
         AuditEventWriter auditEventWriter = Mockito.mock(AuditEventWriter.class);
         CorrelationIdProvider correlationIdProvider = new DefaultCorrelationIdProvider();
         AuthenticationAdapterFactory authenticationAdapterFactory = Mockito.mock(AuthenticationAdapterFactory.class);
+        Clock clock = Clock.fixed(TestData.NOW, ZoneOffset.UTC);
+        AuditEventIdGenerator auditEventIdGenerator = Mockito.mock(AuditEventIdGenerator.class);
 
         AuditorArgs(final boolean includeCorrelationIdInLogs) throws UnknownHostException {
             final AuthenticationAdapter authenticationAdapter = Mockito.mock(AuthenticationAdapter.class);
 
             when(localhostFacade.getServerHostName()).thenReturn(TestData.SERVER_HOST_NAME);
+            when(auditEventIdGenerator.nextId()).thenReturn(TestData.EVENT_ID);
             when(authenticationAdapterFactory.createAdapter()).thenReturn(authenticationAdapter);
             when(authenticationAdapter.getUserId()).thenReturn(TestData.USER_ID);
             when(authenticationAdapter.getUsername()).thenReturn(TestData.USERNAME);
@@ -753,11 +1241,56 @@ class AuditorTest {
             return new TestIdParameter();
         }
 
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
+        public String testIds(@Audited.Id("myIdParam") List<TestIdParameter> parameters) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
+        public String testIds(@Audited.Id long[] ids) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
+        public @Audited.Id List<String> testIdsReturned() {
+            return List.of(TestData.ID);
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
+        public String testSingleEvent(@Audited.Id(field = "myIdParam", bulk = Audited.Bulk.SINGLE_EVENT) TestIdParameter[] parameters) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE, id = "#p1", detail = "#a0")
+        public String testExpressions(TestDetailParameter parameter, Long id) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE, id = "#p0")
+        public String testIdsExpression(List<String> ids) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE, id = "#p0.id", detail = "#p0.items")
+        public String testUnevaluableExpressions(TestIdParameter parameter) {
+            return TestData.RESULT;
+        }
+
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE, id = "#result.(")
+        public String testInvalidExpression() {
+            return TestData.RESULT;
+        }
+
         @Audited(subType = TestData.SUB_TYPE)
         public String testTypeNotSet() {
             return TestData.RESULT;
         }
 
+        @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
+        public String testNestedIdField(@Audited.Id("idParameter.myIdParam") TestNestedIdParameter parameter) {
+            return TestData.RESULT;
+        }
+
         @Audited(type = TestData.TYPE, subType = TestData.SUB_TYPE)
         public String testUnknownIdField(@Audited.Id("myIdParam") Object parameter) {
             return TestData.RESULT;
@@ -783,6 +1316,14 @@ class AuditorTest {
         }
     }
 
+    private static class TestNestedIdParameter {
+        TestIdParameter idParameter;
+
+        TestNestedIdParameter(TestIdParameter idParameter) {
+            this.idParameter = idParameter;
+        }
+    }
+
     private static class TestDetailParameter {
         String field1;
         String field2;
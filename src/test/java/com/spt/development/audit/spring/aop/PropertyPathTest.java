@@ -0,0 +1,186 @@
+package com.spt.development.audit.spring.aop;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PropertyPathTest {
+    private static final class TestData {
+        static final String ID = "2451";
+        static final String CUSTOMER_ID = "C-1001";
+        static final String ADDRESS_ID = "A-77";
+    }
+
+    @Test
+    void read_declaredField_shouldReturnFieldValue() throws Exception {
+        final Order order = createOrder();
+
+        assertThat(PropertyPath.of(Order.class, "id").read(order), is(TestData.ID));
+    }
+
+    @Test
+    void read_superclassField_shouldReturnFieldValue() throws Exception {
+        final Customer customer = createOrder().customer;
+
+        assertThat(PropertyPath.of(Customer.class, "version").read(customer), is(3));
+    }
+
+    @Test
+    void read_nestedFields_shouldReturnNestedFieldValue() throws Exception {
+        final Order order = createOrder();
+
+        assertThat(PropertyPath.of(Order.class, "customer.id").read(order), is(TestData.CUSTOMER_ID));
+    }
+
+    @Test
+    void read_getter_shouldReturnGetterValue() throws Exception {
+        final Order order = createOrder();
+
+        assertThat(PropertyPath.of(Order.class, "customer.reference").read(order), is("REF-" + TestData.CUSTOMER_ID));
+    }
+
+    @Test
+    void read_booleanGetter_shouldReturnGetterValue() throws Exception {
+        final Order order = createOrder();
+
+        assertThat(PropertyPath.of(Order.class, "customer.active").read(order), is(true));
+    }
+
+    @Test
+    void read_recordComponent_shouldReturnAccessorValue() throws Exception {
+        final Order order = createOrder();
+
+        assertThat(PropertyPath.of(Order.class, "customer.address.addressId").read(order), is(TestData.ADDRESS_ID));
+    }
+
+    @Test
+    void read_nullPropertyInPath_shouldReturnNull() throws Exception {
+        final Order order = createOrder();
+        order.customer = null;
+
+        assertThat(PropertyPath.of(Order.class, "customer.address.addressId").read(order), is(nullValue()));
+    }
+
+    @Test
+    void of_unknownProperty_shouldThrowExceptionNamingProperty() {
+        final NoSuchFieldException result = assertThrows(
+                NoSuchFieldException.class, () -> PropertyPath.of(Order.class, "customer.unknown.id")
+        );
+
+        assertThat(result.getMessage(), is("unknown"));
+    }
+
+    @Test
+    void of_staticFieldAndMethods_shouldNotBeUsedToReadProperty() {
+        final NoSuchFieldException result = assertThrows(NoSuchFieldException.class, () -> PropertyPath.of(Order.class, "counter"));
+
+        assertThat(result.getMessage(), is("counter"));
+    }
+
+    @Test
+    void of_voidMethod_shouldNotBeUsedToReadProperty() {
+        final NoSuchFieldException result = assertThrows(NoSuchFieldException.class, () -> PropertyPath.of(Order.class, "reset"));
+
+        assertThat(result.getMessage(), is("reset"));
+    }
+
+    @Test
+    void of_samePathUsedAgain_shouldReturnCachedPropertyPath() throws Exception {
+        assertThat(PropertyPath.of(Order.class, "customer.id"), is(sameInstance(PropertyPath.of(Order.class, "customer.id"))));
+    }
+
+    @Test
+    void read_getterThrowsRuntimeException_shouldPropagateException() throws Exception {
+        final PropertyPath target = PropertyPath.of(Order.class, "failing");
+        final Order order = createOrder();
+
+        assertThrows(UnsupportedOperationException.class, () -> target.read(order));
+    }
+
+    @Test
+    void read_getterThrowsCheckedException_shouldThrowIllegalStateException() throws Exception {
+        final PropertyPath target = PropertyPath.of(Order.class, "checked");
+        final Order order = createOrder();
+
+        final IllegalStateException result = assertThrows(IllegalStateException.class, () -> target.read(order));
+
+        assertThat(result.getCause(), instanceOf(IOException.class));
+    }
+
+    @Test
+    void unreflect_inaccessibleMember_shouldThrowIllegalStateException() throws Exception {
+        final Field field = Order.class.getDeclaredField("id");
+
+        final IllegalStateException result = assertThrows(
+                IllegalStateException.class,
+                () -> PropertyPath.unreflect(MethodHandles.publicLookup(), lookup -> lookup.unreflectGetter(field))
+        );
+
+        assertThat(result.getCause(), instanceOf(IllegalAccessException.class));
+    }
+
+    private static Order createOrder() {
+        final Order order = new Order();
+        order.id = TestData.ID;
+        order.customer = new Customer(TestData.CUSTOMER_ID, new Address(TestData.ADDRESS_ID));
+
+        return order;
+    }
+
+    private static final class Order {
+        static int counter;
+
+        private String id;
+        private Customer customer;
+
+        static int getCounter() {
+            return counter;
+        }
+
+        void reset() {
+            id = null;
+        }
+
+        String getFailing() {
+            throw new UnsupportedOperationException("Test");
+        }
+
+        String getChecked() throws IOException {
+            throw new IOException("Test");
+        }
+    }
+
+    private static class Versioned {
+        private final int version = 3;
+    }
+
+    private static final class Customer extends Versioned {
+        private final String id;
+        private final Address address;
+
+        Customer(String id, Address address) {
+            this.id = id;
+            this.address = address;
+        }
+
+        String getReference() {
+            return "REF-" + id;
+        }
+
+        boolean isActive() {
+            return true;
+        }
+    }
+
+    private record Address(String addressId) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.spt.development.audit.spring.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Records the Java Flight Recorder events emitted while running some code, for verifying the events in tests.
+ */
+public final class JfrRecordingUtil {
+
+    private JfrRecordingUtil() {
+    }
+
+    /**
+     * Runs the action with a recording of the named event enabled.
+     *
+     * @param eventName the name of the event to record.
+     * @param action the action to run.
+     *
+     * @return the events recorded.
+     */
+    public static List<RecordedEvent> record(String eventName, ThrowingRunnable action) {
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+
+            final Instant started = Instant.now();
+
+            try {
+                action.run();
+            } catch (Throwable t) {
+                // Events are still emitted when the action fails, which the tests may want to verify
+            }
+            recording.stop();
+
+            final Path file = Files.createTempFile("audit", ".jfr");
+
+            try {
+                recording.dump(file);
+
+                // The dumped chunks can contain events emitted before the recording started, by earlier recordings
+                return RecordingFile.readAllEvents(file).stream()
+                    .filter(e -> e.getEventType().getName().equals(eventName) && !e.getStartTime().isBefore(started))
+                    .toList();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * An action that may throw.
+     */
+    @FunctionalInterface
+    public interface ThrowingRunnable {
+
+        /**
+         * Runs the action.
+         *
+         * @throws Throwable if the action fails.
+         */
+        void run() throws Throwable;
+    }
+}
@@ -0,0 +1,240 @@
+package com.spt.development.audit.spring.util;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import com.spt.development.audit.spring.CorrelationIdProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.Mockito;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static com.spt.development.test.LogbackUtil.verifyLogging;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CorrelationIdLoggerTest {
+    private static final class TestData {
+        static final String CORRELATION_ID = "7d4a2f0e-91c3-4b5d-8e6f-0a1b2c3d4e5f";
+        static final String EVENT_CORRELATION_ID = "c0ffee00-1234-4abc-9def-000000000001";
+        static final String ARG1 = "arg1";
+        static final String ARG2 = "arg2";
+        static final String ARG3 = "arg3";
+        static final String MDC_KEY = "cid";
+        static final int ITERATIONS = 100_000;
+        static final long MAX_ALLOCATED_BYTES = 1024;
+    }
+
+    private final Logger logbackLogger = (Logger) LoggerFactory.getLogger(CorrelationIdLoggerTest.class);
+    private Level level;
+
+    @BeforeEach
+    void setUp() {
+        level = logbackLogger.getLevel();
+        logbackLogger.setLevel(Level.TRACE);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logbackLogger.setLevel(level);
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void debug_noArguments_shouldLogMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs, target -> target.debug("Message"), Level.DEBUG, "Message"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void debug_oneArgument_shouldLogFormattedMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs, target -> target.debug("Message {}", TestData.ARG1), Level.DEBUG, "Message arg1"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void debug_twoArguments_shouldLogFormattedMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs,
+                target -> target.debug("Message {} {}", TestData.ARG1, TestData.ARG2),
+                Level.DEBUG,
+                "Message arg1 arg2"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void warn_oneArgument_shouldLogFormattedMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs, target -> target.warn("Message {}", TestData.ARG1), Level.WARN, "Message arg1"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void warn_multipleArguments_shouldLogFormattedMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs,
+                target -> target.warn("Message {} {} {}", TestData.ARG1, TestData.ARG2, TestData.ARG3),
+                Level.WARN,
+                "Message arg1 arg2 arg3"
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = { true, false })
+    void error_oneArgument_shouldLogFormattedMessage(boolean includeCorrelationIdInLogs) {
+        verifyMessage(
+                includeCorrelationIdInLogs, target -> target.error("Message {}", TestData.ARG1), Level.ERROR, "Message arg1"
+        );
+    }
+
+    @Test
+    void log_explicitCorrelationId_shouldLogWithCorrelationIdGivenAtLevelGiven() {
+        verifyLogging(
+                CorrelationIdLoggerTest.class,
+                () -> {
+                    logbackLogger.setLevel(Level.TRACE);
+
+                    createLogger(true).log(org.slf4j.event.Level.INFO, TestData.EVENT_CORRELATION_ID, "Message {}", TestData.ARG1);
+                    createLogger(true).log(org.slf4j.event.Level.TRACE, TestData.EVENT_CORRELATION_ID, "Message {}", TestData.ARG2);
+                    return null;
+                },
+                (logs) -> {
+                    assertThat(logs.size(), is(2));
+                    assertLog(logs.get(0), Level.INFO, "[" + TestData.EVENT_CORRELATION_ID + "] Message arg1");
+                    assertLog(logs.get(1), Level.TRACE, "[" + TestData.EVENT_CORRELATION_ID + "] Message arg2");
+                }
+        );
+    }
+
+    @Test
+    void log_levelDisabled_shouldNotGetCorrelationIdOrLog() {
+        final CorrelationIdProvider correlationIdProvider = Mockito.mock(CorrelationIdProvider.class);
+        final CorrelationIdLogger target = new CorrelationIdLogger(logbackLogger, true, correlationIdProvider);
+
+        verifyLogging(
+                CorrelationIdLoggerTest.class,
+                () -> {
+                    logbackLogger.setLevel(Level.OFF);
+
+                    target.debug("Message");
+                    target.debug("Message {}", TestData.ARG1);
+                    target.debug("Message {} {}", TestData.ARG1, TestData.ARG2);
+                    target.warn("Message {}", TestData.ARG1);
+                    target.warn("Message {} {} {}", TestData.ARG1, TestData.ARG2, TestData.ARG3);
+                    target.error("Message {}", TestData.ARG1);
+                    target.log(org.slf4j.event.Level.INFO, TestData.EVENT_CORRELATION_ID, "Message {}", TestData.ARG1);
+                    return null;
+                },
+                (logs) -> assertThat(logs.size(), is(0))
+        );
+
+        verifyNoInteractions(correlationIdProvider);
+    }
+
+    @Test
+    void debug_levelDisabled_shouldNotAllocate() {
+        final CorrelationIdLogger target = createLogger(true);
+        final com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        logbackLogger.setLevel(Level.INFO);
+
+        // Warm up, so that any one off allocations (class loading for example) are not counted
+        logDebug(target, TestData.ITERATIONS);
+
+        final long before = threadMXBean.getCurrentThreadAllocatedBytes();
+
+        logDebug(target, TestData.ITERATIONS);
+
+        final long allocated = threadMXBean.getCurrentThreadAllocatedBytes() - before;
+
+        assertThat(allocated, is(lessThan(TestData.MAX_ALLOCATED_BYTES)));
+    }
+
+    @Test
+    void runWithCorrelationIdInMdc_noPreviousCorrelationId_shouldAddCorrelationIdToMdcThenRemoveIt() {
+        final String[] correlationId = new String[1];
+
+        CorrelationIdLogger.runWithCorrelationIdInMdc(
+                TestData.MDC_KEY, TestData.CORRELATION_ID, () -> correlationId[0] = MDC.get(TestData.MDC_KEY)
+        );
+
+        assertThat(correlationId[0], is(TestData.CORRELATION_ID));
+        assertThat(MDC.get(TestData.MDC_KEY), is(nullValue()));
+    }
+
+    @Test
+    void runWithCorrelationIdInMdc_previousCorrelationId_shouldRestorePreviousCorrelationId() {
+        MDC.put(TestData.MDC_KEY, TestData.EVENT_CORRELATION_ID);
+
+        try {
+            CorrelationIdLogger.runWithCorrelationIdInMdc(
+                    TestData.MDC_KEY,
+                    TestData.CORRELATION_ID,
+                    () -> assertThat(MDC.get(TestData.MDC_KEY), is(TestData.CORRELATION_ID))
+            );
+
+            assertThat(MDC.get(TestData.MDC_KEY), is(TestData.EVENT_CORRELATION_ID));
+        } finally {
+            MDC.remove(TestData.MDC_KEY);
+        }
+    }
+
+    private static void logDebug(CorrelationIdLogger target, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            target.debug("Message");
+            target.debug("Message {}", TestData.ARG1);
+            target.debug("Message {} {}", TestData.ARG1, TestData.ARG2);
+        }
+    }
+
+    private void verifyMessage(
+            boolean includeCorrelationIdInLogs, Consumer<CorrelationIdLogger> log, Level expectedLevel, String expectedMessage) {
+
+        verifyLogging(
+                CorrelationIdLoggerTest.class,
+                () -> {
+                    log.accept(createLogger(includeCorrelationIdInLogs));
+                    return null;
+                },
+                (List<ILoggingEvent> logs) -> {
+                    assertThat(logs.size(), is(1));
+                    assertLog(
+                            logs.get(0),
+                            expectedLevel,
+                            includeCorrelationIdInLogs ? "[" + TestData.CORRELATION_ID + "] " + expectedMessage : expectedMessage
+                    );
+                }
+        );
+    }
+
+    private static void assertLog(ILoggingEvent log, Level expectedLevel, String expectedMessage) {
+        assertThat(log.getLevel(), is(expectedLevel));
+        assertThat(log.getFormattedMessage(), is(expectedMessage));
+    }
+
+    private CorrelationIdLogger createLogger(boolean includeCorrelationIdInLogs) {
+        final CorrelationIdProvider correlationIdProvider = Mockito.mock(CorrelationIdProvider.class);
+
+        when(correlationIdProvider.getCorrelationId()).thenReturn(TestData.CORRELATION_ID);
+
+        return new CorrelationIdLogger(logbackLogger, includeCorrelationIdInLogs, correlationIdProvider);
+    }
+}
@@ -0,0 +1,67 @@
+package com.spt.development.audit.spring.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.SplittableRandom;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+class DateTimeUtilsTest {
+    private static final class TestData {
+        static final long SEED = 20200719L;
+        static final int RANDOM_INSTANTS = 10_000;
+        static final long MIN_EPOCH_SECOND = Instant.parse("0000-01-01T00:00:00Z").getEpochSecond();
+        static final long MAX_EPOCH_SECOND = Instant.parse("9999-12-31T23:59:59Z").getEpochSecond();
+        static final int NANOS_PER_SECOND = 1_000_000_000;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "1970-01-01T00:00:00Z",
+        "2020-07-19T15:29:17Z",
+        "2020-07-19T15:29:17.100Z",
+        "2020-07-19T15:29:17.123Z",
+        "2020-07-19T15:29:17.123456Z",
+        "2020-07-19T15:29:17.123456789Z",
+        "2020-07-19T15:29:17.000000001Z",
+        "2024-02-29T23:59:59.999999999Z",
+        "1969-12-31T23:59:59.5Z",
+        "0000-01-01T00:00:00Z",
+        "9999-12-31T23:59:59.999Z",
+        "-0001-12-31T23:59:59Z",
+        "+10000-01-01T00:00:00.1Z"
+    })
+    void formatIsoOffsetDateTime_instant_shouldFormatSameAsIsoOffsetDateTime(String value) {
+        final Instant instant = Instant.parse(value);
+
+        assertThat(DateTimeUtils.formatIsoOffsetDateTime(instant), is(ISO_OFFSET_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC))));
+    }
+
+    @Test
+    void formatIsoOffsetDateTime_randomInstants_shouldFormatSameAsIsoOffsetDateTime() {
+        final SplittableRandom random = new SplittableRandom(TestData.SEED);
+
+        for (int i = 0; i < TestData.RANDOM_INSTANTS; i++) {
+            final Instant instant = Instant.ofEpochSecond(
+                    random.nextLong(TestData.MIN_EPOCH_SECOND, TestData.MAX_EPOCH_SECOND), random.nextInt(TestData.NANOS_PER_SECOND)
+            );
+
+            assertThat(DateTimeUtils.formatIsoOffsetDateTime(instant), is(ISO_OFFSET_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC))));
+        }
+    }
+
+    @Test
+    void appendIsoOffsetDateTime_existingContent_shouldAppend() {
+        final StringBuilder result = DateTimeUtils.appendIsoOffsetDateTime(
+                Instant.parse("2020-07-19T15:29:17Z"), new StringBuilder("created=")
+        );
+
+        assertThat(result.toString(), is("created=2020-07-19T15:29:17Z"));
+    }
+}
@@ -0,0 +1,37 @@
+CREATE TABLE audit_event (
+    audit_event_id   BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type             VARCHAR(255) NOT NULL,
+    sub_type         VARCHAR(255) NOT NULL,
+    correlation_id   VARCHAR(255),
+    id               VARCHAR(255),
+    details          CLOB,
+    user_id          VARCHAR(255),
+    username         VARCHAR(255),
+    originating_ip   VARCHAR(255),
+    service_id       VARCHAR(255),
+    service_version  VARCHAR(255),
+    server_host_name VARCHAR(255),
+    created          TIMESTAMP WITH TIME ZONE,
+    event_id         VARCHAR(26)
+);
+
+CREATE TABLE audit_event_outbox (
+    outbox_id        BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    type             VARCHAR(255) NOT NULL,
+    sub_type         VARCHAR(255) NOT NULL,
+    correlation_id   VARCHAR(255),
+    id               VARCHAR(255),
+    details          CLOB,
+    user_id          VARCHAR(255),
+    username         VARCHAR(255),
+    originating_ip   VARCHAR(255),
+    service_id       VARCHAR(255),
+    service_version  VARCHAR(255),
+    server_host_name VARCHAR(255),
+    created          TIMESTAMP WITH TIME ZONE,
+    event_id         VARCHAR(26)
+);
+
+CREATE TABLE domain_entity (
+    id               BIGINT PRIMARY KEY
+);